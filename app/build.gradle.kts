@@ -46,6 +46,11 @@ android {
         compose = true
     }
 
+    testOptions {
+        // 本地单元测试里android.util.Log等方法返回默认值，不抛异常
+        unitTests.isReturnDefaultValues = true
+    }
+
     packaging {
         jniLibs {
             pickFirsts.add("lib/arm64-v8a/libc++_shared.so")
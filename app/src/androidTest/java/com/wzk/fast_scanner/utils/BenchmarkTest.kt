@@ -0,0 +1,98 @@
+package com.wzk.fast_scanner.utils
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.opencv.android.OpenCVLoader
+
+/**
+ * BenchmarkUtil里各项性能测试的预算 需要在真机上运行
+ */
+@RunWith(AndroidJUnit4::class)
+class BenchmarkTest {
+
+    @Before
+    fun loadOpenCv() {
+        assertTrue("OpenCV加载失败", OpenCVLoader.initDebug())
+    }
+
+    @Test
+    fun denseLayoutFitsBudget() {
+        // 一页2000个文本块的版面还原只需要几毫秒
+        val millis = BenchmarkUtil.benchmarkLayout(2000, 9)
+        assertTrue("版面还原耗时 $millis ms", millis <= LAYOUT_BUDGET_MS)
+    }
+
+    @Test
+    fun enginesReportLatencyAndAccuracy() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        val registry = TextRecognizerRegistry()
+        val engines = listOf(
+            PaddleOcrEngine(),
+            MlKitOcrEngine("en", registry),
+            OpenCvDnnOcrEngine()
+        )
+        val result = try {
+            BenchmarkUtil.benchmarkEngines(context, engines, 3)
+        } finally {
+            engines.forEach { it.close() }
+            registry.closeAll()
+        }
+        // 本地模型一定能加载 DNN模型不随应用打包时会被跳过
+        assertTrue(result.toString(), result.containsKey("paddle"))
+        for ((name, engine) in result) {
+            assertTrue("$name: $engine", engine.images >= 3)
+            assertTrue("$name: $engine", engine.medianMillis > 0 && engine.p95Millis >= engine.medianMillis)
+            assertTrue("$name: $engine", engine.p95Millis < OCRUtil.OCR_TIMEOUT_MS)
+            assertTrue("$name: $engine", engine.characterErrorRate <= MAX_CHARACTER_ERROR_RATE)
+        }
+    }
+
+    @Test
+    fun enginePoolScalesOnMultiCore() {
+        assumeTrue(Runtime.getRuntime().availableProcessors() >= 4)
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        val result = BenchmarkUtil.benchmarkEnginePool(context, 8)
+        val single = result[1]
+        assertTrue(result.toString(), single != null && single > 0)
+        // 有空闲核心时多个引擎同时识别要比一个引擎明显快
+        val best = result.values.max()
+        assertTrue(result.toString(), best >= single!! * MIN_POOL_SPEEDUP)
+    }
+
+    @Test
+    fun sessionNativeHeapStaysFlat() {
+        MatLeakTracker.setEnabled(true)
+        try {
+            val leaksBefore = MatLeakTracker.getLeakCount()
+            val liveBefore = MatLeakTracker.getLiveCount()
+            // 连续校正200页之后native堆不再增长
+            val growth = BenchmarkUtil.benchmarkSessionMemory(ImageEnhanceTest.PAGE_SIZE, 200)
+            assertTrue("native堆增长 $growth 字节", growth <= MAX_SESSION_GROWTH_BYTES)
+            assertEquals("泄漏的Mat", leaksBefore, MatLeakTracker.getLeakCount())
+            assertTrue("活着的Mat", MatLeakTracker.getLiveCount() <= liveBefore)
+        } finally {
+            MatLeakTracker.setEnabled(false)
+        }
+    }
+
+    companion object {
+
+        //2000个文本块的版面还原耗时上限
+        const val LAYOUT_BUDGET_MS = 10.0
+
+        //模拟页面是清晰的印刷体英文和数字，每个引擎的平均字符错误率都不能超过这个值
+        const val MAX_CHARACTER_ERROR_RATE = 0.15
+
+        //最合适的引擎池相对单个引擎的最低吞吐量提升
+        const val MIN_POOL_SPEEDUP = 1.2
+
+        //200页之后允许的native堆增长 远小于一页2000x2000的图像，说明没有按页累积
+        const val MAX_SESSION_GROWTH_BYTES = 4L * 1024 * 1024
+    }
+}
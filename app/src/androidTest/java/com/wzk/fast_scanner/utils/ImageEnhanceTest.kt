@@ -0,0 +1,150 @@
+package com.wzk.fast_scanner.utils
+
+import android.graphics.Bitmap
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.opencv.android.OpenCVLoader
+import org.opencv.android.Utils
+import org.opencv.core.Core
+import org.opencv.core.CvType
+import org.opencv.core.Mat
+import org.opencv.core.Point
+import org.opencv.imgproc.Imgproc
+
+/**
+ * 文档增强各模式的一致性和耗时 需要在真机上运行
+ */
+@RunWith(AndroidJUnit4::class)
+class ImageEnhanceTest {
+
+    @Before
+    fun loadOpenCv() {
+        assertTrue("OpenCV加载失败", OpenCVLoader.initDebug())
+    }
+
+    @Test
+    fun fastEnhanceMatchesStandard() {
+        val result = BenchmarkUtil.benchmarkEnhance(PAGE_SIZE, 3)
+        assertTrue(result.toString(), result.isWithinTolerance)
+
+        val util = ImagePreprocessingUtil()
+        val page = BenchmarkUtil.createSyntheticPage(PAGE_SIZE, PAGE_SIZE)
+        val standard = util.enhanceDocumentImage(page)
+        val fast = util.enhanceDocumentImageFast(page)
+        val worstRow = worstRowDiff(standard, fast)
+        util.matPool.recycle(standard, fast)
+        page.release()
+        // 条带交界处不能出现亮度台阶
+        assertTrue("最差一行的差异 $worstRow", worstRow <= ImagePreprocessingUtil.FAST_ENHANCE_TOLERANCE)
+    }
+
+    @Test
+    fun fastEnhanceIsFasterThanStandard() {
+        val result = BenchmarkUtil.benchmarkEnhance(PAGE_SIZE, 5)
+        // 条带走完所有步骤之前中间结果都留在缓存里，整页的中间图像不再来回读写
+        assertTrue(result.toString(), result.fastMillis < result.standardMillis)
+    }
+
+    @Test
+    fun defaultPoolHoldsTheLargestFastPage() {
+        // 缓冲池的默认容量按最大的页面计算 快速模式连续校正这么大的页面时全部命中，不再申请native内存
+        val side = ImagePreprocessingUtil.MAX_PAGE_SIDE
+        val pool = MatPool(MatPool.DEFAULT_MAX_BYTES)
+        val util = ImagePreprocessingUtil(pool)
+        util.enhanceMode = ImagePreprocessingUtil.EnhanceMode.FAST
+        val bitmap = syntheticBitmap(side)
+        val corners = arrayOf(Point(0.0, 0.0), Point(side - 1.0, 0.0), Point(side - 1.0, side - 1.0), Point(0.0, side - 1.0))
+        util.manualDocumentCorrection(bitmap, corners)!!.recycle()
+        val misses = pool.missCount
+        val evictions = pool.evictionCount
+        repeat(3) {
+            util.manualDocumentCorrection(bitmap, corners)!!.recycle()
+        }
+        bitmap.recycle()
+        val stats = pool.toString()
+        pool.clear()
+        assertEquals(stats, misses, pool.missCount)
+        assertEquals(stats, evictions, pool.evictionCount)
+    }
+
+    @Test
+    fun parallelCorrectionMatchesStandard() {
+        val bitmap = syntheticBitmap(PAGE_SIZE)
+        val corners = BenchmarkUtil.syntheticCorners(PAGE_SIZE)
+        val util = ImagePreprocessingUtil()
+        util.enhanceMode = ImagePreprocessingUtil.EnhanceMode.STANDARD
+        val standard = util.manualDocumentCorrection(bitmap, corners)
+        util.enhanceMode = ImagePreprocessingUtil.EnhanceMode.PARALLEL
+        val parallel = util.manualDocumentCorrection(bitmap, corners)
+        assertNotNull(standard)
+        assertNotNull(parallel)
+
+        val a = toMat(standard!!)
+        val b = toMat(parallel!!)
+        val meanDiff = BenchmarkUtil.meanAbsDiff(a, b)
+        val worstRow = worstRowDiff(a, b)
+        a.release()
+        b.release()
+        bitmap.recycle()
+        standard.recycle()
+        parallel.recycle()
+        // 并行模式和标准流程是同一套计算，只有条带透视变换的浮点舍入不同
+        assertTrue("平均差异 $meanDiff", meanDiff <= 1.0)
+        // 条带交界处不能出现亮度台阶
+        assertTrue("最差一行的差异 $worstRow", worstRow <= 2.0)
+    }
+
+    @Test
+    fun parallelCorrectionIsFasterOnMultiCore() {
+        assumeTrue(Runtime.getRuntime().availableProcessors() >= 4)
+        val result = BenchmarkUtil.benchmarkCorrection(PAGE_SIZE, 5)
+        val standard = result[ImagePreprocessingUtil.EnhanceMode.STANDARD]!!
+        val parallel = result[ImagePreprocessingUtil.EnhanceMode.PARALLEL]!!
+        assertTrue("标准 $standard ms, 并行 $parallel ms", parallel * 1.5 <= standard)
+    }
+
+    companion object {
+
+        const val PAGE_SIZE = 2000
+
+        //测试用的文档页面Bitmap
+        fun syntheticBitmap(size: Int): Bitmap {
+            val page = BenchmarkUtil.createSyntheticPage(size, size)
+            val rgba = Mat()
+            Imgproc.cvtColor(page, rgba, Imgproc.COLOR_BGR2RGBA)
+            val bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888)
+            Utils.matToBitmap(rgba, bitmap)
+            page.release()
+            rgba.release()
+            return bitmap
+        }
+
+        fun toMat(bitmap: Bitmap): Mat {
+            val mat = Mat()
+            Utils.bitmapToMat(bitmap, mat)
+            return mat
+        }
+
+        //逐行平均差异里最大的一行 条带接缝会在这里体现出来
+        fun worstRowDiff(a: Mat, b: Mat): Double {
+            val diff = Mat()
+            val gray = Mat()
+            val rows = Mat()
+            Core.absdiff(a, b, diff)
+            val code = if (diff.channels() == 4) Imgproc.COLOR_RGBA2GRAY else Imgproc.COLOR_BGR2GRAY
+            Imgproc.cvtColor(diff, gray, code)
+            Core.reduce(gray, rows, 1, Core.REDUCE_AVG, CvType.CV_64F)
+            val worst = Core.minMaxLoc(rows).maxVal
+            diff.release()
+            gray.release()
+            rows.release()
+            return worst
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.wzk.fast_scanner.utils
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.opencv.android.OpenCVLoader
+import org.opencv.core.CvType
+import org.opencv.core.Mat
+import org.opencv.core.MatOfPoint2f
+import org.opencv.core.Point
+
+/**
+ * MatScope离开作用域时释放或归还所有Mat 需要OpenCV的native库，在真机上运行
+ */
+@RunWith(AndroidJUnit4::class)
+class MatScopeTest {
+
+    private val pool = MatPool(16L * 1024 * 1024)
+
+    @Before
+    fun setUp() {
+        assertTrue("OpenCV加载失败", OpenCVLoader.initDebug())
+        MatLeakTracker.setEnabled(true)
+    }
+
+    @After
+    fun tearDown() {
+        MatLeakTracker.setEnabled(false)
+        pool.clear()
+    }
+
+    @Test
+    fun closeReleasesEverything() {
+        val liveBefore = MatLeakTracker.getLiveCount()
+        val mats = ArrayList<Mat>()
+        MatScope(pool).use { scope ->
+            mats += scope.newMat().also { Mat.ones(16, 16, CvType.CV_8UC1).copyTo(it) }
+            mats += scope.track(MatOfPoint2f(Point(0.0, 0.0), Point(1.0, 1.0)))
+            mats += scope.track(mats[0].submat(0, 8, 0, 8))
+            assertEquals(liveBefore + 3, MatLeakTracker.getLiveCount())
+        }
+        for (mat in mats) {
+            assertTrue(mat.empty())
+        }
+        assertEquals(liveBefore, MatLeakTracker.getLiveCount())
+    }
+
+    @Test
+    fun exceptionStillReleases() {
+        val liveBefore = MatLeakTracker.getLiveCount()
+        var mat: Mat? = null
+        try {
+            MatScope(pool).use { scope ->
+                mat = scope.newMat().also { Mat.zeros(32, 32, CvType.CV_8UC3).copyTo(it) }
+                throw IllegalStateException("增强失败")
+            }
+        } catch (e: IllegalStateException) {
+            // 预期的异常
+        }
+        assertTrue(mat!!.empty())
+        assertEquals(liveBefore, MatLeakTracker.getLiveCount())
+    }
+
+    @Test
+    fun pooledMatsGoBackToThePool() {
+        MatScope(pool).use { scope ->
+            val mat = scope.acquire(100, 100, CvType.CV_8UC3)
+            assertTrue(mat.isContinuous)
+            assertEquals(0L, pool.pooledBytes)
+        }
+        assertTrue(pool.pooledBytes >= 100L * 100 * 3)
+        // 下一次同样大小的请求直接命中
+        val hits = pool.hitCount
+        MatScope(pool).use { scope -> scope.acquire(100, 100, CvType.CV_8UC3) }
+        assertEquals(hits + 1, pool.hitCount)
+    }
+
+    @Test
+    fun detachedMatsSurviveTheScope() {
+        val liveBefore = MatLeakTracker.getLiveCount()
+        val result = MatScope(pool).use { scope ->
+            scope.newMat()
+            scope.detach(scope.newMat().also { Mat.ones(4, 4, CvType.CV_8UC1).copyTo(it) })
+        }
+        assertFalse(result.empty())
+        // 交给调用方后不再跟踪
+        assertEquals(liveBefore, MatLeakTracker.getLiveCount())
+        result.release()
+    }
+
+    @Test
+    fun unreleasedMatIsReportedAsLeak() {
+        val leaksBefore = MatLeakTracker.getLeakCount()
+        leakOneMat()
+        repeat(5) {
+            System.gc()
+            System.runFinalization()
+            if (MatLeakTracker.getLeakCount() > leaksBefore) {
+                return
+            }
+            Thread.sleep(100)
+        }
+        fail("没有发现泄漏的Mat")
+    }
+
+    //申请一个Mat后不释放也不注销
+    private fun leakOneMat() {
+        MatLeakTracker.track(Mat(8, 8, CvType.CV_8UC1))
+    }
+}
@@ -1,19 +1,17 @@
 package com.wzk.fast_scanner
 
 import android.Manifest
+import android.content.ComponentCallbacks2
 import android.content.Context
 import android.content.Intent
+import android.content.pm.ApplicationInfo
 import android.content.pm.PackageManager
 import android.graphics.Bitmap
-import android.graphics.BitmapFactory
-import android.graphics.Matrix
 import android.net.Uri
 import android.os.Build
 import android.os.Bundle
-import android.provider.MediaStore
 import android.util.Log
 import android.widget.Toast
-import androidx.exifinterface.media.ExifInterface
 import androidx.activity.ComponentActivity
 import androidx.activity.compose.setContent
 import androidx.activity.enableEdgeToEdge
@@ -55,16 +53,29 @@ import com.wzk.fast_scanner.data.OCRRecordViewModel
 import com.wzk.fast_scanner.data.OCRRecordViewModelFactory
 import com.wzk.fast_scanner.data.ScanType
 import com.wzk.fast_scanner.data.SettingsManager
+import com.wzk.fast_scanner.ui.DiagnosticsScreen
+import com.wzk.fast_scanner.ui.LiveOcrScreen
 import com.wzk.fast_scanner.ui.LoadingScreen
 import com.wzk.fast_scanner.ui.MainScreen
 import com.wzk.fast_scanner.ui.ResultScreen
 import com.wzk.fast_scanner.ui.SelectedCornerPointScreen
 import com.wzk.fast_scanner.ui.SettingsScreen
 import com.wzk.fast_scanner.ui.theme.Fast_scannerTheme
+import com.wzk.fast_scanner.utils.BatchScanPipeline
+import com.wzk.fast_scanner.utils.DocumentQuadDetector
+import com.wzk.fast_scanner.utils.ImageDecodeUtil
 import com.wzk.fast_scanner.utils.ImagePreprocessingUtil
+import com.wzk.fast_scanner.utils.MatLeakTracker
+import com.wzk.fast_scanner.utils.MatPool
 import com.wzk.fast_scanner.utils.OCRUtil
+import com.wzk.fast_scanner.utils.OcrResultCache
+import com.wzk.fast_scanner.utils.ScanMetrics
+import com.wzk.fast_scanner.utils.recognizeAsFlow
+import com.wzk.fast_scanner.utils.TextBoxes
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
 import org.opencv.android.OpenCVLoader
@@ -74,6 +85,9 @@ import java.io.File
 class MainActivity : ComponentActivity() {
 
     private val TAG = "MainActivity"
+
+    // 文档扫描一次最多的页数
+    private val MAX_SCAN_PAGES = 20
     private val viewModel: MainViewModel by viewModels()
     
     // OCR记录ViewModel，用于保存扫描结果
@@ -88,6 +102,15 @@ class MainActivity : ComponentActivity() {
     // 拍照后的图片
     private var capturedBitmap: Bitmap? = null
 
+    // 自动检测出的文档角点，作为角点选择页面的初始位置
+    private var capturedCorners: Array<org.opencv.core.Point>? = null
+
+    // 拍照或相册图片已经评估过的质量，矫正后识别时直接使用，不再重复评估
+    private var capturedQuality: ImagePreprocessingUtil.FrameQuality? = null
+
+    // 当前的识别任务，取消加载时用来停止识别
+    private var scanJob: Job? = null
+
     override fun attachBaseContext(newBase: Context) {
         val settings = SettingsManager.loadSettings(newBase)
         val localizedContext = LanguageManage.getLocalizedContext(newBase, settings.language)
@@ -100,9 +123,15 @@ class MainActivity : ComponentActivity() {
     ) { permissions ->
         val cameraGranted = permissions[Manifest.permission.CAMERA] ?: false
         if (cameraGranted) {
-            // 权限已授予，打开相机
-            openCamera()
+            // 权限已授予，打开相机或者实时识别
+            if (pendingLiveOcr) {
+                pendingLiveOcr = false
+                openLiveOcr()
+            } else {
+                openCamera()
+            }
         } else {
+            pendingLiveOcr = false
             Toast.makeText(this, getString(R.string.need_camera_permissions), Toast.LENGTH_SHORT).show()
         }
     }
@@ -111,18 +140,41 @@ class MainActivity : ComponentActivity() {
     private val takePictureLauncher = registerForActivityResult(
         ActivityResultContracts.TakePicture()
     ) { success ->
-        if (success && cameraImageUri != null) {
-            try {
-                // 从 URI 加载图片
-                val bitmap = MediaStore.Images.Media.getBitmap(contentResolver, cameraImageUri)
-                // 修正图片方向（根据 EXIF 信息）
-                val correctedBitmap = fixImageOrientation(bitmap, cameraImageUri!!)
-                capturedBitmap = correctedBitmap
-                // 触发显示角点选择页面
-                showCornerSelectionScreen.value = true
-            } catch (e: Exception) {
-                Log.e(TAG, "加载拍照图片失败: ${e.message}")
-                Toast.makeText(this, getString(R.string.load_image_err), Toast.LENGTH_SHORT).show()
+        val uri = cameraImageUri
+        if (success && uri != null) {
+            CoroutineScope(Dispatchers.Main).launch {
+                try {
+                    // 从 URI 按识别需要的分辨率加载图片，解码时同时修正方向（根据 EXIF 信息）
+                    val bitmap = withContext(Dispatchers.IO) {
+                        ImageDecodeUtil.decodeUri(this@MainActivity, uri, ImageDecodeUtil.OCR_MAX_SIDE)
+                    }
+                    if (bitmap != null) {
+                        // 严重模糊、过暗过曝的照片直接提示重拍，不再矫正和识别
+                        val quality = checkQuality(bitmap)
+                        if (quality?.isRejected == true) {
+                            return@launch
+                        }
+                        // 自动检测文档边界 打开自动确认并且足够可靠时直接矫正，否则用检测结果作为角点选择页面的初始角点
+                        val quad = withContext(Dispatchers.Default) { DocumentQuadDetector.detect(bitmap) }
+                        if (quad != null) {
+                            Log.d(TAG, "自动检测到文档边界，置信度: ${quad.confidence}")
+                        }
+                        if (quad != null && canAutoConfirm(quad)) {
+                            correctAndRecognize(bitmap, quad.corners, quality)
+                        } else {
+                            capturedBitmap = bitmap
+                            capturedCorners = quad?.corners
+                            capturedQuality = quality
+                            // 触发显示角点选择页面
+                            showCornerSelectionScreen.value = true
+                        }
+                    } else {
+                        Toast.makeText(this@MainActivity, getString(R.string.load_image_err), Toast.LENGTH_SHORT).show()
+                    }
+                } catch (e: Exception) {
+                    Log.e(TAG, "加载拍照图片失败: ${e.message}")
+                    Toast.makeText(this@MainActivity, getString(R.string.load_image_err), Toast.LENGTH_SHORT).show()
+                }
             }
         }
     }
@@ -133,25 +185,48 @@ class MainActivity : ComponentActivity() {
     ) { uri ->
         Log.d(TAG, "相册选择回调触发，uri: $uri")
         if (uri != null) {
-            CoroutineScope(Dispatchers.Main).launch {
+            scanJob = CoroutineScope(Dispatchers.Main).launch {
                 try {
                     // 显示加载页面
                     isLoading.value = true
                     loadingStartTime = System.currentTimeMillis()
+                    val scanStart = ScanMetrics.begin()
                     Log.d(TAG, "开始处理相册图片")
                     
-                    // 在后台线程加载图片
+                    // 在后台线程按识别需要的分辨率加载图片，解码时同时修正方向
                     val bitmap = withContext(Dispatchers.IO) {
-                        val originalBitmap = MediaStore.Images.Media.getBitmap(contentResolver, uri)
-                        // 修正图片方向
-                        fixImageOrientation(originalBitmap, uri)
+                        ImageDecodeUtil.decodeUri(this@MainActivity, uri, ImageDecodeUtil.OCR_MAX_SIDE)
                     }
                     
                     if (bitmap != null) {
-                        // 在后台线程进行OCR识别
-                        val ocrResults = withContext(Dispatchers.IO) {
-                            OCRUtil.commonOCR(this@MainActivity, bitmap)
+                        // 严重模糊、过暗过曝的图片直接提示，不再矫正和识别
+                        val quality = checkQuality(bitmap)
+                        if (quality?.isRejected == true) {
+                            isLoading.value = false
+                            loadingStartTime = 0
+                            return@launch
                         }
+                        // 图片里能找到文档边界时先矫正 打开自动确认并且足够可靠时直接矫正，否则交给角点选择页面确认
+                        // 截图这类没有文档边界的图片照旧直接识别
+                        val quad = withContext(Dispatchers.Default) { DocumentQuadDetector.detect(bitmap) }
+                        if (quad != null) {
+                            Log.d(TAG, "相册图片检测到文档边界，置信度: ${quad.confidence}")
+                            if (canAutoConfirm(quad)) {
+                                correctAndRecognize(bitmap, quad.corners, quality)
+                            } else {
+                                isLoading.value = false
+                                loadingStartTime = 0
+                                capturedBitmap = bitmap
+                                capturedCorners = quad.corners
+                                capturedQuality = quality
+                                showCornerSelectionScreen.value = true
+                            }
+                            return@launch
+                        }
+
+                        // OCR识别 第一批文字出来就显示结果页面，取消协程时识别也会一起取消
+                        val ocrPage = recognizeWithPreview(bitmap, quality)
+                        val ocrResults = ocrPage.lines
                         
                         // 将识别结果合并为字符串
                         val resultText = if (ocrResults.isEmpty()) {
@@ -170,21 +245,29 @@ class MainActivity : ComponentActivity() {
                         // 关闭加载页面，更新结果状态，触发显示结果页面
                         isLoading.value = false
                         loadingStartTime = 0
+                        isRecognizing.value = false
                         isFromHistory.value = false
+                        isResultPersisted.value = false
                         ocrResultBitmap.value = bitmap
+                        ocrResultBoxes.value = ocrPage.boxes
                         ocrResultText.value = resultText
                         ocrResultImagePath.value = imagePath
                         ocrResultScanType.value = ScanType.OCR
                         showOcrResult.value = true
+                        ScanMetrics.end(ScanMetrics.Stage.SCAN_TOTAL, scanStart)
                         Log.d(TAG, "相册图片处理完成")
                     } else {
                         isLoading.value = false
                         loadingStartTime = 0
                         Toast.makeText(this@MainActivity, getString(R.string.load_image_err), Toast.LENGTH_SHORT).show()
                     }
+                } catch (e: CancellationException) {
+                    // 用户取消，加载状态已经在onCancelLoading里重置
+                    Log.d(TAG, "识别已取消")
                 } catch (e: Exception) {
                     isLoading.value = false
                     loadingStartTime = 0
+                    isRecognizing.value = false
                     Log.e(TAG, "处理相册图片失败: ${e.message}", e)
                     Toast.makeText(this@MainActivity, getString(R.string.handle_err)+": ${e.message}", Toast.LENGTH_SHORT).show()
                 }
@@ -208,54 +291,74 @@ class MainActivity : ComponentActivity() {
             
             scanningResult?.pages?.let { pages ->
                 if (pages.isNotEmpty()) {
-                    // 获取第一页的图片URI
-                    val imageUri = pages[0].imageUri
-                    
-                    // 在协程中处理文档扫描结果
-                    CoroutineScope(Dispatchers.Main).launch {
+                    // 每页图片的URI
+                    val imageUris = pages.map { it.imageUri }
+                    val pageTexts = sortedMapOf<Int, String>()
+
+                    // 多页流水线：解码、增强、识别、保存同时进行，每页完成后立即更新结果页面
+                    // 扫描器返回的页面已经裁剪拉直，预处理只做和拍照矫正相同的文字增强
+                    val pipeline = BatchScanPipeline(
+                        this,
+                        preprocess = { bitmap -> imagePreprocessingUtil.enhanceDocument(bitmap) }
+                    ) { index, bitmap, text ->
+                        val imagePath = saveBitmapToFile(bitmap, "doc_scan_${index + 1}")
+                        ocrRecordViewModel.addRecord(
+                            type = ScanType.DOCUMENT_SCAN,
+                            content = text.ifEmpty { "No text is recognized!" },
+                            imagePath = imagePath
+                        )
+                        imagePath
+                    }
+
+                    scanJob = CoroutineScope(Dispatchers.Main).launch {
                         try {
                             // 显示加载页面
                             isLoading.value = true
                             loadingStartTime = System.currentTimeMillis()
-                            Log.d(TAG, "开始处理文档扫描结果")
-                            
-                            // 在后台线程加载图片
-                            val bitmap = withContext(Dispatchers.IO) {
-                                MediaStore.Images.Media.getBitmap(contentResolver, imageUri)
-                            }
-                            
-                            if (bitmap != null) {
-                                // 在后台线程进行OCR识别
-                                val ocrResults = withContext(Dispatchers.IO) {
-                                    OCRUtil.commonOCR(this@MainActivity, bitmap)
+                            val scanStart = ScanMetrics.begin()
+                            Log.d(TAG, "开始处理文档扫描结果，共${imageUris.size}页")
+
+                            var resultShown = false
+                            pipeline.process(imageUris).collect { page ->
+                                if (page.error != null) {
+                                    Log.e(TAG, "第${page.index + 1}页处理失败: ${page.error.message}")
                                 }
-                                
-                                // 将识别结果合并为字符串
-                                val resultText = if (ocrResults.isEmpty()) {
-                                    "No text is recognized!"
-                                } else {
-                                    ocrResults.joinToString("\n")
+                                pageTexts[page.index] = page.text
+                                // 用户已经离开结果页面，剩下的页面只保存不再显示
+                                if (resultShown && !showOcrResult.value) {
+                                    page.bitmap?.recycle()
+                                    return@collect
                                 }
-                                Log.d(TAG, "文档扫描OCR识别结果: $resultText")
-                                
-                                // 保存图片到文件
-                                val imagePath = saveBitmapToFile(bitmap, "doc_scan")
+                                val resultText = formatPageTexts(pageTexts, page.pageCount)
+                                Log.d(TAG, "文档扫描第${page.index + 1}/${page.pageCount}页完成")
 
-                                // 关闭加载页面，更新结果状态，触发显示结果页面
-                                isLoading.value = false
-                                loadingStartTime = 0
-                                isFromHistory.value = false
-                                ocrResultBitmap.value = bitmap
+                                if (page.bitmap != null) {
+                                    ocrResultBitmap.value = page.bitmap
+                                    ocrResultBoxes.value = null
+                                    ocrResultImagePath.value = page.imagePath
+                                }
                                 ocrResultText.value = resultText
-                                ocrResultImagePath.value = imagePath
-                                ocrResultScanType.value = ScanType.DOCUMENT_SCAN
-                                showOcrResult.value = true
-                                Log.d(TAG, "文档扫描处理完成")
-                            } else {
+                                if (!resultShown) {
+                                    // 第一页完成后关闭加载页面，显示结果页面，后续页面继续追加
+                                    resultShown = true
+                                    isLoading.value = false
+                                    loadingStartTime = 0
+                                    isFromHistory.value = false
+                                    isResultPersisted.value = true
+                                    ocrResultScanType.value = ScanType.DOCUMENT_SCAN
+                                    showOcrResult.value = true
+                                }
+                            }
+                            if (!resultShown) {
                                 isLoading.value = false
                                 loadingStartTime = 0
                                 Toast.makeText(this@MainActivity, getString(R.string.load_document_err), Toast.LENGTH_SHORT).show()
                             }
+                            ScanMetrics.end(ScanMetrics.Stage.SCAN_TOTAL, scanStart)
+                            Log.d(TAG, "文档扫描处理完成")
+                        } catch (e: CancellationException) {
+                            // 用户取消，加载状态已经在onCancelLoading里重置
+                            Log.d(TAG, "识别已取消")
                         } catch (e: Exception) {
                             isLoading.value = false
                             loadingStartTime = 0
@@ -279,14 +382,27 @@ class MainActivity : ComponentActivity() {
     
     // OCR 结果状态
     private val ocrResultBitmap = mutableStateOf<Bitmap?>(null)
+    // 识别结果的文本框 结果页可以叠加显示
+    private val ocrResultBoxes = mutableStateOf<TextBoxes?>(null)
     private val ocrResultText = mutableStateOf("")
     private val ocrResultImagePath = mutableStateOf<String?>(null)
     private val ocrResultScanType = mutableStateOf(ScanType.OCR)
     private val showOcrResult = mutableStateOf(false)
     private val isFromHistory = mutableStateOf(false)
+    // 结果已经在扫描流程中保存过（多页扫描逐页保存），结果页面不再重复保存
+    private val isResultPersisted = mutableStateOf(false)
     
     // 加载状态
     private val isLoading = mutableStateOf(false)
+
+    // 结果页面已经显示了部分文字，识别还在继续
+    private val isRecognizing = mutableStateOf(false)
+
+    // 是否显示实时识别页面
+    private val showLiveOcr = mutableStateOf(false)
+
+    // 权限请求是为实时识别发起的，授权后打开实时识别而不是拍照
+    private var pendingLiveOcr = false
     
     // 加载开始时间，用于超时检测
     private var loadingStartTime: Long = 0
@@ -307,6 +423,23 @@ class MainActivity : ComponentActivity() {
         }
     }
 
+    override fun onTrimMemory(level: Int) {
+        super.onTrimMemory(level)
+        // 内存紧张或者界面不可见时释放Mat缓冲池里空闲的native内存
+        MatPool.shared().onTrimMemory(level)
+        // 进入后台后ML KIT识别器的模型不再常驻，回到前台识别时重新加载
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            OCRUtil.releaseRecognizers()
+        }
+    }
+
+    override fun onDestroy() {
+        super.onDestroy()
+        if (isFinishing) {
+            OCRUtil.releaseRecognizers()
+        }
+    }
+
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
         //保存应用设置的语言
@@ -329,10 +462,14 @@ class MainActivity : ComponentActivity() {
         } else {
             Log.e(TAG, "OpenCV加载失败")
         }
+        // 可调试的包里跟踪Mat的申请和释放，没有释放就被回收的Mat会输出申请位置
+        MatLeakTracker.setEnabled((applicationInfo.flags and ApplicationInfo.FLAG_DEBUGGABLE) != 0)
         
         // 初始化 OCR
         OCRUtil.initModel(this)
         Log.d(TAG, "开始初始化 OCR")
+        // 预热当前OCR语言的识别器，第一次识别不用再等模型加载
+        OCRUtil.warmUpRecognizer(this)
 
         enableEdgeToEdge()
 
@@ -345,27 +482,59 @@ class MainActivity : ComponentActivity() {
                     settings = settings,
                     ocrRecordViewModel = ocrRecordViewModel,
                     onOpenCamera = { openCamera() },
+                    onOpenLiveOcr = { openLiveOcr() },
+                    showLiveOcr = showLiveOcr.value,
+                    onLiveOcrClose = { showLiveOcr.value = false },
+                    onLiveDocumentCaptured = { bitmap, quad ->
+                        // 实时跟踪到的文档边界 打开自动确认并且足够可靠时直接矫正，否则交给角点选择页面
+                        // 拍摄的画面还没评估过质量，交给识别流程在后台评估
+                        showLiveOcr.value = false
+                        if (quad != null && canAutoConfirm(quad)) {
+                            correctAndRecognize(bitmap, quad.corners, null)
+                        } else {
+                            capturedBitmap = bitmap
+                            capturedCorners = quad?.corners
+                            capturedQuality = null
+                            showCornerSelectionScreen.value = true
+                        }
+                    },
                     showCornerSelection = showCornerSelectionScreen.value,
                     capturedBitmap = capturedBitmap,
+                    capturedCorners = capturedCorners,
                     showOcrResult = showOcrResult.value,
                     ocrResultBitmap = ocrResultBitmap.value,
+                    ocrResultBoxes = ocrResultBoxes.value,
                     ocrResultText = ocrResultText.value,
                     ocrResultImagePath = ocrResultImagePath.value,
                     ocrResultScanType = ocrResultScanType.value,
                     isFromHistory = isFromHistory.value,
+                    isResultPersisted = isResultPersisted.value,
                     isLoading = isLoading.value,
+                    isRecognizing = isRecognizing.value,
                     onCornerSelectionCancel = {
                         showCornerSelectionScreen.value = false
                         capturedBitmap = null
+                        capturedCorners = null
+                        capturedQuality = null
                     },
                     onOcrResultBack = {
+                        // 识别还没结束就离开结果页面，剩下的识别不再需要
+                        if (isRecognizing.value) {
+                            scanJob?.cancel()
+                            scanJob = null
+                            isRecognizing.value = false
+                        }
                         showOcrResult.value = false
                         ocrResultBitmap.value = null
+                        ocrResultBoxes.value = null
                         ocrResultText.value = ""
                         ocrResultImagePath.value = null
                         ocrResultScanType.value = ScanType.OCR
                     },
                     onCancelLoading = {
+                        // 取消正在进行的识别，不再等待结果
+                        scanJob?.cancel()
+                        scanJob = null
                         isLoading.value = false
                         loadingStartTime = 0
                         Toast.makeText(this@MainActivity, "已取消加载", Toast.LENGTH_SHORT).show()
@@ -379,7 +548,7 @@ class MainActivity : ComponentActivity() {
                                     withContext(Dispatchers.IO) {
                                         val file = File(record.imagePath)
                                         if (file.exists()) {
-                                            BitmapFactory.decodeFile(record.imagePath)
+                                            ImageDecodeUtil.decodeFile(record.imagePath, ImageDecodeUtil.PREVIEW_MAX_SIDE)
                                         } else {
                                             null
                                         }
@@ -398,7 +567,9 @@ class MainActivity : ComponentActivity() {
                                 
                                 // 设置结果状态，显示结果页面（来自历史记录）
                                 isFromHistory.value = true
+                                isResultPersisted.value = false
                                 ocrResultBitmap.value = bitmap
+                                ocrResultBoxes.value = null
                                 ocrResultText.value = record.content
                                 ocrResultImagePath.value = if (record.imagePath.isNotEmpty()) record.imagePath else null
                                 ocrResultScanType.value = scanType
@@ -411,62 +582,7 @@ class MainActivity : ComponentActivity() {
                         }
                     },
                     onCornerSelectionConfirm = { bitmap, points ->
-                        // 在协程中进行文档矫正和OCR识别
-                        CoroutineScope(Dispatchers.Main).launch {
-                            try {
-                                // 关闭角点选择页面，显示加载页面
-                                showCornerSelectionScreen.value = false
-                                isLoading.value = true
-                                loadingStartTime = System.currentTimeMillis()
-                                Log.d(TAG, "开始处理拍照图片")
-                                
-                                // 在后台线程进行文档矫正
-                                val correctedBitmap = withContext(Dispatchers.IO) {
-                                    imagePreprocessingUtil.manualDocumentCorrection(bitmap, points)
-                                }
-                                
-                                if (correctedBitmap != null) {
-                                    // 在后台线程进行 OCR 识别
-                                    val ocrResults = withContext(Dispatchers.IO) {
-                                        OCRUtil.commonOCR(this@MainActivity, correctedBitmap)
-                                    }
-                                    
-                                    // 将识别结果合并为字符串
-                                    val resultText = if (ocrResults.isEmpty()) {
-                                        "No text is recognized!"
-                                    } else {
-                                        ocrResults.joinToString("\n")
-                                    }
-
-                                    Log.d(TAG, "OCR 识别结果: $resultText")
-                                    
-                                    // 保存图片到文件
-                                    val imagePath = withContext(Dispatchers.IO) {
-                                        saveBitmapToFile(correctedBitmap, "camera_ocr")
-                                    }
-
-                                //关闭加载页面，更新结果状态，触发显示结果页面
-                                isLoading.value = false
-                                loadingStartTime = 0
-                                isFromHistory.value = false
-                                ocrResultBitmap.value = correctedBitmap
-                                ocrResultText.value = resultText
-                                ocrResultImagePath.value = imagePath
-                                ocrResultScanType.value = ScanType.OCR
-                                showOcrResult.value = true
-                                Log.d(TAG, "拍照图片处理完成")
-                                } else {
-                                    isLoading.value = false
-                                    loadingStartTime = 0
-                                    Toast.makeText(this@MainActivity, getString(R.string.document_correction_err), Toast.LENGTH_SHORT).show()
-                                }
-                            } catch (e: Exception) {
-                                isLoading.value = false
-                                loadingStartTime = 0
-                                Log.e(TAG, "处理失败: ${e.message}", e)
-                                Toast.makeText(this@MainActivity, getString(R.string.handle_err)+": ${e.message}", Toast.LENGTH_SHORT).show()
-                            }
-                        }
+                        correctAndRecognize(bitmap, points, capturedQuality)
                     },
                     onQRScan = {
                         //启动扫码器
@@ -485,6 +601,10 @@ class MainActivity : ComponentActivity() {
                         newLanguage ->
                         LanguageManage.setLanguage(this@MainActivity,newLanguage)
                         recreate()
+                    },
+                    onClearOcrCache = {
+                        // 清空识别结果缓存 在缓存自己的后台线程执行
+                        OcrResultCache.get(this@MainActivity).clear()
                     }
                 )
             }
@@ -500,7 +620,7 @@ class MainActivity : ComponentActivity() {
             val options = GmsDocumentScannerOptions.Builder()
                 .setGalleryImportAllowed(true)
                 //限制页数
-                .setPageLimit(1)
+                .setPageLimit(MAX_SCAN_PAGES)
                 .setResultFormats(RESULT_FORMAT_JPEG, RESULT_FORMAT_PDF)
                 .setScannerMode(SCANNER_MODE_FULL)
                 .build()
@@ -578,7 +698,9 @@ class MainActivity : ComponentActivity() {
                             } else {
                                 //不是链接 跳转到结果页面
                                 isFromHistory.value = false
+                                isResultPersisted.value = false
                                 ocrResultBitmap.value = null
+                                ocrResultBoxes.value = null
                                 ocrResultText.value = res
                                 ocrResultImagePath.value = null
                                 ocrResultScanType.value = ScanType.SCAN_CODE
@@ -627,6 +749,173 @@ class MainActivity : ComponentActivity() {
         }
     }
     
+    /**
+     * 检测到的文档边界能否跳过角点选择页面 需要用户在设置里打开自动确认，而且置信度足够高
+     * @param quad 检测到的文档边界
+     * @return 是否直接矫正
+     */
+    private fun canAutoConfirm(quad: DocumentQuadDetector.Quad): Boolean {
+        return viewModel.settings.value.autoConfirmCorners && quad.isConfident
+    }
+
+    /**
+     * 在后台线程检查图像质量 不合格时提示用户，有些模糊时只提示
+     * 这是拍照和相册图片唯一的一次质量评估，结果交给识别流程，识别时不再重复评估
+     * @param bitmap 图像
+     * @return 质量，评估失败时为null；isRejected时调用方不再继续处理
+     */
+    private suspend fun checkQuality(bitmap: Bitmap): ImagePreprocessingUtil.FrameQuality? {
+        val quality = withContext(Dispatchers.Default) { ImagePreprocessingUtil.assessQuality(bitmap) }
+            ?: return null
+        Log.d(TAG, "图像质量: $quality")
+        if (quality.isRejected) {
+            Toast.makeText(this, getString(R.string.quality_rejected), Toast.LENGTH_SHORT).show()
+        } else if (quality.verdict == ImagePreprocessingUtil.QualityVerdict.BLURRY) {
+            Toast.makeText(this, getString(R.string.quality_blurry), Toast.LENGTH_SHORT).show()
+        }
+        return quality
+    }
+
+    /**
+     * 按角点矫正文档后识别 角点选择页面确认或者自动检测足够可靠时调用
+     * @param bitmap 原图
+     * @param points 四个角点（左上、右上、右下、左下）
+     * @param quality 原图已经评估过的质量 为null时由识别流程在后台评估
+     */
+    private fun correctAndRecognize(
+        bitmap: Bitmap,
+        points: Array<org.opencv.core.Point>,
+        quality: ImagePreprocessingUtil.FrameQuality?
+    ) {
+        // 在协程中进行文档矫正和OCR识别
+        scanJob = CoroutineScope(Dispatchers.Main).launch {
+            try {
+                // 关闭角点选择页面，显示加载页面
+                showCornerSelectionScreen.value = false
+                capturedCorners = null
+                capturedQuality = null
+                isLoading.value = true
+                loadingStartTime = System.currentTimeMillis()
+                val scanStart = ScanMetrics.begin()
+                Log.d(TAG, "开始矫正并识别图片")
+                
+                // 在后台线程进行文档矫正
+                val correctedBitmap = withContext(Dispatchers.IO) {
+                    imagePreprocessingUtil.manualDocumentCorrection(bitmap, points)
+                }
+                
+                if (correctedBitmap != null) {
+                    // OCR识别 第一批文字出来就显示结果页面，取消协程时识别也会一起取消
+                    val ocrPage = recognizeWithPreview(correctedBitmap, quality)
+                    val ocrResults = ocrPage.lines
+                    
+                    // 将识别结果合并为字符串
+                    val resultText = if (ocrResults.isEmpty()) {
+                        "No text is recognized!"
+                    } else {
+                        ocrResults.joinToString("\n")
+                    }
+
+                    Log.d(TAG, "OCR 识别结果: $resultText")
+                    
+                    // 保存图片到文件
+                    val imagePath = withContext(Dispatchers.IO) {
+                        saveBitmapToFile(correctedBitmap, "camera_ocr")
+                    }
+
+                //关闭加载页面，更新结果状态，触发显示结果页面
+                isLoading.value = false
+                loadingStartTime = 0
+                isRecognizing.value = false
+                isFromHistory.value = false
+                isResultPersisted.value = false
+                ocrResultBitmap.value = correctedBitmap
+                ocrResultBoxes.value = ocrPage.boxes
+                ocrResultText.value = resultText
+                ocrResultImagePath.value = imagePath
+                ocrResultScanType.value = ScanType.OCR
+                showOcrResult.value = true
+                ScanMetrics.end(ScanMetrics.Stage.SCAN_TOTAL, scanStart)
+                Log.d(TAG, "拍照图片处理完成")
+                } else {
+                    isLoading.value = false
+                    loadingStartTime = 0
+                    Toast.makeText(this@MainActivity, getString(R.string.document_correction_err), Toast.LENGTH_SHORT).show()
+                }
+            } catch (e: CancellationException) {
+                // 用户取消，加载状态已经在onCancelLoading里重置
+                Log.d(TAG, "识别已取消")
+            } catch (e: Exception) {
+                isLoading.value = false
+                loadingStartTime = 0
+                isRecognizing.value = false
+                Log.e(TAG, "处理失败: ${e.message}", e)
+                Toast.makeText(this@MainActivity, getString(R.string.handle_err)+": ${e.message}", Toast.LENGTH_SHORT).show()
+            }
+        }
+    }
+
+    /**
+     * 打开实时识别 没有相机权限时先请求
+     */
+    private fun openLiveOcr() {
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
+            showLiveOcr.value = true
+        } else {
+            pendingLiveOcr = true
+            requestPermissionLauncher.launch(arrayOf(Manifest.permission.CAMERA))
+        }
+    }
+
+    /**
+     * 流式识别一页 第一批文字出来就关闭加载页面显示结果页面，之后的文字继续更新到结果页面上
+     * 识别结束前结果页面不保存记录，完整结果由调用方设置
+     * @param bitmap 需要识别的图像（方向已经修正过）
+     * @param quality 已经评估过的图像质量 为null时由识别流程在后台评估
+     * @return 完整的识别结果
+     */
+    private suspend fun recognizeWithPreview(
+        bitmap: Bitmap,
+        quality: ImagePreprocessingUtil.FrameQuality?
+    ): OCRUtil.OcrPage {
+        var finalPage = OCRUtil.OcrPage.EMPTY
+        recognizeAsFlow(this, bitmap, true, quality).collect { update ->
+            if (update.isFinal) {
+                finalPage = update.page
+                return@collect
+            }
+            if (!isRecognizing.value) {
+                isRecognizing.value = true
+                isLoading.value = false
+                loadingStartTime = 0
+                isFromHistory.value = false
+                isResultPersisted.value = false
+                ocrResultBitmap.value = bitmap
+                ocrResultImagePath.value = null
+                ocrResultScanType.value = ScanType.OCR
+                showOcrResult.value = true
+            }
+            ocrResultBoxes.value = update.page.boxes
+            ocrResultText.value = update.page.lines.joinToString("\n")
+        }
+        return finalPage
+    }
+
+    /**
+     * 按页码顺序合并多页的识别结果
+     * @param pageTexts 已完成页面的文字
+     * @param pageCount 总页数
+     * @return 合并后的文字
+     */
+    private fun formatPageTexts(pageTexts: Map<Int, String>, pageCount: Int): String {
+        if (pageCount == 1) {
+            return pageTexts.values.firstOrNull()?.ifEmpty { null } ?: "No text is recognized!"
+        }
+        return pageTexts.entries.joinToString("\n\n") { (index, text) ->
+            "--- ${index + 1}/$pageCount ---\n" + text.ifEmpty { "No text is recognized!" }
+        }
+    }
+
     /**
      * 保存Bitmap 到应用私有存储
      * @param bitmap 要保存的图片
@@ -646,9 +935,11 @@ class MainActivity : ComponentActivity() {
             val imageFile = File(imagesDir, fileName)
             
             // 保存 Bitmap
+            val compressStart = ScanMetrics.begin()
             imageFile.outputStream().use { out ->
                 bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out)
             }
+            ScanMetrics.end(ScanMetrics.Stage.JPEG_COMPRESS, compressStart)
             
             Log.d(TAG, "图片已保存: ${imageFile.absolutePath}")
             imageFile.absolutePath
@@ -658,58 +949,6 @@ class MainActivity : ComponentActivity() {
         }
     }
     
-    /**
-     * 修正图片方向
-     */
-    private fun fixImageOrientation(bitmap: Bitmap, uri: Uri): Bitmap {
-        try {
-            // 读取 EXIF 信息
-            val inputStream = contentResolver.openInputStream(uri)
-            val exif = inputStream?.let { ExifInterface(it) }
-            inputStream?.close()
-            
-            // 获取方向信息
-            val orientation = exif?.getAttributeInt(
-                ExifInterface.TAG_ORIENTATION,
-                ExifInterface.ORIENTATION_NORMAL
-            ) ?: ExifInterface.ORIENTATION_NORMAL
-            
-            // 根据方向计算旋转角度
-            val rotation = when (orientation) {
-                ExifInterface.ORIENTATION_ROTATE_90 -> 90f
-                ExifInterface.ORIENTATION_ROTATE_180 -> 180f
-                ExifInterface.ORIENTATION_ROTATE_270 -> 270f
-                else -> 0f
-            }
-            
-            // 如果需要旋转
-            if (rotation != 0f) {
-                Log.d(TAG, "图片需要旋转 $rotation 度")
-                val matrix = Matrix()
-                matrix.postRotate(rotation)
-                val rotatedBitmap = Bitmap.createBitmap(
-                    bitmap, 
-                    0, 
-                    0, 
-                    bitmap.width, 
-                    bitmap.height, 
-                    matrix, 
-                    true
-                )
-                // 回收原始 bitmap
-                if (bitmap != rotatedBitmap) {
-                    bitmap.recycle()
-                }
-                return rotatedBitmap
-            }
-            
-            return bitmap
-        } catch (e: Exception) {
-            Log.e(TAG, "修正图片方向失败: ${e.message}")
-            return bitmap
-        }
-    }
-    
     /**
      * 打开相册
      */
@@ -767,15 +1006,23 @@ fun MainAppScreen(
     settings: com.wzk.fast_scanner.data.AppSettings,
     ocrRecordViewModel: OCRRecordViewModel,
     onOpenCamera: () -> Unit,
+    onOpenLiveOcr: () -> Unit,
+    showLiveOcr: Boolean,
+    onLiveOcrClose: () -> Unit,
+    onLiveDocumentCaptured: (Bitmap, DocumentQuadDetector.Quad?) -> Unit,
     showCornerSelection: Boolean,
     capturedBitmap: Bitmap?,
+    capturedCorners: Array<org.opencv.core.Point>?,
     showOcrResult: Boolean,
     ocrResultBitmap: Bitmap?,
+    ocrResultBoxes: TextBoxes?,
     ocrResultText: String,
     ocrResultImagePath: String?,
     ocrResultScanType: ScanType,
     isFromHistory: Boolean,
+    isResultPersisted: Boolean,
     isLoading: Boolean,
+    isRecognizing: Boolean,
     onCornerSelectionCancel: () -> Unit,
     onOcrResultBack: () -> Unit,
     onRecordClick: (com.wzk.fast_scanner.data.RecordEntity) -> Unit,
@@ -784,7 +1031,8 @@ fun MainAppScreen(
     onDocumentScan: () -> Unit,
     onOpenPicture: () -> Unit,
     onCancelLoading: () -> Unit,
-    onLanguageChangeAndRestart: (String) -> Unit
+    onLanguageChangeAndRestart: (String) -> Unit,
+    onClearOcrCache: () -> Unit
 ) {
     var selectedItemIndex by remember { mutableIntStateOf(0) }
     
@@ -794,6 +1042,8 @@ fun MainAppScreen(
     var resultText by remember { mutableStateOf("") }
     var resultImagePath by remember { mutableStateOf<String?>(null) }
     var resultScanType by remember { mutableStateOf(ScanType.OCR) }
+    // 是否显示性能诊断页面
+    var showDiagnosticsScreen by remember { mutableStateOf(false) }
     
     val items = listOf(
         NavigationItem(
@@ -825,6 +1075,7 @@ fun MainAppScreen(
         // 显示角点选择页面
         SelectedCornerPointScreen(
             bitmap = capturedBitmap,
+            initialCorners = capturedCorners,
             onConfirm = onCornerSelectionConfirm,
             onCancel = onCornerSelectionCancel
         )
@@ -832,12 +1083,29 @@ fun MainAppScreen(
         // 显示OCR结果页面
         ResultScreen(
             bitmap = ocrResultBitmap,
+            textBoxes = ocrResultBoxes,
             recognizedText = ocrResultText,
             scanType = ocrResultScanType,
             imagePath = ocrResultImagePath,
-            viewModel = if (isFromHistory) null else ocrRecordViewModel, // 来自历史记录时不保存
+            isRecognizing = isRecognizing,
+            viewModel = if (isFromHistory || isResultPersisted || isRecognizing) null else ocrRecordViewModel, // 来自历史记录、已经保存过或者还在识别时不保存
             onBackClick = onOcrResultBack
         )
+    } else if (showLiveOcr) {
+        // 显示实时识别页面 使用识别出的文字时转到结果页面保存
+        LiveOcrScreen(
+            onUseText = { text ->
+                onLiveOcrClose()
+                onShowResult(null, text, null, ScanType.OCR)
+            },
+            onDocumentCaptured = onLiveDocumentCaptured,
+            onBackClick = onLiveOcrClose
+        )
+    } else if (showDiagnosticsScreen) {
+        // 显示性能诊断页面
+        DiagnosticsScreen(
+            onBackClick = { showDiagnosticsScreen = false }
+        )
     } else if (showResultScreen) {
         // 显示结果页面
         ResultScreen(
@@ -909,6 +1177,10 @@ fun MainAppScreen(
                             Log.d("MainActivity", "点击扫码器")
                             onQRScan()
                         },
+                        onLiveOcrClick = {
+                            Log.d("MainActivity", "点击实时识别")
+                            onOpenLiveOcr()
+                        },
                         onToggleDarkMode = { darkMode ->
                             viewModel.updateSettings(settings.copy(isDarkMode = darkMode))
                             Log.d("MainActivity", "暗黑模式: $darkMode")
@@ -926,15 +1198,25 @@ fun MainAppScreen(
                         currentOCRLanguage = settings.ocrLanguage,
                         onOCRLanguageChange = { newLanguage ->
                             viewModel.updateSettings(settings.copy(ocrLanguage = newLanguage))
+                            OCRUtil.warmUpRecognizer(newLanguage)
                             Log.d("MainActivity", "OCR 识别语言更改为: $newLanguage")
                         },
+                        autoConfirmCorners = settings.autoConfirmCorners,
+                        onAutoConfirmCornersChange = { enabled ->
+                            viewModel.updateSettings(settings.copy(autoConfirmCorners = enabled))
+                        },
                         onClearCache = {
+                            onClearOcrCache()
                             Log.d("MainActivity", "清除缓存")
                         },
                         onClearHistory = {
-                            // 清除历史记录
+                            // 清除历史记录 缓存的识别结果也一起清掉
                             ocrRecordViewModel.clearHistory()
+                            onClearOcrCache()
                             Log.d("MainActivity", "清除历史记录")
+                        },
+                        onOpenDiagnostics = {
+                            showDiagnosticsScreen = true
                         }
                     )
                 }
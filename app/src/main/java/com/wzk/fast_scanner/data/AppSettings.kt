@@ -18,5 +18,8 @@ data class AppSettings(
     val isFirstLaunch: Boolean = true,
 
     //暗黑模式
-    val isDarkMode: Boolean = false
+    val isDarkMode: Boolean = false,
+
+    //检测到的文档边界足够可靠时跳过角点选择页面 默认关闭，每次都由用户确认
+    val autoConfirmCorners: Boolean = false
 )
\ No newline at end of file
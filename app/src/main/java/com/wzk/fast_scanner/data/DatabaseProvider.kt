@@ -2,6 +2,8 @@ package com.wzk.fast_scanner.data
 
 import android.content.Context
 import androidx.room.Room
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
 import com.wzk.fast_scanner.data.dao.AppDatabase
 /**
  * @author wangzikang
@@ -15,6 +17,21 @@ object DatabaseProvider {
     
     @Volatile
     private var INSTANCE: AppDatabase? = null
+
+    // 1 -> 2 新增OCR结果缓存表，历史记录保留
+    private val MIGRATION_1_2 = object : Migration(1, 2) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            db.execSQL(
+                "CREATE TABLE IF NOT EXISTS `ocr_cache` (" +
+                        "`cacheKey` TEXT NOT NULL, " +
+                        "`content` TEXT NOT NULL, " +
+                        "`sizeBytes` INTEGER NOT NULL, " +
+                        "`createTime` INTEGER NOT NULL, " +
+                        "`lastAccessTime` INTEGER NOT NULL, " +
+                        "PRIMARY KEY(`cacheKey`))"
+            )
+        }
+    }
     
     /**
      * 获取数据库实例
@@ -26,7 +43,8 @@ object DatabaseProvider {
                 AppDatabase::class.java,
                 "fast_scanner_database"
             )
-                .fallbackToDestructiveMigration() // 简单起见，数据库升级时清空数据
+                .addMigrations(MIGRATION_1_2)
+                .fallbackToDestructiveMigration() // 没有对应迁移的升级才清空数据
                 .build()
             INSTANCE = instance
             instance
@@ -37,5 +55,10 @@ object DatabaseProvider {
      * 获取 RecordDAO
      */
     fun getRecordDao(context: Context) = getDatabase(context).recordDAO()
+
+    /**
+     * 获取 OcrCacheDAO
+     */
+    fun getOcrCacheDao(context: Context) = getDatabase(context).ocrCacheDAO()
 }
 
@@ -3,6 +3,7 @@ package com.wzk.fast_scanner.data
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import com.wzk.fast_scanner.data.dao.RecordDAO
+import com.wzk.fast_scanner.utils.ScanMetrics
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.launch
 
@@ -18,11 +19,13 @@ class OCRRecordViewModel(
 
     fun addRecord(type: ScanType ,content: String, imagePath: String?) {
         viewModelScope.launch {
+            val insertStart = ScanMetrics.begin()
             dao.insert(RecordEntity(
                 type = type.mode,
                 content = content,
                 imagePath = imagePath?.toString() ?: "")
             )
+            ScanMetrics.end(ScanMetrics.Stage.DB_INSERT, insertStart)
         }
     }
 
@@ -0,0 +1,32 @@
+package com.wzk.fast_scanner.data
+
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 22:59
+ */
+
+/**
+ * OCR结果缓存
+ * key由图像像素的哈希、识别语言和引擎版本组成，同一张图再次识别时直接返回结果
+ */
+@Entity(tableName = "ocr_cache")
+data class OcrCacheEntity(
+
+    @PrimaryKey
+    val cacheKey: String,
+
+    //识别结果 每行之间用换行分隔
+    val content: String,
+
+    //结果占用的字节数 用于限制缓存总大小
+    val sizeBytes: Long,
+
+    val createTime: Long = System.currentTimeMillis(),
+
+    //最近一次命中的时间 按它淘汰最久没用的结果
+    val lastAccessTime: Long = System.currentTimeMillis()
+
+)
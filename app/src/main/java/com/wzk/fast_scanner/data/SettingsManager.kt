@@ -19,6 +19,8 @@ object SettingsManager{
     private const val IS_FIRST_LUNCH = "is_first_launch"
     //暗黑模式
     private const val IS_DARK_MODE = "is_dark_mode"
+    //自动确认文档边界
+    private const val AUTO_CONFIRM_CORNERS = "auto_confirm_corners"
 
     //SharedPreferences
     private fun getSharedPreferences(context: Context): SharedPreferences {
@@ -33,7 +35,8 @@ object SettingsManager{
             language = prefs.getString(LANGUAGE, "zh") ?: "zh",
             ocrLanguage = prefs.getString(OCR_LANGUAGE, "local_en_zh") ?: "local_en_zh",
             isFirstLaunch = prefs.getBoolean(IS_FIRST_LUNCH, true),
-            isDarkMode = prefs.getBoolean(IS_DARK_MODE, false)
+            isDarkMode = prefs.getBoolean(IS_DARK_MODE, false),
+            autoConfirmCorners = prefs.getBoolean(AUTO_CONFIRM_CORNERS, false)
         )
         return settings
     }
@@ -47,6 +50,7 @@ object SettingsManager{
             putString(OCR_LANGUAGE, settings.ocrLanguage)
             putBoolean(IS_FIRST_LUNCH, settings.isFirstLaunch)
             putBoolean(IS_DARK_MODE, settings.isDarkMode)
+            putBoolean(AUTO_CONFIRM_CORNERS, settings.autoConfirmCorners)
         }.apply()
     }
 
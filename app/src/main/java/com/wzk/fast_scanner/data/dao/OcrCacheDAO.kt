@@ -0,0 +1,42 @@
+package com.wzk.fast_scanner.data.dao
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import com.wzk.fast_scanner.data.OcrCacheEntity
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 22:59
+ */
+
+/**
+ * OCR结果缓存 这里的方法都是同步的，由OcrResultCache在后台线程调用
+ */
+@Dao
+interface OcrCacheDAO {
+
+    @Query("SELECT * FROM ocr_cache WHERE cacheKey = :key")
+    fun get(key: String): OcrCacheEntity?
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    fun put(entry: OcrCacheEntity)
+
+    @Query("UPDATE ocr_cache SET lastAccessTime = :time WHERE cacheKey = :key")
+    fun touch(key: String, time: Long)
+
+    @Query("SELECT COUNT(*) FROM ocr_cache")
+    fun count(): Int
+
+    @Query("SELECT COALESCE(SUM(sizeBytes), 0) FROM ocr_cache")
+    fun totalBytes(): Long
+
+    //删除最久没用的若干条
+    @Query("DELETE FROM ocr_cache WHERE cacheKey IN (SELECT cacheKey FROM ocr_cache ORDER BY lastAccessTime ASC LIMIT :count)")
+    fun deleteOldest(count: Int)
+
+    @Query("DELETE FROM ocr_cache")
+    fun clearAll()
+
+}
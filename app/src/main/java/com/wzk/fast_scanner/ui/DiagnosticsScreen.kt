@@ -0,0 +1,198 @@
+package com.wzk.fast_scanner.ui
+
+import android.content.Intent
+import androidx.compose.foundation.background
+import androidx.compose.foundation.layout.Arrangement
+import androidx.compose.foundation.layout.Column
+import androidx.compose.foundation.layout.Spacer
+import androidx.compose.foundation.layout.fillMaxSize
+import androidx.compose.foundation.layout.fillMaxWidth
+import androidx.compose.foundation.layout.height
+import androidx.compose.foundation.layout.padding
+import androidx.compose.foundation.rememberScrollState
+import androidx.compose.foundation.shape.RoundedCornerShape
+import androidx.compose.foundation.verticalScroll
+import androidx.compose.material3.Card
+import androidx.compose.material3.CardDefaults
+import androidx.compose.material3.ExperimentalMaterial3Api
+import androidx.compose.material3.Icon
+import androidx.compose.material3.IconButton
+import androidx.compose.material3.MaterialTheme
+import androidx.compose.material3.Scaffold
+import androidx.compose.material3.Text
+import androidx.compose.material3.TextButton
+import androidx.compose.material3.TopAppBar
+import androidx.compose.material3.TopAppBarDefaults
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.LaunchedEffect
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableIntStateOf
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.remember
+import androidx.compose.runtime.setValue
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.graphics.Color
+import androidx.compose.ui.platform.LocalContext
+import androidx.compose.ui.res.painterResource
+import androidx.compose.ui.res.stringResource
+import androidx.compose.ui.text.font.FontFamily
+import androidx.compose.ui.text.font.FontWeight
+import androidx.compose.ui.unit.dp
+import androidx.compose.ui.unit.sp
+import com.wzk.fast_scanner.R
+import com.wzk.fast_scanner.utils.MatPool
+import com.wzk.fast_scanner.utils.OCRUtil
+import com.wzk.fast_scanner.utils.OcrResultCache
+import com.wzk.fast_scanner.utils.ScanMetrics
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.withContext
+import java.util.Locale
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 22:56
+ */
+
+/**
+ * 性能诊断页面 显示扫描各阶段的耗时分布，可以导出统计文本
+ */
+@OptIn(ExperimentalMaterial3Api::class)
+@Composable
+fun DiagnosticsScreen(
+    onBackClick: () -> Unit
+) {
+    val context = LocalContext.current
+    // 每秒刷新一次统计
+    var refreshTick by remember { mutableIntStateOf(0) }
+    var snapshots by remember { mutableStateOf(ScanMetrics.snapshots()) }
+    var poolStats by remember { mutableStateOf(MatPool.shared().toString()) }
+    var engineStats by remember { mutableStateOf(OCRUtil.describeEnginePool()) }
+    var cacheStats by remember { mutableStateOf("") }
+
+    LaunchedEffect(refreshTick) {
+        snapshots = ScanMetrics.snapshots()
+        poolStats = MatPool.shared().toString()
+        engineStats = OCRUtil.describeEnginePool()
+        // 缓存统计需要查数据库
+        cacheStats = withContext(Dispatchers.IO) { OcrResultCache.get(context).describe() }
+        delay(1000)
+        refreshTick++
+    }
+
+    Scaffold(
+        topBar = {
+            TopAppBar(
+                title = {
+                    Text(
+                        text = stringResource(R.string.diagnostics),
+                        fontWeight = FontWeight.Bold
+                    )
+                },
+                navigationIcon = {
+                    IconButton(onClick = onBackClick) {
+                        Icon(
+                            painter = painterResource(R.drawable.ic_back),
+                            contentDescription = "back",
+                            tint = Color.Unspecified
+                        )
+                    }
+                },
+                actions = {
+                    TextButton(onClick = {
+                        ScanMetrics.reset()
+                        refreshTick++
+                    }) {
+                        Text(stringResource(R.string.diagnostics_reset))
+                    }
+                    TextButton(onClick = {
+                        // 导出统计文本 通过系统分享发送
+                        val dump = ScanMetrics.dump()
+                        ScanMetrics.logDump()
+                        val intent = Intent(Intent.ACTION_SEND).apply {
+                            type = "text/plain"
+                            putExtra(Intent.EXTRA_TEXT, dump)
+                        }
+                        context.startActivity(Intent.createChooser(intent, null))
+                    }) {
+                        Text(stringResource(R.string.diagnostics_export))
+                    }
+                },
+                colors = TopAppBarDefaults.topAppBarColors(
+                    containerColor = MaterialTheme.colorScheme.surface,
+                    titleContentColor = MaterialTheme.colorScheme.onSurface
+                )
+            )
+        }
+    ) { paddingValues ->
+        Column(
+            modifier = Modifier
+                .fillMaxSize()
+                .padding(paddingValues)
+                .background(MaterialTheme.colorScheme.background)
+                .verticalScroll(rememberScrollState())
+                .padding(16.dp),
+            verticalArrangement = Arrangement.spacedBy(12.dp)
+        ) {
+            if (snapshots.isEmpty()) {
+                Text(
+                    text = stringResource(R.string.diagnostics_empty),
+                    fontSize = 14.sp,
+                    color = MaterialTheme.colorScheme.onSurface.copy(alpha = 0.6f)
+                )
+            }
+            snapshots.forEach { snapshot ->
+                StageTimingCard(snapshot)
+            }
+            DiagnosticsCard(title = "OCR cache", content = cacheStats)
+            DiagnosticsCard(title = "MatPool", content = poolStats)
+            DiagnosticsCard(title = "OCR engines", content = engineStats)
+        }
+    }
+}
+
+/**
+ * 单个阶段的耗时卡片
+ */
+@Composable
+private fun StageTimingCard(snapshot: ScanMetrics.StageSnapshot) {
+    DiagnosticsCard(
+        title = "${snapshot.stage.name} (${snapshot.count})",
+        content = String.format(
+            Locale.US,
+            "p50 %.1f  p95 %.1f  p99 %.1f\nmean %.1f  max %.1f ms",
+            snapshot.p50Millis, snapshot.p95Millis, snapshot.p99Millis,
+            snapshot.meanMillis, snapshot.maxMillis
+        )
+    )
+}
+
+/**
+ * 诊断信息卡片
+ */
+@Composable
+fun DiagnosticsCard(title: String, content: String) {
+    Card(
+        modifier = Modifier.fillMaxWidth(),
+        shape = RoundedCornerShape(16.dp),
+        colors = CardDefaults.cardColors(
+            containerColor = MaterialTheme.colorScheme.surface
+        )
+    ) {
+        Column(modifier = Modifier.padding(16.dp)) {
+            Text(
+                text = title,
+                fontSize = 15.sp,
+                fontWeight = FontWeight.Medium,
+                color = MaterialTheme.colorScheme.onSurface
+            )
+            Spacer(modifier = Modifier.height(6.dp))
+            Text(
+                text = content,
+                fontSize = 13.sp,
+                fontFamily = FontFamily.Monospace,
+                color = MaterialTheme.colorScheme.onSurface.copy(alpha = 0.75f)
+            )
+        }
+    }
+}
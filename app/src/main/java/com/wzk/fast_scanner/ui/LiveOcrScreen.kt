@@ -0,0 +1,200 @@
+package com.wzk.fast_scanner.ui
+
+import android.graphics.Bitmap
+import android.view.ViewGroup
+import androidx.compose.foundation.layout.Box
+import androidx.compose.foundation.layout.Column
+import androidx.compose.foundation.layout.Spacer
+import androidx.compose.foundation.layout.fillMaxSize
+import androidx.compose.foundation.layout.fillMaxWidth
+import androidx.compose.foundation.layout.heightIn
+import androidx.compose.foundation.layout.height
+import androidx.compose.foundation.layout.padding
+import androidx.compose.foundation.rememberScrollState
+import androidx.compose.foundation.shape.RoundedCornerShape
+import androidx.compose.foundation.verticalScroll
+import androidx.compose.material3.Button
+import androidx.compose.material3.Card
+import androidx.compose.material3.CardDefaults
+import androidx.compose.material3.ExperimentalMaterial3Api
+import androidx.compose.material3.Icon
+import androidx.compose.material3.IconButton
+import androidx.compose.material3.MaterialTheme
+import androidx.compose.material3.Scaffold
+import androidx.compose.material3.Text
+import androidx.compose.material3.TextButton
+import androidx.compose.material3.TopAppBar
+import androidx.compose.material3.TopAppBarDefaults
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.DisposableEffect
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.remember
+import androidx.compose.runtime.setValue
+import androidx.compose.ui.Alignment
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.graphics.Color
+import androidx.compose.ui.platform.LocalContext
+import androidx.compose.ui.res.painterResource
+import androidx.compose.ui.res.stringResource
+import androidx.compose.ui.text.font.FontWeight
+import androidx.compose.ui.unit.dp
+import androidx.compose.ui.unit.sp
+import androidx.compose.ui.viewinterop.AndroidView
+import com.wzk.fast_scanner.R
+import com.wzk.fast_scanner.utils.DocumentQuadDetector
+import com.wzk.fast_scanner.utils.LiveOcrProcessor
+import org.opencv.android.CameraBridgeViewBase
+import org.opencv.android.JavaCamera2View
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:18
+ */
+
+/**
+ * 实时识别页面 取景框里的文字边看边识别，识别框直接画在预览上
+ * 文档模式下跟踪文档边界，拍摄后交给矫正流程
+ * 调用前需要已经拿到相机权限
+ * @param onUseText 使用当前识别出的文字
+ * @param onDocumentCaptured 文档模式下拍摄的画面和跟踪到的文档边界（没有文档时为null）
+ * @param onBackClick 返回
+ */
+@OptIn(ExperimentalMaterial3Api::class)
+@Composable
+fun LiveOcrScreen(
+    onUseText: (String) -> Unit,
+    onDocumentCaptured: (Bitmap, DocumentQuadDetector.Quad?) -> Unit,
+    onBackClick: () -> Unit
+) {
+    val context = LocalContext.current
+    var liveText by remember { mutableStateOf("") }
+    var documentMode by remember { mutableStateOf(false) }
+
+    // 识别在后台线程回调，这里只更新界面状态
+    val processor = remember {
+        LiveOcrProcessor(context) { lines, _ ->
+            liveText = lines.joinToString("\n")
+        }
+    }
+    val cameraView = remember {
+        JavaCamera2View(context, CameraBridgeViewBase.CAMERA_ID_BACK).apply {
+            // 相机打开时要用到布局参数
+            layoutParams = ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT
+            )
+            // 帧处理放到单独的线程 处理慢的时候相机线程直接丢掉新帧，不会排队
+            setDecoupledProcessing(true)
+            // 预览左上角显示帧率、识别延迟和丢帧比例
+            enableFpsMeter()
+            setCvCameraViewListener(processor)
+            processor.setFpsMeter(fpsMeter)
+        }
+    }
+
+    DisposableEffect(cameraView) {
+        cameraView.setCameraPermissionGranted()
+        cameraView.enableView()
+        onDispose {
+            cameraView.disableView()
+            processor.close()
+        }
+    }
+
+    Scaffold(
+        topBar = {
+            TopAppBar(
+                title = {
+                    Text(
+                        text = stringResource(R.string.live_ocr),
+                        fontWeight = FontWeight.Bold
+                    )
+                },
+                navigationIcon = {
+                    IconButton(onClick = onBackClick) {
+                        Icon(
+                            painter = painterResource(R.drawable.ic_back),
+                            contentDescription = "back",
+                            tint = Color.Unspecified
+                        )
+                    }
+                },
+                actions = {
+                    // 切换文字识别和文档拍摄
+                    TextButton(onClick = {
+                        documentMode = !documentMode
+                        processor.setTrackDocument(documentMode)
+                    }) {
+                        Text(
+                            stringResource(
+                                if (documentMode) R.string.live_ocr else R.string.document_scan
+                            )
+                        )
+                    }
+                },
+                colors = TopAppBarDefaults.topAppBarColors(
+                    containerColor = MaterialTheme.colorScheme.surface,
+                    titleContentColor = MaterialTheme.colorScheme.onSurface
+                )
+            )
+        }
+    ) { paddingValues ->
+        Box(
+            modifier = Modifier
+                .fillMaxSize()
+                .padding(paddingValues)
+        ) {
+            AndroidView(
+                factory = { cameraView },
+                modifier = Modifier.fillMaxSize()
+            )
+
+            // 底部显示当前识别出的文字，文档模式下显示拍摄按钮
+            Card(
+                modifier = Modifier
+                    .align(Alignment.BottomCenter)
+                    .fillMaxWidth()
+                    .padding(12.dp),
+                shape = RoundedCornerShape(16.dp),
+                colors = CardDefaults.cardColors(
+                    containerColor = MaterialTheme.colorScheme.surface.copy(alpha = 0.9f)
+                )
+            ) {
+                Column(modifier = Modifier.padding(12.dp)) {
+                    if (documentMode) {
+                        Button(
+                            onClick = {
+                                // 拍摄在相机线程完成，回到主线程再交给调用方
+                                processor.requestDocumentCapture { frame, quad ->
+                                    cameraView.post { onDocumentCaptured(frame, quad) }
+                                }
+                            },
+                            modifier = Modifier.fillMaxWidth()
+                        ) {
+                            Text(stringResource(R.string.live_capture))
+                        }
+                    } else {
+                        Text(
+                            text = liveText.ifEmpty { stringResource(R.string.live_waiting) },
+                            fontSize = 14.sp,
+                            color = MaterialTheme.colorScheme.onSurface,
+                            modifier = Modifier
+                                .fillMaxWidth()
+                                .heightIn(max = 160.dp)
+                                .verticalScroll(rememberScrollState())
+                        )
+                        Spacer(modifier = Modifier.height(8.dp))
+                        Button(
+                            onClick = { onUseText(liveText) },
+                            enabled = liveText.isNotBlank(),
+                            modifier = Modifier.fillMaxWidth()
+                        ) {
+                            Text(stringResource(R.string.live_use_text))
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
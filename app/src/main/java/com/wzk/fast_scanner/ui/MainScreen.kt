@@ -72,6 +72,7 @@ fun MainScreen(
     onGalleryClick: () -> Unit = {},
     onDocumentScanClick: () -> Unit = {},
     onQRScanClick: () -> Unit = {},
+    onLiveOcrClick: () -> Unit = {},
     onToggleDarkMode: (Boolean) -> Unit = {},
     isDarkMode: Boolean = false,
     onRecordClick: (RecordEntity) -> Unit = {}
@@ -193,6 +194,14 @@ fun MainScreen(
                     modifier = Modifier.weight(1f)
                 )
             }
+
+            Spacer(modifier = Modifier.height(8.dp))
+
+            // 实时识别入口
+            LiveOcrCard(
+                onClick = onLiveOcrClick,
+                modifier = Modifier.padding(horizontal = 12.dp)
+            )
             
             Spacer(modifier = Modifier.height(20.dp))
             
@@ -308,6 +317,52 @@ fun FeatureCard(
     }
 }
 
+/**
+ * 实时识别入口 占一整行的窄卡片
+ */
+@Composable
+fun LiveOcrCard(
+    onClick: () -> Unit,
+    modifier: Modifier = Modifier
+) {
+    Card(
+        modifier = modifier
+            .fillMaxWidth()
+            .clickable(onClick = onClick),
+        shape = RoundedCornerShape(16.dp),
+        elevation = CardDefaults.cardElevation(defaultElevation = 2.dp)
+    ) {
+        Row(
+            modifier = Modifier
+                .fillMaxWidth()
+                .background(
+                    Brush.linearGradient(
+                        colors = listOf(
+                            Color(0xFFFA709A),
+                            Color(0xFFFEE140)
+                        )
+                    )
+                )
+                .padding(horizontal = 16.dp, vertical = 12.dp),
+            verticalAlignment = Alignment.CenterVertically
+        ) {
+            Icon(
+                painter = painterResource(R.drawable.ic_camera),
+                contentDescription = stringResource(R.string.live_ocr),
+                tint = Color.Unspecified,
+                modifier = Modifier.size(28.dp)
+            )
+            Spacer(modifier = Modifier.width(12.dp))
+            Text(
+                text = stringResource(R.string.live_ocr),
+                color = Color.White,
+                fontSize = 14.sp,
+                fontWeight = FontWeight.Medium
+            )
+        }
+    }
+}
+
 /**
  * 最近记录区域
  */
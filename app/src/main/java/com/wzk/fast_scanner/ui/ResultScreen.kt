@@ -8,7 +8,9 @@ import android.widget.Toast
 import androidx.compose.animation.AnimatedVisibility
 import androidx.compose.animation.fadeIn
 import androidx.compose.animation.slideInVertically
+import androidx.compose.foundation.Canvas
 import androidx.compose.foundation.Image
+import androidx.compose.foundation.clickable
 import androidx.compose.foundation.background
 import androidx.compose.foundation.layout.Arrangement
 import androidx.compose.foundation.layout.Box
@@ -28,6 +30,7 @@ import androidx.compose.material3.CardDefaults
 import androidx.compose.material3.ExperimentalMaterial3Api
 import androidx.compose.material3.Icon
 import androidx.compose.material3.IconButton
+import androidx.compose.material3.LinearProgressIndicator
 import androidx.compose.material3.MaterialTheme
 import androidx.compose.material3.Scaffold
 import androidx.compose.material3.Text
@@ -44,6 +47,8 @@ import androidx.compose.ui.Modifier
 import androidx.compose.ui.draw.clip
 import androidx.compose.ui.graphics.Brush
 import androidx.compose.ui.graphics.Color
+import androidx.compose.ui.graphics.Path
+import androidx.compose.ui.graphics.drawscope.Stroke
 import androidx.compose.ui.graphics.asImageBitmap
 import androidx.compose.ui.layout.ContentScale
 import androidx.compose.ui.platform.LocalContext
@@ -55,6 +60,7 @@ import androidx.compose.ui.unit.sp
 import com.wzk.fast_scanner.R
 import com.wzk.fast_scanner.data.OCRRecordViewModel
 import com.wzk.fast_scanner.data.ScanType
+import com.wzk.fast_scanner.utils.TextBoxes
 import kotlinx.coroutines.delay
 
 /**
@@ -65,9 +71,11 @@ import kotlinx.coroutines.delay
 /**
  * 扫描结果页面
  * @param bitmap 扫描的图片
+ * @param textBoxes 识别出的文本框，点击图片时叠加显示
  * @param recognizedText 识别出的文字
  * @param scanType 扫描类型
  * @param imagePath 图片保存路径
+ * @param isRecognizing 识别还在继续，文字会继续增加
  * @param viewModel OCR记录ViewModel，用于保存结果
  * @param onBackClick 返回按钮点击事件
  */
@@ -75,9 +83,11 @@ import kotlinx.coroutines.delay
 @Composable
 fun ResultScreen(
     bitmap: Bitmap? = null,
+    textBoxes: TextBoxes? = null,
     recognizedText: String,
     scanType: ScanType = ScanType.OCR,
     imagePath: String? = null,
+    isRecognizing: Boolean = false,
     viewModel: OCRRecordViewModel? = null,
     onBackClick: () -> Unit
 ) {
@@ -85,8 +95,8 @@ fun ResultScreen(
     var isCopied by remember { mutableStateOf(false) }
     var showContent by remember { mutableStateOf(false) }
     
-    // 自动保存到数据库
-    LaunchedEffect(recognizedText) {
+    // 自动保存到数据库 流式识别时识别结束后才传入viewModel，这时保存完整的结果
+    LaunchedEffect(recognizedText, viewModel) {
         viewModel?.addRecord(
             type = scanType,
             content = recognizedText,
@@ -164,11 +174,11 @@ fun ResultScreen(
                 Column(verticalArrangement = Arrangement.spacedBy(16.dp)) {
                     // 显示图片（如果有）
                     bitmap?.let {
-                        ImagePreviewCard(bitmap = it)
+                        ImagePreviewCard(bitmap = it, textBoxes = textBoxes)
                     }
                     
                     // 显示识别的文字
-                    RecognizedTextCard(text = recognizedText)
+                    RecognizedTextCard(text = recognizedText, isRecognizing = isRecognizing)
                     
                     // 统计信息
                     StatisticsCard(
@@ -183,10 +193,12 @@ fun ResultScreen(
 }
 
 /**
- * 图片预览卡片
+ * 图片预览卡片 有文本框时点击图片切换是否显示
  */
 @Composable
-private fun ImagePreviewCard(bitmap: Bitmap) {
+private fun ImagePreviewCard(bitmap: Bitmap, textBoxes: TextBoxes?) {
+    var showBoxes by remember { mutableStateOf(false) }
+    val boxColor = MaterialTheme.colorScheme.primary
     Card(
         modifier = Modifier
             .fillMaxWidth()
@@ -205,6 +217,13 @@ private fun ImagePreviewCard(bitmap: Bitmap) {
                         )
                     )
                 )
+                .then(
+                    if (textBoxes != null && textBoxes.size() > 0) {
+                        Modifier.clickable { showBoxes = !showBoxes }
+                    } else {
+                        Modifier
+                    }
+                )
         ) {
             Image(
                 bitmap = bitmap.asImageBitmap(),
@@ -215,6 +234,42 @@ private fun ImagePreviewCard(bitmap: Bitmap) {
                     .clip(RoundedCornerShape(12.dp)),
                 contentScale = ContentScale.Fit
             )
+            if (showBoxes && textBoxes != null) {
+                TextBoxOverlay(
+                    textBoxes = textBoxes,
+                    color = boxColor,
+                    modifier = Modifier
+                        .fillMaxSize()
+                        .padding(8.dp)
+                )
+            }
+        }
+    }
+}
+
+/**
+ * 文本框叠加层 按ContentScale.Fit的方式把识别图像的坐标换算到显示区域
+ */
+@Composable
+private fun TextBoxOverlay(textBoxes: TextBoxes, color: Color, modifier: Modifier = Modifier) {
+    Canvas(modifier = modifier) {
+        if (textBoxes.imageWidth <= 0 || textBoxes.imageHeight <= 0) {
+            return@Canvas
+        }
+        val scale = minOf(size.width / textBoxes.imageWidth, size.height / textBoxes.imageHeight)
+        val offsetX = (size.width - textBoxes.imageWidth * scale) / 2f
+        val offsetY = (size.height - textBoxes.imageHeight * scale) / 2f
+        val stroke = Stroke(width = 1.5.dp.toPx())
+        val path = Path()
+        for (box in 0 until textBoxes.size()) {
+            path.reset()
+            path.moveTo(offsetX + textBoxes.x(box, 0) * scale, offsetY + textBoxes.y(box, 0) * scale)
+            for (corner in 1..3) {
+                path.lineTo(offsetX + textBoxes.x(box, corner) * scale, offsetY + textBoxes.y(box, corner) * scale)
+            }
+            path.close()
+            drawPath(path, color = color.copy(alpha = 0.15f))
+            drawPath(path, color = color, style = stroke)
         }
     }
 }
@@ -223,7 +278,7 @@ private fun ImagePreviewCard(bitmap: Bitmap) {
  * 识别文字卡片
  */
 @Composable
-private fun RecognizedTextCard(text: String) {
+private fun RecognizedTextCard(text: String, isRecognizing: Boolean) {
     Card(
         modifier = Modifier.fillMaxWidth(),
         shape = RoundedCornerShape(16.dp),
@@ -250,6 +305,12 @@ private fun RecognizedTextCard(text: String) {
                 )
             }
             
+            // 识别还没结束
+            if (isRecognizing) {
+                Spacer(modifier = Modifier.height(8.dp))
+                LinearProgressIndicator(modifier = Modifier.fillMaxWidth())
+            }
+
             Spacer(modifier = Modifier.height(12.dp))
             
             if (text.isEmpty()) {
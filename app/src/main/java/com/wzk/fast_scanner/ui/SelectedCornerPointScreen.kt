@@ -28,17 +28,20 @@ import androidx.compose.material3.TopAppBarDefaults
 import androidx.compose.runtime.Composable
 import androidx.compose.runtime.getValue
 import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.produceState
 import androidx.compose.runtime.remember
 import androidx.compose.runtime.setValue
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.geometry.Offset
 import androidx.compose.ui.graphics.Color
+import androidx.compose.ui.graphics.ImageBitmap
 import androidx.compose.ui.graphics.Path
 import androidx.compose.ui.graphics.asImageBitmap
 import androidx.compose.ui.graphics.drawscope.Stroke
 import androidx.compose.ui.input.pointer.pointerInput
 import androidx.compose.ui.layout.onSizeChanged
+import androidx.compose.ui.platform.LocalContext
 import androidx.compose.ui.res.painterResource
 import androidx.compose.ui.res.stringResource
 import androidx.compose.ui.text.font.FontWeight
@@ -46,6 +49,8 @@ import androidx.compose.ui.unit.IntSize
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
 import com.wzk.fast_scanner.R
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
 import org.opencv.core.Point
 
 /**
@@ -56,6 +61,7 @@ import org.opencv.core.Point
 /**
  * 图像角点选择页面
  * @param bitmap 要处理的图片
+ * @param initialCorners 自动检测出的初始角点（原图坐标，左上、右上、右下、左下），为null时使用默认矩形
  * @param onConfirm 确认回调，返回图片和四个角点（左上、右上、右下、左下）
  * @param onCancel 取消回调
  */
@@ -63,11 +69,30 @@ import org.opencv.core.Point
 @Composable
 fun SelectedCornerPointScreen(
     bitmap: Bitmap,
+    initialCorners: Array<Point>? = null,
     onConfirm: (Bitmap, Array<Point>) -> Unit,
     onCancel: () -> Unit
 ) {
-    // 图片的 ImageBitmap
-    val imageBitmap = remember { bitmap.asImageBitmap() }
+    // 预览图的最大边长，和屏幕长边一致就足够清晰
+    val displayMetrics = LocalContext.current.resources.displayMetrics
+    val maxPreviewSize = maxOf(displayMetrics.widthPixels, displayMetrics.heightPixels)
+
+    // 用于显示和拖动的缩小预览图，原图只在确认时交给矫正流程
+    val previewBitmap by produceState<ImageBitmap?>(initialValue = null, bitmap, maxPreviewSize) {
+        val proxy = withContext(Dispatchers.Default) {
+            createPreviewProxy(bitmap, maxPreviewSize)
+        }
+        value = proxy.asImageBitmap()
+        awaitDispose {
+            if (proxy !== bitmap) {
+                proxy.recycle()
+            }
+        }
+    }
+
+    // 布局和坐标换算都按原图尺寸计算，这样角点直接就是原图坐标
+    val imageWidth = bitmap.width
+    val imageHeight = bitmap.height
     
     // Canvas 尺寸
     var canvasSize by remember { mutableStateOf(IntSize.Zero) }
@@ -90,24 +115,37 @@ fun SelectedCornerPointScreen(
         if (canvasSize.width > 0 && canvasSize.height > 0) {
             // 计算图片缩放比例和位置（保持宽高比，居中显示）
             val canvasAspect = canvasSize.width.toFloat() / canvasSize.height
-            val imageAspect = imageBitmap.width.toFloat() / imageBitmap.height
+            val imageAspect = imageWidth.toFloat() / imageHeight
             
             if (imageAspect > canvasAspect) {
                 // 图片更宽，以宽度为准
-                imageScale = canvasSize.width.toFloat() / imageBitmap.width
+                imageScale = canvasSize.width.toFloat() / imageWidth
                 scaledImageWidth = canvasSize.width.toFloat()
-                scaledImageHeight = imageBitmap.height * imageScale
+                scaledImageHeight = imageHeight * imageScale
                 imageOffsetX = 0f
                 imageOffsetY = (canvasSize.height - scaledImageHeight) / 2
             } else {
                 // 图片更高，以高度为准
-                imageScale = canvasSize.height.toFloat() / imageBitmap.height
-                scaledImageWidth = imageBitmap.width * imageScale
+                imageScale = canvasSize.height.toFloat() / imageHeight
+                scaledImageWidth = imageWidth * imageScale
                 scaledImageHeight = canvasSize.height.toFloat()
                 imageOffsetX = (canvasSize.width - scaledImageWidth) / 2
                 imageOffsetY = 0f
             }
             
+            // 有自动检测结果时直接用检测出的角点
+            if (initialCorners != null && initialCorners.size == 4) {
+                fun toCanvas(point: Point) = Offset(
+                    imageOffsetX + point.x.toFloat() * imageScale,
+                    imageOffsetY + point.y.toFloat() * imageScale
+                )
+                topLeft = toCanvas(initialCorners[0])
+                topRight = toCanvas(initialCorners[1])
+                bottomRight = toCanvas(initialCorners[2])
+                bottomLeft = toCanvas(initialCorners[3])
+                return
+            }
+
             // 设置初始角点位置（在图片区域中间，形成一个矩形）
             val margin = 60.dp.value // 距离边缘的距离
             topLeft = Offset(imageOffsetX + margin, imageOffsetY + margin)
@@ -117,7 +155,7 @@ fun SelectedCornerPointScreen(
         }
     }
     
-    // 将 Canvas 坐标转换为图片坐标（用于传递给 OpenCV）
+    // 将 Canvas 坐标转换为原图坐标（用于传递给 OpenCV）
     fun canvasToImageCoordinate(canvasOffset: Offset): Point {
         val imageX = (canvasOffset.x - imageOffsetX) / imageScale
         val imageY = (canvasOffset.y - imageOffsetY) / imageScale
@@ -221,7 +259,7 @@ fun SelectedCornerPointScreen(
                 .padding(paddingValues)
                 .background(Color.Black)
         ) {
-            // Canvas 用于绘制图片、边框和角点
+            // 图片单独一层绘制，拖动角点时不会重绘
             Canvas(
                 modifier = Modifier
                     .fillMaxSize()
@@ -232,10 +270,11 @@ fun SelectedCornerPointScreen(
                         }
                     }
             ) {
-                // 绘制图片
-                if (scaledImageWidth > 0 && scaledImageHeight > 0) {
+                // 绘制预览图
+                val preview = previewBitmap
+                if (preview != null && scaledImageWidth > 0 && scaledImageHeight > 0) {
                     drawImage(
-                        image = imageBitmap,
+                        image = preview,
                         dstOffset = androidx.compose.ui.unit.IntOffset(
                             imageOffsetX.toInt(),
                             imageOffsetY.toInt()
@@ -246,7 +285,10 @@ fun SelectedCornerPointScreen(
                         )
                     )
                 }
-                
+            }
+
+            // Canvas 用于绘制边框和角点
+            Canvas(modifier = Modifier.fillMaxSize()) {
                 // 绘制连接线（形成框）
                 val path = Path().apply {
                     moveTo(topLeft.x, topLeft.y)
@@ -323,6 +365,23 @@ fun SelectedCornerPointScreen(
     }
 }
 
+/**
+ * 生成用于交互的缩小预览图
+ * @param bitmap 原图
+ * @param maxSize 预览图最大边长
+ * @return 预览图，原图本身够小时直接返回原图
+ */
+private fun createPreviewProxy(bitmap: Bitmap, maxSize: Int): Bitmap {
+    val longSide = maxOf(bitmap.width, bitmap.height)
+    if (maxSize <= 0 || longSide <= maxSize) {
+        return bitmap
+    }
+    val scale = maxSize.toFloat() / longSide
+    val width = maxOf(1, (bitmap.width * scale).toInt())
+    val height = maxOf(1, (bitmap.height * scale).toInt())
+    return Bitmap.createScaledBitmap(bitmap, width, height, true)
+}
+
 /**
  * 可拖动的点
  */
@@ -66,8 +66,11 @@ fun SettingsScreen(
     onLanguageChange: (String) -> Unit = {},
     currentOCRLanguage: String = "local_en_zh",
     onOCRLanguageChange: (String) -> Unit = {},
+    autoConfirmCorners: Boolean = false,
+    onAutoConfirmCornersChange: (Boolean) -> Unit = {},
     onClearCache: () -> Unit = {},
-    onClearHistory: () -> Unit = {}
+    onClearHistory: () -> Unit = {},
+    onOpenDiagnostics: () -> Unit = {}
 ) {
     var showLanguageDialog by remember { mutableStateOf(false) }
     var showOCRModeDialog by remember { mutableStateOf(false) }
@@ -131,6 +134,22 @@ fun SettingsScreen(
                     },
                     onClick = { showOCRLanguageDialog = true }
                 )
+
+                Divider(
+                    modifier = Modifier.padding(start = 56.dp),
+                    color = MaterialTheme.colorScheme.surfaceVariant
+                )
+
+                // 点击切换 打开后可靠的文档边界不再经过角点选择页面
+                SettingsItem(
+                    icon = R.drawable.ic_scan,
+                    title = stringResource(R.string.auto_confirm_corners),
+                    subtitle = if (autoConfirmCorners)
+                        stringResource(R.string.auto_confirm_corners_on)
+                    else
+                        stringResource(R.string.auto_confirm_corners_off),
+                    onClick = { onAutoConfirmCornersChange(!autoConfirmCorners) }
+                )
             }
             
             Spacer(modifier = Modifier.height(16.dp))
@@ -144,6 +163,18 @@ fun SettingsScreen(
                     onClick = { showClearHistoryDialog = true },
                     isDangerous = true
                 )
+
+                Divider(
+                    modifier = Modifier.padding(start = 56.dp),
+                    color = MaterialTheme.colorScheme.surfaceVariant
+                )
+
+                SettingsItem(
+                    icon = R.drawable.ic_history,
+                    title = stringResource(R.string.diagnostics),
+                    subtitle = stringResource(R.string.diagnostics_desc),
+                    onClick = onOpenDiagnostics
+                )
             }
             
             Spacer(modifier = Modifier.height(16.dp))
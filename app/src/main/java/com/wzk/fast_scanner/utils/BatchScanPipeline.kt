@@ -0,0 +1,207 @@
+package com.wzk.fast_scanner.utils
+
+import android.app.ActivityManager
+import android.content.Context
+import android.graphics.Bitmap
+import android.net.Uri
+import android.util.Log
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.future.await
+import kotlinx.coroutines.joinAll
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Semaphore
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 22:54
+ */
+
+/**
+ * 多页扫描流水线
+ * 解码、预处理、识别、保存四个阶段之间用有界Channel连接，不同页面在各阶段同时处理，
+ * 每页处理完立即把结果发给界面。同时解码出来的页面数受内存预算限制，和总页数无关
+ * 每个阶段都指定了调度器，不会继承调用方（通常是主线程）的调度器
+ *
+ * @param context 上下文
+ * @param preprocess 预处理（返回新图时旧图会被回收，返回null时继续使用原图），为空则跳过这一阶段
+ * @param persist 保存一页的图片和识别结果，返回图片路径
+ */
+class BatchScanPipeline(
+    private val context: Context,
+    private val preprocess: ((Bitmap) -> Bitmap?)? = null,
+    private val persist: suspend (index: Int, bitmap: Bitmap, text: String) -> String?
+) {
+
+    /**
+     * 一页的处理结果
+     * @param index 页码（从0开始）
+     * @param pageCount 总页数
+     * @param text 识别出的文字
+     * @param imagePath 保存的图片路径
+     * @param bitmap 只有第一页会保留图片用于预览，其余页保存后立即回收
+     * @param error 这一页失败的原因（解码、识别或保存失败）
+     */
+    data class PageResult(
+        val index: Int,
+        val pageCount: Int,
+        val text: String,
+        val imagePath: String?,
+        val bitmap: Bitmap?,
+        val error: Throwable? = null
+    )
+
+    //在各阶段之间传递的页面
+    private class Page(val index: Int, var bitmap: Bitmap, var text: String = "")
+
+    /**
+     * 处理多页图片
+     * @param uris 每页图片的Uri
+     * @return 每页的结果，按完成顺序发出
+     */
+    fun process(uris: List<Uri>): Flow<PageResult> = channelFlow {
+        val pageCount = uris.size
+        val maxPagesInFlight = maxPagesInFlight(context)
+        Log.d(TAG, "开始处理${pageCount}页，同时处理的页数上限：$maxPagesInFlight")
+        //已经解码、还没保存完的页面数
+        val permits = Semaphore(maxPagesInFlight)
+
+        val pending = Channel<Int>(Channel.UNLIMITED)
+        uris.indices.forEach { pending.trySend(it) }
+        pending.close()
+
+        //流水线被取消时，还留在Channel里的页面直接回收
+        val decoded = Channel<Page>(STAGE_CAPACITY) { it.bitmap.recycle() }
+        val preprocessed = Channel<Page>(STAGE_CAPACITY) { it.bitmap.recycle() }
+        val recognized = Channel<Page>(STAGE_CAPACITY) { it.bitmap.recycle() }
+
+        // 1. 解码和方向修正
+        val decoders = List(DECODE_WORKERS) {
+            launch(Dispatchers.IO) {
+                for (index in pending) {
+                    permits.acquire()
+                    val bitmap = ImageDecodeUtil.decodeUri(context, uris[index], ImageDecodeUtil.OCR_MAX_SIDE)
+                    if (bitmap == null) {
+                        permits.release()
+                        send(PageResult(index, pageCount, "", null, null, IllegalStateException("第${index + 1}页解码失败")))
+                        continue
+                    }
+                    decoded.send(Page(index, bitmap))
+                }
+            }
+        }
+        launch(Dispatchers.Default) {
+            decoders.joinAll()
+            decoded.close()
+        }
+
+        // 2. 预处理
+        launch(Dispatchers.Default) {
+            for (page in decoded) {
+                val processor = preprocess
+                if (processor != null) {
+                    val processed = processor(page.bitmap)
+                    if (processed != null && processed != page.bitmap) {
+                        page.bitmap.recycle()
+                        page.bitmap = processed
+                    }
+                }
+                preprocessed.send(page)
+            }
+            preprocessed.close()
+        }
+
+        // 3. 识别 当前引擎能同时识别几页就开几个识别协程，等待结果时不占用线程
+        val recognizers = List(OCRUtil.getMaxConcurrency(context)) {
+            launch(Dispatchers.Default) {
+                for (page in preprocessed) {
+                    try {
+                        page.text = OCRUtil.commonOCRAsync(context, page.bitmap).await().joinToString("\n")
+                    } catch (e: CancellationException) {
+                        throw e
+                    } catch (e: Exception) {
+                        // 和解码失败一样把原因交给调用方，识别失败的页面不保存
+                        Log.e(TAG, "第${page.index + 1}页识别失败: ${e.message}")
+                        page.bitmap.recycle()
+                        permits.release()
+                        send(PageResult(page.index, pageCount, "", null, null, e))
+                        continue
+                    }
+                    recognized.send(page)
+                }
+            }
+        }
+        launch(Dispatchers.Default) {
+            recognizers.joinAll()
+            recognized.close()
+        }
+
+        // 4. 保存
+        launch(Dispatchers.IO) {
+            for (page in recognized) {
+                try {
+                    val imagePath = persist(page.index, page.bitmap, page.text)
+                    val keepBitmap = page.index == 0
+                    send(PageResult(page.index, pageCount, page.text, imagePath, if (keepBitmap) page.bitmap else null))
+                    if (!keepBitmap) {
+                        page.bitmap.recycle()
+                    }
+                } catch (e: CancellationException) {
+                    page.bitmap.recycle()
+                    throw e
+                } catch (e: Exception) {
+                    Log.e(TAG, "第${page.index + 1}页保存失败: ${e.message}")
+                    page.bitmap.recycle()
+                    send(PageResult(page.index, pageCount, page.text, null, null, e))
+                } finally {
+                    permits.release()
+                }
+            }
+        }
+    }
+
+    companion object {
+
+        private const val TAG = "BatchScanPipeline"
+
+        //每个阶段之间最多排队的页面数
+        private const val STAGE_CAPACITY = 1
+
+        //同时解码的线程数
+        private const val DECODE_WORKERS = 2
+
+        //同时处理的页面数上下限 至少保证解码和识别能同时进行
+        private const val MIN_PAGES_IN_FLIGHT = 2
+        private const val MAX_PAGES_IN_FLIGHT = 4
+
+        //解码出来的页面可以使用的内存占设备当前可用内存的比例
+        private const val MEMORY_BUDGET_RATIO = 0.125
+
+        //单页按识别分辨率解码后的最大字节数
+        private val PAGE_BYTES = ImageDecodeUtil.OCR_MAX_SIDE.toLong() * ImageDecodeUtil.OCR_MAX_SIDE * 4
+
+        /**
+         * 按内存预算计算同时处理的页面数
+         * Bitmap的像素在native内存里，不受Java堆上限约束，所以按设备当前的可用内存计算，内存紧张时只保留下限
+         */
+        private fun maxPagesInFlight(context: Context): Int {
+            val available = try {
+                val activityManager = context.getSystemService(Context.ACTIVITY_SERVICE) as ActivityManager
+                val memoryInfo = ActivityManager.MemoryInfo()
+                activityManager.getMemoryInfo(memoryInfo)
+                if (memoryInfo.lowMemory) {
+                    return MIN_PAGES_IN_FLIGHT
+                }
+                memoryInfo.availMem
+            } catch (e: Exception) {
+                Log.w(TAG, "读取可用内存失败: ${e.message}")
+                return MIN_PAGES_IN_FLIGHT
+            }
+            val budget = (available * MEMORY_BUDGET_RATIO).toLong()
+            return (budget / PAGE_BYTES).toInt().coerceIn(MIN_PAGES_IN_FLIGHT, MAX_PAGES_IN_FLIGHT)
+        }
+    }
+}
@@ -0,0 +1,612 @@
+package com.wzk.fast_scanner.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.equationl.paddleocr4android.CpuPowerMode;
+import com.equationl.paddleocr4android.bean.OcrResult;
+import com.equationl.paddleocr4android.callback.OcrRunCallback;
+
+import org.opencv.android.Utils;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 22:47
+ */
+
+//性能测试工具 在真机上运行 结果输出到日志
+public class BenchmarkUtil {
+
+    private static final String TAG = "BenchmarkUtil";
+
+    //模拟页面上每一行的文字 也是引擎测试的标准答案
+    private static final String SYNTHETIC_LINE = "Speed Scanner benchmark 0123456789 invoice total";
+
+    //引擎测试用的真实图片放在assets的这个目录 每张图片配一个同名的.txt作为标准答案
+    private static final String BENCHMARK_ASSETS_DIR = "benchmark";
+
+    /**
+     * 对比标准增强和快速增强的单页耗时
+     * @param size 测试图像边长（对应2000x2000的页面）
+     * @param iterations 每种模式运行的次数（另外会先预热一次）
+     * @return 测试结果
+     */
+    public static EnhanceBenchmarkResult benchmarkEnhance(int size, int iterations) {
+        ImagePreprocessingUtil util = new ImagePreprocessingUtil();
+        Mat page = createSyntheticPage(size, size);
+        try {
+            // 预热 让缓冲池和CLAHE等内部缓存就绪
+            util.getMatPool().recycle(util.enhanceDocumentImage(page));
+            util.getMatPool().recycle(util.enhanceDocumentImageFast(page));
+
+            long[] standardNanos = new long[iterations];
+            long[] fastNanos = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                Mat standard = util.enhanceDocumentImage(page);
+                standardNanos[i] = System.nanoTime() - start;
+                util.getMatPool().recycle(standard);
+
+                start = System.nanoTime();
+                Mat fast = util.enhanceDocumentImageFast(page);
+                fastNanos[i] = System.nanoTime() - start;
+                util.getMatPool().recycle(fast);
+            }
+
+            // 对比两种模式的输出差异
+            Mat standard = util.enhanceDocumentImage(page);
+            Mat fast = util.enhanceDocumentImageFast(page);
+            double meanAbsDiff = meanAbsDiff(standard, fast);
+            util.getMatPool().recycle(standard, fast);
+
+            EnhanceBenchmarkResult result = new EnhanceBenchmarkResult(
+                    size,
+                    medianMillis(standardNanos),
+                    medianMillis(fastNanos),
+                    meanAbsDiff
+            );
+            Log.i(TAG, result.toString());
+            return result;
+        } finally {
+            page.release();
+        }
+    }
+
+    /**
+     * 对比三种增强模式下完整文档校正（透视变换 + 增强 + 转回Bitmap）的单页耗时
+     * @param size 测试图像边长
+     * @param iterations 每种模式运行的次数（另外会先预热一次）
+     * @return 每种模式的耗时中位数（毫秒）
+     */
+    public static Map<ImagePreprocessingUtil.EnhanceMode, Double> benchmarkCorrection(int size, int iterations) {
+        Bitmap bitmap = createSyntheticBitmap(size);
+        Point[] corners = syntheticCorners(size);
+        Map<ImagePreprocessingUtil.EnhanceMode, Double> result = new EnumMap<>(ImagePreprocessingUtil.EnhanceMode.class);
+        ImagePreprocessingUtil util = new ImagePreprocessingUtil();
+        for (ImagePreprocessingUtil.EnhanceMode mode : ImagePreprocessingUtil.EnhanceMode.values()) {
+            util.setEnhanceMode(mode);
+            // 预热时生成的输出Bitmap在后面的每次运行中复用
+            Bitmap corrected = util.manualDocumentCorrection(bitmap, corners);
+            long[] nanos = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                corrected = util.manualDocumentCorrection(bitmap, corners, corrected);
+                nanos[i] = System.nanoTime() - start;
+            }
+            recycleBitmap(corrected);
+            result.put(mode, medianMillis(nanos));
+        }
+        bitmap.recycle();
+        Log.i(TAG, "文档校正耗时(ms) " + size + "x" + size + ": " + result
+                + ", 核心数: " + Runtime.getRuntime().availableProcessors());
+        return result;
+    }
+
+    /**
+     * 连续校正多页后native内存的增长 用来确认Mat没有泄漏
+     * 先跑几页让缓冲池填满，之后每页都新建输出Bitmap再回收，和实际扫描一样
+     * @param size 测试图像边长
+     * @param pages 页数
+     * @return 前后两次GC之后native堆的增长（字节），稳定时应该接近0
+     */
+    public static long benchmarkSessionMemory(int size, int pages) {
+        Bitmap bitmap = createSyntheticBitmap(size);
+        Point[] corners = syntheticCorners(size);
+        ImagePreprocessingUtil util = new ImagePreprocessingUtil();
+        // 预热 每种增强模式都跑一遍，缓冲池里的尺寸固定下来
+        for (ImagePreprocessingUtil.EnhanceMode mode : ImagePreprocessingUtil.EnhanceMode.values()) {
+            util.setEnhanceMode(mode);
+            recycleBitmap(util.manualDocumentCorrection(bitmap, corners));
+        }
+        long before = nativeHeapAfterGc();
+        long trackedBefore = MatLeakTracker.getTrackedCount();
+        ImagePreprocessingUtil.EnhanceMode[] modes = ImagePreprocessingUtil.EnhanceMode.values();
+        for (int i = 0; i < pages; i++) {
+            util.setEnhanceMode(modes[i % modes.length]);
+            recycleBitmap(util.manualDocumentCorrection(bitmap, corners));
+        }
+        long growth = nativeHeapAfterGc() - before;
+        bitmap.recycle();
+        Log.i(TAG, "连续校正" + pages + "页 native堆增长: " + growth + "字节"
+                + ", 登记Mat: " + (MatLeakTracker.getTrackedCount() - trackedBefore)
+                + ", 活着的Mat: " + MatLeakTracker.getLiveCount()
+                + ", 泄漏: " + MatLeakTracker.getLeakCount()
+                + ", " + util.getMatPool());
+        MatLeakTracker.logReport();
+        return growth;
+    }
+
+    //GC并执行finalize后的native堆大小 没有释放的Mat只能靠finalize回收，这里把它们都算进去
+    private static long nativeHeapAfterGc() {
+        System.gc();
+        System.runFinalization();
+        System.gc();
+        return Debug.getNativeHeapAllocatedSize();
+    }
+
+    /**
+     * 版面还原耗时 模拟一页两栏、每行若干词的密集文本
+     * @param blockCount 文本块数量
+     * @param iterations 运行次数（另外会先预热一次）
+     * @return 耗时中位数（毫秒）
+     */
+    public static double benchmarkLayout(int blockCount, int iterations) {
+        int[] left = new int[blockCount];
+        int[] top = new int[blockCount];
+        int[] right = new int[blockCount];
+        int[] bottom = new int[blockCount];
+        String[] texts = new String[blockCount];
+        Random random = new Random(42);
+        int wordsPerLine = 6;
+        int linesPerColumn = Math.max(1, (blockCount / wordsPerLine + 1) / 2);
+        for (int i = 0; i < blockCount; i++) {
+            int line = i / wordsPerLine;
+            int column = line / linesPerColumn;
+            int word = i % wordsPerLine;
+            left[i] = column * 1100 + word * 160 + random.nextInt(6);
+            right[i] = left[i] + 120;
+            top[i] = (line % linesPerColumn) * 42 + random.nextInt(5);
+            bottom[i] = top[i] + 30;
+            texts[i] = "word" + i;
+        }
+        LayoutEngine.layout(left, top, right, bottom, texts, blockCount);
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            LayoutEngine.layout(left, top, right, bottom, texts, blockCount);
+            nanos[i] = System.nanoTime() - start;
+        }
+        double millis = medianMillis(nanos);
+        Log.i(TAG, "版面还原耗时 " + blockCount + "个文本块: " + String.format("%.2f", millis) + "ms");
+        return millis;
+    }
+
+    /**
+     * 本地OCR引擎池的吞吐量 分别用1到4个引擎同时识别同一批页面
+     * 会阻塞调用线程并加载多份模型，只能在后台线程调用
+     * @param context 上下文
+     * @param pages 每种池大小识别的页数
+     * @return 池大小 -> 每秒识别的页数（内存预算不允许的大小会被缩小，日志里会注明实际大小）
+     */
+    public static Map<Integer, Double> benchmarkEnginePool(Context context, int pages) {
+        Mat page = createSyntheticPage(1600, 1200);
+        Bitmap bitmap = matToBitmap(page);
+        page.release();
+        Map<Integer, Double> result = new LinkedHashMap<>();
+        for (int size = 1; size <= PaddleEnginePool.MAX_POOL_SIZE; size++) {
+            PaddleEnginePool pool = new PaddleEnginePool(context, size, CpuPowerMode.LITE_POWER_FULL,
+                    Runtime.getRuntime().availableProcessors(), () -> PaddleOcrEngine.newModelConfig(false));
+            try {
+                // 预热 把所有引擎都创建出来，模型加载不计入耗时
+                List<CompletableFuture<Void>> warmUp = new ArrayList<>();
+                for (int i = 0; i < pool.getSize(); i++) {
+                    warmUp.add(recognizeWithPool(pool, bitmap));
+                }
+                CompletableFuture.allOf(warmUp.toArray(new CompletableFuture[0])).get();
+
+                List<CompletableFuture<Void>> runs = new ArrayList<>();
+                long start = System.nanoTime();
+                for (int i = 0; i < pages; i++) {
+                    runs.add(recognizeWithPool(pool, bitmap));
+                }
+                CompletableFuture.allOf(runs.toArray(new CompletableFuture[0])).get();
+                double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+                double pagesPerSecond = pages / seconds;
+                result.put(size, pagesPerSecond);
+                Log.i(TAG, String.format(Locale.US, "引擎池 期望%d 实际%d个引擎 x %d线程: %.2f页/秒",
+                        size, pool.getSize(), pool.getThreadsPerEngine(), pagesPerSecond));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                Log.e(TAG, "引擎池测试失败: " + e.getCause());
+                break;
+            } finally {
+                pool.close();
+            }
+        }
+        bitmap.recycle();
+        Log.i(TAG, "引擎池吞吐量(页/秒): " + result + ", 核心数: " + Runtime.getRuntime().availableProcessors());
+        return result;
+    }
+
+    //借一个引擎识别一页，结束后归还
+    private static CompletableFuture<Void> recognizeWithPool(PaddleEnginePool pool, Bitmap bitmap) {
+        return pool.checkout().thenCompose(engine -> {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            try {
+                engine.ocr.run(bitmap, new OcrRunCallback() {
+                    @Override
+                    public void onSuccess(@NonNull OcrResult ocrResult) {
+                        engine.giveBack();
+                        done.complete(null);
+                    }
+
+                    @Override
+                    public void onFail(@NonNull Throwable throwable) {
+                        engine.giveBack();
+                        done.completeExceptionally(throwable);
+                    }
+                });
+            } catch (Exception e) {
+                engine.giveBack();
+                done.completeExceptionally(e);
+            }
+            return done;
+        });
+    }
+
+    /**
+     * 用同一批图片对比不同OCR引擎的耗时和准确率
+     * 图片包括几种尺寸的模拟页面，以及assets/benchmark下的真实图片（需要同名的.txt标准答案）
+     * 准确率用字符错误率表示：编辑距离除以标准答案的字符数，空白不计入
+     * @param context 上下文
+     * @param engines 参与测试的引擎 加载失败的引擎会跳过
+     * @param iterations 每张图片识别的次数（另外会先预热一次）
+     * @return 引擎名称 -> 测试结果
+     */
+    public static Map<String, EngineBenchmarkResult> benchmarkEngines(Context context, List<OcrEngine> engines, int iterations) {
+        List<Bitmap> images = new ArrayList<>();
+        List<String> truths = new ArrayList<>();
+        loadBenchmarkImages(context, images, truths);
+        Map<String, EngineBenchmarkResult> result = new LinkedHashMap<>();
+        try {
+            for (OcrEngine engine : engines) {
+                try {
+                    engine.init(context).get(OCRUtil.OCR_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Exception e) {
+                    Log.w(TAG, "引擎" + engine.name() + "加载失败，跳过: " + e);
+                    continue;
+                }
+                try {
+                    long[] nanos = new long[images.size() * iterations];
+                    double errorRateSum = 0;
+                    for (int i = 0; i < images.size(); i++) {
+                        // 预热这一张 结果用来计算准确率
+                        List<String> lines = engine.recognize(images.get(i), true)
+                                .get(OCRUtil.OCR_TIMEOUT_MS, TimeUnit.MILLISECONDS).lines;
+                        errorRateSum += characterErrorRate(truths.get(i), String.join("\n", lines));
+                        for (int n = 0; n < iterations; n++) {
+                            long start = System.nanoTime();
+                            engine.recognize(images.get(i), true).get(OCRUtil.OCR_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                            nanos[i * iterations + n] = System.nanoTime() - start;
+                        }
+                    }
+                    EngineBenchmarkResult engineResult = new EngineBenchmarkResult(engine.capabilities().version,
+                            medianMillis(nanos), percentileMillis(nanos, 0.95), errorRateSum / images.size(), images.size());
+                    result.put(engine.name(), engineResult);
+                    Log.i(TAG, "引擎" + engine.name() + ": " + engineResult);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Exception e) {
+                    Log.e(TAG, "引擎" + engine.name() + "测试失败: " + e);
+                }
+            }
+        } finally {
+            for (Bitmap image : images) {
+                image.recycle();
+            }
+        }
+        return result;
+    }
+
+    //固定的测试图片和标准答案
+    private static void loadBenchmarkImages(Context context, List<Bitmap> images, List<String> truths) {
+        int[][] sizes = {{1200, 900}, {1600, 1200}, {2400, 1800}};
+        for (int[] size : sizes) {
+            Mat page = createSyntheticPage(size[0], size[1]);
+            images.add(matToBitmap(page));
+            page.release();
+            truths.add(syntheticPageText(size[0], size[1]));
+        }
+        try {
+            String[] names = context.getAssets().list(BENCHMARK_ASSETS_DIR);
+            if (names == null) {
+                return;
+            }
+            for (String name : names) {
+                if (!name.endsWith(".png") && !name.endsWith(".jpg")) {
+                    continue;
+                }
+                String base = BENCHMARK_ASSETS_DIR + "/" + name.substring(0, name.lastIndexOf('.'));
+                try (InputStream imageStream = context.getAssets().open(BENCHMARK_ASSETS_DIR + "/" + name);
+                     InputStream textStream = context.getAssets().open(base + ".txt")) {
+                    Bitmap bitmap = BitmapFactory.decodeStream(imageStream);
+                    if (bitmap == null) {
+                        continue;
+                    }
+                    images.add(bitmap);
+                    truths.add(readText(textStream));
+                } catch (IOException e) {
+                    Log.w(TAG, "跳过测试图片" + name + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "读取测试图片目录失败: " + e.getMessage());
+        }
+    }
+
+    private static String readText(InputStream stream) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                builder.append(line).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    //BGR图像转Bitmap
+    private static Bitmap matToBitmap(Mat bgr) {
+        Mat rgba = new Mat();
+        Imgproc.cvtColor(bgr, rgba, Imgproc.COLOR_BGR2RGBA);
+        Bitmap bitmap = Bitmap.createBitmap(rgba.cols(), rgba.rows(), Bitmap.Config.ARGB_8888);
+        Utils.matToBitmap(rgba, bitmap);
+        rgba.release();
+        return bitmap;
+    }
+
+    /**
+     * 字符错误率 编辑距离除以标准答案的字符数，空白不计入
+     * @param expected 标准答案
+     * @param actual 识别结果
+     * @return 错误率 可能大于1（识别出很多多余的字）
+     */
+    static double characterErrorRate(String expected, String actual) {
+        String a = expected.replaceAll("\\s+", "");
+        String b = actual.replaceAll("\\s+", "");
+        if (a.isEmpty()) {
+            return b.isEmpty() ? 0 : 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return (double) previous[b.length()] / a.length();
+    }
+
+    //测试用的文档页面Bitmap
+    private static Bitmap createSyntheticBitmap(int size) {
+        Mat page = createSyntheticPage(size, size);
+        Mat rgbaPage = new Mat();
+        Imgproc.cvtColor(page, rgbaPage, Imgproc.COLOR_BGR2RGBA);
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Utils.matToBitmap(rgbaPage, bitmap);
+        page.release();
+        rgbaPage.release();
+        return bitmap;
+    }
+
+    //模拟一个略微倾斜的文档四边形
+    static Point[] syntheticCorners(int size) {
+        return new Point[] {
+                new Point(size * 0.05, size * 0.04),
+                new Point(size * 0.96, size * 0.06),
+                new Point(size * 0.94, size * 0.97),
+                new Point(size * 0.03, size * 0.95)
+        };
+    }
+
+    private static void recycleBitmap(Bitmap bitmap) {
+        if (bitmap != null) {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * 生成模拟的文档页面：光照不均的浅色背景、多行文字和少量噪声
+     * @param rows 行数
+     * @param cols 列数
+     * @return BGR图像
+     */
+    public static Mat createSyntheticPage(int rows, int cols) {
+        Mat page = new Mat(rows, cols, CvType.CV_8UC3, new Scalar(235, 235, 235));
+        // 模拟拍照时一侧偏暗
+        for (int y = 0; y < rows; y += 16) {
+            double shade = 40.0 * y / rows;
+            Mat strip = page.submat(y, Math.min(rows, y + 16), 0, cols);
+            Core.subtract(strip, new Scalar(shade, shade, shade), strip);
+            strip.release();
+        }
+        double fontScale = cols / 1400.0;
+        int lineHeight = (int) Math.max(20, 48 * fontScale);
+        for (int y = lineHeight * 2; y < rows - lineHeight; y += lineHeight) {
+            Imgproc.putText(page, SYNTHETIC_LINE,
+                    new Point(cols * 0.06, y), Imgproc.FONT_HERSHEY_SIMPLEX,
+                    fontScale, new Scalar(30, 30, 30), Math.max(1, (int) (2 * fontScale)));
+        }
+        Mat noise = new Mat(rows, cols, CvType.CV_8UC3);
+        Core.randn(noise, 0, 6);
+        Core.add(page, noise, page);
+        noise.release();
+        return page;
+    }
+
+    /**
+     * 模拟页面上的文字 和createSyntheticPage画出的行一一对应
+     * @param rows 行数
+     * @param cols 列数
+     * @return 每行一条，换行分隔
+     */
+    private static String syntheticPageText(int rows, int cols) {
+        double fontScale = cols / 1400.0;
+        int lineHeight = (int) Math.max(20, 48 * fontScale);
+        StringBuilder builder = new StringBuilder();
+        for (int y = lineHeight * 2; y < rows - lineHeight; y += lineHeight) {
+            builder.append(SYNTHETIC_LINE).append('\n');
+        }
+        return builder.toString();
+    }
+
+    //两张图每个通道的平均绝对差
+    static double meanAbsDiff(Mat a, Mat b) {
+        Mat diff = new Mat();
+        Core.absdiff(a, b, diff);
+        Scalar mean = Core.mean(diff);
+        diff.release();
+        int channels = a.channels();
+        double sum = 0;
+        for (int c = 0; c < channels; c++) {
+            sum += mean.val[c];
+        }
+        return sum / channels;
+    }
+
+    private static double medianMillis(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1_000_000.0;
+    }
+
+    private static double percentileMillis(long[] nanos, double percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    //图像增强测试结果
+    public static class EnhanceBenchmarkResult {
+
+        //测试图像边长
+        public final int size;
+
+        //标准流程单页耗时中位数（毫秒）
+        public final double standardMillis;
+
+        //快速流程单页耗时中位数（毫秒）
+        public final double fastMillis;
+
+        //两种模式输出的平均逐像素差异
+        public final double meanAbsDiff;
+
+        public EnhanceBenchmarkResult(int size, double standardMillis, double fastMillis, double meanAbsDiff) {
+            this.size = size;
+            this.standardMillis = standardMillis;
+            this.fastMillis = fastMillis;
+            this.meanAbsDiff = meanAbsDiff;
+        }
+
+        public double getSpeedup() {
+            return fastMillis > 0 ? standardMillis / fastMillis : 0;
+        }
+
+        public boolean isWithinTolerance() {
+            return meanAbsDiff <= ImagePreprocessingUtil.FAST_ENHANCE_TOLERANCE;
+        }
+
+        @Override
+        public String toString() {
+            return "EnhanceBenchmarkResult{" +
+                    "size=" + size + "x" + size +
+                    ", standardMillis=" + String.format("%.1f", standardMillis) +
+                    ", fastMillis=" + String.format("%.1f", fastMillis) +
+                    ", speedup=" + String.format("%.2f", getSpeedup()) +
+                    ", meanAbsDiff=" + String.format("%.2f", meanAbsDiff) +
+                    ", withinTolerance=" + isWithinTolerance() +
+                    '}';
+        }
+    }
+
+    //OCR引擎测试结果
+    public static class EngineBenchmarkResult {
+
+        //引擎版本
+        public final String version;
+
+        //单页耗时中位数（毫秒）
+        public final double medianMillis;
+
+        //单页耗时的95分位（毫秒）
+        public final double p95Millis;
+
+        //平均字符错误率
+        public final double characterErrorRate;
+
+        //测试图片数
+        public final int images;
+
+        public EngineBenchmarkResult(String version, double medianMillis, double p95Millis, double characterErrorRate, int images) {
+            this.version = version;
+            this.medianMillis = medianMillis;
+            this.p95Millis = p95Millis;
+            this.characterErrorRate = characterErrorRate;
+            this.images = images;
+        }
+
+        @Override
+        public String toString() {
+            return "EngineBenchmarkResult{" +
+                    "version=" + version +
+                    ", medianMillis=" + String.format("%.1f", medianMillis) +
+                    ", p95Millis=" + String.format("%.1f", p95Millis) +
+                    ", cer=" + String.format("%.3f", characterErrorRate) +
+                    ", images=" + images +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.wzk.fast_scanner.utils;
+
+import android.util.Log;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfFloat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.core.TermCriteria;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.video.Video;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:21
+ */
+
+//相机预览里的文档角点跟踪 每帧都做一次完整的边界检测太费CPU，四个角也会来回抖动
+//只在开始时和跟踪不可靠时调用DocumentQuadDetector，其余帧用金字塔LK光流跟踪四个角点和文档内部的少量特征点
+//跟踪在最长边240的灰度小图上做，一帧只需要零点几毫秒
+//跟踪丢点、四边形变形（不再是凸的、面积突变）时置信度下降，降到REDETECT_CONFIDENCE以下重新检测
+//不是线程安全的，只在相机线程调用
+public class DocumentCornerTracker {
+
+    private static final String TAG = "DocumentCornerTracker";
+
+    //跟踪用的小图最长边
+    private static final int TRACK_MAX_SIDE = 240;
+
+    //文档内部最多跟踪的特征点数
+    private static final int MAX_FEATURES = 12;
+
+    //内部特征点剩下不到一半时重新选点 只选点不重新检测边界
+    private static final int MIN_FEATURES = MAX_FEATURES / 2;
+
+    //置信度低于这个值时重新检测边界
+    private static final double REDETECT_CONFIDENCE = 0.5;
+
+    //跟踪失败后隔多少帧再检测一次 画面里没有文档时不至于每帧都做完整检测
+    private static final int REDETECT_INTERVAL = 5;
+
+    //相邻两帧的面积比超出这个范围就认为跟丢了
+    private static final double MAX_AREA_CHANGE = 1.25;
+
+    //LK光流参数
+    private static final Size WINDOW = new Size(15, 15);
+    private static final int PYRAMID_LEVELS = 2;
+    private static final TermCriteria CRITERIA = new TermCriteria(TermCriteria.COUNT | TermCriteria.EPS, 10, 0.03);
+
+    //上一帧的小图
+    private final Mat previous = new Mat();
+    private final Mat current = new Mat();
+
+    private final MatOfPoint2f previousPoints = new MatOfPoint2f();
+    private final MatOfPoint2f nextPoints = new MatOfPoint2f();
+    private final MatOfByte status = new MatOfByte();
+    private final MatOfFloat error = new MatOfFloat();
+
+    //小图上的四个角点（左上、右上、右下、左下）和内部特征点 为null时没有在跟踪
+    private Point[] corners;
+    private List<Point> features = new ArrayList<>();
+
+    private double confidence;
+
+    //小图到输入帧的缩放
+    private double scale = 1.0;
+
+    //距离上一次检测失败的帧数
+    private int framesSinceMiss = REDETECT_INTERVAL;
+
+    //内部的Mat跟着跟踪器一直存在 登记到泄漏跟踪里，跟踪器没有release就被回收时会报告出来
+    public DocumentCornerTracker() {
+        for (Mat mat : new Mat[] {previous, current, previousPoints, nextPoints, status, error}) {
+            MatLeakTracker.track(mat);
+        }
+    }
+
+    /**
+     * 处理一帧
+     * @param gray 单通道灰度帧
+     * @return 当前帧的文档四边形（输入帧的像素坐标），没有文档时为null
+     */
+    public DocumentQuadDetector.Quad update(Mat gray) {
+        if (gray == null || gray.empty()) {
+            return null;
+        }
+        try {
+            scale = Math.min(1.0, (double) TRACK_MAX_SIDE / Math.max(gray.cols(), gray.rows()));
+            Size size = new Size(Math.max(1, Math.round(gray.cols() * scale)), Math.max(1, Math.round(gray.rows() * scale)));
+            Imgproc.resize(gray, current, size, 0, 0, Imgproc.INTER_AREA);
+
+            if (corners != null && previous.size().equals(current.size())) {
+                track();
+            }
+            if (corners == null || confidence < REDETECT_CONFIDENCE) {
+                detect();
+            }
+            current.copyTo(previous);
+            return corners == null ? null : toFrame();
+        } catch (Exception e) {
+            Log.e(TAG, "角点跟踪失败: " + e.getMessage());
+            reset();
+            return null;
+        }
+    }
+
+    /**
+     * 丢掉跟踪状态 下一帧重新检测
+     */
+    public void reset() {
+        corners = null;
+        features = new ArrayList<>();
+        confidence = 0;
+        framesSinceMiss = REDETECT_INTERVAL;
+    }
+
+    /**
+     * 释放内部的Mat
+     */
+    public void release() {
+        reset();
+        for (Mat mat : new Mat[] {previous, current, previousPoints, nextPoints, status, error}) {
+            MatLeakTracker.untrack(mat);
+            mat.release();
+        }
+    }
+
+    //完整检测一次边界 并在文档内部选特征点
+    private void detect() {
+        if (++framesSinceMiss < REDETECT_INTERVAL) {
+            corners = null;
+            return;
+        }
+        DocumentQuadDetector.Quad quad = DocumentQuadDetector.detect(current);
+        if (quad == null) {
+            framesSinceMiss = 0;
+            corners = null;
+            return;
+        }
+        framesSinceMiss = REDETECT_INTERVAL;
+        corners = quad.corners;
+        confidence = quad.confidence;
+        selectFeatures();
+    }
+
+    //用光流把角点和特征点带到当前帧
+    private void track() {
+        List<Point> points = new ArrayList<>(4 + features.size());
+        for (Point corner : corners) {
+            points.add(corner);
+        }
+        points.addAll(features);
+        previousPoints.fromList(points);
+        Video.calcOpticalFlowPyrLK(previous, current, previousPoints, nextPoints, status, error,
+                WINDOW, PYRAMID_LEVELS, CRITERIA);
+        byte[] found = status.toArray();
+        Point[] moved = nextPoints.toArray();
+
+        // 四个角有一个跟丢就整个重新检测
+        for (int i = 0; i < 4; i++) {
+            if (found[i] == 0 || !inside(moved[i])) {
+                confidence = 0;
+                return;
+            }
+        }
+        Point[] next = DocumentQuadDetector.orderCorners(new Point[]{moved[0], moved[1], moved[2], moved[3]});
+        double change = area(next) / Math.max(1.0, area(corners));
+        if (!convex(next) || change > MAX_AREA_CHANGE || change < 1 / MAX_AREA_CHANGE) {
+            confidence = 0;
+            return;
+        }
+
+        // 内部特征点跟住的比例 反映文档是不是还在原来的位置
+        List<Point> kept = new ArrayList<>(features.size());
+        for (int i = 4; i < moved.length; i++) {
+            if (found[i] != 0 && inside(moved[i])) {
+                kept.add(moved[i]);
+            }
+        }
+        double featureRatio = features.isEmpty() ? 1.0 : (double) kept.size() / features.size();
+        confidence *= 0.5 + 0.5 * featureRatio;
+        corners = next;
+        features = kept;
+        if (features.size() < MIN_FEATURES) {
+            selectFeatures();
+        }
+    }
+
+    //在四边形内部选角点特征
+    private void selectFeatures() {
+        try (MatScope scope = new MatScope()) {
+            Mat mask = scope.track(Mat.zeros(current.size(), current.type()));
+            MatOfPoint polygon = scope.track(new MatOfPoint());
+            MatOfPoint found = scope.track(new MatOfPoint());
+            polygon.fromArray(roundPoints(corners));
+            Imgproc.fillConvexPoly(mask, polygon, new Scalar(255));
+            Imgproc.goodFeaturesToTrack(current, found, MAX_FEATURES, 0.01, 8, mask);
+            features = new ArrayList<>();
+            for (Point point : found.toArray()) {
+                features.add(point);
+            }
+        }
+    }
+
+    private boolean inside(Point point) {
+        return point.x >= 0 && point.y >= 0 && point.x < current.cols() && point.y < current.rows();
+    }
+
+    private static boolean convex(Point[] quad) {
+        try (MatScope scope = new MatScope()) {
+            return Imgproc.isContourConvex(scope.track(new MatOfPoint(roundPoints(quad))));
+        }
+    }
+
+    //四边形面积 鞋带公式
+    private static double area(Point[] quad) {
+        double sum = 0;
+        for (int i = 0; i < quad.length; i++) {
+            Point a = quad[i];
+            Point b = quad[(i + 1) % quad.length];
+            sum += a.x * b.y - b.x * a.y;
+        }
+        return Math.abs(sum) / 2;
+    }
+
+    private static Point[] roundPoints(Point[] points) {
+        Point[] rounded = new Point[points.length];
+        for (int i = 0; i < points.length; i++) {
+            rounded[i] = new Point(Math.round(points[i].x), Math.round(points[i].y));
+        }
+        return rounded;
+    }
+
+    //小图坐标换算回输入帧
+    private DocumentQuadDetector.Quad toFrame() {
+        Point[] frameCorners = new Point[4];
+        for (int i = 0; i < 4; i++) {
+            frameCorners[i] = new Point(corners[i].x / scale, corners[i].y / scale);
+        }
+        return new DocumentQuadDetector.Quad(frameCorners, confidence);
+    }
+}
@@ -0,0 +1,346 @@
+package com.wzk.fast_scanner.utils;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import org.opencv.android.Utils;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfFloat;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:19
+ */
+
+//文档边界自动检测 给角点选择页面一个初始的四边形
+//在缩小的灰度图上做：模糊 → Canny边缘 → 膨胀连接断开的边 → 外轮廓 → 多边形逼近成四边形 → 打分
+//分数看三件事：四条边有多少落在边缘上、四个角离直角有多远、四边形占画面的比例
+//缩略图最长边320，中档手机上整个过程在10~20ms
+public class DocumentQuadDetector {
+
+    private static final String TAG = "DocumentQuadDetector";
+
+    //检测用的缩略图最长边
+    private static final int PROXY_MAX_SIDE = 320;
+
+    //四边形面积至少占画面的比例 太小的多半是画面里的其他物体
+    private static final double MIN_AREA_RATIO = 0.1;
+
+    //四边形面积超过这个比例时基本就是画面边框本身
+    private static final double MAX_AREA_RATIO = 0.98;
+
+    //面积占到这个比例就给满分
+    private static final double FULL_AREA_RATIO = 0.3;
+
+    //多边形逼近的精度 周长的比例
+    private static final double APPROX_EPSILON = 0.02;
+
+    //角的余弦绝对值超过这个值（小于约60度或大于约120度）不算文档
+    private static final double MAX_CORNER_COSINE = 0.5;
+
+    //每条边采样的点数 用来计算边缘覆盖率
+    private static final int EDGE_SAMPLES = 32;
+
+    //置信度超过这个值可以直接确认，不用再让用户调整 只有用户在设置里打开自动确认时才使用
+    public static final double AUTO_CONFIRM_CONFIDENCE = 0.85;
+
+    //置信度低于这个值时结果不可靠，调用方按没有检测到处理
+    public static final double MIN_CONFIDENCE = 0.4;
+
+    //检测结果
+    public static class Quad {
+
+        //四个角点 顺序是左上、右上、右下、左下，坐标是输入图像的像素坐标
+        public final Point[] corners;
+
+        //置信度 0~1
+        public final double confidence;
+
+        public Quad(Point[] corners, double confidence) {
+            this.corners = corners;
+            this.confidence = confidence;
+        }
+
+        /**
+         * 是否可以不经过用户确认直接使用
+         */
+        public boolean isConfident() {
+            return confidence >= AUTO_CONFIRM_CONFIDENCE;
+        }
+    }
+
+    /**
+     * 检测图像里的文档四边形
+     * @param bitmap 图像
+     * @return 检测结果，没有找到或者出错时为null
+     */
+    public static Quad detect(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return null;
+        }
+        long start = ScanMetrics.begin();
+        Bitmap proxy = null;
+        try (MatScope scope = new MatScope()) {
+            Mat rgba = scope.newMat();
+            Mat gray = scope.newMat();
+            // 缩小后再转成Mat 不需要拷贝整张原图
+            double scale = Math.min(1.0, (double) PROXY_MAX_SIDE / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+            int width = Math.max(1, (int) Math.round(bitmap.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(bitmap.getHeight() * scale));
+            proxy = scale < 1.0 ? Bitmap.createScaledBitmap(bitmap, width, height, true) : bitmap;
+            Bitmap argb = proxy.getConfig() == Bitmap.Config.ARGB_8888 ? proxy : proxy.copy(Bitmap.Config.ARGB_8888, false);
+            Utils.bitmapToMat(argb, rgba);
+            if (argb != proxy) {
+                argb.recycle();
+            }
+            Imgproc.cvtColor(rgba, gray, Imgproc.COLOR_RGBA2GRAY);
+            Quad quad = detectInProxy(gray);
+            return quad == null ? null : scaled(quad, (double) bitmap.getWidth() / width, (double) bitmap.getHeight() / height);
+        } catch (Exception e) {
+            Log.e(TAG, "文档边界检测失败: " + e.getMessage());
+            return null;
+        } finally {
+            if (proxy != null && proxy != bitmap) {
+                proxy.recycle();
+            }
+            ScanMetrics.end(ScanMetrics.Stage.QUAD_DETECT, start);
+        }
+    }
+
+    /**
+     * 检测灰度图里的文档四边形 用于相机预览帧
+     * @param gray 单通道灰度图
+     * @return 检测结果（坐标是gray的像素坐标），没有找到或者出错时为null
+     */
+    public static Quad detect(Mat gray) {
+        if (gray == null || gray.empty() || gray.channels() != 1) {
+            return null;
+        }
+        long start = ScanMetrics.begin();
+        try (MatScope scope = new MatScope()) {
+            Mat proxy = scope.newMat();
+            double scale = Math.min(1.0, (double) PROXY_MAX_SIDE / Math.max(gray.cols(), gray.rows()));
+            if (scale < 1.0) {
+                Imgproc.resize(gray, proxy, new Size(Math.max(1, Math.round(gray.cols() * scale)),
+                        Math.max(1, Math.round(gray.rows() * scale))), 0, 0, Imgproc.INTER_AREA);
+            } else {
+                gray.copyTo(proxy);
+            }
+            Quad quad = detectInProxy(proxy);
+            return quad == null ? null
+                    : scaled(quad, (double) gray.cols() / proxy.cols(), (double) gray.rows() / proxy.rows());
+        } catch (Exception e) {
+            Log.e(TAG, "文档边界检测失败: " + e.getMessage());
+            return null;
+        } finally {
+            ScanMetrics.end(ScanMetrics.Stage.QUAD_DETECT, start);
+        }
+    }
+
+    //在缩略图上找分数最高的四边形
+    private static Quad detectInProxy(Mat gray) {
+        try (MatScope scope = new MatScope()) {
+            Mat blurred = scope.newMat();
+            Mat edges = scope.newMat();
+            Mat kernel = scope.track(Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3)));
+            Mat hierarchy = scope.newMat();
+            List<MatOfPoint> contours = new ArrayList<>();
+            Imgproc.GaussianBlur(gray, blurred, new Size(5, 5), 0);
+            // Canny阈值跟着画面亮度走 固定阈值在暗光下找不到边
+            double median = median(blurred);
+            Imgproc.Canny(blurred, edges, Math.max(10, 0.66 * median), Math.min(255, Math.max(30, 1.33 * median)));
+            Imgproc.dilate(edges, edges, kernel);
+            Imgproc.findContours(edges, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+            for (MatOfPoint contour : contours) {
+                scope.track(contour);
+            }
+
+            double imageArea = (double) gray.cols() * gray.rows();
+            Quad best = null;
+            for (MatOfPoint contour : contours) {
+                if (Imgproc.contourArea(contour) < imageArea * MIN_AREA_RATIO) {
+                    continue;
+                }
+                Point[] corners = approximateQuad(contour);
+                if (corners == null) {
+                    continue;
+                }
+                double confidence = score(corners, edges, imageArea);
+                if (confidence > 0 && (best == null || confidence > best.confidence)) {
+                    best = new Quad(corners, confidence);
+                }
+            }
+            return best == null || best.confidence < MIN_CONFIDENCE ? null : best;
+        }
+    }
+
+    //把轮廓逼近成凸四边形 轮廓本身逼近不出四个点时再试它的凸包
+    private static Point[] approximateQuad(MatOfPoint contour) {
+        Point[] corners = approximate(contour.toArray());
+        if (corners != null) {
+            return corners;
+        }
+        try (MatScope scope = new MatScope()) {
+            MatOfInt hull = scope.track(new MatOfInt());
+            Imgproc.convexHull(contour, hull);
+            Point[] points = contour.toArray();
+            int[] indexes = hull.toArray();
+            Point[] hullPoints = new Point[indexes.length];
+            for (int i = 0; i < indexes.length; i++) {
+                hullPoints[i] = points[indexes[i]];
+            }
+            return approximate(hullPoints);
+        }
+    }
+
+    private static Point[] approximate(Point[] points) {
+        try (MatScope scope = new MatScope()) {
+            MatOfPoint2f curve = scope.track(new MatOfPoint2f(points));
+            MatOfPoint2f approx = scope.track(new MatOfPoint2f());
+            double epsilon = APPROX_EPSILON * Imgproc.arcLength(curve, true);
+            Imgproc.approxPolyDP(curve, approx, epsilon, true);
+            if (approx.rows() != 4) {
+                return null;
+            }
+            Point[] corners = approx.toArray();
+            MatOfPoint polygon = scope.track(new MatOfPoint(corners));
+            if (!Imgproc.isContourConvex(polygon)) {
+                return null;
+            }
+            return orderCorners(corners);
+        }
+    }
+
+    /**
+     * 四边形打分
+     * 边缘覆盖率占一半，角度和面积各占四分之一；任何一个角偏离直角太远都直接淘汰
+     * @param corners 左上、右上、右下、左下
+     * @param edges 膨胀后的边缘图
+     * @param imageArea 画面面积
+     * @return 0~1，淘汰时为0
+     */
+    private static double score(Point[] corners, Mat edges, double imageArea) {
+        double area;
+        try (MatScope scope = new MatScope()) {
+            area = Math.abs(Imgproc.contourArea(scope.track(new MatOfPoint2f(corners))));
+        }
+        double areaRatio = area / imageArea;
+        if (areaRatio < MIN_AREA_RATIO || areaRatio > MAX_AREA_RATIO) {
+            return 0;
+        }
+        double maxCosine = 0;
+        for (int i = 0; i < 4; i++) {
+            maxCosine = Math.max(maxCosine, Math.abs(cosine(corners[(i + 3) % 4], corners[i], corners[(i + 1) % 4])));
+        }
+        if (maxCosine > MAX_CORNER_COSINE) {
+            return 0;
+        }
+        double angleScore = 1 - maxCosine / MAX_CORNER_COSINE;
+        double areaScore = Math.min(1.0, areaRatio / FULL_AREA_RATIO);
+        double edgeScore = edgeCoverage(corners, edges);
+        return 0.5 * edgeScore + 0.25 * angleScore + 0.25 * areaScore;
+    }
+
+    //四条边上落在边缘像素上的采样点比例
+    private static double edgeCoverage(Point[] corners, Mat edges) {
+        int cols = edges.cols();
+        int rows = edges.rows();
+        byte[] pixel = new byte[1];
+        int hits = 0;
+        for (int side = 0; side < 4; side++) {
+            Point from = corners[side];
+            Point to = corners[(side + 1) % 4];
+            for (int i = 0; i < EDGE_SAMPLES; i++) {
+                double t = (i + 0.5) / EDGE_SAMPLES;
+                int x = (int) Math.round(from.x + (to.x - from.x) * t);
+                int y = (int) Math.round(from.y + (to.y - from.y) * t);
+                x = Math.max(0, Math.min(cols - 1, x));
+                y = Math.max(0, Math.min(rows - 1, y));
+                edges.get(y, x, pixel);
+                if (pixel[0] != 0) {
+                    hits++;
+                }
+            }
+        }
+        return (double) hits / (4 * EDGE_SAMPLES);
+    }
+
+    //以vertex为顶点的角的余弦
+    private static double cosine(Point previous, Point vertex, Point next) {
+        double dx1 = previous.x - vertex.x;
+        double dy1 = previous.y - vertex.y;
+        double dx2 = next.x - vertex.x;
+        double dy2 = next.y - vertex.y;
+        double length = Math.sqrt((dx1 * dx1 + dy1 * dy1) * (dx2 * dx2 + dy2 * dy2));
+        return length == 0 ? 1 : (dx1 * dx2 + dy1 * dy2) / length;
+    }
+
+    /**
+     * 角点排序 左上是x+y最小的点，右下是x+y最大的点，右上是y-x最小的点，左下是y-x最大的点
+     * @param points 任意顺序的四个点
+     * @return 左上、右上、右下、左下
+     */
+    public static Point[] orderCorners(Point[] points) {
+        Point topLeft = points[0];
+        Point bottomRight = points[0];
+        Point topRight = points[0];
+        Point bottomLeft = points[0];
+        for (Point point : points) {
+            if (point.x + point.y < topLeft.x + topLeft.y) {
+                topLeft = point;
+            }
+            if (point.x + point.y > bottomRight.x + bottomRight.y) {
+                bottomRight = point;
+            }
+            if (point.y - point.x < topRight.y - topRight.x) {
+                topRight = point;
+            }
+            if (point.y - point.x > bottomLeft.y - bottomLeft.x) {
+                bottomLeft = point;
+            }
+        }
+        return new Point[]{topLeft, topRight, bottomRight, bottomLeft};
+    }
+
+    //灰度中值 用直方图计算
+    private static double median(Mat gray) {
+        try (MatScope scope = new MatScope()) {
+            Mat hist = scope.newMat();
+            Mat mask = scope.newMat();
+            MatOfInt channels = scope.track(new MatOfInt(0));
+            MatOfInt histSize = scope.track(new MatOfInt(256));
+            MatOfFloat ranges = scope.track(new MatOfFloat(0, 256));
+            Imgproc.calcHist(Collections.singletonList(gray), channels, mask, hist, histSize, ranges);
+            float[] counts = new float[256];
+            hist.get(0, 0, counts);
+            double half = gray.total() / 2.0;
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                sum += counts[i];
+                if (sum >= half) {
+                    return i;
+                }
+            }
+            return 127;
+        }
+    }
+
+    //缩略图坐标换算回原图
+    private static Quad scaled(Quad quad, double scaleX, double scaleY) {
+        Point[] corners = new Point[4];
+        for (int i = 0; i < 4; i++) {
+            corners[i] = new Point(quad.corners[i].x * scaleX, quad.corners[i].y * scaleY);
+        }
+        return new Quad(corners, quad.confidence);
+    }
+}
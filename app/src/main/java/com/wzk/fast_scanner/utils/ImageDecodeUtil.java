@@ -0,0 +1,185 @@
+package com.wzk.fast_scanner.utils;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.ImageDecoder;
+import android.graphics.Matrix;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.exifinterface.media.ExifInterface;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 22:50
+ */
+
+//图片解码 先读取尺寸再按目标分辨率直接解码，避免先解出整张原图再缩放和旋转
+public class ImageDecodeUtil {
+
+    private static final String TAG = "ImageDecodeUtil";
+
+    //用于识别和角点选择的图片最大边长 矫正后的文档最大2000px，这里留出文档四周的余量
+    public static final int OCR_MAX_SIDE = 3000;
+
+    //历史记录只用于显示，最大边长
+    public static final int PREVIEW_MAX_SIDE = 1280;
+
+    /**
+     * 从Uri按目标分辨率解码，同时处理EXIF方向
+     * @param context 上下文
+     * @param uri 图片Uri
+     * @param maxSide 解码后图片的最大边长
+     * @return 解码后的图片，失败返回null
+     */
+    public static Bitmap decodeUri(Context context, Uri uri, int maxSide) {
+        ContentResolver resolver = context.getContentResolver();
+        long start = ScanMetrics.begin();
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                return decodeWithImageDecoder(resolver, uri, maxSide);
+            }
+            return decodeWithBitmapFactory(resolver, uri, maxSide);
+        } catch (Exception e) {
+            Log.e(TAG, "解码图片失败: " + e.getMessage(), e);
+            return null;
+        } finally {
+            ScanMetrics.end(ScanMetrics.Stage.DECODE, start);
+        }
+    }
+
+    /**
+     * 按目标分辨率解码本地文件（应用自己保存的图片，方向已经是正的）
+     * @param path 文件路径
+     * @param maxSide 解码后图片的最大边长
+     * @return 解码后的图片，失败返回null
+     */
+    public static Bitmap decodeFile(String path, int maxSide) {
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(path, options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return null;
+            }
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, maxSide);
+            return BitmapFactory.decodeFile(path, options);
+        } catch (Exception e) {
+            Log.e(TAG, "解码文件失败: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Android 9及以上使用ImageDecoder 解码时直接缩放到目标尺寸，EXIF方向由系统处理
+     */
+    private static Bitmap decodeWithImageDecoder(ContentResolver resolver, Uri uri, int maxSide) throws IOException {
+        ImageDecoder.Source source = ImageDecoder.createSource(resolver, uri);
+        Bitmap bitmap = ImageDecoder.decodeBitmap(source, (decoder, info, src) -> {
+            int width = info.getSize().getWidth();
+            int height = info.getSize().getHeight();
+            float scale = scaleFor(width, height, maxSide);
+            if (scale < 1f) {
+                decoder.setTargetSize(Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale)));
+            }
+            // OpenCV和ML Kit都需要能直接读像素的软件Bitmap
+            decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+            decoder.setMutableRequired(true);
+        });
+        Log.d(TAG, "ImageDecoder解码完成: " + bitmap.getWidth() + "x" + bitmap.getHeight());
+        return bitmap;
+    }
+
+    /**
+     * 低版本使用BitmapFactory 先用inSampleSize按2的幂缩小解码，再把剩余的缩放和EXIF旋转合并成一次变换
+     */
+    private static Bitmap decodeWithBitmapFactory(ContentResolver resolver, Uri uri, int maxSide) throws IOException {
+        // 1. 只读取尺寸
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream input = resolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(input, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            Log.e(TAG, "无法读取图片尺寸: " + uri);
+            return null;
+        }
+        // 2. 读取EXIF方向
+        int rotation = 0;
+        boolean flipped = false;
+        try (InputStream input = resolver.openInputStream(uri)) {
+            if (input != null) {
+                ExifInterface exif = new ExifInterface(input);
+                rotation = exif.getRotationDegrees();
+                flipped = exif.isFlipped();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "读取EXIF失败: " + e.getMessage());
+        }
+        // 3. 按2的幂缩小解码
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, maxSide);
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Bitmap sampled;
+        try (InputStream input = resolver.openInputStream(uri)) {
+            sampled = BitmapFactory.decodeStream(input, null, options);
+        }
+        if (sampled == null) {
+            return null;
+        }
+        // 4. 剩余的缩放和旋转一次完成
+        float scale = scaleFor(sampled.getWidth(), sampled.getHeight(), maxSide);
+        if (scale >= 1f && rotation == 0 && !flipped) {
+            return sampled;
+        }
+        Matrix matrix = new Matrix();
+        if (scale < 1f) {
+            matrix.postScale(scale, scale);
+        }
+        if (flipped) {
+            matrix.postScale(-1f, 1f);
+        }
+        if (rotation != 0) {
+            matrix.postRotate(rotation);
+        }
+        Bitmap transformed = Bitmap.createBitmap(sampled, 0, 0, sampled.getWidth(), sampled.getHeight(), matrix, true);
+        if (transformed != sampled) {
+            sampled.recycle();
+        }
+        Log.d(TAG, "BitmapFactory解码完成: " + transformed.getWidth() + "x" + transformed.getHeight()
+                + " inSampleSize=" + options.inSampleSize + " rotation=" + rotation);
+        return transformed;
+    }
+
+    /**
+     * 计算最大的inSampleSize，保证解码后长边不小于目标长边
+     * @param width 原图宽
+     * @param height 原图高
+     * @param maxSide 目标长边
+     * @return inSampleSize
+     */
+    public static int calculateInSampleSize(int width, int height, int maxSide) {
+        int longSide = Math.max(width, height);
+        int inSampleSize = 1;
+        while (maxSide > 0 && longSide / (inSampleSize * 2) >= maxSide) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    //缩放到目标长边需要的比例 不放大
+    private static float scaleFor(int width, int height, int maxSide) {
+        int longSide = Math.max(width, height);
+        if (maxSide <= 0 || longSide <= maxSide) {
+            return 1f;
+        }
+        return (float) maxSide / longSide;
+    }
+}
@@ -7,6 +7,9 @@ import org.opencv.android.Utils;
 import org.opencv.core.Core;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfFloat;
+import org.opencv.core.MatOfInt;
 import org.opencv.core.MatOfPoint2f;
 import org.opencv.core.Point;
 import org.opencv.core.Size;
@@ -14,7 +17,15 @@ import org.opencv.imgproc.CLAHE;
 import org.opencv.imgproc.Imgproc;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author wangzikang
@@ -26,6 +37,147 @@ public class ImagePreprocessingUtil {
 
     private static final String TAG = "ImagePreprocessingUtil";
 
+    //快速模式与标准流程之间允许的平均逐像素差异（0-255）
+    public static final double FAST_ENHANCE_TOLERANCE = 6.0;
+
+    //校正和增强输出的页面最长边 更大的页面先缩小，Mat缓冲池的默认容量也按这个尺寸计算
+    public static final int MAX_PAGE_SIDE = 2000;
+
+    //CLAHE的网格数
+    private static final int CLAHE_GRID = 8;
+
+    //并行模式的条带数
+    private static final int BAND_COUNT = 8;
+
+    //快速模式一个条带里所有中间结果的目标大小 条带走完所有步骤之前这些数据都留在缓存里
+    static final int FAST_TILE_BYTES = 2 * 1024 * 1024;
+
+    //快速模式每个像素在条带里占用的中间结果字节数：五个单通道缓冲区和五个三通道缓冲区
+    private static final int FAST_BYTES_PER_PIXEL = 20;
+
+    //快速模式条带的最少行数 条带太矮时上下halo重复计算的比例太高
+    private static final int FAST_MIN_TILE_ROWS = 4 * BINARY_HALO;
+
+    //邻域滤波按隔离边界处理 条带窗口和池里借的Mat都不会读到所在缓冲区里窗口以外的内容
+    private static final int ISOLATED_BORDER = Core.BORDER_DEFAULT | Core.BORDER_ISOLATED;
+
+    //和OpenCV的FLT_EPSILON一致 Otsu阈值计算时跳过一边没有像素的分割
+    private static final double FLT_EPSILON = 1.1920929e-7;
+
+    //二值化分支每个条带上下需要多读的行数：高斯模糊半径1 + 自适应阈值块半径12
+    private static final int BINARY_HALO = 13;
+
+    //彩色分支每个条带上下需要多读的行数：锐化半径1 + 双边滤波半径2
+    private static final int COLOR_HALO = 3;
+
+    //并行模式的线程数 和CPU核心数一致
+    private static final int PARALLEL_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    //锐化卷积核 第一次使用时创建（需要等OpenCV加载完成）
+    private static Mat sharpenKernel;
+
+    //并行模式处理条带的线程池 第一次使用时创建
+    private static ExecutorService bandExecutor;
+
+    //质量评估用的缩略图最长边 清晰度阈值都是按这个尺寸定的
+    private static final int QUALITY_MAX_SIDE = 512;
+
+    //拉普拉斯方差低于这个值直接拒绝（严重模糊），低于FLAG值只提示
+    private static final double REJECT_SHARPNESS = 20;
+    private static final double FLAG_SHARPNESS = 80;
+
+    //最亮的1%像素都不到这个亮度算过暗，最暗的1%像素都超过这个亮度算过曝
+    private static final int DARK_LEVEL = 40;
+    private static final int BRIGHT_LEVEL = 215;
+
+    //1%和99%分位数之差小于这个值算没有对比度
+    private static final int MIN_CONTRAST = 24;
+
+    //边缘像素占比低于这个值认为画面里没有文字
+    private static final double MIN_TEXT_DENSITY = 0.004;
+
+    //增强模式
+    public enum EnhanceMode {
+        //标准流程 每一步都处理整张图
+        STANDARD,
+        //分条带融合流程 每个缓存大小的条带连续走完所有步骤，Otsu和CLAHE由逐条带统计的直方图计算
+        FAST,
+        //分条带并行流程 透视变换和增强都按条带拆开，在所有核心上同时处理
+        PARALLEL
+    }
+
+    //图像质量评估结果
+    public enum QualityVerdict {
+        //可以识别
+        GOOD,
+        //有些模糊 仍然识别但提示用户
+        BLURRY,
+        //画面里看不到文字 仍然识别但提示用户
+        NO_TEXT,
+        //严重模糊
+        TOO_BLURRY,
+        //过暗
+        TOO_DARK,
+        //过曝
+        TOO_BRIGHT,
+        //没有对比度（纯色、镜头被挡住）
+        NO_CONTRAST
+    }
+
+    //图像质量 在缩小的灰度图上计算
+    public static class FrameQuality {
+
+        //拉普拉斯方差 越大越清晰
+        public final double sharpness;
+
+        //平均亮度 0~255
+        public final double meanLuma;
+
+        //1%和99%分位数之差
+        public final int contrast;
+
+        //边缘像素占比 用来粗略估计有没有文字
+        public final double textDensity;
+
+        public final QualityVerdict verdict;
+
+        public FrameQuality(double sharpness, double meanLuma, int contrast, double textDensity, QualityVerdict verdict) {
+            this.sharpness = sharpness;
+            this.meanLuma = meanLuma;
+            this.contrast = contrast;
+            this.textDensity = textDensity;
+            this.verdict = verdict;
+        }
+
+        /**
+         * 是否应该直接拒绝 拒绝的图像识别了也得不到文字
+         */
+        public boolean isRejected() {
+            return verdict == QualityVerdict.TOO_BLURRY || verdict == QualityVerdict.TOO_DARK
+                    || verdict == QualityVerdict.TOO_BRIGHT || verdict == QualityVerdict.NO_CONTRAST;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s(sharpness=%.1f, luma=%.0f, contrast=%d, text=%.3f)",
+                    verdict, sharpness, meanLuma, contrast, textDensity);
+        }
+    }
+
+    //当前使用的增强模式
+    private volatile EnhanceMode enhanceMode = EnhanceMode.STANDARD;
+
+    //中间结果复用的Mat缓冲池
+    private final MatPool matPool;
+
+    public ImagePreprocessingUtil() {
+        this(MatPool.shared());
+    }
+
+    public ImagePreprocessingUtil(MatPool matPool) {
+        this.matPool = matPool;
+    }
+
     /**
      * 选择文档角点并矫正图像
      * @param sourceBitmap 原始图像
@@ -33,20 +185,28 @@ public class ImagePreprocessingUtil {
      * @return 处理好后
      */
     public Bitmap manualDocumentCorrection(Bitmap sourceBitmap, Point[] cornerPoints) {
-        try {
-            //将Bitmap转换为Mat，确保正确的颜色通道顺序
-            Mat sourceMat = new Mat();
-            //把输入的 Bitmap 拷贝成 ARGB_8888 格式，确保每像素32位，便于 OpenCV 操作
-            Bitmap bmp32 = sourceBitmap.copy(Bitmap.Config.ARGB_8888, true);
-            //类型转换 将Bitmap类型转换成OpenCV的Mat类型
-            Utils.bitmapToMat(bmp32, sourceMat);
-            // 处理RGBA到BGR的转换 OpenCV中默认使用BGR，而Android是RGBA，这一步把颜色格式转换成OpenCV标准的BGR
-            Imgproc.cvtColor(sourceMat, sourceMat, Imgproc.COLOR_RGBA2BGR);
-            // 确保角点不为空且有效 校验角点一定要是四个而且不能为空
-            if (cornerPoints == null || cornerPoints.length != 4) {
-                Log.e(TAG, "角点无效，无法进行校正");
-                return null;
-            }
+        return manualDocumentCorrection(sourceBitmap, cornerPoints, null);
+    }
+
+    /**
+     * 选择文档角点并矫正图像 整个过程保持Android的RGBA通道顺序，不再来回转换成BGR
+     * @param sourceBitmap 原始图像
+     * @param cornerPoints 选择好的角点
+     * @param reuseBitmap 可以复用的输出Bitmap，尺寸一致、可修改且是ARGB_8888时直接写入，否则新建；可以为null
+     * @return 处理好后
+     */
+    public Bitmap manualDocumentCorrection(Bitmap sourceBitmap, Point[] cornerPoints, Bitmap reuseBitmap) {
+        // 确保角点不为空且有效 校验角点一定要是四个而且不能为空
+        if (cornerPoints == null || cornerPoints.length != 4) {
+            Log.e(TAG, "角点无效，无法进行校正");
+            return null;
+        }
+        long correctionStart = ScanMetrics.begin();
+        // 过程中申请的Mat都交给作用域，提前返回和出错时也会全部释放
+        try (MatScope scope = new MatScope(matPool)) {
+            //将Bitmap转换为Mat，得到的是RGBA顺序的四通道图像
+            Mat sourceMat = scope.newMat();
+            bitmapToRgba(sourceBitmap, sourceMat);
             // 使用用户选择的角点
             Point[] userSelectedCorners = cornerPoints;
             // 调试日志，输出选择的角点坐标
@@ -81,7 +241,7 @@ public class ImagePreprocessingUtil {
                 finalHeight = finalWidth / aspectRatio;
             }
             // 设置合理的分辨率 为了防止生成太大的图像，占用内存，这里设置了最大宽高（2000px）
-            int maxSize = 2000; // 限制最大尺寸
+            int maxSize = MAX_PAGE_SIDE; // 限制最大尺寸
             if (finalWidth > maxSize) {
                 finalWidth = maxSize;
                 finalHeight = finalWidth / aspectRatio;
@@ -93,50 +253,58 @@ public class ImagePreprocessingUtil {
             // 显示识别后的宽高
             Log.i(TAG, "手动选择的文档尺寸: " + (int)finalWidth + "x" + (int)finalHeight);
             // 创建源点和目标点 srcPoints：用户选择的原图中的四个角点 dstPoints：变换后的矩形目标区域
-            MatOfPoint2f srcPoints = new MatOfPoint2f(
+            MatOfPoint2f srcPoints = scope.track(new MatOfPoint2f(
                     userSelectedCorners[0], // 左上
                     userSelectedCorners[1], // 右上
                     userSelectedCorners[2], // 右下
                     userSelectedCorners[3]  // 左下
-            );
+            ));
             //获取透视变换矩阵 计算从 srcPoints 到 dstPoints 的透视变换矩阵
-            MatOfPoint2f dstPoints = new MatOfPoint2f(
+            MatOfPoint2f dstPoints = scope.track(new MatOfPoint2f(
                     new Point(0, 0),                    // 左上
                     new Point(finalWidth - 1, 0),       // 右上
                     new Point(finalWidth - 1, finalHeight - 1), // 右下
                     new Point(0, finalHeight - 1)       // 左下
-            );
+            ));
 
             // 获取透视变换矩阵 计算从 srcPoints 到 dstPoints 的透视变换矩阵
-            Mat perspectiveTransform = Imgproc.getPerspectiveTransform(srcPoints, dstPoints);
+            Mat perspectiveTransform = scope.track(Imgproc.getPerspectiveTransform(srcPoints, dstPoints));
 
             // 检查变换矩阵是否有效
             if (perspectiveTransform.empty()) {
                 Log.e(TAG, "透视变换矩阵计算失败");
                 return null;
             }
-            // 应用透视变换
-            Mat warpedMat = new Mat((int)finalHeight, (int)finalWidth, CvType.CV_8UC3);
-            //用变换矩阵将文档拉直
-            Imgproc.warpPerspective(sourceMat, warpedMat, perspectiveTransform, warpedMat.size());
-            // 检查变换结果是否有效
-            if (warpedMat.empty() || warpedMat.cols() == 0 || warpedMat.rows() == 0) {
-                Log.e(TAG, "透视变换失败，结果为空");
-                return null;
+            Mat enhancedMat;
+            long stageStart = ScanMetrics.begin();
+            if (enhanceMode == EnhanceMode.PARALLEL) {
+                // 并行模式下透视变换和增强一起按条带处理，耗时算在增强里
+                enhancedMat = scope.adopt(warpAndEnhanceParallel(sourceMat, perspectiveTransform, (int)finalWidth, (int)finalHeight));
+                ScanMetrics.end(ScanMetrics.Stage.ENHANCE, stageStart);
+            } else {
+                // 应用透视变换
+                Mat warpedMat = scope.acquire((int)finalHeight, (int)finalWidth, sourceMat.type());
+                //用变换矩阵将文档拉直
+                Imgproc.warpPerspective(sourceMat, warpedMat, perspectiveTransform, warpedMat.size());
+                // 检查变换结果是否有效
+                if (warpedMat.empty() || warpedMat.cols() == 0 || warpedMat.rows() == 0) {
+                    Log.e(TAG, "透视变换失败，结果为空");
+                    return null;
+                }
+                stageStart = ScanMetrics.end(ScanMetrics.Stage.WARP, stageStart);
+                // 应用增强处理 - 直接在透视变换后应用图像增强，四通道输入得到RGB顺序的结果
+                enhancedMat = scope.adopt(enhanceMode == EnhanceMode.FAST
+                        ? enhanceDocumentImageFast(warpedMat)
+                        : enhanceDocumentImage(warpedMat));
+                ScanMetrics.end(ScanMetrics.Stage.ENHANCE, stageStart);
             }
-            // 应用增强处理 - 直接在透视变换后应用图像增强
-            Mat enhancedMat = enhanceDocumentImage(warpedMat);
-            // 转换回Bitmap
-            Bitmap resultBitmap = Bitmap.createBitmap((int)finalWidth, (int)finalHeight, Bitmap.Config.ARGB_8888);
-            // 转回RGBA格式 - 使用增强后的Mat
-            Imgproc.cvtColor(enhancedMat, enhancedMat, Imgproc.COLOR_BGR2RGBA);
+            // 转换回Bitmap 三通道的Mat按RGB处理，补alpha在拷贝像素时一起完成，不再单独转换一次RGBA
+            Bitmap resultBitmap = canReuse(reuseBitmap, (int)finalWidth, (int)finalHeight)
+                    ? reuseBitmap
+                    : Bitmap.createBitmap((int)finalWidth, (int)finalHeight, Bitmap.Config.ARGB_8888);
             Utils.matToBitmap(enhancedMat, resultBitmap);
-            // 释放Mat资源
-            sourceMat.release();
-            warpedMat.release();
-            enhancedMat.release();
-            perspectiveTransform.release();
             // 记录增强完成的日志
+            ScanMetrics.end(ScanMetrics.Stage.CORRECTION, correctionStart);
             Log.i(TAG, "文档校正和增强完成");
             //返回矫正并增强后的bitmap
             return resultBitmap;
@@ -147,126 +315,193 @@ public class ImagePreprocessingUtil {
         }
     }
 
+    /**
+     * 增强已经拉直的文档图像 用于系统文档扫描器这类已经裁剪好的页面，不再做透视变换
+     * 快速模式下按快速流程增强，其余模式按标准流程增强（并行模式只用于透视变换和增强一起处理的场景）
+     * 和矫正一样，最长边超过 {@link #MAX_PAGE_SIDE} 的页面先缩小
+     * @param sourceBitmap 已经拉直的页面
+     * @return 增强后的新Bitmap，失败时返回null
+     */
+    public Bitmap enhanceDocument(Bitmap sourceBitmap) {
+        try (MatScope scope = new MatScope(matPool)) {
+            Mat sourceMat = scope.newMat();
+            bitmapToRgba(sourceBitmap, sourceMat);
+            double scale = (double) MAX_PAGE_SIDE / Math.max(sourceMat.cols(), sourceMat.rows());
+            if (scale < 1.0) {
+                Mat scaled = scope.acquire((int) Math.round(sourceMat.rows() * scale),
+                        (int) Math.round(sourceMat.cols() * scale), sourceMat.type());
+                Imgproc.resize(sourceMat, scaled, scaled.size(), 0, 0, Imgproc.INTER_AREA);
+                sourceMat = scaled;
+            }
+            long stageStart = ScanMetrics.begin();
+            Mat enhancedMat = scope.adopt(enhanceMode == EnhanceMode.FAST
+                    ? enhanceDocumentImageFast(sourceMat)
+                    : enhanceDocumentImage(sourceMat));
+            ScanMetrics.end(ScanMetrics.Stage.ENHANCE, stageStart);
+            Bitmap resultBitmap = Bitmap.createBitmap(enhancedMat.cols(), enhancedMat.rows(), Bitmap.Config.ARGB_8888);
+            Utils.matToBitmap(enhancedMat, resultBitmap);
+            return resultBitmap;
+        } catch (Exception e) {
+            Log.e(TAG, "文档增强时出错: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 把Bitmap转换为RGBA顺序的四通道Mat
+     * @param bitmap 输入图像
+     * @param rgbaMat 输出
+     */
+    private static void bitmapToRgba(Bitmap bitmap, Mat rgbaMat) {
+        if (bitmap.getConfig() == Bitmap.Config.ARGB_8888) {
+            //已经是每像素32位 直接转换，不再拷贝一份Bitmap
+            Utils.bitmapToMat(bitmap, rgbaMat);
+        } else {
+            //其他格式先拷贝成 ARGB_8888，转换完马上回收
+            Bitmap bmp32 = bitmap.copy(Bitmap.Config.ARGB_8888, false);
+            try {
+                Utils.bitmapToMat(bmp32, rgbaMat);
+            } finally {
+                bmp32.recycle();
+            }
+        }
+    }
+
+    /**
+     * 输出Bitmap能否直接复用
+     * @param bitmap 调用方传入的Bitmap
+     * @param width 需要的宽度
+     * @param height 需要的高度
+     * @return 能否复用
+     */
+    private static boolean canReuse(Bitmap bitmap, int width, int height) {
+        return bitmap != null && !bitmap.isRecycled() && bitmap.isMutable()
+                && bitmap.getConfig() == Bitmap.Config.ARGB_8888
+                && bitmap.getWidth() == width && bitmap.getHeight() == height;
+    }
+
+    /**
+     * 彩色输入转灰度的转换码 四通道按Android的RGBA处理，三通道按OpenCV的BGR处理
+     * @param colorMat 彩色输入图像
+     * @return 转换码
+     */
+    private static int toGrayCode(Mat colorMat) {
+        return colorMat.channels() == 4 ? Imgproc.COLOR_RGBA2GRAY : Imgproc.COLOR_BGR2GRAY;
+    }
+
+    /**
+     * 彩色输入转LAB的转换码 RGB2Lab直接接受四通道输入，alpha通道被忽略
+     * @param colorMat 彩色输入图像
+     * @return 转换码
+     */
+    private static int toLabCode(Mat colorMat) {
+        return colorMat.channels() == 4 ? Imgproc.COLOR_RGB2Lab : Imgproc.COLOR_BGR2Lab;
+    }
+
+    /**
+     * LAB转回彩色的转换码 四通道输入转回三通道RGB，三通道输入转回BGR
+     * @param colorMat 彩色输入图像
+     * @return 转换码
+     */
+    private static int fromLabCode(Mat colorMat) {
+        return colorMat.channels() == 4 ? Imgproc.COLOR_Lab2RGB : Imgproc.COLOR_Lab2BGR;
+    }
+
     /**
      * 图像文字增强
+     * 输入为BGR时输出BGR；输入为RGBA时输出三通道RGB，可以直接交给 {@link Utils#matToBitmap(Mat, Bitmap)}
+     * 中间结果都从Mat缓冲池借用，返回的Mat使用完后可以通过 {@link #getMatPool()} 归还
      * @param inputMat 输入图像
      * @return 处理后的图像
      */
     public Mat enhanceDocumentImage(Mat inputMat) {
-        try {
-            // 1. 创建输出矩阵和保存原始输入
-            Mat outputMat = new Mat();
-            Mat originalMat = inputMat.clone();
+        int rows = inputMat.rows();
+        int cols = inputMat.cols();
+        boolean isColor = inputMat.channels() >= 3;
+        // 中间结果都交给作用域，出错时也会全部归还缓冲池
+        try (MatScope scope = new MatScope(matPool)) {
+            // 1. 创建输出矩阵 输入图像在整个过程中只读，不再额外克隆一份
+            Mat outputMat = scope.acquire(rows, cols, isColor ? CvType.CV_8UC3 : inputMat.type());
 
             // 2. 转换到灰度图像进行处理
-            Mat grayMat = new Mat();
-            if (inputMat.channels() == 3) {
-                Imgproc.cvtColor(inputMat, grayMat, Imgproc.COLOR_BGR2GRAY);
+            Mat grayMat = scope.acquire(rows, cols, CvType.CV_8UC1);
+            if (isColor) {
+                Imgproc.cvtColor(inputMat, grayMat, toGrayCode(inputMat));
             } else {
                 inputMat.copyTo(grayMat);
             }
 
             // 3. 简单的对比度和亮度调整 - 轻微增强以保持原始细节
-            Mat enhancedGray = new Mat();
+            Mat enhancedGray = scope.acquire(rows, cols, CvType.CV_8UC1);
             Core.convertScaleAbs(grayMat, enhancedGray, 1.2, 0);
 
             // 4. 应用适度的高斯模糊来减少噪点，但保留文字边缘
-            Mat blurredMat = new Mat();
-            Imgproc.GaussianBlur(enhancedGray, blurredMat, new Size(3, 3), 0);
+            Mat blurredMat = scope.acquire(rows, cols, CvType.CV_8UC1);
+            Imgproc.GaussianBlur(enhancedGray, blurredMat, new Size(3, 3), 0, 0, ISOLATED_BORDER);
 
             // 5. 应用自适应阈值，但使用更大的块大小和更小的C值以保留更多细节
-            Mat binaryMat = new Mat();
+            Mat binaryMat = scope.acquire(rows, cols, CvType.CV_8UC1);
             Imgproc.adaptiveThreshold(blurredMat, binaryMat, 255,
                     Imgproc.ADAPTIVE_THRESH_GAUSSIAN_C,
                     Imgproc.THRESH_BINARY, 25, 5);
 
             // 6. 使用Otsu阈值作为备选二值化方法
-            Mat otsuMat = new Mat();
+            Mat otsuMat = scope.acquire(rows, cols, CvType.CV_8UC1);
             double otsuThresh = Imgproc.threshold(blurredMat, otsuMat, 0, 255, Imgproc.THRESH_BINARY + Imgproc.THRESH_OTSU);
             // 使用略低的阈值以保留更多文字细节
             Imgproc.threshold(blurredMat, otsuMat, otsuThresh - 10, 255, Imgproc.THRESH_BINARY);
 
             // 7. 创建二值图像的混合版本 - 保留更多细节
-            Mat combinedBinaryMat = new Mat();
+            Mat combinedBinaryMat = scope.acquire(rows, cols, CvType.CV_8UC1);
             Core.bitwise_and(binaryMat, otsuMat, combinedBinaryMat);
 
             // 8. 转换到LAB色彩空间以分别处理亮度和颜色
-            if (inputMat.channels() == 3) {
-                Mat labMat = new Mat();
-                Imgproc.cvtColor(originalMat, labMat, Imgproc.COLOR_BGR2Lab);
+            if (isColor) {
+                Mat labMat = scope.acquire(rows, cols, CvType.CV_8UC3);
+                Imgproc.cvtColor(inputMat, labMat, toLabCode(inputMat));
 
-                // 9. 分离LAB通道
-                List<Mat> labChannels = new ArrayList<>();
-                Core.split(labMat, labChannels);
+                // 9. 只取出L通道，a、b通道留在labMat中不动
+                Mat lChannel = scope.acquire(rows, cols, CvType.CV_8UC1);
+                Core.extractChannel(labMat, lChannel, 0);
 
                 // 10. 对L通道应用CLAHE，但使用较小的clipLimit以避免过度增强
-                Mat enhancedL = new Mat();
-                CLAHE clahe = Imgproc.createCLAHE(2.0, new Size(8, 8));
-                clahe.apply(labChannels.get(0), enhancedL);
-                labChannels.set(0, enhancedL);
+                Mat enhancedL = scope.acquire(rows, cols, CvType.CV_8UC1);
+                applyClahe(lChannel, enhancedL);
 
                 // 11. 适度增强L通道的对比度，避免过度处理
-                Core.convertScaleAbs(labChannels.get(0), labChannels.get(0), 1.3, 5);
+                Core.convertScaleAbs(enhancedL, enhancedL, 1.3, 5);
 
-                // 12. 重新合并LAB通道
-                Core.merge(labChannels, labMat);
+                // 12. 把L通道写回LAB图像
+                Core.insertChannel(enhancedL, labMat, 0);
 
-                // 13. 转回BGR色彩空间
-                Imgproc.cvtColor(labMat, outputMat, Imgproc.COLOR_Lab2BGR);
-
-                // 释放通道资源
-                for (Mat m : labChannels) {
-                    if (m != null && !m.empty()) m.release();
-                }
-                labMat.release();
+                // 13. 转回BGR（RGBA输入时为RGB）色彩空间
+                Imgproc.cvtColor(labMat, outputMat, fromLabCode(inputMat));
             } else {
                 // 如果是单通道图像，直接使用增强的灰度图
                 enhancedGray.copyTo(outputMat);
             }
 
             // 14. 轻微锐化以增强边缘，但不过度
-            Mat sharpened = new Mat();
-            Mat sharpenKernel = new Mat(3, 3, CvType.CV_32F);
-            float[] kernelData = new float[] {
-                    0, -0.5f, 0,
-                    -0.5f, 3.0f, -0.5f,
-                    0, -0.5f, 0
-            };
-            sharpenKernel.put(0, 0, kernelData);
-            Imgproc.filter2D(outputMat, sharpened, -1, sharpenKernel);
+            Mat sharpened = scope.acquire(rows, cols, outputMat.type());
+            Imgproc.filter2D(outputMat, sharpened, -1, getSharpenKernel(), new Point(-1, -1), 0, ISOLATED_BORDER);
 
             // 15. 应用双边滤波以保留边缘的同时减少噪声
-            Mat filtered = new Mat();
-            Imgproc.bilateralFilter(sharpened, filtered, 5, 50, 50);
+            Mat filtered = scope.acquire(rows, cols, outputMat.type());
+            Imgproc.bilateralFilter(sharpened, filtered, 5, 50, 50, ISOLATED_BORDER);
 
             // 16. 将二值图与增强后的图像混合，但使用较低的二值图权重
             if (outputMat.channels() == 3) {
-                Mat binaryBGR = new Mat();
+                Mat binaryBGR = scope.acquire(rows, cols, CvType.CV_8UC3);
                 Imgproc.cvtColor(combinedBinaryMat, binaryBGR, Imgproc.COLOR_GRAY2BGR);
 
-                // 使用较低的二值图权重，保留更多原始图像细节
-                Mat blended = new Mat();
-                Core.addWeighted(filtered, 0.7, binaryBGR, 0.3, 0, blended);
-                blended.copyTo(outputMat);
-
-                binaryBGR.release();
-                blended.release();
+                // 使用较低的二值图权重，保留更多原始图像细节 直接写入输出矩阵
+                Core.addWeighted(filtered, 0.7, binaryBGR, 0.3, 0, outputMat);
             } else {
                 filtered.copyTo(outputMat);
             }
-
-            // 17. 释放资源
-            originalMat.release();
-            grayMat.release();
-            enhancedGray.release();
-            blurredMat.release();
-            binaryMat.release();
-            otsuMat.release();
-            combinedBinaryMat.release();
-            sharpened.release();
-            sharpenKernel.release();
-            filtered.release();
-            return outputMat;
+            // 17. 输出矩阵交给调用方，其余中间结果离开作用域时归还
+            return scope.detach(outputMat);
         } catch (Exception e) {
             Log.e(TAG, "图像增强出错: " + e.getMessage());
             e.printStackTrace();
@@ -275,4 +510,865 @@ public class ImagePreprocessingUtil {
         }
     }
 
+    /**
+     * 快速图像文字增强 效果与 {@link #enhanceDocumentImage(Mat)} 一致（平均差异不超过 {@link #FAST_ENHANCE_TOLERANCE}）
+     * 图像按行切成缓存大小的条带，每个条带从灰度到混合连续走完所有步骤，直接写进输出图像，
+     * 中间结果只占条带大小的缓冲区，不再有整页的中间图像来回读写；
+     * Otsu阈值和CLAHE需要整页的统计，先逐条带统计直方图，再由直方图算出阈值和每个网格的映射表
+     * @param inputMat 输入图像（BGR或RGBA）
+     * @return 处理后的图像
+     */
+    public Mat enhanceDocumentImageFast(Mat inputMat) {
+        int rows = inputMat.rows();
+        int cols = inputMat.cols();
+        // 单通道或者不到一个条带的图像没有可融合的，直接走标准流程
+        if (inputMat.channels() < 3 || rows < FAST_MIN_TILE_ROWS || cols < FAST_MIN_TILE_ROWS) {
+            return enhanceDocumentImage(inputMat);
+        }
+        int tileRows = Math.max(FAST_MIN_TILE_ROWS, FAST_TILE_BYTES / (cols * FAST_BYTES_PER_PIXEL));
+        try (MatScope scope = new MatScope(matPool)) {
+            FastTiles tiles = new FastTiles(scope, matPool, inputMat, tileRows);
+            // 1. 逐条带统计模糊后灰度的直方图和L通道每个CLAHE网格的直方图
+            for (int top = 0; top < rows; top += tileRows) {
+                tiles.collect(top, Math.min(rows, top + tileRows));
+            }
+            // 2. 由直方图得到全局二值化阈值和CLAHE映射表
+            tiles.finishStatistics();
+            // 3. 每个条带连续走完所有步骤，结果直接写进输出图像
+            Mat outputMat = scope.acquire(rows, cols, CvType.CV_8UC3);
+            for (int top = 0; top < rows; top += tileRows) {
+                tiles.render(outputMat, top, Math.min(rows, top + tileRows));
+            }
+            return scope.detach(outputMat);
+        } catch (Exception e) {
+            Log.e(TAG, "快速图像增强出错: " + e.getMessage());
+            e.printStackTrace();
+            // 如果增强失败，返回原始图像
+            return inputMat.clone();
+        }
+    }
+
+    /**
+     * 透视变换和增强按条带并行处理
+     * 透视变换和逐像素的步骤按条带并行；Otsu阈值和CLAHE需要整页的统计，在整页上各做一次，
+     * 所以结果和 {@link #enhanceDocumentImage(Mat)} 一致，条带之间没有接缝
+     * @param sourceMat 原图（BGR或RGBA）
+     * @param perspectiveTransform 透视变换矩阵
+     * @param width 输出宽度
+     * @param height 输出高度
+     * @return 校正并增强后的图像
+     */
+    private Mat warpAndEnhanceParallel(Mat sourceMat, Mat perspectiveTransform, int width, int height) throws Exception {
+        // 太小的图像分不出条带，直接串行处理
+        if (height < BAND_COUNT * BINARY_HALO) {
+            try (MatScope scope = new MatScope(matPool)) {
+                Mat warpedMat = scope.acquire(height, width, sourceMat.type());
+                Imgproc.warpPerspective(sourceMat, warpedMat, perspectiveTransform, warpedMat.size());
+                return enhanceDocumentImage(warpedMat);
+            }
+        }
+        // runBands返回前所有条带任务都已经结束，离开作用域时释放缓冲区是安全的
+        try (MatScope scope = new MatScope(matPool)) {
+            PagePlanes planes = new PagePlanes(scope, height, width, sourceMat);
+            ExecutorService executor = getBandExecutor();
+            // 1. 每个条带只变换自己的行，转成灰度和LAB写进整页的中间结果
+            // 作用域不是线程安全的 每个条带任务用自己的作用域
+            runBands(executor, height, (top, bottom) -> {
+                try (MatScope bandScope = new MatScope(matPool)) {
+                    Mat bandMat = bandScope.acquire(bottom - top, width, sourceMat.type());
+                    Mat bandTransform = bandScope.track(shiftTransform(perspectiveTransform, 1.0, top));
+                    Imgproc.warpPerspective(sourceMat, bandMat, bandTransform, bandMat.size());
+                    prepareBand(bandMat, planes, top, bottom);
+                }
+            });
+            // 2. 需要整页统计的步骤只做一次
+            finishPlanes(planes);
+            // 3. 条带带着halo完成二值化、锐化和滤波，结果直接写进输出图像
+            Mat outputMat = scope.acquire(height, width, CvType.CV_8UC3);
+            runBands(executor, height, (top, bottom) -> finishBand(planes, outputMat, top, bottom));
+            return scope.detach(outputMat);
+        }
+    }
+
+    //一个条带的处理 top包含，bottom不包含
+    private interface BandTask {
+        void run(int top, int bottom) throws Exception;
+    }
+
+    /**
+     * 把图像按行切成条带在线程池里执行
+     * 无论成功、失败还是当前线程被中断，都会等所有已经提交的任务结束后才返回：
+     * cancel()停不下正在执行的native代码，提前返回的话调用方释放的缓冲区可能还在被写入
+     * @param executor 线程池
+     * @param rows 图像行数
+     * @param task 条带任务
+     */
+    private static void runBands(ExecutorService executor, int rows, BandTask task) throws Exception {
+        List<Future<?>> futures = new ArrayList<>(BAND_COUNT);
+        // 有条带失败后，还没开始的条带直接跳过
+        AtomicBoolean failed = new AtomicBoolean();
+        try {
+            for (int band = 0; band < BAND_COUNT; band++) {
+                int top = rows * band / BAND_COUNT;
+                int bottom = rows * (band + 1) / BAND_COUNT;
+                futures.add(executor.submit(() -> {
+                    if (failed.get()) {
+                        return null;
+                    }
+                    try {
+                        task.run(top, bottom);
+                    } catch (Exception e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                    return null;
+                }));
+            }
+        } catch (RuntimeException e) {
+            // 提交失败 等已经提交的任务结束再抛出
+            failed.set(true);
+            try {
+                awaitAll(futures);
+            } catch (Exception ignored) {
+            }
+            throw e;
+        }
+        awaitAll(futures);
+    }
+
+    /**
+     * 等待所有任务结束 中断不会提前返回，等完后再恢复中断状态
+     * @param futures 任务
+     * @throws Exception 第一个失败任务的异常，或者等待期间被中断
+     */
+    private static void awaitAll(List<Future<?>> futures) throws Exception {
+        Exception failure = null;
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            if (failure == null) {
+                failure = new InterruptedException("等待条带任务时被中断");
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    //分条带处理时整页共享的中间结果 各条带只写自己的行
+    private static final class PagePlanes {
+
+        final int rows;
+        final int cols;
+
+        //输入的颜色顺序对应的转换码
+        final int grayCode;
+        final int labCode;
+        final int fromLabCode;
+
+        //调整过对比度的灰度图 算完Otsu阈值后用作阈值化的临时输出
+        final Mat enhancedGray;
+
+        //模糊后的灰度图
+        final Mat blurred;
+
+        //LAB图像 L通道最后会换成CLAHE增强后的结果
+        final Mat lab;
+
+        final Mat lChannel;
+        final Mat enhancedL;
+
+        //全局二值化阈值（Otsu阈值减10）
+        double binaryThresh;
+
+        PagePlanes(MatScope scope, int rows, int cols, Mat colorMat) {
+            this.rows = rows;
+            this.cols = cols;
+            this.grayCode = toGrayCode(colorMat);
+            this.labCode = toLabCode(colorMat);
+            this.fromLabCode = fromLabCode(colorMat);
+            this.enhancedGray = scope.acquire(rows, cols, CvType.CV_8UC1);
+            this.blurred = scope.acquire(rows, cols, CvType.CV_8UC1);
+            this.lab = scope.acquire(rows, cols, CvType.CV_8UC3);
+            this.lChannel = scope.acquire(rows, cols, CvType.CV_8UC1);
+            this.enhancedL = scope.acquire(rows, cols, CvType.CV_8UC1);
+        }
+    }
+
+    /**
+     * 条带的第一步 只处理逐像素的步骤，不需要halo
+     * @param band 条带的输入图像，正好是top到bottom这些行
+     * @param planes 整页的中间结果
+     * @param top 条带起始行（包含）
+     * @param bottom 条带结束行（不包含）
+     */
+    private void prepareBand(Mat band, PagePlanes planes, int top, int bottom) {
+        try (MatScope scope = new MatScope(matPool)) {
+            Mat grayRows = scope.track(planes.enhancedGray.submat(top, bottom, 0, planes.cols));
+            Mat labRows = scope.track(planes.lab.submat(top, bottom, 0, planes.cols));
+            Mat lRows = scope.track(planes.lChannel.submat(top, bottom, 0, planes.cols));
+            // 输出是尺寸和类型都一致的子矩阵，结果直接写进整页的中间结果
+            Imgproc.cvtColor(band, grayRows, planes.grayCode);
+            Core.convertScaleAbs(grayRows, grayRows, 1.2, 0);
+            Imgproc.cvtColor(band, labRows, planes.labCode);
+            Core.extractChannel(labRows, lRows, 0);
+        }
+    }
+
+    /**
+     * 整页做一次的步骤：模糊、Otsu阈值和L通道的CLAHE 和标准流程的参数完全一致
+     * OpenCV内部会自己并行处理这些调用
+     * @param planes 所有条带都已经完成第一步的中间结果
+     */
+    private void finishPlanes(PagePlanes planes) {
+        Imgproc.GaussianBlur(planes.enhancedGray, planes.blurred, new Size(3, 3), 0, 0, ISOLATED_BORDER);
+        // 灰度图已经用不到了，直接当作阈值化的临时输出
+        double otsuThresh = Imgproc.threshold(planes.blurred, planes.enhancedGray, 0, 255,
+                Imgproc.THRESH_BINARY + Imgproc.THRESH_OTSU);
+        // 使用略低的阈值以保留更多文字细节
+        planes.binaryThresh = otsuThresh - 10;
+        applyClahe(planes.lChannel, planes.enhancedL);
+        Core.convertScaleAbs(planes.enhancedL, planes.enhancedL, 1.3, 5);
+        Core.insertChannel(planes.enhancedL, planes.lab, 0);
+    }
+
+    /**
+     * 对L通道应用CLAHE（clipLimit 2.0，8x8网格）
+     * 尺寸不是网格数的整数倍时OpenCV会先用copyMakeBorder补齐，而池里借的Mat在OpenCV看来是大缓冲区的子矩阵，
+     * 补边会读到缓冲区里相邻的内容；这里先按同样的方式用隔离边界补齐，再从结果里取回原来的尺寸
+     * @param src 单通道输入
+     * @param dst 单通道输出，尺寸和src一致
+     */
+    private void applyClahe(Mat src, Mat dst) {
+        CLAHE clahe = Imgproc.createCLAHE(2.0, new Size(CLAHE_GRID, CLAHE_GRID));
+        int rows = src.rows();
+        int cols = src.cols();
+        if (rows % CLAHE_GRID == 0 && cols % CLAHE_GRID == 0) {
+            clahe.apply(src, dst);
+            return;
+        }
+        // 和OpenCV一样 只要有一边不能整除，两边都补到下一个整数倍
+        int paddedRows = rows + CLAHE_GRID - rows % CLAHE_GRID;
+        int paddedCols = cols + CLAHE_GRID - cols % CLAHE_GRID;
+        try (MatScope scope = new MatScope(matPool)) {
+            Mat padded = scope.acquire(paddedRows, paddedCols, CvType.CV_8UC1);
+            Mat equalized = scope.acquire(paddedRows, paddedCols, CvType.CV_8UC1);
+            Core.copyMakeBorder(src, padded, 0, paddedRows - rows, 0, paddedCols - cols,
+                    Core.BORDER_REFLECT_101 | Core.BORDER_ISOLATED);
+            clahe.apply(padded, equalized);
+            scope.track(equalized.submat(0, rows, 0, cols)).copyTo(dst);
+        }
+    }
+
+    /**
+     * 条带的最后一步 带着halo完成二值化、锐化和滤波，去掉halo后混合写进outputMat对应的行
+     * @param planes 完成整页步骤的中间结果
+     * @param outputMat 输出图像
+     * @param top 条带起始行（包含）
+     * @param bottom 条带结束行（不包含）
+     */
+    private void finishBand(PagePlanes planes, Mat outputMat, int top, int bottom) {
+        int rows = planes.rows;
+        int cols = planes.cols;
+        int bandRows = bottom - top;
+        // 两个分支各自需要的halo范围，靠近图像边缘时截断，和整图处理时的边界一致
+        int grayTop = Math.max(0, top - BINARY_HALO);
+        int grayBottom = Math.min(rows, bottom + BINARY_HALO);
+        int colorTop = Math.max(0, top - COLOR_HALO);
+        int colorBottom = Math.min(rows, bottom + COLOR_HALO);
+
+        try (MatScope scope = new MatScope(matPool)) {
+            Mat blurredWindow = scope.track(planes.blurred.submat(grayTop, grayBottom, 0, cols));
+            Mat blurredCore = scope.track(planes.blurred.submat(top, bottom, 0, cols));
+            Mat labWindow = scope.track(planes.lab.submat(colorTop, colorBottom, 0, cols));
+            Mat binaryMat = scope.acquire(grayBottom - grayTop, cols, CvType.CV_8UC1);
+            Mat otsuMat = scope.acquire(bandRows, cols, CvType.CV_8UC1);
+            Mat enhancedMat = scope.acquire(colorBottom - colorTop, cols, CvType.CV_8UC3);
+            Mat sharpened = scope.acquire(colorBottom - colorTop, cols, CvType.CV_8UC3);
+            Mat filtered = scope.acquire(colorBottom - colorTop, cols, CvType.CV_8UC3);
+            Mat binaryBGR = scope.acquire(bandRows, cols, CvType.CV_8UC3);
+
+            // 二值化分支：自适应阈值按隔离边界处理窗口，halo覆盖了25的块大小 & 全局阈值
+            Imgproc.adaptiveThreshold(blurredWindow, binaryMat, 255,
+                    Imgproc.ADAPTIVE_THRESH_GAUSSIAN_C,
+                    Imgproc.THRESH_BINARY, 25, 5);
+            Imgproc.threshold(blurredCore, otsuMat, planes.binaryThresh, 255, Imgproc.THRESH_BINARY);
+            Mat binaryCore = scope.track(binaryMat.submat(top - grayTop, top - grayTop + bandRows, 0, cols));
+            Core.bitwise_and(binaryCore, otsuMat, otsuMat);
+
+            // 彩色分支：增强过的LAB -> BGR（RGBA输入时为RGB） -> 锐化 -> 双边滤波
+            Imgproc.cvtColor(labWindow, enhancedMat, planes.fromLabCode);
+            Imgproc.filter2D(enhancedMat, sharpened, -1, getSharpenKernel(), new Point(-1, -1), 0, ISOLATED_BORDER);
+            Imgproc.bilateralFilter(sharpened, filtered, 5, 50, 50, ISOLATED_BORDER);
+
+            // 去掉halo后混合，直接写进输出图像对应的行
+            Mat filteredCore = scope.track(filtered.submat(top - colorTop, top - colorTop + bandRows, 0, cols));
+            Mat outputBand = scope.track(outputMat.submat(top, bottom, 0, cols));
+            Imgproc.cvtColor(otsuMat, binaryBGR, Imgproc.COLOR_GRAY2BGR);
+            Core.addWeighted(filteredCore, 0.7, binaryBGR, 0.3, 0, outputBand);
+        }
+    }
+
+    //快速模式的条带缓冲区和整页统计
+    //缓冲区按最高的条带窗口申请一次，每个条带只用前面的行，所有条带处理完之前都留在缓存里
+    private static final class FastTiles {
+
+        private final MatPool pool;
+        private final Mat input;
+        private final int rows;
+        private final int cols;
+
+        //输入的颜色顺序对应的转换码
+        private final int grayCode;
+        private final int labCode;
+        private final int fromLabCode;
+
+        //二值化分支的条带窗口 上下带着BINARY_HALO
+        private final Mat gray;
+        private final Mat blurred;
+        private final Mat binary;
+        private final Mat otsu;
+
+        //彩色分支的条带窗口 上下带着COLOR_HALO
+        private final Mat lab;
+        private final Mat lChannel;
+        private final Mat color;
+        private final Mat sharpened;
+        private final Mat filtered;
+        private final Mat binaryColor;
+
+        //在Java里统计和映射的像素
+        private final byte[] grayPixels;
+        private final byte[] lPixels;
+
+        //模糊后灰度的直方图 用来算Otsu阈值
+        private final int[] grayHistogram = new int[256];
+
+        //CLAHE网格 尺寸不能被网格数整除时和OpenCV一样先按BORDER_REFLECT_101补边再分格
+        private final int paddedRows;
+        private final int paddedCols;
+        private final int tileHeight;
+        private final int tileWidth;
+
+        //每一列所在的网格列（包括补边的列）
+        private final int[] tileColumn;
+
+        //每个网格的直方图，算完之后原地换成映射表 下标是 网格序号 * 256 + 像素值
+        private final int[] tileLuts = new int[CLAHE_GRID * CLAHE_GRID * 256];
+
+        //每一列插值用的左右网格和左边网格的权重
+        private final int[] leftLut;
+        private final int[] rightLut;
+        private final float[] leftWeight;
+
+        //CLAHE之后L通道的对比度调整 和标准流程的convertScaleAbs(1.3, 5)一致
+        private final byte[] lScale = new byte[256];
+
+        //全局二值化阈值（Otsu阈值减10）
+        private double binaryThresh;
+
+        FastTiles(MatScope scope, MatPool pool, Mat input, int tileRows) {
+            this.pool = pool;
+            this.input = input;
+            this.rows = input.rows();
+            this.cols = input.cols();
+            this.grayCode = toGrayCode(input);
+            this.labCode = toLabCode(input);
+            this.fromLabCode = fromLabCode(input);
+            int grayRows = tileRows + 2 * BINARY_HALO;
+            int colorRows = tileRows + 2 * COLOR_HALO;
+            gray = scope.acquire(grayRows, cols, CvType.CV_8UC1);
+            blurred = scope.acquire(grayRows, cols, CvType.CV_8UC1);
+            binary = scope.acquire(grayRows, cols, CvType.CV_8UC1);
+            otsu = scope.acquire(tileRows, cols, CvType.CV_8UC1);
+            lab = scope.acquire(colorRows, cols, CvType.CV_8UC3);
+            lChannel = scope.acquire(colorRows, cols, CvType.CV_8UC1);
+            color = scope.acquire(colorRows, cols, CvType.CV_8UC3);
+            sharpened = scope.acquire(colorRows, cols, CvType.CV_8UC3);
+            filtered = scope.acquire(colorRows, cols, CvType.CV_8UC3);
+            binaryColor = scope.acquire(tileRows, cols, CvType.CV_8UC3);
+            grayPixels = new byte[tileRows * cols];
+            lPixels = new byte[colorRows * cols];
+
+            boolean divisible = rows % CLAHE_GRID == 0 && cols % CLAHE_GRID == 0;
+            paddedRows = divisible ? rows : rows + CLAHE_GRID - rows % CLAHE_GRID;
+            paddedCols = divisible ? cols : cols + CLAHE_GRID - cols % CLAHE_GRID;
+            tileHeight = paddedRows / CLAHE_GRID;
+            tileWidth = paddedCols / CLAHE_GRID;
+            tileColumn = new int[paddedCols];
+            for (int x = 0; x < paddedCols; x++) {
+                tileColumn[x] = x / tileWidth;
+            }
+            leftLut = new int[cols];
+            rightLut = new int[cols];
+            leftWeight = new float[cols];
+            float inverseWidth = 1.0f / tileWidth;
+            for (int x = 0; x < cols; x++) {
+                float position = x * inverseWidth - 0.5f;
+                int left = (int) Math.floor(position);
+                leftWeight[x] = 1.0f - (position - left);
+                leftLut[x] = Math.max(left, 0) * 256;
+                rightLut[x] = Math.min(left + 1, CLAHE_GRID - 1) * 256;
+            }
+            for (int v = 0; v < 256; v++) {
+                lScale[v] = (byte) clampToByte(Math.rint(v * 1.3f + 5f));
+            }
+        }
+
+        /**
+         * 统计一个条带 模糊后灰度计入Otsu直方图，L通道计入所在的CLAHE网格
+         * @param top 条带起始行（包含）
+         * @param bottom 条带结束行（不包含）
+         */
+        void collect(int top, int bottom) {
+            int bandRows = bottom - top;
+            // 模糊需要上下各多读一行
+            int windowTop = Math.max(0, top - 1);
+            int windowBottom = Math.min(rows, bottom + 1);
+            try (MatScope scope = new MatScope(pool)) {
+                Mat grayWindow = scope.track(gray.rowRange(0, windowBottom - windowTop));
+                Mat blurredWindow = scope.track(blurred.rowRange(0, windowBottom - windowTop));
+                Imgproc.cvtColor(scope.track(input.submat(windowTop, windowBottom, 0, cols)), grayWindow, grayCode);
+                Core.convertScaleAbs(grayWindow, grayWindow, 1.2, 0);
+                Imgproc.GaussianBlur(grayWindow, blurredWindow, new Size(3, 3), 0, 0, ISOLATED_BORDER);
+                scope.track(blurredWindow.rowRange(top - windowTop, top - windowTop + bandRows)).get(0, 0, grayPixels);
+                for (int i = 0, n = bandRows * cols; i < n; i++) {
+                    grayHistogram[grayPixels[i] & 0xFF]++;
+                }
+
+                Mat labBand = scope.track(lab.rowRange(0, bandRows));
+                Mat lBand = scope.track(lChannel.rowRange(0, bandRows));
+                Imgproc.cvtColor(scope.track(input.submat(top, bottom, 0, cols)), labBand, labCode);
+                Core.extractChannel(labBand, lBand, 0);
+                lBand.get(0, 0, lPixels);
+            }
+            for (int y = top; y < bottom; y++) {
+                int offset = (y - top) * cols;
+                countRow(offset, y / tileHeight);
+                // 补边的行是倒数第二行往上的镜像 每一行最多被镜像一次
+                int mirror = 2 * rows - 2 - y;
+                if (mirror >= rows && mirror < paddedRows) {
+                    countRow(offset, mirror / tileHeight);
+                }
+            }
+        }
+
+        //把L通道的一行计入它所在那一行网格的直方图 补边的列是倒数第二列往左的镜像
+        private void countRow(int offset, int tileRow) {
+            int base = tileRow * CLAHE_GRID;
+            for (int x = 0; x < paddedCols; x++) {
+                int source = x < cols ? x : 2 * cols - 2 - x;
+                tileLuts[((base + tileColumn[x]) << 8) | (lPixels[offset + source] & 0xFF)]++;
+            }
+        }
+
+        /**
+         * 所有条带统计完之后调用 算出Otsu阈值，把每个网格的直方图换成CLAHE映射表
+         * 计算方式和OpenCV一致：按clipLimit 2.0截断，截掉的部分平均分回各个灰度级，再累加成映射表
+         */
+        void finishStatistics() {
+            // 使用略低的阈值以保留更多文字细节
+            binaryThresh = otsuThreshold(grayHistogram) - 10;
+            int tileArea = tileWidth * tileHeight;
+            int clipLimit = Math.max(1, (int) (2.0 * tileArea / 256));
+            float lutScale = 255.0f / tileArea;
+            for (int tile = 0; tile < CLAHE_GRID * CLAHE_GRID; tile++) {
+                int base = tile << 8;
+                int clipped = 0;
+                for (int v = 0; v < 256; v++) {
+                    if (tileLuts[base + v] > clipLimit) {
+                        clipped += tileLuts[base + v] - clipLimit;
+                        tileLuts[base + v] = clipLimit;
+                    }
+                }
+                int batch = clipped / 256;
+                int residual = clipped - batch * 256;
+                for (int v = 0; v < 256; v++) {
+                    tileLuts[base + v] += batch;
+                }
+                if (residual != 0) {
+                    int step = Math.max(256 / residual, 1);
+                    for (int v = 0; v < 256 && residual > 0; v += step, residual--) {
+                        tileLuts[base + v]++;
+                    }
+                }
+                int sum = 0;
+                for (int v = 0; v < 256; v++) {
+                    sum += tileLuts[base + v];
+                    tileLuts[base + v] = clampToByte(Math.rint(sum * lutScale));
+                }
+            }
+        }
+
+        /**
+         * 一个条带连续走完二值化、CLAHE、锐化、滤波和混合 去掉halo后写进outputMat对应的行
+         * 窗口在图像内部的边上由halo保证结果和整图处理一致，在图像边缘的边上按隔离边界处理，和整图的边界一致
+         * @param outputMat 输出图像
+         * @param top 条带起始行（包含）
+         * @param bottom 条带结束行（不包含）
+         */
+        void render(Mat outputMat, int top, int bottom) {
+            int bandRows = bottom - top;
+            int grayTop = Math.max(0, top - BINARY_HALO);
+            int grayBottom = Math.min(rows, bottom + BINARY_HALO);
+            int colorTop = Math.max(0, top - COLOR_HALO);
+            int colorBottom = Math.min(rows, bottom + COLOR_HALO);
+            try (MatScope scope = new MatScope(pool)) {
+                // 二值化分支：灰度 -> 对比度 -> 模糊 -> 自适应阈值 & 全局阈值
+                Mat grayWindow = scope.track(gray.rowRange(0, grayBottom - grayTop));
+                Mat blurredWindow = scope.track(blurred.rowRange(0, grayBottom - grayTop));
+                Mat binaryWindow = scope.track(binary.rowRange(0, grayBottom - grayTop));
+                Imgproc.cvtColor(scope.track(input.submat(grayTop, grayBottom, 0, cols)), grayWindow, grayCode);
+                Core.convertScaleAbs(grayWindow, grayWindow, 1.2, 0);
+                Imgproc.GaussianBlur(grayWindow, blurredWindow, new Size(3, 3), 0, 0, ISOLATED_BORDER);
+                Imgproc.adaptiveThreshold(blurredWindow, binaryWindow, 255,
+                        Imgproc.ADAPTIVE_THRESH_GAUSSIAN_C,
+                        Imgproc.THRESH_BINARY, 25, 5);
+                Mat otsuBand = scope.track(otsu.rowRange(0, bandRows));
+                Mat blurredCore = scope.track(blurredWindow.rowRange(top - grayTop, top - grayTop + bandRows));
+                Mat binaryCore = scope.track(binaryWindow.rowRange(top - grayTop, top - grayTop + bandRows));
+                Imgproc.threshold(blurredCore, otsuBand, binaryThresh, 255, Imgproc.THRESH_BINARY);
+                Core.bitwise_and(binaryCore, otsuBand, otsuBand);
+
+                // 彩色分支：LAB -> L通道CLAHE和对比度 -> BGR（RGBA输入时为RGB） -> 锐化 -> 双边滤波
+                int colorRows = colorBottom - colorTop;
+                Mat labWindow = scope.track(lab.rowRange(0, colorRows));
+                Mat lWindow = scope.track(lChannel.rowRange(0, colorRows));
+                Mat colorWindow = scope.track(color.rowRange(0, colorRows));
+                Mat sharpenedWindow = scope.track(sharpened.rowRange(0, colorRows));
+                Mat filteredWindow = scope.track(filtered.rowRange(0, colorRows));
+                Imgproc.cvtColor(scope.track(input.submat(colorTop, colorBottom, 0, cols)), labWindow, labCode);
+                Core.extractChannel(labWindow, lWindow, 0);
+                lWindow.get(0, 0, lPixels);
+                equalizeRows(colorTop, colorBottom);
+                lWindow.put(0, 0, lPixels);
+                Core.insertChannel(lWindow, labWindow, 0);
+                Imgproc.cvtColor(labWindow, colorWindow, fromLabCode);
+                Imgproc.filter2D(colorWindow, sharpenedWindow, -1, getSharpenKernel(), new Point(-1, -1), 0, ISOLATED_BORDER);
+                Imgproc.bilateralFilter(sharpenedWindow, filteredWindow, 5, 50, 50, ISOLATED_BORDER);
+
+                // 去掉halo后混合，直接写进输出图像对应的行
+                Mat filteredCore = scope.track(filteredWindow.rowRange(top - colorTop, top - colorTop + bandRows));
+                Mat binaryBand = scope.track(binaryColor.rowRange(0, bandRows));
+                Imgproc.cvtColor(otsuBand, binaryBand, Imgproc.COLOR_GRAY2BGR);
+                Core.addWeighted(filteredCore, 0.7, binaryBand, 0.3, 0,
+                        scope.track(outputMat.submat(top, bottom, 0, cols)));
+            }
+        }
+
+        //对lPixels里的这些行做CLAHE 在相邻四个网格的映射表之间双线性插值，然后调整对比度
+        private void equalizeRows(int top, int bottom) {
+            float inverseHeight = 1.0f / tileHeight;
+            for (int y = top; y < bottom; y++) {
+                float position = y * inverseHeight - 0.5f;
+                int upper = (int) Math.floor(position);
+                float lowerWeight = position - upper;
+                float upperWeight = 1.0f - lowerWeight;
+                int upperBase = Math.max(upper, 0) * CLAHE_GRID * 256;
+                int lowerBase = Math.min(upper + 1, CLAHE_GRID - 1) * CLAHE_GRID * 256;
+                int offset = (y - top) * cols;
+                for (int x = 0; x < cols; x++) {
+                    int v = lPixels[offset + x] & 0xFF;
+                    float left = leftWeight[x];
+                    float right = 1.0f - left;
+                    int leftIndex = leftLut[x] + v;
+                    int rightIndex = rightLut[x] + v;
+                    float value = (tileLuts[upperBase + leftIndex] * left + tileLuts[upperBase + rightIndex] * right) * upperWeight
+                            + (tileLuts[lowerBase + leftIndex] * left + tileLuts[lowerBase + rightIndex] * right) * lowerWeight;
+                    lPixels[offset + x] = lScale[clampToByte(Math.rint(value))];
+                }
+            }
+        }
+    }
+
+    /**
+     * 由直方图计算Otsu阈值 和OpenCV的THRESH_OTSU一致
+     * @param histogram 256级直方图
+     * @return 类间方差最大的灰度级
+     */
+    private static int otsuThreshold(int[] histogram) {
+        double total = 0;
+        double mean = 0;
+        for (int v = 0; v < 256; v++) {
+            total += histogram[v];
+            mean += (double) v * histogram[v];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        mean /= total;
+        double q1 = 0;
+        double mu1 = 0;
+        double maxSigma = 0;
+        int best = 0;
+        for (int v = 0; v < 256; v++) {
+            double p = histogram[v] / total;
+            mu1 *= q1;
+            q1 += p;
+            double q2 = 1.0 - q1;
+            if (Math.min(q1, q2) < FLT_EPSILON || Math.max(q1, q2) > 1.0 - FLT_EPSILON) {
+                continue;
+            }
+            mu1 = (mu1 + v * p) / q1;
+            double mu2 = (mean - q1 * mu1) / q2;
+            double sigma = q1 * q2 * (mu1 - mu2) * (mu1 - mu2);
+            if (sigma > maxSigma) {
+                maxSigma = sigma;
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    private static int clampToByte(double value) {
+        return (int) Math.max(0, Math.min(255, value));
+    }
+
+    /**
+     * 在透视变换矩阵后面叠加缩放和纵向平移 用于只生成输出图像的一部分
+     * @param transform 原始3x3变换矩阵
+     * @param scale 输出坐标的缩放比例
+     * @param rowOffset 缩放后输出坐标向上平移的行数
+     * @return 新的变换矩阵
+     */
+    private static Mat shiftTransform(Mat transform, double scale, double rowOffset) {
+        double[] m = new double[9];
+        try (MatScope scope = new MatScope()) {
+            Mat converted = scope.newMat();
+            transform.convertTo(converted, CvType.CV_64F);
+            converted.get(0, 0, m);
+        }
+        double[] shifted = new double[] {
+                m[0] * scale, m[1] * scale, m[2] * scale,
+                m[3] * scale - rowOffset * m[6], m[4] * scale - rowOffset * m[7], m[5] * scale - rowOffset * m[8],
+                m[6], m[7], m[8]
+        };
+        Mat result = new Mat(3, 3, CvType.CV_64F);
+        result.put(0, 0, shifted);
+        return result;
+    }
+
+    /**
+     * 并行模式使用的线程池 不修改OpenCV全局的线程数，相机预览等其他调用不受影响
+     * @return 线程池
+     */
+    private static synchronized ExecutorService getBandExecutor() {
+        if (bandExecutor == null) {
+            AtomicInteger threadIndex = new AtomicInteger();
+            bandExecutor = Executors.newFixedThreadPool(PARALLEL_THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "enhance-band-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            Log.i(TAG, "并行增强线程数: " + PARALLEL_THREADS);
+        }
+        return bandExecutor;
+    }
+
+    /**
+     * 评估图像质量 识别和预处理之前调用，严重模糊、过暗过曝的图像不必再做完整的识别
+     * @param bitmap 图像
+     * @return 质量，出错时为null
+     */
+    public static FrameQuality assessQuality(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return null;
+        }
+        Bitmap proxy = null;
+        try (MatScope scope = new MatScope()) {
+            Mat rgba = scope.newMat();
+            Mat gray = scope.newMat();
+            // 先缩小再转成Mat 不拷贝整张原图
+            double scale = Math.min(1.0, (double) QUALITY_MAX_SIDE / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+            int width = Math.max(1, (int) Math.round(bitmap.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(bitmap.getHeight() * scale));
+            proxy = scale < 1.0 ? Bitmap.createScaledBitmap(bitmap, width, height, true) : bitmap;
+            Bitmap argb = proxy.getConfig() == Bitmap.Config.ARGB_8888 ? proxy : proxy.copy(Bitmap.Config.ARGB_8888, false);
+            Utils.bitmapToMat(argb, rgba);
+            if (argb != proxy) {
+                argb.recycle();
+            }
+            Imgproc.cvtColor(rgba, gray, Imgproc.COLOR_RGBA2GRAY);
+            return assessProxy(gray);
+        } catch (Exception e) {
+            Log.e(TAG, "图像质量评估失败: " + e.getMessage());
+            return null;
+        } finally {
+            if (proxy != null && proxy != bitmap) {
+                proxy.recycle();
+            }
+        }
+    }
+
+    /**
+     * 评估灰度帧的质量 用于相机预览帧
+     * @param gray 单通道灰度图
+     * @return 质量，出错时为null
+     */
+    public static FrameQuality assessQuality(Mat gray) {
+        if (gray == null || gray.empty() || gray.channels() != 1) {
+            return null;
+        }
+        try (MatScope scope = new MatScope()) {
+            Mat proxy = scope.newMat();
+            resizeToQualityProxy(gray, proxy);
+            return assessProxy(proxy);
+        } catch (Exception e) {
+            Log.e(TAG, "图像质量评估失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 只计算清晰度 从连拍的几帧里挑最清晰的一帧时用
+     * @param gray 单通道灰度图
+     * @return 缩略图上的拉普拉斯方差，出错时为0
+     */
+    public static double sharpness(Mat gray) {
+        try (MatScope scope = new MatScope()) {
+            Mat proxy = scope.newMat();
+            resizeToQualityProxy(gray, proxy);
+            return laplacianVariance(proxy);
+        } catch (Exception e) {
+            Log.e(TAG, "清晰度计算失败: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private static void resizeToQualityProxy(Mat gray, Mat proxy) {
+        double scale = Math.min(1.0, (double) QUALITY_MAX_SIDE / Math.max(gray.cols(), gray.rows()));
+        if (scale < 1.0) {
+            Imgproc.resize(gray, proxy, new Size(Math.max(1, Math.round(gray.cols() * scale)),
+                    Math.max(1, Math.round(gray.rows() * scale))), 0, 0, Imgproc.INTER_AREA);
+        } else {
+            gray.copyTo(proxy);
+        }
+    }
+
+    //在缩略图上计算清晰度、曝光和文字占比
+    private static FrameQuality assessProxy(Mat gray) {
+        long start = ScanMetrics.begin();
+        try (MatScope scope = new MatScope()) {
+            Mat hist = scope.newMat();
+            Mat mask = scope.newMat();
+            MatOfInt channels = scope.track(new MatOfInt(0));
+            MatOfInt histSize = scope.track(new MatOfInt(256));
+            MatOfFloat ranges = scope.track(new MatOfFloat(0, 256));
+            Mat gradient = scope.newMat();
+            Mat kernel = scope.track(Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3)));
+            double sharpness = laplacianVariance(gray);
+
+            // 曝光：看亮度直方图的1%和99%分位数
+            Imgproc.calcHist(Collections.singletonList(gray), channels, mask, hist, histSize, ranges);
+            float[] counts = new float[256];
+            hist.get(0, 0, counts);
+            double total = gray.total();
+            double sum = 0;
+            int low = -1;
+            int high = 255;
+            for (int i = 0; i < counts.length; i++) {
+                sum += counts[i];
+                if (low < 0 && sum >= total * 0.01) {
+                    low = i;
+                }
+                if (sum >= total * 0.99) {
+                    high = i;
+                    break;
+                }
+            }
+            double meanLuma = Core.mean(gray).val[0];
+            int contrast = high - Math.max(low, 0);
+
+            // 文字：形态学梯度二值化后的边缘像素占比 笔画会留下密集的短边缘
+            Imgproc.morphologyEx(gray, gradient, Imgproc.MORPH_GRADIENT, kernel);
+            Imgproc.threshold(gradient, gradient, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
+            double textDensity = Core.countNonZero(gradient) / total;
+
+            QualityVerdict verdict;
+            if (high < DARK_LEVEL) {
+                verdict = QualityVerdict.TOO_DARK;
+            } else if (low > BRIGHT_LEVEL) {
+                verdict = QualityVerdict.TOO_BRIGHT;
+            } else if (contrast < MIN_CONTRAST) {
+                verdict = QualityVerdict.NO_CONTRAST;
+            } else if (sharpness < REJECT_SHARPNESS) {
+                verdict = QualityVerdict.TOO_BLURRY;
+            } else if (sharpness < FLAG_SHARPNESS) {
+                verdict = QualityVerdict.BLURRY;
+            } else if (textDensity < MIN_TEXT_DENSITY) {
+                verdict = QualityVerdict.NO_TEXT;
+            } else {
+                verdict = QualityVerdict.GOOD;
+            }
+            return new FrameQuality(sharpness, meanLuma, contrast, textDensity, verdict);
+        } finally {
+            ScanMetrics.end(ScanMetrics.Stage.QUALITY, start);
+        }
+    }
+
+    //拉普拉斯方差 模糊的图像高频成分少，方差小
+    private static double laplacianVariance(Mat gray) {
+        try (MatScope scope = new MatScope()) {
+            Mat laplacian = scope.newMat();
+            MatOfDouble mean = scope.track(new MatOfDouble());
+            MatOfDouble stddev = scope.track(new MatOfDouble());
+            Imgproc.Laplacian(gray, laplacian, CvType.CV_16S);
+            Core.meanStdDev(laplacian, mean, stddev);
+            double deviation = stddev.toArray()[0];
+            return deviation * deviation;
+        }
+    }
+
+    /**
+     * 设置增强模式
+     * @param enhanceMode 标准或者快速
+     */
+    public void setEnhanceMode(EnhanceMode enhanceMode) {
+        this.enhanceMode = enhanceMode;
+    }
+
+    public EnhanceMode getEnhanceMode() {
+        return enhanceMode;
+    }
+
+    /**
+     * 锐化卷积核 只创建一次
+     * @return 3x3卷积核
+     */
+    private static synchronized Mat getSharpenKernel() {
+        if (sharpenKernel == null) {
+            sharpenKernel = new Mat(3, 3, CvType.CV_32F);
+            float[] kernelData = new float[] {
+                    0, -0.5f, 0,
+                    -0.5f, 3.0f, -0.5f,
+                    0, -0.5f, 0
+            };
+            sharpenKernel.put(0, 0, kernelData);
+        }
+        return sharpenKernel;
+    }
+
+    /**
+     * 获取预处理使用的Mat缓冲池，可以查看命中统计
+     * @return Mat缓冲池
+     */
+    public MatPool getMatPool() {
+        return matPool;
+    }
+
 }
@@ -0,0 +1,290 @@
+package com.wzk.fast_scanner.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 22:58
+ */
+
+//版面还原 把识别出的文本块按阅读顺序拼成行
+//所有阈值都按文字高度的中位数换算，不依赖固定像素；文本块只用基本类型数组保存，排序时把坐标和下标打包成long，每层切分都是O(n log n)
+//1. 递归XY切分：在当前区域里找最宽的横向或纵向空白，把区域切开，多栏版面先读完左栏再读右栏
+//2. 切不开的区域按中心Y扫描聚成行，行内按X排序，根据间距补空格
+public class LayoutEngine {
+
+    //输出格式的版本 规则变化时加一，OCR结果缓存会随之失效
+    public static final int VERSION = 1;
+
+    //同一行中心Y允许的偏差（文字高度的倍数）
+    private static final double LINE_TOLERANCE = 0.5;
+
+    //一个空格对应的宽度（文字高度的倍数）
+    private static final double SPACE_WIDTH = 1.0 / 3;
+
+    //纵向切分需要的最小空白（文字高度的倍数） 比普通行距大，段落之间才会切开
+    private static final double MIN_Y_GAP = 1.0;
+
+    //横向切分需要的最小空白（文字高度的倍数） 比普通字间距大得多，栏间距才会切开
+    private static final double MIN_X_GAP = 1.5;
+
+    //横向切分后超过这个比例的行同时跨两边，且较窄的一边不像正文栏时，认为是表格，不切开
+    private static final double TABLE_ROW_RATIO = 0.5;
+
+    //正文栏的最小宽度（文字高度的倍数）
+    private static final double MIN_COLUMN_WIDTH = 8.0;
+
+    private final int[] left;
+    private final int[] top;
+    private final int[] right;
+    private final int[] bottom;
+    private final String[] texts;
+    private final int count;
+
+    //中心Y的两倍 避免除法取整
+    private final int[] centerY2;
+
+    //排序用的缓冲区 高32位是坐标，低32位是下标
+    private final long[] sortKeys;
+
+    //行聚类时每个块所属的行号
+    private final int[] lineOf;
+
+    //横向切分时每个块所在的栏
+    private final int[] groupOf;
+
+    private final double medianHeight;
+    private final int spaceWidth;
+
+    private LayoutEngine(int[] left, int[] top, int[] right, int[] bottom, String[] texts, int count) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+        this.texts = texts;
+        this.count = count;
+        this.centerY2 = new int[count];
+        this.sortKeys = new long[count];
+        this.lineOf = new int[count];
+        this.groupOf = new int[count];
+        int[] heights = new int[count];
+        for (int i = 0; i < count; i++) {
+            centerY2[i] = top[i] + bottom[i];
+            heights[i] = Math.max(1, bottom[i] - top[i]);
+        }
+        Arrays.sort(heights);
+        this.medianHeight = count > 0 ? heights[count / 2] : 1;
+        this.spaceWidth = Math.max(1, (int) Math.round(medianHeight * SPACE_WIDTH));
+    }
+
+    /**
+     * 版面还原
+     * @param left 每个文本块的左边界
+     * @param top 上边界
+     * @param right 右边界
+     * @param bottom 下边界
+     * @param texts 文本内容
+     * @param count 文本块数量（数组可以比它长）
+     * @return 按阅读顺序排列的每一行文字
+     */
+    public static List<String> layout(int[] left, int[] top, int[] right, int[] bottom, String[] texts, int count) {
+        List<String> lines = new ArrayList<>();
+        if (count <= 0) {
+            return lines;
+        }
+        LayoutEngine engine = new LayoutEngine(left, top, right, bottom, texts, count);
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = i;
+        }
+        engine.cut(indices, 0, count, lines);
+        return lines;
+    }
+
+    //递归切分区域 indices[from, to)
+    private void cut(int[] indices, int from, int to, List<String> out) {
+        int size = to - from;
+        if (size <= 1) {
+            emitLines(indices, from, to, out);
+            return;
+        }
+        // 纵向：按上边界排序，找出所有足够宽的横向空白带
+        sortBy(indices, from, to, top);
+        int[] yCuts = new int[size];
+        int yCutCount = 0;
+        int maxYGap = 0;
+        int maxBottom = bottom[indices[from]];
+        for (int i = from + 1; i < to; i++) {
+            int block = indices[i];
+            int gap = top[block] - maxBottom;
+            if (gap > maxYGap) {
+                maxYGap = gap;
+            }
+            if (gap >= MIN_Y_GAP * medianHeight) {
+                yCuts[yCutCount++] = i;
+            }
+            maxBottom = Math.max(maxBottom, bottom[block]);
+        }
+        // 横向：按左边界排序，找出所有足够宽的纵向空白带
+        sortBy(indices, from, to, left);
+        int[] xCuts = new int[size];
+        int xCutCount = 0;
+        int maxXGap = 0;
+        int maxRight = right[indices[from]];
+        for (int i = from + 1; i < to; i++) {
+            int block = indices[i];
+            int gap = left[block] - maxRight;
+            if (gap > maxXGap) {
+                maxXGap = gap;
+            }
+            if (gap >= MIN_X_GAP * medianHeight) {
+                xCuts[xCutCount++] = i;
+            }
+            maxRight = Math.max(maxRight, right[block]);
+        }
+        // 两个方向都能切时先切空白更宽的方向（按各自的阈值归一化）
+        boolean useX = xCutCount > 0 && isColumnCut(indices, from, to, xCuts, xCutCount);
+        boolean useY = yCutCount > 0;
+        if (useX && useY && maxYGap / MIN_Y_GAP > maxXGap / MIN_X_GAP) {
+            useX = false;
+        }
+        if (useX) {
+            // indices当前按左边界排序，各栏已经是连续的区间
+            recurse(indices, from, to, xCuts, xCutCount, out);
+        } else if (useY) {
+            sortBy(indices, from, to, top);
+            recurse(indices, from, to, yCuts, yCutCount, out);
+        } else {
+            emitLines(indices, from, to, out);
+        }
+    }
+
+    private void recurse(int[] indices, int from, int to, int[] cuts, int cutCount, List<String> out) {
+        int start = from;
+        for (int c = 0; c < cutCount; c++) {
+            cut(indices, start, cuts[c], out);
+            start = cuts[c];
+        }
+        cut(indices, start, to, out);
+    }
+
+    /**
+     * 判断横向切分是不是真的分栏 indices按左边界排序
+     * 表格、收据里每一行都横跨多个"栏"，这种情况按行读才对
+     */
+    private boolean isColumnCut(int[] indices, int from, int to, int[] cuts, int cutCount) {
+        // 记录每个块在哪一栏，以及最窄一栏的宽度
+        int group = 0;
+        int groupLeft = left[indices[from]];
+        int groupRight = right[indices[from]];
+        int narrowest = Integer.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            if (group < cutCount && i == cuts[group]) {
+                narrowest = Math.min(narrowest, groupRight - groupLeft);
+                group++;
+                groupLeft = left[indices[i]];
+                groupRight = right[indices[i]];
+            }
+            groupRight = Math.max(groupRight, right[indices[i]]);
+            groupOf[indices[i]] = group;
+        }
+        narrowest = Math.min(narrowest, groupRight - groupLeft);
+        // 只有一行时切开就把这一行拆散了
+        int[] copy = Arrays.copyOfRange(indices, from, to);
+        int lineCount = clusterLines(copy, 0, copy.length);
+        if (lineCount <= 1) {
+            return false;
+        }
+        if (narrowest >= MIN_COLUMN_WIDTH * medianHeight) {
+            return true;
+        }
+        // 有窄栏时检查行是否横跨多栏
+        int[] lineGroup = new int[lineCount];
+        Arrays.fill(lineGroup, -1);
+        boolean[] spans = new boolean[lineCount];
+        int spanning = 0;
+        for (int block : copy) {
+            int line = lineOf[block];
+            if (lineGroup[line] < 0) {
+                lineGroup[line] = groupOf[block];
+            } else if (lineGroup[line] != groupOf[block] && !spans[line]) {
+                spans[line] = true;
+                spanning++;
+            }
+        }
+        return spanning <= TABLE_ROW_RATIO * lineCount;
+    }
+
+    /**
+     * 按中心Y扫描聚成行 结束后indices[from, to)按中心Y排序，lineOf记录行号
+     * @return 行数
+     */
+    private int clusterLines(int[] indices, int from, int to) {
+        sortBy(indices, from, to, centerY2);
+        int tolerance2 = (int) Math.round(2 * LINE_TOLERANCE * medianHeight);
+        int line = 0;
+        long sum = centerY2[indices[from]];
+        int members = 1;
+        lineOf[indices[from]] = 0;
+        for (int i = from + 1; i < to; i++) {
+            int block = indices[i];
+            // 和当前行的平均中心比较，行稍微倾斜时也不会被一个偏离的块带跑
+            if (centerY2[block] - sum / members > tolerance2) {
+                line++;
+                sum = 0;
+                members = 0;
+            }
+            sum += centerY2[block];
+            members++;
+            lineOf[block] = line;
+        }
+        return line + 1;
+    }
+
+    //切不开的区域 聚成行后逐行输出
+    private void emitLines(int[] indices, int from, int to, List<String> out) {
+        if (to - from <= 0) {
+            return;
+        }
+        clusterLines(indices, from, to);
+        int start = from;
+        for (int i = from + 1; i <= to; i++) {
+            if (i == to || lineOf[indices[i]] != lineOf[indices[start]]) {
+                out.add(joinLine(indices, start, i));
+                start = i;
+            }
+        }
+    }
+
+    //行内按X排序 根据间距补空格
+    private String joinLine(int[] indices, int from, int to) {
+        sortBy(indices, from, to, left);
+        StringBuilder line = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            int block = indices[i];
+            if (i > from) {
+                int gap = left[block] - right[indices[i - 1]];
+                int spaces = gap <= 0 ? 1 : Math.max(1, (gap + spaceWidth - 1) / spaceWidth);
+                for (int s = 0; s < spaces; s++) {
+                    line.append(' ');
+                }
+            }
+            line.append(texts[block]);
+        }
+        return line.toString();
+    }
+
+    //按坐标给indices[from, to)排序 坐标和下标打包成long后排序，不需要比较器对象
+    private void sortBy(int[] indices, int from, int to, int[] key) {
+        for (int i = from; i < to; i++) {
+            int block = indices[i];
+            sortKeys[i] = ((long) key[block] << 32) | (block & 0xFFFFFFFFL);
+        }
+        Arrays.sort(sortKeys, from, to);
+        for (int i = from; i < to; i++) {
+            indices[i] = (int) sortKeys[i];
+        }
+    }
+}
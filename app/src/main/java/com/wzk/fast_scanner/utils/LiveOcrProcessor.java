@@ -0,0 +1,417 @@
+package com.wzk.fast_scanner.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.opencv.android.CameraBridgeViewBase;
+import org.opencv.android.FpsMeter;
+import org.opencv.android.Utils;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:18
+ */
+
+//取景框实时识别 接在JavaCamera2View上
+//相机线程只做两件事：识别线程空闲时把当前帧复制到唯一的处理槽里，以及把最近一次的文本框画到预览上；
+//识别线程忙的时候来的帧直接丢弃，不排队，所以每次识别的都是最新的一帧，不会越积越旧
+//两次识别之间的间隔随识别耗时调整，画面里的文字连续几次没有变化时逐渐放慢，变化后恢复
+//帧到文字的延迟和丢帧比例记录在相机预览的FpsMeter里
+//文档模式下每帧用DocumentCornerTracker跟踪文档边界并画在预览上，拍摄时连拍几帧取最清晰的一帧，连同角点一起交给矫正流程
+//送去识别前先做质量评估，严重模糊、过暗过曝的帧不识别，等下一帧
+public class LiveOcrProcessor implements CameraBridgeViewBase.CvCameraViewListener2 {
+
+    private static final String TAG = "LiveOcrProcessor";
+
+    //送去识别的图像最长边 预览帧通常不大，超过时先缩小
+    private static final int MAX_RECOGNIZE_SIDE = 1280;
+
+    //识别线程占用时间的目标比例 剩下的时间留给预览和界面
+    private static final double TARGET_DUTY = 0.6;
+
+    //两次识别之间的最短和最长间隔
+    private static final long MIN_INTERVAL_MS = 100;
+    private static final long MAX_INTERVAL_MS = 2000;
+
+    //识别耗时的指数平均系数
+    private static final double LATENCY_ALPHA = 0.3;
+
+    //单帧识别的最长等待时间
+    private static final long RECOGNIZE_TIMEOUT_MS = 5000;
+
+    //预览上文本框的颜色（RGBA）
+    private static final Scalar BOX_COLOR = new Scalar(0, 200, 255, 255);
+
+    //没有文本框
+    private static final int[] NO_BOXES = new int[0];
+
+    //拍摄文档时连拍的帧数
+    private static final int BURST_FRAMES = 5;
+
+    //预览上文档边界的颜色（RGBA）
+    private static final Scalar DOCUMENT_COLOR = new Scalar(67, 233, 123, 255);
+
+    //识别结果回调
+    public interface Listener {
+
+        /**
+         * 在识别线程调用
+         * @param lines 识别出的文字
+         * @param latencyMillis 这一帧从相机送达到得到文字的时间
+         */
+        void onTextRecognized(List<String> lines, long latencyMillis);
+    }
+
+    //文档拍摄回调
+    public interface CaptureListener {
+
+        /**
+         * 在相机线程调用
+         * @param frame 拍摄的预览帧
+         * @param quad 这一帧跟踪到的文档边界（frame的像素坐标），没有文档时为null
+         */
+        void onDocumentCaptured(Bitmap frame, DocumentQuadDetector.Quad quad);
+    }
+
+    private final Context context;
+
+    private final Listener listener;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "live-ocr");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile FpsMeter fpsMeter;
+
+    //处理槽 只在相机线程写、识别线程读，识别线程忙的时候不会被写
+    private Mat slot;
+
+    //处理槽里的帧送达的时间
+    private long slotNanos;
+
+    //识别线程是否在等新帧
+    private volatile boolean idle = true;
+
+    //下一次识别最早的时间
+    private volatile long nextDueMillis;
+
+    //最近一次识别的文本框 坐标是预览帧的像素坐标，每个框8个int，相机线程画到预览上
+    //只保存坐标，画框用的MatOfPoint在相机线程每帧申请、画完释放，换结果时没有需要释放的native内存
+    private volatile int[] overlay = NO_BOXES;
+
+    //上一次识别的文字和连续没有变化的次数
+    private List<String> lastLines = Collections.emptyList();
+    private int stableCount;
+
+    private double latencyMillis = -1;
+
+    //复用的识别图像 识别超时时引擎可能还在读，这时不再复用
+    private Bitmap bitmap;
+
+    private volatile boolean closed;
+
+    //文档边界跟踪 只在相机线程使用
+    private final DocumentCornerTracker tracker = new DocumentCornerTracker();
+
+    private volatile boolean trackDocument;
+
+    //当前帧的文档边界
+    private DocumentQuadDetector.Quad documentQuad;
+
+    //等待拍摄的回调 下一帧开始连拍
+    private volatile CaptureListener pendingCapture;
+
+    //正在进行的连拍 只在相机线程使用
+    private CaptureListener burstListener;
+    private int burstFrames;
+    private double burstSharpness;
+    private Mat burstBest;
+    private DocumentQuadDetector.Quad burstQuad;
+
+    /**
+     * @param context 上下文
+     * @param listener 识别结果回调
+     */
+    public LiveOcrProcessor(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+    }
+
+    /**
+     * 设置记录延迟和丢帧的FpsMeter 通常是相机预览自己的（enableFpsMeter后getFpsMeter）
+     * @param fpsMeter 为null时不记录
+     */
+    public void setFpsMeter(FpsMeter fpsMeter) {
+        this.fpsMeter = fpsMeter;
+    }
+
+    /**
+     * 打开或关闭文档模式
+     * @param trackDocument 是否跟踪文档边界
+     */
+    public void setTrackDocument(boolean trackDocument) {
+        this.trackDocument = trackDocument;
+    }
+
+    /**
+     * 在下一帧拍摄文档
+     * @param listener 拍摄结果回调
+     */
+    public void requestDocumentCapture(CaptureListener listener) {
+        pendingCapture = listener;
+    }
+
+    @Override
+    public void onCameraViewStarted(int width, int height) {
+        Log.d(TAG, "预览开始: " + width + "x" + height);
+        nextDueMillis = 0;
+    }
+
+    @Override
+    public void onCameraViewStopped() {
+        Log.d(TAG, "预览停止");
+    }
+
+    @Override
+    public Mat onCameraFrame(CameraBridgeViewBase.CvCameraViewFrame inputFrame) {
+        Mat rgba = inputFrame.rgba();
+        long now = SystemClock.elapsedRealtime();
+        // 文档模式下不识别文字，CPU留给跟踪
+        boolean recognize = !trackDocument && !closed;
+        boolean take = recognize && idle && now >= nextDueMillis;
+        boolean needGray = take || trackDocument || burstListener != null || pendingCapture != null;
+        Mat gray = needGray ? inputFrame.gray() : null;
+        if (take) {
+            // 看不清的帧识别了也没有结果 不占用识别线程，等下一帧
+            ImagePreprocessingUtil.FrameQuality quality = ImagePreprocessingUtil.assessQuality(gray);
+            take = quality == null || !quality.isRejected();
+        }
+        FpsMeter meter = fpsMeter;
+        if (meter != null && recognize) {
+            meter.recordFrame(!take);
+        }
+        if (take) {
+            // 帧在回调结束后就失效，复制一份给识别线程
+            idle = false;
+            if (slot == null) {
+                slot = new Mat();
+            }
+            rgba.copyTo(slot);
+            slotNanos = System.nanoTime();
+            executor.execute(this::recognizeSlot);
+        }
+        if (trackDocument) {
+            documentQuad = tracker.update(gray);
+        } else if (documentQuad != null) {
+            tracker.reset();
+            documentQuad = null;
+        }
+        // 拍摄要在画框之前 拍下来的是干净的画面
+        CaptureListener capture = pendingCapture;
+        if (capture != null && burstListener == null) {
+            pendingCapture = null;
+            burstListener = capture;
+            burstFrames = 0;
+            burstSharpness = -1;
+        }
+        if (burstListener != null) {
+            collectBurstFrame(rgba, gray);
+        }
+        if (documentQuad != null) {
+            MatOfPoint quad = new MatOfPoint(documentQuad.corners);
+            Imgproc.polylines(rgba, Collections.singletonList(quad), true, DOCUMENT_COLOR, 4);
+            quad.release();
+        }
+        // 最近一次的文本框画在预览上
+        int[] boxes = overlay;
+        if (recognize && boxes.length > 0) {
+            drawBoxes(rgba, boxes);
+        }
+        return rgba;
+    }
+
+    //连拍中的一帧 比目前最清晰的更清晰时留下，拍够后交出最清晰的一帧
+    private void collectBurstFrame(Mat rgba, Mat gray) {
+        double sharpness = ImagePreprocessingUtil.sharpness(gray);
+        if (sharpness > burstSharpness) {
+            burstSharpness = sharpness;
+            if (burstBest == null) {
+                burstBest = new Mat();
+            }
+            rgba.copyTo(burstBest);
+            burstQuad = documentQuad;
+        }
+        if (++burstFrames < BURST_FRAMES) {
+            return;
+        }
+        Bitmap frame = Bitmap.createBitmap(burstBest.cols(), burstBest.rows(), Bitmap.Config.ARGB_8888);
+        Utils.matToBitmap(burstBest, frame);
+        CaptureListener listener = burstListener;
+        DocumentQuadDetector.Quad quad = burstQuad;
+        burstListener = null;
+        burstQuad = null;
+        Log.d(TAG, "连拍" + BURST_FRAMES + "帧，选中的清晰度: " + burstSharpness);
+        listener.onDocumentCaptured(frame, quad);
+    }
+
+    //识别处理槽里的帧
+    private void recognizeSlot() {
+        long frameNanos = slotNanos;
+        long start = SystemClock.elapsedRealtime();
+        try {
+            if (closed) {
+                return;
+            }
+            double scale = Math.min(1.0, (double) MAX_RECOGNIZE_SIDE / Math.max(slot.cols(), slot.rows()));
+            Bitmap input = toBitmap(slot, scale);
+            // 直接交给引擎 预览帧几乎不会重复，不走结果缓存
+            String ocrLanguage = OCRUtil.getOcrLanguage(context);
+            OcrEngine engine = OCRUtil.engineFor(context, ocrLanguage.isBlank() ? "local_en_zh" : ocrLanguage);
+            CompletableFuture<OCRUtil.OcrPage> future = engine.recognize(input, false);
+            OCRUtil.OcrPage page;
+            try {
+                page = future.get(RECOGNIZE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(false);
+                // 引擎可能还在读这张图
+                bitmap = null;
+                Log.w(TAG, "识别超时，跳过这一帧");
+                return;
+            }
+            long latency = (System.nanoTime() - frameNanos) / 1_000_000;
+            FpsMeter meter = fpsMeter;
+            if (meter != null) {
+                meter.recordLatency(latency);
+            }
+            overlay = toOverlay(page.boxes, scale);
+            updateStability(page.lines);
+            if (!closed) {
+                listener.onTextRecognized(page.lines, latency);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Log.e(TAG, "实时识别失败: " + e.getMessage());
+        } finally {
+            long elapsed = SystemClock.elapsedRealtime() - start;
+            nextDueMillis = SystemClock.elapsedRealtime() + nextInterval(elapsed);
+            idle = true;
+        }
+    }
+
+    //把处理槽里的帧转成识别用的Bitmap 尺寸不变时复用上一张
+    private Bitmap toBitmap(Mat rgba, double scale) {
+        Mat source = rgba;
+        Mat scaled = null;
+        if (scale < 1.0) {
+            scaled = new Mat();
+            Imgproc.resize(rgba, scaled, new Size(Math.round(rgba.cols() * scale), Math.round(rgba.rows() * scale)),
+                    0, 0, Imgproc.INTER_AREA);
+            source = scaled;
+        }
+        try {
+            if (bitmap == null || bitmap.getWidth() != source.cols() || bitmap.getHeight() != source.rows()) {
+                bitmap = Bitmap.createBitmap(source.cols(), source.rows(), Bitmap.Config.ARGB_8888);
+            }
+            Utils.matToBitmap(source, bitmap);
+            return bitmap;
+        } finally {
+            if (scaled != null) {
+                scaled.release();
+            }
+        }
+    }
+
+    //文本框换算回预览帧的坐标 x0,y0,x1,y1,x2,y2,x3,y3依次排列
+    private static int[] toOverlay(TextBoxes boxes, double scale) {
+        if (boxes == null || boxes.size() == 0) {
+            return NO_BOXES;
+        }
+        int[] overlay = new int[boxes.size() * 8];
+        for (int box = 0; box < boxes.size(); box++) {
+            for (int corner = 0; corner < 4; corner++) {
+                overlay[box * 8 + corner * 2] = (int) Math.round(boxes.x(box, corner) / scale);
+                overlay[box * 8 + corner * 2 + 1] = (int) Math.round(boxes.y(box, corner) / scale);
+            }
+        }
+        return overlay;
+    }
+
+    //把文本框画到预览帧上 画框用的MatOfPoint离开作用域时释放
+    private static void drawBoxes(Mat rgba, int[] boxes) {
+        try (MatScope scope = new MatScope()) {
+            List<MatOfPoint> polygons = new ArrayList<>(boxes.length / 8);
+            for (int i = 0; i < boxes.length; i += 8) {
+                polygons.add(scope.track(new MatOfPoint(
+                        new Point(boxes[i], boxes[i + 1]),
+                        new Point(boxes[i + 2], boxes[i + 3]),
+                        new Point(boxes[i + 4], boxes[i + 5]),
+                        new Point(boxes[i + 6], boxes[i + 7]))));
+            }
+            Imgproc.polylines(rgba, polygons, true, BOX_COLOR, 2);
+        }
+    }
+
+    //记录文字是否和上一次相同
+    private void updateStability(List<String> lines) {
+        if (lines.equals(lastLines)) {
+            stableCount++;
+        } else {
+            stableCount = 0;
+            lastLines = lines;
+        }
+    }
+
+    /**
+     * 下一次识别前等待的时间
+     * 按平均识别耗时让识别线程的占用比例保持在TARGET_DUTY；文字连续不变时每次翻倍，最多到MAX_INTERVAL_MS
+     * @param elapsedMillis 这一次识别的耗时
+     * @return 间隔（毫秒）
+     */
+    private long nextInterval(long elapsedMillis) {
+        latencyMillis = latencyMillis < 0 ? elapsedMillis : latencyMillis + LATENCY_ALPHA * (elapsedMillis - latencyMillis);
+        double interval = latencyMillis * (1 - TARGET_DUTY) / TARGET_DUTY;
+        interval *= 1 << Math.min(stableCount, 4);
+        return Math.max(MIN_INTERVAL_MS, Math.min(MAX_INTERVAL_MS, (long) interval));
+    }
+
+    /**
+     * 停止识别并释放资源 预览停止（disableView）后调用
+     */
+    public void close() {
+        closed = true;
+        // 预览已经停止，相机线程不会再用到跟踪器和连拍缓存
+        tracker.release();
+        if (burstBest != null) {
+            burstBest.release();
+            burstBest = null;
+        }
+        executor.execute(() -> {
+            if (slot != null) {
+                slot.release();
+                slot = null;
+            }
+            bitmap = null;
+        });
+        executor.shutdown();
+    }
+}
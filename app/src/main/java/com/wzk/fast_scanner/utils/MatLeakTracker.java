@@ -0,0 +1,220 @@
+package com.wzk.fast_scanner.utils;
+
+import android.util.Log;
+
+import org.opencv.core.Mat;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:28
+ */
+
+//Mat泄漏跟踪 只在调试模式下开启，关闭时所有方法都直接返回，不产生任何开销
+//经过MatScope和MatPool借出的Mat会登记在这里，释放或归还时注销，可以随时查看还活着的Mat数量和native字节数
+//一个Mat没有注销就被GC回收，说明它的native内存只能等finalize释放，按泄漏处理并输出申请时的调用栈
+//预处理、质量评估、方向估计、边界检测和角点跟踪里的Mat都经过MatScope申请，会被统计；
+//相机预览帧的缓冲区、DNN引擎内部的Mat和常驻的锐化卷积核是直接new出来的，不会被统计
+public final class MatLeakTracker {
+
+    private static final String TAG = "MatLeakTracker";
+
+    //报告里最多列出的申请位置数
+    private static final int MAX_REPORT_SITES = 10;
+
+    private static volatile boolean enabled = false;
+
+    //登记中的Mat 以native对象地址为key，只持有Mat的弱引用，不影响GC
+    private static final Map<Long, Allocation> live = new HashMap<>();
+
+    private static final ReferenceQueue<Mat> collected = new ReferenceQueue<>();
+
+    //累计登记次数
+    private static final AtomicLong tracked = new AtomicLong();
+
+    //累计发现的泄漏次数
+    private static final AtomicLong leaked = new AtomicLong();
+
+    private MatLeakTracker() {
+    }
+
+    /**
+     * 开启或关闭跟踪 关闭时清空已经登记的Mat
+     * @param enable 是否开启，一般只在可调试的包里开启
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+        if (!enable) {
+            synchronized (live) {
+                for (Allocation allocation : live.values()) {
+                    allocation.released = true;
+                }
+                live.clear();
+            }
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 登记一个Mat 记录当前调用栈作为申请位置
+     * @param mat 新申请或者借出的Mat
+     */
+    public static void track(Mat mat) {
+        if (!enabled || mat == null) {
+            return;
+        }
+        drainCollected();
+        Allocation allocation = new Allocation(mat, collected, new Throwable("Mat申请位置"));
+        synchronized (live) {
+            live.put(mat.nativeObj, allocation);
+        }
+        tracked.incrementAndGet();
+    }
+
+    /**
+     * 注销一个Mat 在释放或者归还缓冲池时调用
+     * @param mat 不再使用的Mat
+     */
+    public static void untrack(Mat mat) {
+        if (!enabled || mat == null) {
+            return;
+        }
+        synchronized (live) {
+            Allocation allocation = live.remove(mat.nativeObj);
+            if (allocation != null) {
+                allocation.released = true;
+            }
+        }
+    }
+
+    /**
+     * 当前登记中的Mat数量
+     * @return 数量
+     */
+    public static int getLiveCount() {
+        drainCollected();
+        synchronized (live) {
+            return live.size();
+        }
+    }
+
+    /**
+     * 当前登记中的Mat占用的native字节数 按各自当前的尺寸计算
+     * @return 字节数
+     */
+    public static long getLiveBytes() {
+        drainCollected();
+        long bytes = 0;
+        synchronized (live) {
+            for (Allocation allocation : live.values()) {
+                bytes += byteSize(allocation.get());
+            }
+        }
+        return bytes;
+    }
+
+    public static long getTrackedCount() {
+        return tracked.get();
+    }
+
+    public static long getLeakCount() {
+        drainCollected();
+        return leaked.get();
+    }
+
+    /**
+     * 输出还活着的Mat 按申请位置汇总，数量多的排在前面
+     */
+    public static void logReport() {
+        if (!enabled) {
+            return;
+        }
+        drainCollected();
+        Map<String, long[]> sites = new HashMap<>();
+        synchronized (live) {
+            for (Allocation allocation : live.values()) {
+                long[] stat = sites.get(allocation.site);
+                if (stat == null) {
+                    stat = new long[2];
+                    sites.put(allocation.site, stat);
+                }
+                stat[0]++;
+                stat[1] += byteSize(allocation.get());
+            }
+        }
+        List<Map.Entry<String, long[]>> sorted = new ArrayList<>(sites.entrySet());
+        sorted.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        Log.i(TAG, "活着的Mat: " + getLiveCount() + ", native字节: " + getLiveBytes()
+                + ", 累计登记: " + tracked.get() + ", 泄漏: " + leaked.get());
+        for (int i = 0; i < sorted.size() && i < MAX_REPORT_SITES; i++) {
+            Map.Entry<String, long[]> site = sorted.get(i);
+            Log.i(TAG, site.getValue()[0] + "个, " + site.getValue()[1] + "字节, 申请位置: " + site.getKey());
+        }
+    }
+
+    //处理已经被GC回收的Mat 还登记着的就是泄漏
+    private static void drainCollected() {
+        Allocation allocation;
+        while ((allocation = (Allocation) collected.poll()) != null) {
+            if (allocation.released) {
+                continue;
+            }
+            synchronized (live) {
+                // 地址可能已经被新的Mat复用，只删除这一次登记
+                if (live.get(allocation.address) == allocation) {
+                    live.remove(allocation.address);
+                }
+            }
+            leaked.incrementAndGet();
+            Log.w(TAG, "Mat没有释放就被回收了，native内存只能等finalize释放", allocation.stack);
+        }
+    }
+
+    //已经被回收的Mat按0计算
+    private static long byteSize(Mat mat) {
+        return mat == null || mat.empty() ? 0 : mat.total() * mat.elemSize();
+    }
+
+    //一次登记 持有Mat的弱引用，Mat被回收时进入队列
+    private static final class Allocation extends WeakReference<Mat> {
+
+        private final long address;
+
+        private final Throwable stack;
+
+        //申请位置 跳过跟踪器、MatScope和MatPool自己的栈帧
+        private final String site;
+
+        //已经正常注销
+        private volatile boolean released;
+
+        Allocation(Mat mat, ReferenceQueue<Mat> queue, Throwable stack) {
+            super(mat, queue);
+            this.address = mat.nativeObj;
+            this.stack = stack;
+            this.site = siteOf(stack);
+        }
+
+        private static String siteOf(Throwable stack) {
+            for (StackTraceElement element : stack.getStackTrace()) {
+                String className = element.getClassName();
+                if (!className.equals(MatLeakTracker.class.getName())
+                        && !className.equals(MatScope.class.getName())
+                        && !className.equals(MatPool.class.getName())) {
+                    return element.toString();
+                }
+            }
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.wzk.fast_scanner.utils;
+
+import android.content.ComponentCallbacks2;
+import android.util.Log;
+
+import org.opencv.core.Mat;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 22:46
+ */
+
+//Mat缓冲池 按类型和容量复用native内存 连续处理多页时不再反复申请和释放
+//池里保存的是一行的缓冲区，借出时取容量够用的最小缓冲区，截取前面一段reshape成需要的行列，
+//借出的Mat是连续的；每张照片的页面尺寸都不一样，按容量匹配比按精确尺寸匹配命中率高得多
+//新申请的缓冲区容量向上取整，最多多出1/8，之后尺寸相近的请求都能复用；
+//借用已有的缓冲区时容量最多比需要的多1/4（MAX_WASTE_DIVISOR），所以借出的Mat最多浪费1/4
+public class MatPool {
+
+    private static final String TAG = "MatPool";
+
+    //最大页面的透视变换结果（RGBA）和增强结果（RGB）一共占用的字节数 2000x2000时大约28MB
+    private static final long PAGE_BYTES = (long) ImagePreprocessingUtil.MAX_PAGE_SIDE * ImagePreprocessingUtil.MAX_PAGE_SIDE * (4 + 3);
+
+    //默认最多缓存的native字节数 按最大的页面计算：两张整页的缓冲区加上取整多出的1/8，再加上快速模式的条带缓冲区，
+    //快速模式连续处理最大尺寸的页面时不再申请native内存（ImageEnhanceTest里验证）；
+    //标准流程和并行模式整页的中间结果大约是它的4倍，页与页之间只留下最近归还的这么多，其余的释放
+    static final long DEFAULT_MAX_BYTES = PAGE_BYTES + PAGE_BYTES / 8 + 2L * ImagePreprocessingUtil.FAST_TILE_BYTES;
+
+    //借用的缓冲区容量最多比需要的多这个比例 太大的缓冲区留给大的请求
+    private static final int MAX_WASTE_DIVISOR = 4;
+
+    //新缓冲区的容量取整到最高位的1/8
+    private static final int ROUNDING_STEPS = 8;
+
+    //全局共享的池
+    private static final MatPool SHARED = new MatPool(DEFAULT_MAX_BYTES);
+
+    //池中最多保留的字节数
+    private final long maxBytes;
+
+    //当前池中空闲缓冲区占用的字节数
+    private long pooledBytes = 0;
+
+    //key由类型和容量（元素个数）组成 value是空闲的一行缓冲区，同类型的按容量排序
+    private final TreeMap<Long, ArrayDeque<Mat>> freeMats = new TreeMap<>();
+
+    //空闲缓冲区按归还顺序排列 超出容量时从最久没用过的开始释放
+    private final ArrayDeque<Mat> recentlyFreed = new ArrayDeque<>();
+
+    //借出的Mat和它所在的缓冲区 借出的Mat没有归还就被回收时，缓冲区跟着回收
+    private final WeakHashMap<Mat, Mat> lent = new WeakHashMap<>();
+
+    //命中次数
+    private final AtomicLong hits = new AtomicLong();
+
+    //未命中次数（需要新申请native内存）
+    private final AtomicLong misses = new AtomicLong();
+
+    //因超出容量被释放的次数
+    private final AtomicLong evictions = new AtomicLong();
+
+    public MatPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 获取全局共享的池
+     * @return 共享池
+     */
+    public static MatPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * 借出一个指定尺寸和类型的Mat 内容不做初始化
+     * @param rows 行数
+     * @param cols 列数
+     * @param type CvType类型
+     * @return 可直接作为输出使用的连续Mat
+     */
+    public Mat acquire(int rows, int cols, int type) {
+        int elements = rows * cols;
+        if (elements <= 0) {
+            Mat mat = new Mat(rows, cols, type);
+            MatLeakTracker.track(mat);
+            return mat;
+        }
+        Mat buffer = null;
+        synchronized (this) {
+            Map.Entry<Long, ArrayDeque<Mat>> entry = freeMats.ceilingEntry(keyOf(type, elements));
+            if (entry != null && typeOf(entry.getKey()) == type
+                    && capacityOf(entry.getKey()) <= elements + elements / MAX_WASTE_DIVISOR) {
+                ArrayDeque<Mat> bucket = entry.getValue();
+                buffer = bucket.pollLast();
+                if (bucket.isEmpty()) {
+                    freeMats.remove(entry.getKey());
+                }
+                recentlyFreed.remove(buffer);
+                pooledBytes -= byteSize(buffer);
+            }
+        }
+        if (buffer != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            buffer = new Mat(1, roundUp(elements), type);
+        }
+        Mat range = buffer.colRange(0, elements);
+        Mat mat = range.reshape(0, rows);
+        range.release();
+        synchronized (this) {
+            lent.put(mat, buffer);
+        }
+        MatLeakTracker.track(mat);
+        return mat;
+    }
+
+    /**
+     * 归还Mat 超出容量时淘汰最久没用过的缓冲区
+     * 不是从池里借的Mat只要是连续的也可以放进来
+     * @param mat 借出的Mat
+     */
+    public void recycle(Mat mat) {
+        if (mat == null) {
+            return;
+        }
+        MatLeakTracker.untrack(mat);
+        Mat buffer;
+        synchronized (this) {
+            buffer = lent.remove(mat);
+        }
+        if (buffer != null) {
+            //借出的Mat只是缓冲区的一段 释放头部，缓冲区放回池里
+            mat.release();
+        } else if (mat.empty() || mat.isSubmatrix() || !mat.isContinuous()) {
+            //空的、子矩阵或者不连续的Mat不适合复用 直接释放
+            mat.release();
+            return;
+        } else {
+            buffer = mat.reshape(0, 1);
+            mat.release();
+        }
+        long size = byteSize(buffer);
+        if (size > maxBytes) {
+            buffer.release();
+            evictions.incrementAndGet();
+            return;
+        }
+        long key = keyOf(buffer.type(), buffer.cols());
+        synchronized (this) {
+            ArrayDeque<Mat> bucket = freeMats.get(key);
+            if (bucket == null) {
+                bucket = new ArrayDeque<>();
+                freeMats.put(key, bucket);
+            }
+            bucket.addLast(buffer);
+            recentlyFreed.addLast(buffer);
+            pooledBytes += size;
+            trimTo(maxBytes);
+        }
+    }
+
+    /**
+     * 批量归还
+     * @param mats 借出的Mat
+     */
+    public void recycle(Mat... mats) {
+        for (Mat mat : mats) {
+            recycle(mat);
+        }
+    }
+
+    /**
+     * 借出的Mat不再归还 直接释放native内存
+     * 用在Mat可能还被别的线程写入、不能再交给别人复用的时候
+     * @param mat 借出的Mat
+     */
+    public void discard(Mat mat) {
+        if (mat == null) {
+            return;
+        }
+        MatLeakTracker.untrack(mat);
+        Mat buffer;
+        synchronized (this) {
+            buffer = lent.remove(mat);
+        }
+        mat.release();
+        if (buffer != null) {
+            buffer.release();
+        }
+    }
+
+    /**
+     * 清空池并释放所有native内存
+     */
+    public synchronized void clear() {
+        trimTo(0);
+    }
+
+    /**
+     * 系统内存紧张时释放空闲的缓冲区 在Activity的onTrimMemory里调用
+     * 界面不可见或者内存很紧张时全部释放，内存偏紧时保留一半
+     * @param level onTrimMemory的级别
+     */
+    public synchronized void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            trimTo(0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimTo(maxBytes / 2);
+        }
+        Log.d(TAG, "onTrimMemory(" + level + "): " + this);
+    }
+
+    //超出指定字节数时从最久没用过的缓冲区开始释放
+    private void trimTo(long bytes) {
+        while (pooledBytes > bytes && !recentlyFreed.isEmpty()) {
+            Mat buffer = recentlyFreed.pollFirst();
+            long key = keyOf(buffer.type(), buffer.cols());
+            ArrayDeque<Mat> bucket = freeMats.get(key);
+            if (bucket != null) {
+                bucket.remove(buffer);
+                if (bucket.isEmpty()) {
+                    freeMats.remove(key);
+                }
+            }
+            pooledBytes -= byteSize(buffer);
+            buffer.release();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 输出池的统计信息
+     */
+    public void logStats() {
+        Log.d(TAG, toString());
+    }
+
+    @Override
+    public String toString() {
+        return "MatPool{" +
+                "hits=" + hits.get() +
+                ", misses=" + misses.get() +
+                ", evictions=" + evictions.get() +
+                ", pooledBytes=" + getPooledBytes() +
+                ", maxBytes=" + maxBytes +
+                '}';
+    }
+
+    /**
+     * 新缓冲区的容量 向上取整到最高位的1/8，比需要的多出不到1/8
+     * 这只是新申请时的浪费，之后借给更小的请求时最多浪费1/4，见 {@link #MAX_WASTE_DIVISOR}
+     * @param elements 需要的元素个数
+     * @return 容量
+     */
+    static int roundUp(int elements) {
+        int step = Math.max(1, Integer.highestOneBit(Math.max(1, elements)) / ROUNDING_STEPS);
+        return (int) Math.min(Integer.MAX_VALUE, ((long) elements + step - 1) / step * step);
+    }
+
+    //类型占高位 容量（元素个数）占低32位，同类型的缓冲区在TreeMap里按容量相邻
+    private static long keyOf(int type, int capacity) {
+        return ((long) (type & 0xFFFF) << 32) | (capacity & 0xFFFFFFFFL);
+    }
+
+    private static int typeOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int capacityOf(long key) {
+        return (int) key;
+    }
+
+    private static long byteSize(Mat mat) {
+        return mat.total() * mat.elemSize();
+    }
+}
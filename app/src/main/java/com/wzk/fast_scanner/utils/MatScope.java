@@ -0,0 +1,123 @@
+package com.wzk.fast_scanner.utils;
+
+import android.util.Log;
+
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:28
+ */
+
+//Mat作用域 配合try-with-resources使用，块里申请的Mat在离开时统一释放，不管是正常返回、提前return还是抛出异常
+//从缓冲池借的Mat归还到池里，其余的直接release；需要交给调用方的结果用detach()移出作用域
+//按申请的逆序释放，子矩阵会先于它引用的大图释放
+//不是线程安全的，一个作用域只在一个线程里使用
+public final class MatScope implements AutoCloseable {
+
+    private static final String TAG = "MatScope";
+
+    private final MatPool matPool;
+
+    //作用域里的Mat 和是否来自缓冲池一一对应
+    private final List<Mat> mats = new ArrayList<>();
+    private final List<Boolean> pooled = new ArrayList<>();
+
+    public MatScope() {
+        this(MatPool.shared());
+    }
+
+    public MatScope(MatPool matPool) {
+        this.matPool = matPool;
+    }
+
+    /**
+     * 申请一个空的Mat
+     * @return 离开作用域时释放的Mat
+     */
+    public Mat newMat() {
+        return track(new Mat());
+    }
+
+    /**
+     * 把已有的Mat（包括MatOfPoint2f这类子类、submat、OpenCV函数返回的结果）交给作用域管理
+     * @param mat Mat 可以为null
+     * @return 传入的Mat
+     */
+    public <T extends Mat> T track(T mat) {
+        if (mat != null) {
+            MatLeakTracker.track(mat);
+            mats.add(mat);
+            pooled.add(false);
+        }
+        return mat;
+    }
+
+    /**
+     * 从缓冲池借一个Mat
+     * @param rows 行数
+     * @param cols 列数
+     * @param type CvType类型
+     * @return 离开作用域时归还缓冲池的Mat
+     */
+    public Mat acquire(int rows, int cols, int type) {
+        return adopt(matPool.acquire(rows, cols, type));
+    }
+
+    /**
+     * 接管一个应该归还缓冲池的Mat 比如增强函数返回的结果
+     * @param mat 借出的Mat 可以为null
+     * @return 传入的Mat
+     */
+    public Mat adopt(Mat mat) {
+        if (mat != null) {
+            mats.add(mat);
+            pooled.add(true);
+        }
+        return mat;
+    }
+
+    /**
+     * 把Mat移出作用域 离开时不再释放，由调用方负责
+     * @param mat 作用域里的Mat
+     * @return 传入的Mat
+     */
+    public <T extends Mat> T detach(T mat) {
+        for (int i = mats.size() - 1; i >= 0; i--) {
+            if (mats.get(i) == mat) {
+                mats.remove(i);
+                if (!pooled.remove(i)) {
+                    // 交给调用方后不再跟踪，避免调用方自己release后被当成泄漏
+                    MatLeakTracker.untrack(mat);
+                }
+                break;
+            }
+        }
+        return mat;
+    }
+
+    /**
+     * 释放作用域里所有的Mat 单个Mat释放失败不影响其余的
+     */
+    @Override
+    public void close() {
+        for (int i = mats.size() - 1; i >= 0; i--) {
+            Mat mat = mats.get(i);
+            try {
+                if (pooled.get(i)) {
+                    matPool.recycle(mat);
+                } else {
+                    MatLeakTracker.untrack(mat);
+                    mat.release();
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "释放Mat出错: " + e.getMessage());
+            }
+        }
+        mats.clear();
+        pooled.clear();
+    }
+}
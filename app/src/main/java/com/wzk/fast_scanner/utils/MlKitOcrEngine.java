@@ -0,0 +1,137 @@
+package com.wzk.fast_scanner.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.util.Log;
+
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.text.Text;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:11
+ */
+
+//ML KIT多语言识别引擎 每种语言一个实例，识别器由TextRecognizerRegistry按文字脚本共享
+public class MlKitOcrEngine implements OcrEngine {
+
+    private static final String TAG = "MlKitOcrEngine";
+
+    //引擎版本 ML KIT升级时修改，旧的缓存结果就不会再命中
+    private static final String VERSION = "mlkit-16.0.1";
+
+    private final String languageCode;
+
+    private final TextRecognizerRegistry registry;
+
+    /**
+     * @param languageCode 语言代码
+     * @param registry 识别器缓存
+     */
+    public MlKitOcrEngine(String languageCode, TextRecognizerRegistry registry) {
+        this.languageCode = languageCode;
+        this.registry = registry;
+    }
+
+    @Override
+    public String name() {
+        return "mlkit-" + languageCode;
+    }
+
+    @Override
+    public Capabilities capabilities() {
+        // 识别器内部串行处理，多提交也只是排队
+        return new Capabilities(VERSION, languageCode, true, false, 1);
+    }
+
+    /**
+     * 预热识别器 模型在后台加载，这里不等待加载完成
+     * @param context 上下文
+     * @return 识别器创建成功时以true结束
+     */
+    @Override
+    public CompletableFuture<Boolean> init(Context context) {
+        return CompletableFuture.completedFuture(registry.warmUp(languageCode));
+    }
+
+    /**
+     * 识别
+     * @param bitmap 输入图像
+     * @param orientationCorrected ML KIT自己处理不了倒置的页面，这里不使用
+     * @return 返回的结果
+     */
+    @Override
+    public CompletableFuture<OCRUtil.OcrPage> recognize(Bitmap bitmap, boolean orientationCorrected) {
+        CompletableFuture<OCRUtil.OcrPage> future = new CompletableFuture<>();
+        //图像转换成InputImage对象 后面是图像旋转的角点 这里可以根据图像角点自动旋转图像
+        InputImage image = InputImage.fromBitmap(bitmap, 0);
+        //语言识别器 识别结束前一直借着，缓存淘汰时不会被关闭
+        TextRecognizerRegistry.Lease lease = registry.acquire(languageCode);
+        if (lease == null) {
+            Log.e(TAG, "无法为语言 " + languageCode + " 创建TextRecognizer，返回空结果");
+            future.complete(OCRUtil.OcrPage.EMPTY);
+            return future;
+        }
+        //识别 回调在后台线程执行
+        long engineStart = ScanMetrics.begin();
+        lease.recognizer
+                .process(image)
+                .addOnSuccessListener(OCRUtil.callbackExecutor, text -> {
+                    ScanMetrics.end(ScanMetrics.Stage.OCR_ENGINE, engineStart);
+                    //已经取消或者超时 结果不再解析
+                    if (future.isDone()) {
+                        return;
+                    }
+                    try{
+                        future.complete(parseResult(text, bitmap.getWidth(), bitmap.getHeight()));
+                    }catch (Exception e){
+                        Log.e(TAG,"出现异常:"+e.getMessage());
+                        future.complete(OCRUtil.OcrPage.EMPTY);
+                    }
+                })
+                .addOnFailureListener(OCRUtil.callbackExecutor, e -> {
+                    Log.e(TAG, languageCode + "OCR识别失败: " + e.getMessage(), e);
+                    future.complete(OCRUtil.OcrPage.EMPTY);
+                })
+                .addOnCompleteListener(OCRUtil.callbackExecutor, task -> lease.release());
+        return future;
+    }
+
+    /**
+     * 识别器由共享的缓存管理，这里不单独关闭
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * 解析ML KIT的识别结果
+     * @param text 识别结果
+     * @param imageWidth 识别的图像宽度
+     * @param imageHeight 识别的图像高度
+     * @return 分类后的文字和文本框
+     */
+    private static OCRUtil.OcrPage parseResult(Text text, int imageWidth, int imageHeight) {
+        List<Text.TextBlock> textBlocks = text.getTextBlocks();
+        OcrBlocks blocks = new OcrBlocks(imageWidth, imageHeight, textBlocks.size());
+        for (Text.TextBlock textBlock : textBlocks) {
+            Point[] corners = textBlock.getCornerPoints();
+            if (corners != null && corners.length >= 4) {
+                blocks.add(textBlock.getText(), corners[0].x, corners[0].y, corners[1].x, corners[1].y,
+                        corners[2].x, corners[2].y, corners[3].x, corners[3].y);
+                continue;
+            }
+            Rect box = textBlock.getBoundingBox();
+            if (box != null) {
+                blocks.add(textBlock.getText(), box.left, box.top, box.right, box.top, box.right, box.bottom, box.left, box.bottom);
+            }
+        }
+        //版面还原
+        return blocks.toPage();
+    }
+}
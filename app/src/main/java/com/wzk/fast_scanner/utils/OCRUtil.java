@@ -2,34 +2,22 @@ package com.wzk.fast_scanner.utils;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.Point;
-import android.graphics.Rect;
-import android.os.Build;
 import android.util.Log;
-import androidx.annotation.NonNull;
-import com.equationl.paddleocr4android.CpuPowerMode;
-import com.equationl.paddleocr4android.OCR;
-import com.equationl.paddleocr4android.OcrConfig;
-import com.equationl.paddleocr4android.Util.paddle.OcrResultModel;
-import com.equationl.paddleocr4android.bean.OcrResult;
-import com.equationl.paddleocr4android.callback.OcrInitCallback;
-import com.equationl.paddleocr4android.callback.OcrRunCallback;
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
-import com.google.mlkit.vision.common.InputImage;
-import com.google.mlkit.vision.text.Text;
-import com.google.mlkit.vision.text.TextRecognition;
-import com.google.mlkit.vision.text.TextRecognizer;
-import com.google.mlkit.vision.text.chinese.ChineseTextRecognizerOptions;
-import com.google.mlkit.vision.text.japanese.JapaneseTextRecognizerOptions;
-import com.google.mlkit.vision.text.korean.KoreanTextRecognizerOptions;
-import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
 import com.wzk.fast_scanner.data.AppSettings;
 import com.wzk.fast_scanner.data.SettingsManager;
-import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -40,63 +28,128 @@ public class OCRUtil {
 
     private static final String TAG = "LocalOCRUtil";
 
-    private static final String MODEL_ASSETS_PATH = "models";
+    //单次识别（包含等待模型初始化）的最长时间
+    public static final long OCR_TIMEOUT_MS = 30000;
 
-    private static final String CLS_NB_NAME = "cls.nb";
+    //处理引擎回调结果（解析文本块、排版）和评估图像质量的线程 不占用主线程
+    static final Executor callbackExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ocr-callback");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    private static final String DET_NB_NAME = "det.nb";
+    //超时计时
+    private static final ScheduledExecutorService timeoutScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ocr-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    private static final String REC_NB_NAME = "rec.nb";
+    //本地中英文识别引擎
+    private static final PaddleOcrEngine paddleEngine = new PaddleOcrEngine();
 
-    private static OCR ocr;
+    //OpenCV DNN识别引擎 设置里没有这个选项，只在识别语言为opencv_dnn时使用
+    private static OpenCvDnnOcrEngine dnnEngine;
 
-    private static AtomicBoolean isInit = new AtomicBoolean(false);
+    //ML KIT识别器缓存 同一语言重复识别时不再重新创建和加载模型
+    private static final TextRecognizerRegistry recognizerRegistry = new TextRecognizerRegistry();
+
+    //每种语言的ML KIT引擎
+    private static final Map<String, MlKitOcrEngine> mlKitEngines = new HashMap<>();
 
     /**
-     * 初始化OCR（只会初始化一次）
+     * 初始化本地OCR（只会初始化一次，失败后再次调用会重试）
      * @param context 应用上下文
+     * @return 初始化完成的future
      */
-    public static synchronized void initModel(Context context) {
-        // 如果已经初始化或正在初始化，直接返回
-        if (isInit.get()) {
-            return;
-        }
-        try {
-            // 创建 OCR 实例
-            ocr = new OCR(context.getApplicationContext());
-            // 配置
-            OcrConfig config = new OcrConfig();
-            config.setModelPath(MODEL_ASSETS_PATH);
-            config.setClsModelFilename(CLS_NB_NAME);
-            config.setDetModelFilename(DET_NB_NAME);
-            config.setRecModelFilename(REC_NB_NAME);
-            // 是否运行各个模型
-            config.setRunDet(true);
-            config.setRunCls(true);
-            config.setRunRec(true);
-            // CPU 功率模式
-            config.setCpuPowerMode(CpuPowerMode.LITE_POWER_FULL);
-            // 是否绘制文本位置框
-            config.setDrwwTextPositionBox(true);
-            // 开始初始化
-            ocr.initModel(config, new OcrInitCallback() {
-                @Override
-                public void onSuccess() {
-                    isInit.set(true);
-                    Log.i(TAG, "OCR初始化成功");
+    public static CompletableFuture<Boolean> initModel(Context context) {
+        return paddleEngine.init(context);
+    }
+
+    /**
+     * 设置本地模型的引擎数 已经初始化时会重建引擎池，正在识别的页面用完旧引擎后释放
+     * @param size 期望的引擎数，0表示自动，实际大小受内存预算限制
+     */
+    public static void setEnginePoolSize(int size) {
+        paddleEngine.setPoolSize(size);
+    }
+
+    /**
+     * 本地模型能同时识别的页面数
+     * @return 引擎池大小，还没初始化时为1
+     */
+    public static int getEnginePoolSize() {
+        return paddleEngine.getPoolSize();
+    }
+
+    /**
+     * 当前设置的识别语言对应的引擎能同时识别的页面数 ML Kit和DNN引擎内部串行，只有本地模型按引擎池大小
+     * @param context 上下文
+     * @return 同时识别的页面数，至少为1
+     */
+    public static int getMaxConcurrency(Context context) {
+        String ocrLanguage = getOcrLanguage(context);
+        OcrEngine engine = engineFor(context, ocrLanguage.isBlank() ? "local_en_zh" : ocrLanguage);
+        return Math.max(1, engine.capabilities().maxConcurrency);
+    }
+
+    /**
+     * 引擎池状态 用于诊断页面
+     * @return 状态文本
+     */
+    public static String describeEnginePool() {
+        return paddleEngine.describe();
+    }
+
+    /**
+     * 识别语言对应的引擎
+     * @param context 上下文
+     * @param ocrLanguage 识别语言
+     * @return 引擎
+     */
+    public static synchronized OcrEngine engineFor(Context context, String ocrLanguage) {
+        switch (ocrLanguage) {
+            case "local_en_zh":
+                return paddleEngine;
+            case "opencv_dnn":
+                if (dnnEngine == null) {
+                    dnnEngine = new OpenCvDnnOcrEngine();
                 }
-                @Override
-                public void onFail(Throwable e) {
-                    isInit.set(false);
-                    Log.e(TAG, "OCR初始化失败", e);
+                // 已经加载时直接返回，上次失败时重试
+                dnnEngine.init(context);
+                return dnnEngine;
+            default:
+                MlKitOcrEngine engine = mlKitEngines.get(ocrLanguage);
+                if (engine == null) {
+                    engine = new MlKitOcrEngine(ocrLanguage, recognizerRegistry);
+                    mlKitEngines.put(ocrLanguage, engine);
                 }
-            });
-        } catch (Exception e) {
-            isInit.set(false);
-            Log.e(TAG, "OCR创建失败", e);
+                return engine;
         }
     }
 
+    /**
+     * 获取本地模型的初始化状态
+     * @return 状态
+     */
+    public static PaddleOcrEngine.InitState getInitState() {
+        return paddleEngine.getInitState();
+    }
+
+    /**
+     * 给future加上超时 到时间还没结束就以TimeoutException结束
+     * @param future 目标future
+     * @param timeoutMillis 超时时间
+     * @return 传入的future
+     */
+    static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, long timeoutMillis) {
+        ScheduledFuture<?> timeout = timeoutScheduler.schedule(
+                () -> future.completeExceptionally(new TimeoutException("超时: " + timeoutMillis + "ms")),
+                timeoutMillis, TimeUnit.MILLISECONDS);
+        future.whenComplete((result, error) -> timeout.cancel(false));
+        return future;
+    }
+
     /**
      * 获取当前ocr识别语言
      * @param context
@@ -108,324 +161,230 @@ public class OCRUtil {
     }
 
     /**
-     * 通用ocr识别
+     * 通用ocr识别（阻塞等待结果）
      * @param bitmap 需要识别的图像
      * @return 处理好的文字
      */
     public static List<String> commonOCR(Context context,Bitmap bitmap){
         try{
-            if (bitmap == null){
-                Log.e(TAG,"输入图像为空");
-                return Collections.emptyList();
-            }
-            String ocrLanguage = getOcrLanguage(context);
-            if (ocrLanguage.isBlank()){
-                //默认为英语
-                ocrLanguage = "local_en_zh";
-            }
-            //
-            switch (ocrLanguage){
-                case "local_en_zh":
-                    return chineseEnglishOCR(bitmap);
-                default:
-                    return mlKitMultilingualOCR(bitmap,ocrLanguage);
-            }
-        }catch (Exception e){
-            Log.e(TAG,e.getMessage());
+            return commonOCRAsync(context, bitmap).get();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            Log.e(TAG,"识别被中断");
+        }catch (ExecutionException e){
+            Log.e(TAG,"识别失败: " + e.getCause());
+        }catch (CancellationException e){
+            Log.d(TAG,"识别已取消");
         }
         return Collections.emptyList();
     }
 
+    /**
+     * 通用ocr识别（异步） 图像的方向已经修正过（解码时按EXIF旋转，或者经过文档矫正）
+     * @param bitmap 需要识别的图像
+     * @return 处理好的文字，超时时以TimeoutException结束
+     */
+    public static CompletableFuture<List<String>> commonOCRAsync(Context context, Bitmap bitmap){
+        return commonOCRAsync(context, bitmap, true);
+    }
 
     /**
-     * ML KIT 语言识别器
-     * @param languageCode 语言代码
-     * @return 识别器
+     * 通用ocr识别（异步）只需要文字
+     * @param bitmap 需要识别的图像
+     * @param orientationCorrected 图像方向是否已经修正过 修正过的横排页面不再运行方向分类模型
+     * @return 处理好的文字，超时时以TimeoutException结束
      */
-    private static TextRecognizer getTextRecognizerForLanguage(String languageCode) {
-        try {
-            switch (languageCode) {
-                case "ja":
-                    return TextRecognition.getClient(new JapaneseTextRecognizerOptions.Builder().build());
-                case "ko":
-                    return TextRecognition.getClient(new KoreanTextRecognizerOptions.Builder().build());
-                case "zh":
-                    return TextRecognition.getClient(new ChineseTextRecognizerOptions.Builder().build());
-                default:
-                    return TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
+    public static CompletableFuture<List<String>> commonOCRAsync(Context context, Bitmap bitmap, boolean orientationCorrected){
+        CompletableFuture<OcrPage> page = commonOCRPageAsync(context, bitmap, orientationCorrected);
+        CompletableFuture<List<String>> lines = page.thenApply(result -> result.lines);
+        //取消或超时时让识别也停下
+        lines.whenComplete((result, error) -> {
+            if (error != null) {
+                page.cancel(false);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "创建" + languageCode + "TextRecognizer时出现异常: " + e.getMessage(), e);
-            return null;
-        }
+        });
+        return lines;
     }
 
+    /**
+     * 通用ocr识别（异步）
+     * 结果直接由识别引擎的回调完成，不占用等待线程；超时或者取消后，
+     * 还没开始的识别不会再交给引擎，已经返回的结果也不再解析；同一张图再次识别时直接返回缓存的结果
+     * @param bitmap 需要识别的图像
+     * @param orientationCorrected 图像方向是否已经修正过 修正过的横排页面不再运行方向分类模型
+     * @return 处理好的文字和文本框（命中缓存时没有文本框），超时时以TimeoutException结束
+     */
+    public static CompletableFuture<OcrPage> commonOCRPageAsync(Context context, Bitmap bitmap, boolean orientationCorrected){
+        return recognizePage(context, bitmap, orientationCorrected, null, null);
+    }
 
     /**
-     * MLKIT多语言OCR
-     * @param bitmap 输入图像
-     * @param languageCode 语言代码
-     * @return 返回的结果
+     * 流式ocr识别（异步） 每识别出一批文字就把目前为止的结果交给listener，界面不用等整页识别完就能显示文字
+     * 引擎不支持分批返回或者命中缓存时不调用listener，只由返回的future给出结果
+     * @param bitmap 需要识别的图像
+     * @param orientationCorrected 图像方向是否已经修正过
+     * @param quality 调用方已经评估过的图像质量 为null时在后台线程评估
+     * @param listener 中间结果的回调 在后台线程调用，future结束后不再调用
+     * @return 完整的文字和文本框，超时时以TimeoutException结束
      */
-    private static List<String> mlKitMultilingualOCR(Bitmap bitmap, String languageCode){
-        List<String> resultTexts = new ArrayList<>();
+    public static CompletableFuture<OcrPage> commonOCRStreamingAsync(Context context, Bitmap bitmap, boolean orientationCorrected,
+                                                                     ImagePreprocessingUtil.FrameQuality quality,
+                                                                     OcrEngine.PartialResultListener listener){
+        return recognizePage(context, bitmap, orientationCorrected, quality, listener);
+    }
+
+    private static CompletableFuture<OcrPage> recognizePage(Context context, Bitmap bitmap, boolean orientationCorrected,
+                                                            ImagePreprocessingUtil.FrameQuality quality,
+                                                            OcrEngine.PartialResultListener listener){
+        long start = ScanMetrics.begin();
         try{
-            if (bitmap == null) {
-                return resultTexts;
+            if (bitmap == null){
+                Log.e(TAG,"输入图像为空");
+                return CompletableFuture.completedFuture(OcrPage.EMPTY);
             }
-            //图像转换成InputImage对象 后面是图像旋转的角点 这里可以根据图像角点自动旋转图像
-            InputImage image = InputImage.fromBitmap(bitmap, 0);
-            //语言识别器
-            TextRecognizer recognizer = getTextRecognizerForLanguage(languageCode);
-            if (recognizer == null) {
-                Log.e(TAG, "无法为语言 " + languageCode + " 创建TextRecognizer，返回空结果");
-                return Collections.emptyList();
+            String ocrLanguage = getOcrLanguage(context);
+            if (ocrLanguage.isBlank()){
+                //默认为英语
+                ocrLanguage = "local_en_zh";
             }
-
-            CountDownLatch latch = new CountDownLatch(1);
-
-            //识别
-            recognizer
-                    .process(image)
-                    .addOnSuccessListener(new OnSuccessListener<Text>() {
-                        @Override
-                        public void onSuccess(Text text) {
-                            try{
-                                ArrayList<TextBlock> blocks = new ArrayList<>();
-                                for (Text.TextBlock textBlock : text.getTextBlocks()) {
-                                    String content = textBlock.getText();
-                                    Rect box = textBlock.getBoundingBox();
-                                    TextBlock tb = new TextBlock(
-                                            content,
-                                            box.top,
-                                            box.bottom,
-                                            box.left,
-                                            box.right
-                                    );
-                                    Log.d(TAG,"TextBlock："+tb.toString());
-                                    blocks.add(tb);
-                                }
-                                //文字分类
-                                List<String> res = textClassify(blocks);
-                                resultTexts.addAll(res);
-                            }finally {
-                                latch.countDown();
-                            }
+            String language = ocrLanguage;
+            OcrEngine ocrEngine = engineFor(context, language);
+            CompletableFuture<OcrPage> future = new CompletableFuture<>();
+            OcrResultCache cache = OcrResultCache.get(context);
+            //质量门槛只评估一次 调用方已经评估过时直接用它的结果，否则在后台线程评估，不占用调用线程（可能是主线程）
+            CompletableFuture<ImagePreprocessingUtil.FrameQuality> assessed = quality != null
+                    ? CompletableFuture.completedFuture(quality)
+                    : CompletableFuture.supplyAsync(() -> ImagePreprocessingUtil.assessQuality(bitmap), callbackExecutor);
+            assessed.thenCompose(result -> {
+                //严重模糊、过暗过曝的图像识别不出文字，不再做完整的识别
+                if (result != null && result.isRejected()) {
+                    Log.w(TAG,"图像质量不合格，跳过识别: " + result);
+                    future.complete(OcrPage.EMPTY);
+                    return CompletableFuture.completedFuture(null);
+                }
+                //同一张图、同样的语言、引擎版本和识别选项，结果直接从缓存取
+                return cache.lookup(bitmap, language, engineVersion(ocrEngine), orientationCorrected);
+            }).whenComplete((lookup, lookupError) -> {
+                if (future.isDone()) {
+                    return;
+                }
+                if (lookup != null && lookup.lines != null) {
+                    future.complete(new OcrPage(lookup.lines, null));
+                    return;
+                }
+                CompletableFuture<OcrPage> engine;
+                if (listener == null) {
+                    engine = ocrEngine.recognize(bitmap, orientationCorrected);
+                } else {
+                    //第一批文字出来的时间 部分结果和完成回调可能在不同的线程，只记录先到的一次
+                    AtomicBoolean firstText = new AtomicBoolean();
+                    engine = ocrEngine.recognizeStreaming(bitmap, orientationCorrected, partial -> {
+                        if (future.isDone()) {
+                            return;
+                        }
+                        if (firstText.compareAndSet(false, true)) {
+                            ScanMetrics.end(ScanMetrics.Stage.OCR_FIRST_TEXT, start);
                         }
-                    })
-                    .addOnFailureListener(new OnFailureListener() {
-                        @Override
-                        public void onFailure(@NonNull Exception e) {
-                            Log.e(TAG, languageCode + "OCR识别失败: " + e.getMessage(), e);
-                            latch.countDown();
+                        listener.onPartialResult(partial);
+                    });
+                    engine.whenComplete((result, error) -> {
+                        if (error == null && firstText.compareAndSet(false, true)) {
+                            ScanMetrics.end(ScanMetrics.Stage.OCR_FIRST_TEXT, start);
                         }
                     });
-            //等待结果
-            latch.await();
+                }
+                //取消或超时时让引擎也停下
+                future.whenComplete((result, error) -> {
+                    if (error != null) {
+                        engine.cancel(false);
+                    }
+                });
+                engine.whenComplete((result, error) -> {
+                    if (error != null) {
+                        future.completeExceptionally(error);
+                        return;
+                    }
+                    future.complete(result);
+                    if (lookup != null) {
+                        cache.put(lookup.key, result.lines);
+                    }
+                });
+            });
+            future.whenComplete((result, error) -> ScanMetrics.end(ScanMetrics.Stage.OCR_TOTAL, start));
+            return withTimeout(future, OCR_TIMEOUT_MS);
         }catch (Exception e){
-            Log.e(TAG,"出现异常:"+e.getMessage());
+            Log.e(TAG,e.getMessage());
         }
-        return resultTexts;
+        return CompletableFuture.completedFuture(OcrPage.EMPTY);
     }
 
+    /**
+     * 引擎版本 用于结果缓存的key，版面还原逻辑变化时旧的缓存结果也不再命中
+     * @param engine 识别引擎
+     * @return 版本标记
+     */
+    private static String engineVersion(OcrEngine engine) {
+        return engine.capabilities().version + "-layout" + LayoutEngine.VERSION;
+    }
 
-    //解析出的文本块及其坐标
-    private static class TextBlock {
-
-        //识别到的文本内容
-        String text;
-        //文本框最上边的y坐标
-        int minY;
-        //文本框最下边的y坐标
-        int maxY;
-        //文本框最左边的x坐标
-        int minX;
-
-        //文本框最右边的x坐标
-        int maxX;
-
-        //文本框最中间的y坐标
-        int centerY;
+    /**
+     * 预热当前设置的OCR语言对应的ML KIT识别器，本地中英文模型由initModel负责
+     * @param context 上下文
+     */
+    public static void warmUpRecognizer(Context context) {
+        warmUpRecognizer(getOcrLanguage(context));
+    }
 
-        public TextBlock(String text, int minY, int maxY, int minX, int maxX) {
-            this.text = text;
-            this.minY = minY;
-            this.maxY = maxY;
-            this.minX = minX;
-            this.maxX = maxX;
-            this.centerY = (minY + maxY) / 2;
+    /**
+     * 预热ML KIT识别器
+     * @param languageCode 语言代码
+     */
+    public static void warmUpRecognizer(String languageCode) {
+        if (languageCode == null || languageCode.isBlank()
+                || "local_en_zh".equals(languageCode) || "opencv_dnn".equals(languageCode)) {
+            return;
         }
+        recognizerRegistry.warmUp(languageCode);
+    }
 
-        @Override
-        public String toString() {
-            return "TextBlock{" +
-                    "text='" + text + '\'' +
-                    ", minY=" + minY +
-                    ", maxY=" + maxY +
-                    ", minX=" + minX +
-                    ", maxX=" + maxX +
-                    ", centerY=" + centerY +
-                    '}';
-        }
+    /**
+     * 关闭所有缓存的ML KIT识别器 正在识别的任务结束后再关闭它用的识别器，之后用到时重新创建
+     */
+    public static void releaseRecognizers() {
+        recognizerRegistry.closeAll();
     }
 
+
     /**
-     * 本地中英文识别
-     * @param bitmap 输入图像
-     * @return 返回的结果
+     * 版面还原 按阅读顺序把文本块拼成行
+     * @return 每一行文字
      */
-    private static List<String> chineseEnglishOCR(Bitmap bitmap) throws InterruptedException {
-        if (bitmap == null) {
+    static List<String> layout(int[] left, int[] top, int[] right, int[] bottom, String[] texts, int count) {
+        long start = ScanMetrics.begin();
+        try {
+            return LayoutEngine.layout(left, top, right, bottom, texts, count);
+        } catch (Exception e) {
+            Log.e(TAG, "版面还原出错: " + e.getMessage());
             return Collections.emptyList();
+        } finally {
+            ScanMetrics.end(ScanMetrics.Stage.LAYOUT, start);
         }
+    }
 
-        if (!isInit.get() || ocr == null){
-            Log.d(TAG,"模型还未初始化,等待初始化完成....");
-            Thread.sleep(3000);
-        }
-        Log.d(TAG,"开始识别");
-        List<String> resultTexts = new ArrayList<>();
-        try{
-            CountDownLatch latch = new CountDownLatch(1);
-            //异步
-            ocr.run(bitmap, new OcrRunCallback() {
-                @Override
-                public void onSuccess(@NonNull OcrResult ocrResult) {
-                    Log.d(TAG,"耗时："+ocrResult.getInferenceTime());
-                    try{
-                        ArrayList<OcrResultModel> outputRawResult = ocrResult.getOutputRawResult();
-                        List<TextBlock> textBlocks = new ArrayList<TextBlock>();
-                        for (OcrResultModel res : outputRawResult) {
-                            //文字所在的区域角点 顺序是左上 右上 右下 左下
-                            List<Point> points = res.getPoints();
-                            //文字本身
-                            String subText = res.getLabel();
-                            Log.d(TAG,subText+"  "+points.toString());
-                            if (points.isEmpty() || points.size() < 4 || subText.isBlank()){
-                                continue;
-                            }
-
-                            //构造文本块对象
-                            TextBlock tb = new TextBlock(
-                                    subText,
-                                    points.get(0).y,
-                                    points.get(3).y,
-                                    points.get(0).x,
-                                    points.get(1).x
-                            );
-                            Log.d(TAG,tb.toString());
-                            textBlocks.add(tb);
-                        }
+    //一页的识别结果
+    public static class OcrPage {
 
-                        // 按照中心Y坐标排序文本块
-                        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-                            textBlocks.sort((a, b) -> Integer.compare(a.centerY, b.centerY));
-                        }
+        public static final OcrPage EMPTY = new OcrPage(Collections.emptyList(), null);
 
-                        //文本分类
-                        List<String> res = textClassify(textBlocks);
-                        Log.d(TAG,"分类后的结果:"+res.toString());
-                        resultTexts.addAll(res);
-                    }finally {
-                        latch.countDown();
-                    }
-                }
-                @Override
-                public void onFail(@NonNull Throwable throwable) {
-                    Log.e(TAG, "识别失败！报错："+throwable.getMessage());
-                    latch.countDown();
-                }
-            });
-            latch.await();
-        }catch (Exception e){
-            Log.e(TAG,e.getMessage());
-        }
-        return resultTexts;
-    }
+        //按阅读顺序排列的每一行文字
+        public final List<String> lines;
 
-    /**
-     * 文本块分类和自动填充空格 同一行放到一起 还原原本的格式
-     * @param textBlocks 文本块集合
-     * @return 解析好的数据
-     */
-    private static List<String> textClassify(List<TextBlock> textBlocks){
-        List<String> res = new ArrayList<>();
-        try{
-            // 对位于同一行的文本进行水平排序并合并
-            List<List<TextBlock>> textLines = new ArrayList<>();
-            List<TextBlock> currentLine = new ArrayList<>();
-
-            // 行间距阈值 根据情况调整 同一行的阈值
-            final int LINE_HEIGHT_THRESHOLD = 30;
-
-            // 空格阈值 同一行才加空格 换行了就不用管
-            final int LINE_SPACE_THRESHOLD = 10;
-
-            // 将文本块分组到不同行
-            if (!textBlocks.isEmpty()) {
-                currentLine.add(textBlocks.get(0));
-                //从第二个开始遍历 第一个已经在集合中了
-                for (int i = 1; i < textBlocks.size(); i++) {
-                    //当前块
-                    TextBlock current = textBlocks.get(i);
-                    //上一个已经在集合中的
-                    TextBlock previous = textBlocks.get(i - 1);
-                    // 如果当前文本块与前一个在垂直方向上足够接近 中心Y轴上的误差在阈值范围内就分到同一行
-                    if (Math.abs(current.centerY - previous.centerY) <= LINE_HEIGHT_THRESHOLD) {
-                        currentLine.add(current);
-                    } else {
-                        // 当前文本块与前一个不在同一行 开始新行 因为前面已经根据中心点排序了 顺序已经是从上到下从左到右 只要不是就说明换行了
-                        textLines.add(new ArrayList<>(currentLine));
-                        currentLine.clear();
-                        currentLine.add(current);
-                    }
-                }
-                // 添加最后一行
-                if (!currentLine.isEmpty()) {
-                    textLines.add(currentLine);
-                }
-            }
-            // 清空结果列表，准备添加排序后的文本
-            res.clear();
-            // 正序遍历文本行列表，确保文本从上到下排列与原始图片一致
-            for (int i = 0; i < textLines.size(); i++) {
-                List<TextBlock> line = textLines.get(i);
-                // 按照X坐标排序 从左到右排序
-                line.sort((a, b) -> Integer.compare(a.minX, b.minX));
-                // 合并同一行的文本
-                StringBuilder lineText = new StringBuilder();
-                for (int j = 0;  j < line.size(); j++){
-                    TextBlock tb = line.get(j);
-                    // 第一块直接加
-                    if (j == 0) {
-                        lineText.append(tb.text);
-                        continue;
-                    }
-                    // 计算与前一个块的水平间距
-                    TextBlock prev = line.get(j - 1);
-                    int rawSpace = tb.minX - prev.maxX;
-                    // 重叠时加1个空格
-                    if (rawSpace <= 0) {
-                        lineText.append(" ");
-                        lineText.append(tb.text);
-                        continue;
-                    }
-                    //有间距根据间距计算数量
-                    int spaceCount = Math.max(1, (int) Math.ceil(rawSpace / (double) LINE_SPACE_THRESHOLD));
-                    //空格
-                    lineText.append(" ".repeat(spaceCount));
-                    lineText.append(tb.text);
-                }
-                // 添加行文本到结果列表
-                res.add(lineText.toString());
-            }
-            //返回结果
-            return res;
-        }catch (Exception e){
-            Log.e(TAG,e.getMessage());
+        //文本框 命中缓存时为null
+        public final TextBoxes boxes;
+
+        public OcrPage(List<String> lines, TextBoxes boxes) {
+            this.lines = lines;
+            this.boxes = boxes;
         }
-        return res;
     }
-
-
 }
@@ -0,0 +1,91 @@
+package com.wzk.fast_scanner.utils;
+
+import java.util.Arrays;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:14
+ */
+
+//一页识别出的文本块 解析引擎结果时逐个添加，最后做版面还原
+//流式识别时边添加边调用toPage()得到当前的结果：已经添加的块不会再被修改，生成的结果可以直接交给其它线程
+class OcrBlocks {
+
+    //每个框占用的int个数
+    private static final int INTS_PER_BOX = 8;
+
+    private final int imageWidth;
+    private final int imageHeight;
+
+    private String[] texts;
+    private int[] left;
+    private int[] top;
+    private int[] right;
+    private int[] bottom;
+    private int[] points;
+    private int count;
+
+    /**
+     * @param imageWidth 识别时的图像宽度
+     * @param imageHeight 识别时的图像高度
+     * @param capacity 预计的块数 不够时自动扩容
+     */
+    OcrBlocks(int imageWidth, int imageHeight, int capacity) {
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        int initial = Math.max(4, capacity);
+        texts = new String[initial];
+        left = new int[initial];
+        top = new int[initial];
+        right = new int[initial];
+        bottom = new int[initial];
+        points = new int[initial * INTS_PER_BOX];
+    }
+
+    /**
+     * 添加一个文本块 角点顺序是左上 右上 右下 左下
+     * 版面还原使用四个角点的外接矩形，文字框稍微倾斜时也能包住整行
+     */
+    void add(String text, int x0, int y0, int x1, int y1, int x2, int y2, int x3, int y3) {
+        if (count == texts.length) {
+            int capacity = count * 2;
+            texts = Arrays.copyOf(texts, capacity);
+            left = Arrays.copyOf(left, capacity);
+            top = Arrays.copyOf(top, capacity);
+            right = Arrays.copyOf(right, capacity);
+            bottom = Arrays.copyOf(bottom, capacity);
+            points = Arrays.copyOf(points, capacity * INTS_PER_BOX);
+        }
+        int offset = count * INTS_PER_BOX;
+        points[offset] = x0;
+        points[offset + 1] = y0;
+        points[offset + 2] = x1;
+        points[offset + 3] = y1;
+        points[offset + 4] = x2;
+        points[offset + 5] = y2;
+        points[offset + 6] = x3;
+        points[offset + 7] = y3;
+        texts[count] = text;
+        left[count] = Math.min(Math.min(x0, x1), Math.min(x2, x3));
+        top[count] = Math.min(Math.min(y0, y1), Math.min(y2, y3));
+        right[count] = Math.max(Math.max(x0, x1), Math.max(x2, x3));
+        bottom[count] = Math.max(Math.max(y0, y1), Math.max(y2, y3));
+        count++;
+    }
+
+    /**
+     * 已经添加的块数
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * 对目前的所有块做版面还原
+     * @return 识别结果
+     */
+    OCRUtil.OcrPage toPage() {
+        return new OCRUtil.OcrPage(OCRUtil.layout(left, top, right, bottom, texts, count),
+                new TextBoxes(imageWidth, imageHeight, points, count));
+    }
+}
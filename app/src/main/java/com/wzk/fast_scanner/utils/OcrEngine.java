@@ -0,0 +1,102 @@
+package com.wzk.fast_scanner.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:11
+ */
+
+//OCR识别引擎 本地Paddle、ML KIT、OpenCV DNN都实现这个接口
+//OCRUtil按识别语言选择引擎，测试工具可以用同一批图片对比不同引擎
+public interface OcrEngine {
+
+    /**
+     * 引擎名称 用于日志和测试报告
+     */
+    String name();
+
+    /**
+     * 引擎的能力
+     */
+    Capabilities capabilities();
+
+    /**
+     * 加载模型 重复调用时返回同一次初始化，失败后再调用会重试
+     * @param context 上下文
+     * @return 就绪时以true结束，失败时带着异常结束
+     */
+    CompletableFuture<Boolean> init(Context context);
+
+    /**
+     * 识别一页 没有初始化时会先初始化
+     * 返回的future被取消后，还没开始的识别不再执行，已经返回的结果不再解析
+     * @param bitmap 页面图像
+     * @param orientationCorrected 图像方向是否已经修正过
+     * @return 识别结果，引擎出错时为空结果
+     */
+    CompletableFuture<OCRUtil.OcrPage> recognize(Bitmap bitmap, boolean orientationCorrected);
+
+    /**
+     * 流式识别一页 每识别出一批文字，就把目前为止的结果（已经做过版面还原）交给listener，最终结果仍由返回的future给出
+     * 引擎只能整页返回时不调用listener，和recognize相同
+     * @param bitmap 页面图像
+     * @param orientationCorrected 图像方向是否已经修正过
+     * @param listener 中间结果的回调 在后台线程调用
+     * @return 完整的识别结果
+     */
+    default CompletableFuture<OCRUtil.OcrPage> recognizeStreaming(Bitmap bitmap, boolean orientationCorrected,
+                                                                  PartialResultListener listener) {
+        return recognize(bitmap, orientationCorrected);
+    }
+
+    /**
+     * 释放模型 之后再识别会重新初始化
+     */
+    void close();
+
+    //流式识别的中间结果回调
+    interface PartialResultListener {
+
+        /**
+         * @param page 目前为止识别出的所有文字
+         */
+        void onPartialResult(OCRUtil.OcrPage page);
+    }
+
+    //引擎的能力
+    class Capabilities {
+
+        //版本标记 模型或者引擎变化时改变，用于结果缓存的key
+        public final String version;
+
+        //支持的语言 逗号分隔
+        public final String languages;
+
+        //结果是否带文本框
+        public final boolean providesBoxes;
+
+        //是否能识别倒置、旋转的文字
+        public final boolean handlesRotation;
+
+        //最多同时识别的页数
+        public final int maxConcurrency;
+
+        public Capabilities(String version, String languages, boolean providesBoxes, boolean handlesRotation, int maxConcurrency) {
+            this.version = version;
+            this.languages = languages;
+            this.providesBoxes = providesBoxes;
+            this.handlesRotation = handlesRotation;
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        @Override
+        public String toString() {
+            return "Capabilities{version=" + version + ", languages=" + languages + ", boxes=" + providesBoxes
+                    + ", rotation=" + handlesRotation + ", concurrency=" + maxConcurrency + "}";
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.wzk.fast_scanner.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.wzk.fast_scanner.data.DatabaseProvider;
+import com.wzk.fast_scanner.data.OcrCacheEntity;
+import com.wzk.fast_scanner.data.dao.OcrCacheDAO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 22:59
+ */
+
+//OCR结果缓存 按图像内容寻址
+//key = 解码后像素的哈希 + 识别语言 + 引擎版本 + 识别选项，同一张图用同样的模型和选项识别结果不会变，直接返回上次的结果
+//保存在Room数据库里，按条数和总字节数做LRU淘汰
+public class OcrResultCache {
+
+    private static final String TAG = "OcrResultCache";
+
+    //最多缓存的条数
+    private static final int MAX_ENTRIES = 500;
+
+    //缓存结果的最大总字节数
+    private static final long MAX_BYTES = 4L * 1024 * 1024;
+
+    private static volatile OcrResultCache instance;
+
+    private final OcrCacheDAO dao;
+
+    //计算哈希、读写数据库的线程
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ocr-cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //命中和未命中次数（本次启动以来）
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private OcrResultCache(OcrCacheDAO dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * 获取缓存实例
+     * @param context 上下文
+     * @return 缓存
+     */
+    public static OcrResultCache get(Context context) {
+        if (instance == null) {
+            synchronized (OcrResultCache.class) {
+                if (instance == null) {
+                    instance = new OcrResultCache(DatabaseProvider.INSTANCE.getOcrCacheDao(context));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 查询缓存
+     * @param bitmap 要识别的图像
+     * @param ocrLanguage 识别语言
+     * @param engineVersion 引擎版本
+     * @param orientationCorrected 图像方向是否已经修正过 决定是否运行方向分类模型，结果可能不同
+     * @return 查询结果，出错时当作未命中
+     */
+    public CompletableFuture<Lookup> lookup(Bitmap bitmap, String ocrLanguage, String engineVersion,
+                                            boolean orientationCorrected) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = ScanMetrics.begin();
+            String key = keyOf(bitmap, ocrLanguage, engineVersion, orientationCorrected);
+            ScanMetrics.end(ScanMetrics.Stage.CACHE_LOOKUP, start);
+            try {
+                OcrCacheEntity entry = dao.get(key);
+                if (entry != null) {
+                    dao.touch(key, System.currentTimeMillis());
+                    hits.incrementAndGet();
+                    Log.d(TAG, "命中缓存: " + key);
+                    return new Lookup(key, entry.getContent().isEmpty()
+                            ? Collections.emptyList()
+                            : Arrays.asList(entry.getContent().split("\n", -1)));
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "读取缓存失败: " + e.getMessage());
+            }
+            misses.incrementAndGet();
+            return new Lookup(key, null);
+        }, executor);
+    }
+
+    /**
+     * 保存识别结果 超出限制时淘汰最久没用的结果
+     * @param key lookup返回的key
+     * @param lines 识别结果
+     */
+    public void put(String key, List<String> lines) {
+        if (key == null || lines == null || lines.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                String content = String.join("\n", lines);
+                dao.put(new OcrCacheEntity(key, content, content.getBytes(StandardCharsets.UTF_8).length,
+                        System.currentTimeMillis(), System.currentTimeMillis()));
+                trim();
+            } catch (Exception e) {
+                Log.e(TAG, "写入缓存失败: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        executor.execute(() -> {
+            try {
+                dao.clearAll();
+            } catch (Exception e) {
+                Log.e(TAG, "清空缓存失败: " + e.getMessage());
+            }
+        });
+    }
+
+    //条数或者总字节数超出时，每次删掉最旧的十分之一
+    private void trim() {
+        int count = dao.count();
+        while (count > MAX_ENTRIES || (count > 0 && dao.totalBytes() > MAX_BYTES)) {
+            int remove = Math.max(1, Math.max(count - MAX_ENTRIES, count / 10));
+            dao.deleteOldest(remove);
+            count = dao.count();
+            Log.d(TAG, "淘汰缓存" + remove + "条，剩余" + count + "条");
+        }
+    }
+
+    public static long hits() {
+        return hits.get();
+    }
+
+    public static long misses() {
+        return misses.get();
+    }
+
+    /**
+     * 缓存统计 会读数据库，需要在后台线程调用
+     * @return 统计文本
+     */
+    public String describe() {
+        long hit = hits.get();
+        long total = hit + misses.get();
+        String storage;
+        try {
+            storage = "entries=" + dao.count() + ", bytes=" + dao.totalBytes();
+        } catch (Exception e) {
+            storage = "entries=?";
+        }
+        return String.format(Locale.US, "hits=%d, misses=%d, hitRate=%.1f%%\n%s",
+                hit, misses.get(), total > 0 ? 100.0 * hit / total : 0.0, storage);
+    }
+
+    /**
+     * 计算缓存key 按行读取像素做64位哈希，不需要拷贝整张图
+     */
+    static String keyOf(Bitmap bitmap, String ocrLanguage, String engineVersion, boolean orientationCorrected) {
+        int width = bitmap.getWidth();
+        return keyOf(width, bitmap.getHeight(), (row, y) -> bitmap.getPixels(row, 0, width, 0, y, width, 1),
+                ocrLanguage, engineVersion, orientationCorrected);
+    }
+
+    //逐行读取ARGB像素
+    interface RowReader {
+        void read(int[] row, int y);
+    }
+
+    static String keyOf(int width, int height, RowReader rows, String ocrLanguage, String engineVersion,
+                        boolean orientationCorrected) {
+        int[] row = new int[width];
+        long hash = 0x9E3779B97F4A7C15L ^ ((long) width << 32 | height);
+        for (int y = 0; y < height; y++) {
+            rows.read(row, y);
+            for (int x = 0; x < width; x++) {
+                hash = (hash ^ (row[x] & 0xFFFFFFFFL)) * 0x100000001B3L;
+                hash ^= hash >>> 29;
+            }
+        }
+        return String.format(Locale.US, "%016x_%dx%d_%s_%s_%s", hash, width, height, ocrLanguage, engineVersion,
+                optionsOf(orientationCorrected));
+    }
+
+    //识别选项 方向没有修正过时会运行方向分类模型
+    static String optionsOf(boolean orientationCorrected) {
+        return orientationCorrected ? "upright" : "cls";
+    }
+
+    //查询结果
+    public static class Lookup {
+
+        //缓存key 未命中时识别完成后用它保存结果
+        public final String key;
+
+        //命中时的结果，未命中为null
+        public final List<String> lines;
+
+        public Lookup(String key, List<String> lines) {
+            this.key = key;
+            this.lines = lines;
+        }
+    }
+}
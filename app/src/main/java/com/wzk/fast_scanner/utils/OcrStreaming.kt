@@ -0,0 +1,51 @@
+package com.wzk.fast_scanner.utils
+
+import android.content.Context
+import android.graphics.Bitmap
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.callbackFlow
+import kotlinx.coroutines.flow.conflate
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:14
+ */
+
+/**
+ * 流式识别的一次更新
+ * @param page 目前为止识别出的文字（已经做过版面还原）
+ * @param isFinal 是否是完整的结果 之后不会再有更新
+ */
+data class OcrUpdate(
+    val page: OCRUtil.OcrPage,
+    val isFinal: Boolean
+)
+
+/**
+ * 流式识别一页 先发出若干中间结果，最后发出完整结果后结束
+ * 界面处理得慢时只保留最新的中间结果；收集被取消时识别也会一起取消
+ * @param context 上下文
+ * @param bitmap 需要识别的图像
+ * @param orientationCorrected 图像方向是否已经修正过
+ * @param quality 调用方已经评估过的图像质量 为null时在后台线程评估
+ */
+fun recognizeAsFlow(
+    context: Context,
+    bitmap: Bitmap,
+    orientationCorrected: Boolean,
+    quality: ImagePreprocessingUtil.FrameQuality? = null
+): Flow<OcrUpdate> = callbackFlow {
+    val future = OCRUtil.commonOCRStreamingAsync(context, bitmap, orientationCorrected, quality) { page ->
+        trySend(OcrUpdate(page, false))
+    }
+    future.whenComplete { page, error ->
+        if (error != null) {
+            close(error)
+        } else {
+            trySend(OcrUpdate(page, true))
+            close()
+        }
+    }
+    awaitClose { future.cancel(false) }
+}.conflate()
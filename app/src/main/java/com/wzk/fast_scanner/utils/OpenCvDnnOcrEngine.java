@@ -0,0 +1,353 @@
+package com.wzk.fast_scanner.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import org.opencv.android.Utils;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfFloat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.TextDetectionModel;
+import org.opencv.dnn.TextDetectionModel_DB;
+import org.opencv.dnn.TextDetectionModel_EAST;
+import org.opencv.dnn.TextRecognitionModel;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:11
+ */
+
+//OpenCV DNN文字识别引擎 先用DB或EAST检测文本框，再把每个框透视拉正后交给CRNN识别
+//模型文件没有打包进安装包，需要放在 filesDir/dnn/ 目录下：
+//  检测：DB_TD500_resnet18.onnx（DB）或 frozen_east_text_detection.pb（EAST）
+//  识别：crnn_cs.onnx 和字符表 alphabet_94.txt
+//只支持英文和数字，主要用于和其它引擎对比耗时和准确率
+public class OpenCvDnnOcrEngine implements OcrEngine {
+
+    private static final String TAG = "OpenCvDnnOcrEngine";
+
+    private static final String MODEL_DIR = "dnn";
+
+    private static final String DB_MODEL_NAME = "DB_TD500_resnet18.onnx";
+
+    private static final String EAST_MODEL_NAME = "frozen_east_text_detection.pb";
+
+    private static final String REC_MODEL_NAME = "crnn_cs.onnx";
+
+    private static final String VOCABULARY_NAME = "alphabet_94.txt";
+
+    //识别模型的输入大小
+    private static final Size REC_INPUT_SIZE = new Size(100, 32);
+
+    //流式识别时两次中间结果的最短间隔
+    private static final long PARTIAL_INTERVAL_NANOS = 200_000_000L;
+
+    //检测模型
+    public enum Detector {
+        //可微分二值化 能检测弯曲、倾斜的文本，准确率较高
+        DB,
+        //EAST 更快，只输出旋转矩形
+        EAST
+    }
+
+    private final Detector detector;
+
+    private final int backend;
+
+    private final int target;
+
+    //实际使用的计算设备 请求的设备不可用时退回CPU
+    private volatile int activeTarget;
+
+    //模型加载和识别都在这个线程上 DNN模型不能多线程同时调用
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ocr-dnn");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private TextDetectionModel detectionModel;
+
+    private TextRecognitionModel recognitionModel;
+
+    private CompletableFuture<Boolean> initFuture;
+
+    /**
+     * 默认使用DB检测，OpenCV自带的后端在CPU上运行
+     */
+    public OpenCvDnnOcrEngine() {
+        this(Detector.DB, Dnn.DNN_BACKEND_OPENCV, Dnn.DNN_TARGET_CPU);
+    }
+
+    /**
+     * @param detector 检测模型
+     * @param backend 计算后端 Dnn.DNN_BACKEND_*
+     * @param target 计算设备 Dnn.DNN_TARGET_* 比如DNN_TARGET_CPU、DNN_TARGET_CPU_FP16、DNN_TARGET_OPENCL
+     */
+    public OpenCvDnnOcrEngine(Detector detector, int backend, int target) {
+        this.detector = detector;
+        this.backend = backend;
+        this.target = target;
+        this.activeTarget = target;
+    }
+
+    @Override
+    public String name() {
+        return "opencv-dnn-" + detector.name().toLowerCase() + "-target" + activeTarget;
+    }
+
+    @Override
+    public Capabilities capabilities() {
+        String detectorModel = detector == Detector.DB ? DB_MODEL_NAME : EAST_MODEL_NAME;
+        return new Capabilities("opencv-dnn-4.12-" + detectorModel + "-" + REC_MODEL_NAME,
+                "en", true, false, 1);
+    }
+
+    /**
+     * 加载模型 模型文件不存在时以异常结束，不影响其它引擎
+     * @param context 上下文
+     * @return 加载完成的future
+     */
+    @Override
+    public synchronized CompletableFuture<Boolean> init(Context context) {
+        if (initFuture != null && !initFuture.isCompletedExceptionally()) {
+            return initFuture;
+        }
+        File dir = new File(context.getApplicationContext().getFilesDir(), MODEL_DIR);
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        initFuture = future;
+        executor.execute(() -> {
+            try {
+                File detectorFile = new File(dir, detector == Detector.DB ? DB_MODEL_NAME : EAST_MODEL_NAME);
+                File recognizerFile = new File(dir, REC_MODEL_NAME);
+                File vocabularyFile = new File(dir, VOCABULARY_NAME);
+                for (File file : new File[] {detectorFile, recognizerFile, vocabularyFile}) {
+                    if (!file.isFile()) {
+                        throw new IllegalStateException("缺少模型文件: " + file.getAbsolutePath());
+                    }
+                }
+                activeTarget = selectTarget();
+                detectionModel = createDetectionModel(detectorFile.getAbsolutePath());
+                detectionModel.setPreferableBackend(backend);
+                detectionModel.setPreferableTarget(activeTarget);
+
+                recognitionModel = new TextRecognitionModel(recognizerFile.getAbsolutePath());
+                recognitionModel.setDecodeType("CTC-greedy");
+                recognitionModel.setVocabulary(readVocabulary(vocabularyFile));
+                // 输入归一化到[-1,1]，crnn_cs使用RGB输入
+                recognitionModel.setInputParams(1.0 / 127.5, REC_INPUT_SIZE, new Scalar(127.5, 127.5, 127.5), true);
+                recognitionModel.setPreferableBackend(backend);
+                recognitionModel.setPreferableTarget(activeTarget);
+                Log.i(TAG, "DNN模型加载完成: " + name());
+                future.complete(true);
+            } catch (Exception e) {
+                Log.e(TAG, "DNN模型加载失败: " + e.getMessage());
+                detectionModel = null;
+                recognitionModel = null;
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    //请求的计算设备在这个后端上不可用时使用CPU
+    private int selectTarget() {
+        try {
+            List<Integer> targets = Dnn.getAvailableTargets(backend);
+            if (targets.contains(target)) {
+                return target;
+            }
+            Log.w(TAG, "计算设备" + target + "不可用，可用设备: " + targets + "，改用CPU");
+        } catch (Exception e) {
+            Log.w(TAG, "查询可用计算设备失败: " + e.getMessage());
+        }
+        return Dnn.DNN_TARGET_CPU;
+    }
+
+    private TextDetectionModel createDetectionModel(String path) {
+        if (detector == Detector.EAST) {
+            TextDetectionModel_EAST east = new TextDetectionModel_EAST(path);
+            east.setConfidenceThreshold(0.5f);
+            east.setNMSThreshold(0.4f);
+            east.setInputParams(1.0, new Size(320, 320), new Scalar(123.68, 116.78, 103.94), true);
+            return east;
+        }
+        TextDetectionModel_DB db = new TextDetectionModel_DB(path);
+        db.setBinaryThreshold(0.3f);
+        db.setPolygonThreshold(0.5f);
+        db.setUnclipRatio(2.0);
+        db.setMaxCandidates(200);
+        db.setInputParams(1.0 / 255.0, new Size(736, 736), new Scalar(122.67891434, 116.66876762, 104.00698793), false);
+        return db;
+    }
+
+    //字符表 每行一个字符
+    private static List<String> readVocabulary(File file) throws Exception {
+        List<String> vocabulary = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                vocabulary.add(line);
+            }
+        }
+        return vocabulary;
+    }
+
+    /**
+     * 识别 模型加载失败时返回空结果
+     * @param bitmap 输入图像
+     * @param orientationCorrected 不使用 检测模型只处理正向的文字
+     * @return 返回的结果
+     */
+    @Override
+    public CompletableFuture<OCRUtil.OcrPage> recognize(Bitmap bitmap, boolean orientationCorrected) {
+        return recognizeStreaming(bitmap, orientationCorrected, null);
+    }
+
+    /**
+     * 流式识别 文本框是逐个识别的，每隔一段时间把已经识别出的文字交给listener
+     * @param bitmap 输入图像
+     * @param orientationCorrected 不使用
+     * @param listener 中间结果的回调 为null时只返回最终结果
+     * @return 完整的识别结果
+     */
+    @Override
+    public CompletableFuture<OCRUtil.OcrPage> recognizeStreaming(Bitmap bitmap, boolean orientationCorrected,
+                                                                 PartialResultListener listener) {
+        CompletableFuture<OCRUtil.OcrPage> future = new CompletableFuture<>();
+        CompletableFuture<Boolean> ready;
+        synchronized (this) {
+            ready = initFuture;
+        }
+        if (ready == null) {
+            Log.e(TAG, "模型还没有加载，返回空结果");
+            future.complete(OCRUtil.OcrPage.EMPTY);
+            return future;
+        }
+        long waitStart = ScanMetrics.begin();
+        ready.whenComplete((loaded, error) -> {
+            ScanMetrics.end(ScanMetrics.Stage.MODEL_WAIT, waitStart);
+            if (error != null) {
+                future.complete(OCRUtil.OcrPage.EMPTY);
+                return;
+            }
+            executor.execute(() -> {
+                //已经取消或者超时 不再识别
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(runModels(bitmap, future, listener));
+                } catch (Exception e) {
+                    Log.e(TAG, "识别失败: " + e.getMessage());
+                    future.complete(OCRUtil.OcrPage.EMPTY);
+                }
+            });
+        });
+        return future;
+    }
+
+    //检测 拉正 识别 版面还原
+    private OCRUtil.OcrPage runModels(Bitmap bitmap, CompletableFuture<OCRUtil.OcrPage> future, PartialResultListener listener) {
+        long engineStart = ScanMetrics.begin();
+        Mat rgba = new Mat();
+        Mat frame = new Mat();
+        MatOfFloat confidences = new MatOfFloat();
+        List<MatOfPoint> detections = new ArrayList<>();
+        Mat crop = new Mat();
+        try {
+            Bitmap argb = bitmap.getConfig() == Bitmap.Config.ARGB_8888 ? bitmap : bitmap.copy(Bitmap.Config.ARGB_8888, false);
+            Utils.bitmapToMat(argb, rgba);
+            if (argb != bitmap) {
+                argb.recycle();
+            }
+            Imgproc.cvtColor(rgba, frame, Imgproc.COLOR_RGBA2BGR);
+            detectionModel.detect(frame, detections, confidences);
+
+            OcrBlocks blocks = new OcrBlocks(bitmap.getWidth(), bitmap.getHeight(), detections.size());
+            long lastPartial = System.nanoTime();
+            for (MatOfPoint detection : detections) {
+                //取消后剩下的框不再识别
+                if (future.isDone()) {
+                    break;
+                }
+                Point[] quad = detection.toArray();
+                if (quad.length != 4) {
+                    continue;
+                }
+                //检测结果的顺序是左下 左上 右上 右下
+                Point bl = quad[0], tl = quad[1], tr = quad[2], br = quad[3];
+                warpQuad(frame, tl, tr, br, bl, crop);
+                String text = recognitionModel.recognize(crop);
+                if (text == null || text.isBlank()) {
+                    continue;
+                }
+                blocks.add(text, (int) tl.x, (int) tl.y, (int) tr.x, (int) tr.y, (int) br.x, (int) br.y, (int) bl.x, (int) bl.y);
+                if (listener != null && System.nanoTime() - lastPartial >= PARTIAL_INTERVAL_NANOS) {
+                    listener.onPartialResult(blocks.toPage());
+                    lastPartial = System.nanoTime();
+                }
+            }
+            ScanMetrics.end(ScanMetrics.Stage.OCR_ENGINE, engineStart);
+            //版面还原
+            return blocks.toPage();
+        } finally {
+            rgba.release();
+            frame.release();
+            confidences.release();
+            crop.release();
+            for (MatOfPoint detection : detections) {
+                detection.release();
+            }
+        }
+    }
+
+    //把一个文本框透视变换成识别模型的输入大小
+    private static void warpQuad(Mat frame, Point tl, Point tr, Point br, Point bl, Mat output) {
+        MatOfPoint2f src = new MatOfPoint2f(tl, tr, br, bl);
+        MatOfPoint2f dst = new MatOfPoint2f(
+                new Point(0, 0),
+                new Point(REC_INPUT_SIZE.width - 1, 0),
+                new Point(REC_INPUT_SIZE.width - 1, REC_INPUT_SIZE.height - 1),
+                new Point(0, REC_INPUT_SIZE.height - 1));
+        Mat transform = Imgproc.getPerspectiveTransform(src, dst);
+        try {
+            Imgproc.warpPerspective(frame, output, transform, REC_INPUT_SIZE);
+        } finally {
+            src.release();
+            dst.release();
+            transform.release();
+        }
+    }
+
+    /**
+     * 释放模型 之后再识别需要重新init
+     */
+    @Override
+    public synchronized void close() {
+        initFuture = null;
+        executor.execute(() -> {
+            detectionModel = null;
+            recognitionModel = null;
+        });
+    }
+}
@@ -0,0 +1,187 @@
+package com.wzk.fast_scanner.utils;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import org.opencv.android.Utils;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:05
+ */
+
+//整页文字方向估计 用来决定识别时是否需要运行方向分类模型
+//在缩小的灰度图上做投影：横排文字的行投影起伏明显，列投影平缓；竖排或者旋转了90度则相反
+//横排时再看每一行墨迹的重心：拉丁字母上伸部分比下伸部分多，正向页面的重心偏上，倒置的页面偏下
+//中文这类方块字重心居中，分不出正反，这时结果为HORIZONTAL，由调用方结合"方向已经修正过"来判断
+public class OrientationEstimator {
+
+    private static final String TAG = "OrientationEstimator";
+
+    //估计用的缩略图最长边
+    private static final int PROXY_MAX_SIDE = 512;
+
+    //行投影和列投影起伏之比超过这个值才认为是横排（或竖排）
+    private static final double AXIS_RATIO = 1.6;
+
+    //参与判断正反的最少行数
+    private static final int MIN_LINES = 4;
+
+    //行高在缩略图上的最小像素
+    private static final int MIN_LINE_HEIGHT = 4;
+
+    //重心偏移方向一致的行占比超过这个值才下结论
+    private static final double POLARITY_AGREEMENT = 0.7;
+
+    //整页方向
+    public enum Orientation {
+        //横排且确定是正向
+        UPRIGHT,
+        //横排且很可能是倒置的
+        UPSIDE_DOWN,
+        //横排，分不出正反
+        HORIZONTAL,
+        //竖排文字或者页面旋转了90度
+        VERTICAL,
+        //没有明显的文字行（图片、表格线很多、文字很少）
+        UNKNOWN
+    }
+
+    /**
+     * 估计整页的文字方向
+     * @param bitmap 页面图像
+     * @return 方向，出错时为UNKNOWN
+     */
+    public static Orientation estimate(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return Orientation.UNKNOWN;
+        }
+        Bitmap proxy = null;
+        try (MatScope scope = new MatScope()) {
+            Mat rgba = scope.newMat();
+            Mat gray = scope.newMat();
+            Mat ink = scope.newMat();
+            Mat rowSum = scope.newMat();
+            Mat colSum = scope.newMat();
+            // 缩小后再转成Mat 不需要拷贝整张原图
+            double scale = Math.min(1.0, (double) PROXY_MAX_SIDE / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+            int width = Math.max(1, (int) Math.round(bitmap.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(bitmap.getHeight() * scale));
+            proxy = scale < 1.0 ? Bitmap.createScaledBitmap(bitmap, width, height, true) : bitmap;
+            Bitmap argb = proxy.getConfig() == Bitmap.Config.ARGB_8888 ? proxy : proxy.copy(Bitmap.Config.ARGB_8888, false);
+            Utils.bitmapToMat(argb, rgba);
+            if (argb != proxy) {
+                argb.recycle();
+            }
+            Imgproc.cvtColor(rgba, gray, Imgproc.COLOR_RGBA2GRAY);
+            // 文字为1，背景为0
+            Imgproc.threshold(gray, ink, 0, 1, Imgproc.THRESH_BINARY_INV | Imgproc.THRESH_OTSU);
+            Core.reduce(ink, rowSum, 1, Core.REDUCE_SUM, CvType.CV_32S);
+            Core.reduce(ink, colSum, 0, Core.REDUCE_SUM, CvType.CV_32S);
+            int[] rows = new int[height];
+            int[] cols = new int[width];
+            rowSum.get(0, 0, rows);
+            colSum.get(0, 0, cols);
+            return classify(rows, cols);
+        } catch (Exception e) {
+            Log.e(TAG, "方向估计失败: " + e.getMessage());
+            return Orientation.UNKNOWN;
+        } finally {
+            if (proxy != null && proxy != bitmap) {
+                proxy.recycle();
+            }
+        }
+    }
+
+    /**
+     * 根据行投影和列投影判断方向
+     * @param rows 每一行的墨迹像素数
+     * @param cols 每一列的墨迹像素数
+     * @return 方向
+     */
+    static Orientation classify(int[] rows, int[] cols) {
+        double rowVariation = variation(rows);
+        double colVariation = variation(cols);
+        if (rowVariation <= 0 && colVariation <= 0) {
+            return Orientation.UNKNOWN;
+        }
+        if (colVariation > rowVariation * AXIS_RATIO) {
+            return Orientation.VERTICAL;
+        }
+        if (rowVariation < colVariation * AXIS_RATIO) {
+            return Orientation.UNKNOWN;
+        }
+        return polarity(rows);
+    }
+
+    //投影的起伏程度 标准差除以平均值
+    private static double variation(int[] profile) {
+        double sum = 0;
+        for (int value : profile) {
+            sum += value;
+        }
+        double mean = sum / profile.length;
+        if (mean <= 0) {
+            return 0;
+        }
+        double squares = 0;
+        for (int value : profile) {
+            squares += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(squares / profile.length) / mean;
+    }
+
+    //按行投影切出文字行 比较每行墨迹重心相对行中心的偏移方向
+    private static Orientation polarity(int[] rows) {
+        int max = 0;
+        for (int value : rows) {
+            max = Math.max(max, value);
+        }
+        // 墨迹少于最密一行的15%视为行间空白
+        int threshold = Math.max(1, (int) (max * 0.15));
+        int up = 0;
+        int down = 0;
+        int start = -1;
+        for (int y = 0; y <= rows.length; y++) {
+            boolean inLine = y < rows.length && rows[y] >= threshold;
+            if (inLine && start < 0) {
+                start = y;
+            } else if (!inLine && start >= 0) {
+                int end = y;
+                if (end - start >= MIN_LINE_HEIGHT) {
+                    double mass = 0;
+                    double moment = 0;
+                    for (int i = start; i < end; i++) {
+                        mass += rows[i];
+                        moment += (double) rows[i] * i;
+                    }
+                    double centroid = moment / mass;
+                    double center = (start + end - 1) / 2.0;
+                    // 偏移不到行高的3%不计
+                    double offset = (centroid - center) / (end - start);
+                    if (offset < -0.03) {
+                        up++;
+                    } else if (offset > 0.03) {
+                        down++;
+                    }
+                }
+                start = -1;
+            }
+        }
+        int decided = up + down;
+        if (decided < MIN_LINES) {
+            return Orientation.HORIZONTAL;
+        }
+        if (up >= decided * POLARITY_AGREEMENT) {
+            return Orientation.UPRIGHT;
+        }
+        if (down >= decided * POLARITY_AGREEMENT) {
+            return Orientation.UPSIDE_DOWN;
+        }
+        return Orientation.HORIZONTAL;
+    }
+}
@@ -0,0 +1,371 @@
+package com.wzk.fast_scanner.utils;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.Log;
+
+import com.equationl.paddleocr4android.CpuPowerMode;
+import com.equationl.paddleocr4android.OCR;
+import com.equationl.paddleocr4android.OcrConfig;
+import com.equationl.paddleocr4android.callback.OcrInitCallback;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:03
+ */
+
+//本地OCR引擎池
+//每个引擎是一个独立的OCR实例，有自己的推理线程和CPU功率模式，同一时间只给一个调用方使用
+//使用前checkout()借出，识别结束后giveBack()归还；没有空闲引擎时按需创建新的，达到上限后排队等待
+//池的大小受内存预算限制：每个引擎都要加载一份模型，按模型文件大小估算占用
+public class PaddleEnginePool {
+
+    private static final String TAG = "PaddleEnginePool";
+
+    //池大小的上限
+    public static final int MAX_POOL_SIZE = 4;
+
+    //引擎池可以使用的内存占设备当前可用内存的比例
+    private static final double MEMORY_BUDGET_RATIO = 0.125;
+
+    //一个引擎实际占用的原生内存约为模型文件大小的倍数（模型权重、推理中间结果、输入缓冲）
+    private static final double FOOTPRINT_FACTOR = 4.0;
+
+    //读不到模型文件大小时使用的单引擎占用估计
+    private static final long DEFAULT_ENGINE_FOOTPRINT = 48L * 1024 * 1024;
+
+    private final Context context;
+
+    //生成模型配置（模型路径、是否运行各个模型），线程数和功率模式由引擎池填写
+    private final Supplier<OcrConfig> configFactory;
+
+    private final int size;
+
+    private final int threadsPerEngine;
+
+    private final CpuPowerMode powerMode;
+
+    //所有创建成功的引擎
+    private final List<Engine> engines = new ArrayList<>();
+
+    //空闲的引擎 后进先出，最近用过的引擎缓存更热
+    private final ArrayDeque<Engine> idle = new ArrayDeque<>();
+
+    //等待引擎的调用方 先来先得
+    private final ArrayDeque<CompletableFuture<Engine>> waiters = new ArrayDeque<>();
+
+    //已创建和正在创建的引擎数
+    private int created;
+
+    //下一个引擎的编号 只用于日志
+    private int nextEngineId;
+
+    private boolean closed;
+
+    //借出次数和其中需要排队的次数
+    private long checkouts;
+    private long waitedCheckouts;
+
+    /**
+     * @param context 上下文
+     * @param requestedSize 期望的引擎数，0表示按核心数自动选择，实际大小不超过内存预算
+     * @param powerMode 每个引擎的CPU功率模式
+     * @param threadBudget 所有引擎总共使用的推理线程数
+     * @param configFactory 生成模型配置
+     */
+    public PaddleEnginePool(Context context, int requestedSize, CpuPowerMode powerMode, int threadBudget,
+                            Supplier<OcrConfig> configFactory) {
+        this.context = context.getApplicationContext();
+        this.configFactory = configFactory;
+        this.powerMode = powerMode;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int wanted = requestedSize > 0 ? requestedSize : Math.max(1, cores / 4);
+        int budgetLimit = maxEnginesByMemory(this.context);
+        this.size = Math.max(1, Math.min(Math.min(wanted, MAX_POOL_SIZE), budgetLimit));
+        // 线程平均分给各个引擎，引擎之间不抢核心
+        this.threadsPerEngine = Math.max(1, Math.min(cores, threadBudget) / size);
+        Log.i(TAG, "引擎池大小: " + size + "（期望" + wanted + "，内存预算允许" + budgetLimit
+                + "），每个引擎" + threadsPerEngine + "个线程，" + powerMode);
+    }
+
+    /**
+     * 创建第一个引擎 其余的在并发识别时按需创建
+     * @return 第一个引擎就绪时以true结束，失败时带着异常结束
+     */
+    public CompletableFuture<Boolean> start() {
+        CompletableFuture<Boolean> ready = new CompletableFuture<>();
+        synchronized (this) {
+            if (closed) {
+                ready.completeExceptionally(new IllegalStateException("引擎池已关闭"));
+                return ready;
+            }
+            if (!engines.isEmpty()) {
+                ready.complete(true);
+                return ready;
+            }
+            created++;
+        }
+        createEngine().whenComplete((engine, error) -> {
+            if (error != null) {
+                onCreateFailed(error);
+                ready.completeExceptionally(error);
+                return;
+            }
+            giveBack(engine);
+            ready.complete(true);
+        });
+        return ready;
+    }
+
+    /**
+     * 借出一个引擎 用完必须调用giveBack归还
+     * 返回的future被取消后不会再分到引擎
+     * @return 分到引擎时结束，池关闭或者引擎都创建失败时带着异常结束
+     */
+    public CompletableFuture<Engine> checkout() {
+        CompletableFuture<Engine> future = new CompletableFuture<>();
+        boolean grow = false;
+        synchronized (this) {
+            if (closed) {
+                future.completeExceptionally(new IllegalStateException("引擎池已关闭"));
+                return future;
+            }
+            checkouts++;
+            Engine engine = idle.pollFirst();
+            if (engine != null) {
+                future.complete(engine);
+                return future;
+            }
+            waitedCheckouts++;
+            waiters.addLast(future);
+            if (created < size) {
+                created++;
+                grow = true;
+            }
+        }
+        if (grow) {
+            createEngine().whenComplete((engine, error) -> {
+                if (error == null) {
+                    giveBack(engine);
+                    return;
+                }
+                onCreateFailed(error);
+            });
+        }
+        return future;
+    }
+
+    /**
+     * 归还引擎 有人在等就直接交给他
+     * @param engine checkout得到的引擎
+     */
+    public void giveBack(Engine engine) {
+        if (engine == null) {
+            return;
+        }
+        synchronized (this) {
+            if (!closed) {
+                CompletableFuture<Engine> waiter;
+                while ((waiter = waiters.pollFirst()) != null) {
+                    // 已经取消的等待者complete会返回false，交给下一个
+                    if (waiter.complete(engine)) {
+                        return;
+                    }
+                }
+                idle.addFirst(engine);
+                return;
+            }
+        }
+        engine.release();
+    }
+
+    /**
+     * 释放所有引擎 还在等待的调用方以异常结束，借出中的引擎归还时释放
+     */
+    public void close() {
+        List<Engine> toRelease;
+        List<CompletableFuture<Engine>> toFail;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toRelease = new ArrayList<>(idle);
+            idle.clear();
+            engines.clear();
+            toFail = new ArrayList<>(waiters);
+            waiters.clear();
+        }
+        for (CompletableFuture<Engine> waiter : toFail) {
+            waiter.completeExceptionally(new CancellationException("引擎池已关闭"));
+        }
+        for (Engine engine : toRelease) {
+            engine.release();
+        }
+        Log.i(TAG, "引擎池已关闭");
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getThreadsPerEngine() {
+        return threadsPerEngine;
+    }
+
+    public CpuPowerMode getPowerMode() {
+        return powerMode;
+    }
+
+    //创建并初始化一个引擎
+    private CompletableFuture<Engine> createEngine() {
+        CompletableFuture<Engine> future = new CompletableFuture<>();
+        int id;
+        synchronized (this) {
+            id = nextEngineId++;
+        }
+        try {
+            OCR ocr = new OCR(context);
+            OcrConfig config = configFactory.get();
+            config.setCpuThreadNum(threadsPerEngine);
+            config.setCpuPowerMode(powerMode);
+            Engine engine = new Engine(this, id, ocr, threadsPerEngine, powerMode);
+            long start = System.nanoTime();
+            ocr.initModel(config, new OcrInitCallback() {
+                @Override
+                public void onSuccess() {
+                    boolean keep;
+                    synchronized (PaddleEnginePool.this) {
+                        keep = !closed;
+                        if (keep) {
+                            engines.add(engine);
+                        }
+                    }
+                    if (!keep) {
+                        engine.release();
+                        future.completeExceptionally(new CancellationException("引擎池已关闭"));
+                        return;
+                    }
+                    Log.i(TAG, "引擎" + id + "初始化完成，耗时" + (System.nanoTime() - start) / 1_000_000 + "ms");
+                    future.complete(engine);
+                }
+
+                @Override
+                public void onFail(Throwable e) {
+                    Log.e(TAG, "引擎" + id + "初始化失败", e);
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "引擎" + id + "创建失败", e);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    //扩容失败 已经有引擎时等待者继续排队，一个引擎都没有时全部失败
+    private void onCreateFailed(Throwable error) {
+        List<CompletableFuture<Engine>> toFail = new ArrayList<>();
+        synchronized (this) {
+            created--;
+            if (engines.isEmpty() && created == 0) {
+                toFail.addAll(waiters);
+                waiters.clear();
+            }
+        }
+        for (CompletableFuture<Engine> waiter : toFail) {
+            waiter.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * 按内存预算计算最多能同时加载几个引擎
+     * @param context 上下文
+     * @return 引擎数，至少为1
+     */
+    public static int maxEnginesByMemory(Context context) {
+        long footprint = engineFootprint(context);
+        long available;
+        try {
+            ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+            activityManager.getMemoryInfo(memoryInfo);
+            if (memoryInfo.lowMemory) {
+                return 1;
+            }
+            available = memoryInfo.availMem;
+        } catch (Exception e) {
+            Log.w(TAG, "读取可用内存失败: " + e.getMessage());
+            return 1;
+        }
+        long budget = (long) (available * MEMORY_BUDGET_RATIO);
+        return (int) Math.max(1, Math.min(MAX_POOL_SIZE, budget / footprint));
+    }
+
+    //估算一个引擎的内存占用 模型文件大小乘以系数
+    private static long engineFootprint(Context context) {
+        long modelBytes = 0;
+        for (String name : PaddleOcrEngine.modelAssetPaths()) {
+            try (InputStream stream = context.getAssets().open(name)) {
+                modelBytes += stream.available();
+            } catch (Exception e) {
+                Log.w(TAG, "读取模型大小失败: " + name);
+                return DEFAULT_ENGINE_FOOTPRINT;
+            }
+        }
+        return modelBytes > 0 ? (long) (modelBytes * FOOTPRINT_FACTOR) : DEFAULT_ENGINE_FOOTPRINT;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US,
+                "PaddleEnginePool{size=%d, engines=%d, idle=%d, waiting=%d, threads=%d, mode=%s, checkouts=%d, waited=%d}",
+                size, engines.size(), idle.size(), waiters.size(), threadsPerEngine, powerMode, checkouts, waitedCheckouts);
+    }
+
+    //池中的一个引擎
+    public static class Engine {
+
+        private final PaddleEnginePool owner;
+
+        public final int id;
+
+        public final OCR ocr;
+
+        public final int threads;
+
+        public final CpuPowerMode powerMode;
+
+        Engine(PaddleEnginePool owner, int id, OCR ocr, int threads, CpuPowerMode powerMode) {
+            this.owner = owner;
+            this.id = id;
+            this.ocr = ocr;
+            this.threads = threads;
+            this.powerMode = powerMode;
+        }
+
+        /**
+         * 归还到所属的引擎池
+         */
+        public void giveBack() {
+            owner.giveBack(this);
+        }
+
+        void release() {
+            try {
+                ocr.releaseModel();
+            } catch (Exception e) {
+                Log.w(TAG, "释放引擎" + id + "失败: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,633 @@
+package com.wzk.fast_scanner.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Point;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.equationl.paddleocr4android.OcrConfig;
+import com.equationl.paddleocr4android.Util.paddle.OcrResultModel;
+import com.equationl.paddleocr4android.bean.OcrResult;
+import com.equationl.paddleocr4android.callback.OcrRunCallback;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:11
+ */
+
+//本地中英文识别引擎（PaddleOCR）
+//模型加载在引擎池里，多页识别时每页借一个引擎；CPU功率档位由PowerModeScheduler调整；
+//方向确定的页面使用不带方向分类模型的引擎
+public class PaddleOcrEngine implements OcrEngine {
+
+    private static final String TAG = "PaddleOcrEngine";
+
+    private static final String MODEL_ASSETS_PATH = "models";
+
+    private static final String CLS_NB_NAME = "cls.nb";
+
+    private static final String DET_NB_NAME = "det.nb";
+
+    private static final String REC_NB_NAME = "rec.nb";
+
+    //等待本地模型初始化的最长时间
+    private static final long MODEL_INIT_TIMEOUT_MS = 15000;
+
+    //引擎版本 模型或引擎变化时修改，旧的缓存结果就不会再命中
+    private static final String VERSION = "paddle-1.2.9-" + DET_NB_NAME + "-" + REC_NB_NAME + "-" + CLS_NB_NAME;
+
+    //流式识别时页面切成的横条数
+    private static final int STREAM_STRIPS = 3;
+
+    //横条上下多取的高度（页面高度的比例） 跨在两条之间的文字行至少完整地出现在其中一条里
+    private static final double STRIP_OVERLAP = 0.04;
+    private static final int MIN_STRIP_OVERLAP = 48;
+
+    //高度不到这个值的页面不切分
+    private static final int MIN_STREAM_HEIGHT = 900;
+
+    //切换功率档位时创建、释放引擎池的线程 不占用识别回调的线程
+    private static final Executor powerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "paddle-power");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //本地模型的初始化状态
+    public enum InitState {
+        NOT_STARTED,
+        LOADING,
+        READY,
+        FAILED
+    }
+
+    //本地模型的引擎池 多页识别时每页借一个引擎，互不阻塞
+    private PaddleEnginePool enginePool;
+
+    //期望的引擎数 0表示按核心数自动选择
+    private int requestedPoolSize = 0;
+
+    //当前的功率档位 由PowerModeScheduler根据温控、电量和耗时调整
+    private PowerModeScheduler.Level powerLevel = PowerModeScheduler.Level.FULL;
+
+    //切换功率档位时正在加载的新引擎池 加载完成后替换当前的
+    private PaddleEnginePool pendingPool;
+
+    //带方向分类模型的引擎 只有方向不确定的页面才用，第一次需要时才创建
+    private PaddleEnginePool clsEnginePool;
+
+    private volatile InitState initState = InitState.NOT_STARTED;
+
+    //初始化完成时结束 成功为true，失败时带着异常结束
+    private CompletableFuture<Boolean> initFuture;
+
+    //用于初始化失败后重试
+    private Context appContext;
+
+    @Override
+    public String name() {
+        return "paddle";
+    }
+
+    @Override
+    public Capabilities capabilities() {
+        return new Capabilities(VERSION, "zh,en", true, true, getPoolSize());
+    }
+
+    /**
+     * 初始化OCR（只会初始化一次，失败后再次调用会重试）
+     * @param context 应用上下文
+     * @return 初始化完成的future
+     */
+    @Override
+    public synchronized CompletableFuture<Boolean> init(Context context) {
+        appContext = context.getApplicationContext();
+        // 如果已经初始化或正在初始化，直接返回
+        if (initState == InitState.READY || initState == InitState.LOADING) {
+            return initFuture;
+        }
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        initFuture = future;
+        initState = InitState.LOADING;
+        try {
+            // 创建引擎池 先初始化一个引擎，并发识别时再按需扩充
+            if (enginePool == null) {
+                enginePool = newEnginePool(powerLevel);
+            }
+            enginePool.start().whenComplete((ready, error) -> {
+                synchronized (this) {
+                    // 引擎池已经重建 旧的初始化结果不再影响状态
+                    if (initFuture != future) {
+                        return;
+                    }
+                }
+                if (error != null) {
+                    initState = InitState.FAILED;
+                    future.completeExceptionally(error);
+                    Log.e(TAG, "OCR初始化失败", error);
+                    return;
+                }
+                initState = InitState.READY;
+                future.complete(true);
+                Log.i(TAG, "OCR初始化成功");
+            });
+        } catch (Exception e) {
+            initState = InitState.FAILED;
+            future.completeExceptionally(e);
+            Log.e(TAG, "OCR创建失败", e);
+        }
+        return future;
+    }
+
+    /**
+     * 获取本地模型的初始化状态
+     * @return 状态
+     */
+    public InitState getInitState() {
+        return initState;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (enginePool != null) {
+            enginePool.close();
+            enginePool = null;
+        }
+        if (pendingPool != null) {
+            pendingPool.close();
+            pendingPool = null;
+        }
+        if (clsEnginePool != null) {
+            clsEnginePool.close();
+            clsEnginePool = null;
+        }
+        if (initFuture != null && !initFuture.isDone()) {
+            initFuture.completeExceptionally(new CancellationException("引擎已关闭"));
+        }
+        initState = InitState.NOT_STARTED;
+    }
+
+    private PaddleEnginePool newEnginePool(PowerModeScheduler.Level level) {
+        return new PaddleEnginePool(appContext, requestedPoolSize, level.powerMode, level.threadBudget(),
+                () -> newModelConfig(false));
+    }
+
+    //带方向分类的引擎池 一个引擎就够，大部分页面用不到
+    private synchronized PaddleEnginePool clsEnginePool() {
+        if (clsEnginePool == null && appContext != null) {
+            clsEnginePool = new PaddleEnginePool(appContext, 1, powerLevel.powerMode, powerLevel.threadBudget(),
+                    () -> newModelConfig(true));
+        }
+        return clsEnginePool;
+    }
+
+    /**
+     * 切换功率档位 只记录新档位，引擎池在powerExecutor上重建，调用方（识别回调）不等待
+     * 连续切换时只按最新的档位重建一次
+     * @param level 新档位
+     */
+    private synchronized void applyPowerLevel(PowerModeScheduler.Level level) {
+        if (level == powerLevel) {
+            return;
+        }
+        powerLevel = level;
+        powerExecutor.execute(this::rebuildForPowerLevel);
+    }
+
+    /**
+     * 按当前档位重建引擎池 新的引擎池在后台加载，就绪后再替换，切换期间识别不会停下
+     * 旧池中借出的引擎在归还时释放；已经是当前档位的池不重建
+     */
+    private void rebuildForPowerLevel() {
+        PowerModeScheduler.Level level;
+        PaddleEnginePool staleCls;
+        PaddleEnginePool stalePending;
+        synchronized (this) {
+            level = powerLevel;
+            // 方向分类引擎下次用到时按新档位重建
+            staleCls = clsEnginePool != null && clsEnginePool.getPowerMode() != level.powerMode ? clsEnginePool : null;
+            if (staleCls != null) {
+                clsEnginePool = null;
+            }
+            stalePending = pendingPool != null && pendingPool.getPowerMode() != level.powerMode ? pendingPool : null;
+            if (stalePending != null) {
+                pendingPool = null;
+            }
+        }
+        if (staleCls != null) {
+            staleCls.close();
+        }
+        if (stalePending != null) {
+            stalePending.close();
+        }
+        PaddleEnginePool next;
+        synchronized (this) {
+            if (enginePool == null || initState != InitState.READY || pendingPool != null
+                    || enginePool.getPowerMode() == level.powerMode) {
+                return;
+            }
+            next = newEnginePool(level);
+            pendingPool = next;
+        }
+        next.start().whenComplete((ready, error) -> {
+            PaddleEnginePool old;
+            synchronized (this) {
+                if (pendingPool != next) {
+                    powerExecutor.execute(next::close);
+                    return;
+                }
+                pendingPool = null;
+                if (error != null || enginePool == null) {
+                    Log.e(TAG, "切换功率档位失败，继续使用原来的引擎: " + error);
+                    powerExecutor.execute(next::close);
+                    return;
+                }
+                old = enginePool;
+                enginePool = next;
+            }
+            powerExecutor.execute(old::close);
+            Log.i(TAG, "已切换到功率档位" + level + ": " + next);
+            // 加载期间档位又变了，按最新的档位再来一次
+            powerExecutor.execute(this::rebuildForPowerLevel);
+        });
+    }
+
+    /**
+     * 本地模型的配置 线程数和CPU功率模式由引擎池按引擎设置
+     * @param runCls 是否运行方向分类模型 页面方向确定时不需要，每个文本行少跑一次模型
+     * @return 新的配置对象
+     */
+    static OcrConfig newModelConfig(boolean runCls) {
+        OcrConfig config = new OcrConfig();
+        config.setModelPath(MODEL_ASSETS_PATH);
+        config.setClsModelFilename(CLS_NB_NAME);
+        config.setDetModelFilename(DET_NB_NAME);
+        config.setRecModelFilename(REC_NB_NAME);
+        // 是否运行各个模型
+        config.setRunDet(true);
+        config.setRunCls(runCls);
+        config.setRunRec(true);
+        // 不在识别时绘制文本位置框 框的坐标保存在结果里，结果页需要时再画
+        config.setDrwwTextPositionBox(false);
+        return config;
+    }
+
+    /**
+     * 模型文件在assets里的路径 用于估算引擎的内存占用
+     * @return 路径
+     */
+    static String[] modelAssetPaths() {
+        return new String[] {
+                MODEL_ASSETS_PATH + "/" + DET_NB_NAME,
+                MODEL_ASSETS_PATH + "/" + REC_NB_NAME,
+                MODEL_ASSETS_PATH + "/" + CLS_NB_NAME
+        };
+    }
+
+    /**
+     * 设置引擎数 已经初始化时会重建引擎池，正在识别的页面用完旧引擎后释放
+     * @param size 期望的引擎数，0表示自动，实际大小受内存预算限制
+     */
+    public synchronized void setPoolSize(int size) {
+        int requested = Math.max(0, Math.min(size, PaddleEnginePool.MAX_POOL_SIZE));
+        if (requested == requestedPoolSize) {
+            return;
+        }
+        requestedPoolSize = requested;
+        if (enginePool == null) {
+            return;
+        }
+        enginePool.close();
+        enginePool = null;
+        if (pendingPool != null) {
+            pendingPool.close();
+            pendingPool = null;
+        }
+        if (initFuture != null && !initFuture.isDone()) {
+            initFuture.completeExceptionally(new CancellationException("引擎池已重建"));
+        }
+        initState = InitState.NOT_STARTED;
+        if (appContext != null) {
+            init(appContext);
+        }
+    }
+
+    /**
+     * 能同时识别的页面数
+     * @return 引擎池大小，还没初始化时为1
+     */
+    public synchronized int getPoolSize() {
+        return enginePool != null ? enginePool.getSize() : 1;
+    }
+
+    /**
+     * 引擎池和功率档位的状态 用于诊断页面
+     * @return 状态文本
+     */
+    public synchronized String describe() {
+        String pool = enginePool != null ? enginePool.toString() : "PaddleEnginePool{not started}";
+        if (clsEnginePool != null) {
+            pool += "\ncls: " + clsEnginePool;
+        }
+        if (appContext == null) {
+            return pool;
+        }
+        PowerModeScheduler scheduler = PowerModeScheduler.get(appContext);
+        StringBuilder builder = new StringBuilder(pool).append('\n').append(scheduler);
+        for (String decision : scheduler.history()) {
+            builder.append('\n').append(decision);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 等待本地模型就绪 上次初始化失败时会先重试一次
+     * 返回的是独立的future，调用方取消或超时都不会影响初始化本身
+     * @param timeoutMillis 最长等待时间
+     * @return 模型可用时以true结束
+     */
+    private CompletableFuture<Boolean> awaitModelReady(long timeoutMillis) {
+        CompletableFuture<Boolean> future;
+        synchronized (this) {
+            if ((initState == InitState.NOT_STARTED || initState == InitState.FAILED) && appContext != null) {
+                Log.w(TAG, "模型状态为" + initState + "，重新初始化");
+                init(appContext);
+            }
+            future = initFuture;
+        }
+        if (future == null) {
+            CompletableFuture<Boolean> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalStateException("模型还没有开始初始化"));
+            return failed;
+        }
+        return OCRUtil.withTimeout(future.thenApply(ready -> ready && enginePool != null), timeoutMillis);
+    }
+
+    /**
+     * 判断这一页是否需要方向分类模型
+     * 先在缩略图上估计整页方向：确定是正向的横排页面，或者方向已经修正过、分不出正反的横排页面不需要；
+     * 倒置、竖排和看不出文字行的页面仍然逐行分类
+     * @param bitmap 输入图像
+     * @param orientationCorrected 图像方向是否已经修正过
+     * @return 是否需要
+     */
+    private static boolean needsAngleClassifier(Bitmap bitmap, boolean orientationCorrected) {
+        long start = ScanMetrics.begin();
+        OrientationEstimator.Orientation orientation = OrientationEstimator.estimate(bitmap);
+        ScanMetrics.end(ScanMetrics.Stage.ORIENTATION, start);
+        boolean needed;
+        switch (orientation) {
+            case UPRIGHT:
+                needed = false;
+                break;
+            case HORIZONTAL:
+                needed = !orientationCorrected;
+                break;
+            default:
+                needed = true;
+                break;
+        }
+        Log.d(TAG, "页面方向: " + orientation + "，方向分类: " + (needed ? "运行" : "跳过"));
+        return needed;
+    }
+
+    /**
+     * 本地中英文识别
+     * @param bitmap 输入图像
+     * @param orientationCorrected 图像方向是否已经修正过
+     * @return 返回的结果
+     */
+    @Override
+    public CompletableFuture<OCRUtil.OcrPage> recognize(Bitmap bitmap, boolean orientationCorrected) {
+        CompletableFuture<OCRUtil.OcrPage> future = new CompletableFuture<>();
+        boolean runCls = needsAngleClassifier(bitmap, orientationCorrected);
+        PageCost cost = new PageCost();
+        run(bitmap, runCls, future, cost).thenAcceptAsync(ocrResult -> {
+            if (future.isDone()) {
+                return;
+            }
+            if (ocrResult == null) {
+                future.complete(OCRUtil.OcrPage.EMPTY);
+                return;
+            }
+            reportPage(cost);
+            try{
+                OcrBlocks blocks = new OcrBlocks(bitmap.getWidth(), bitmap.getHeight(), ocrResult.getOutputRawResult().size());
+                collect(ocrResult, blocks, 0, 0, Integer.MAX_VALUE);
+                //版面还原
+                OCRUtil.OcrPage page = blocks.toPage();
+                Log.d(TAG,"分类后的结果:"+page.lines);
+                future.complete(page);
+            }catch (Exception e){
+                Log.e(TAG,e.getMessage());
+                future.complete(OCRUtil.OcrPage.EMPTY);
+            }
+        }, OCRUtil.callbackExecutor);
+        return future;
+    }
+
+    /**
+     * 流式识别 把页面切成几条有重叠的横条，从上到下依次识别（引擎池有多个引擎时同时识别），
+     * 每条识别完就把目前所有的文字做一次版面还原交给listener，不用等整页识别完才看到文字
+     * 每个文本框只归中心所在的那一条，重叠区域里的文字不会重复
+     * @param bitmap 输入图像
+     * @param orientationCorrected 图像方向是否已经修正过
+     * @param listener 中间结果的回调
+     * @return 完整的识别结果
+     */
+    @Override
+    public CompletableFuture<OCRUtil.OcrPage> recognizeStreaming(Bitmap bitmap, boolean orientationCorrected,
+                                                                 PartialResultListener listener) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (height < MIN_STREAM_HEIGHT) {
+            return recognize(bitmap, orientationCorrected);
+        }
+        CompletableFuture<OCRUtil.OcrPage> future = new CompletableFuture<>();
+        //整页判断一次方向 每条都用同样的模型
+        boolean runCls = needsAngleClassifier(bitmap, orientationCorrected);
+        int overlap = (int) Math.max(MIN_STRIP_OVERLAP, height * STRIP_OVERLAP);
+        //只在callbackExecutor上访问
+        OcrBlocks blocks = new OcrBlocks(width, height, 32);
+        //各条的引擎耗时累加 整页识别完后一起交给功率调度
+        PageCost cost = new PageCost();
+        int[] finished = {0};
+        for (int i = 0; i < STREAM_STRIPS; i++) {
+            //这一条负责的范围 文本框中心落在范围内才算这一条的
+            int ownTop = height * i / STREAM_STRIPS;
+            int ownBottom = height * (i + 1) / STREAM_STRIPS;
+            int stripTop = Math.max(0, ownTop - overlap);
+            int stripBottom = Math.min(height, ownBottom + overlap);
+            Bitmap strip;
+            try {
+                strip = Bitmap.createBitmap(bitmap, 0, stripTop, width, stripBottom - stripTop);
+            } catch (Exception e) {
+                Log.e(TAG, "切分页面失败，整页识别: " + e.getMessage());
+                future.cancel(false);
+                return recognize(bitmap, orientationCorrected);
+            }
+            run(strip, runCls, future, cost).thenAcceptAsync(ocrResult -> {
+                if (strip != bitmap) {
+                    strip.recycle();
+                }
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    if (ocrResult != null) {
+                        collect(ocrResult, blocks, stripTop, ownTop, ownBottom);
+                    }
+                    finished[0]++;
+                    OCRUtil.OcrPage page = blocks.toPage();
+                    if (finished[0] == STREAM_STRIPS) {
+                        reportPage(cost);
+                        Log.d(TAG,"分类后的结果:"+page.lines);
+                        future.complete(page);
+                    } else if (blocks.size() > 0) {
+                        listener.onPartialResult(page);
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, e.getMessage());
+                    future.complete(OCRUtil.OcrPage.EMPTY);
+                }
+            }, OCRUtil.callbackExecutor);
+        }
+        return future;
+    }
+
+    /**
+     * 借一个引擎识别一张图 模型就绪并借到空闲引擎后立即开始，初始化失败、超时或者已经取消则不再调用引擎
+     * @param bitmap 输入图像
+     * @param runCls 是否使用带方向分类的引擎
+     * @param owner 调用方的future 结束后还没开始的识别不再执行
+     * @param cost 识别成功时把引擎耗时和像素数累加到这里
+     * @return 引擎的结果，失败或取消时为null
+     */
+    private CompletableFuture<OcrResult> run(Bitmap bitmap, boolean runCls, CompletableFuture<?> owner, PageCost cost) {
+        CompletableFuture<OcrResult> result = new CompletableFuture<>();
+        if (initState != InitState.READY || enginePool == null){
+            Log.d(TAG,"模型还未初始化,等待初始化完成....");
+        }
+        long waitStart = ScanMetrics.begin();
+        awaitModelReady(MODEL_INIT_TIMEOUT_MS).thenCompose(ready -> {
+            PaddleEnginePool pool;
+            synchronized (this) {
+                pool = runCls ? clsEnginePool() : enginePool;
+            }
+            if (!Boolean.TRUE.equals(ready) || pool == null) {
+                throw new CancellationException("模型不可用");
+            }
+            CompletableFuture<PaddleEnginePool.Engine> checkout = pool.checkout();
+            //取消或超时时不再排队等引擎
+            owner.whenComplete((page, error) -> checkout.cancel(false));
+            return checkout;
+        }).whenComplete((engine, error) -> {
+            long engineStart = ScanMetrics.end(ScanMetrics.Stage.MODEL_WAIT, waitStart);
+            if (error != null) {
+                if (!owner.isDone()) {
+                    Log.e(TAG,"模型不可用，放弃识别: " + error);
+                }
+                result.complete(null);
+                return;
+            }
+            if (owner.isDone()) {
+                Log.d(TAG,"识别已取消，不再调用引擎");
+                engine.giveBack();
+                result.complete(null);
+                return;
+            }
+            Log.d(TAG,"开始识别，引擎" + engine.id);
+            try{
+                //异步
+                engine.ocr.run(bitmap, new OcrRunCallback() {
+                    @Override
+                    public void onSuccess(@NonNull OcrResult ocrResult) {
+                        long engineEnd = ScanMetrics.end(ScanMetrics.Stage.OCR_ENGINE, engineStart);
+                        engine.giveBack();
+                        cost.add(engineEnd - engineStart, (long) bitmap.getWidth() * bitmap.getHeight());
+                        //模型自己统计的推理耗时（毫秒）
+                        ScanMetrics.record(ScanMetrics.Stage.OCR_INFERENCE, (long) (ocrResult.getInferenceTime() * 1_000_000.0));
+                        Log.d(TAG,"耗时："+ocrResult.getInferenceTime());
+                        result.complete(ocrResult);
+                    }
+                    @Override
+                    public void onFail(@NonNull Throwable throwable) {
+                        engine.giveBack();
+                        Log.e(TAG, "识别失败！报错："+throwable.getMessage());
+                        result.complete(null);
+                    }
+                });
+            }catch (Exception e){
+                engine.giveBack();
+                Log.e(TAG,e.getMessage());
+                result.complete(null);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 整页识别完后根据这一页的耗时和设备状态调整功率档位
+     * 分条识别时是各条耗时的和，按识别的像素数归一化后和整页识别的页面、不同尺寸的页面可以比较
+     * @param cost 这一页的引擎耗时和像素数
+     */
+    private void reportPage(PageCost cost) {
+        long pixels = cost.pixels.get();
+        if (pixels == 0 || appContext == null) {
+            return;
+        }
+        PowerModeScheduler.Level level = PowerModeScheduler.get(appContext).onPageRecognized(cost.engineNanos.get(), pixels);
+        if (level != null) {
+            applyPowerLevel(level);
+        }
+    }
+
+    /**
+     * 解析本地模型的识别结果
+     * @param ocrResult 识别结果
+     * @param blocks 解析出的文本块加到这里
+     * @param offsetY 识别的图像在整页上的纵向偏移
+     * @param ownTop 只保留中心在这个范围内的文本框（整页坐标）
+     * @param ownBottom 范围的下边界（不含）
+     */
+    private static void collect(OcrResult ocrResult, OcrBlocks blocks, int offsetY, int ownTop, int ownBottom) {
+        for (OcrResultModel res : ocrResult.getOutputRawResult()) {
+            //文字所在的区域角点 顺序是左上 右上 右下 左下
+            List<Point> points = res.getPoints();
+            //文字本身
+            String subText = res.getLabel();
+            if (points.isEmpty() || points.size() < 4 || subText.isBlank()){
+                continue;
+            }
+            Point p0 = points.get(0), p1 = points.get(1), p2 = points.get(2), p3 = points.get(3);
+            int centerY = offsetY + (p0.y + p1.y + p2.y + p3.y) / 4;
+            if (centerY < ownTop || centerY >= ownBottom) {
+                continue;
+            }
+            blocks.add(subText, p0.x, p0.y + offsetY, p1.x, p1.y + offsetY,
+                    p2.x, p2.y + offsetY, p3.x, p3.y + offsetY);
+        }
+    }
+
+    //一页的引擎耗时和识别的像素数 分条识别时各条在不同的引擎线程上累加
+    private static final class PageCost {
+
+        final AtomicLong engineNanos = new AtomicLong();
+
+        final AtomicLong pixels = new AtomicLong();
+
+        void add(long nanos, long pixelCount) {
+            engineNanos.addAndGet(nanos);
+            pixels.addAndGet(pixelCount);
+        }
+    }
+}
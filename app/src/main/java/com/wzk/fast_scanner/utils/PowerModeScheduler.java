@@ -0,0 +1,335 @@
+package com.wzk.fast_scanner.utils;
+
+import android.content.Context;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.equationl.paddleocr4android.CpuPowerMode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:04
+ */
+
+//本地OCR推理的CPU功率调度
+//根据设备温控状态、电量和最近每页的识别耗时（按像素数归一化），在三档功率之间切换：
+//FULL：所有核心全速；HIGH：只用大核、线程减半；LOW：小核两个线程
+//长时间连续扫描时设备会降频，这时继续跑满所有核心只会更热、每页更慢，降一档反而能保持稳定的吞吐量
+//降档和升档都需要条件连续成立若干页并且距离上次切换超过一定时间，避免来回切换；每次决定都写日志
+public class PowerModeScheduler {
+
+    private static final String TAG = "PowerModeScheduler";
+
+    //功率档位 从高到低
+    public enum Level {
+        FULL(CpuPowerMode.LITE_POWER_FULL),
+        HIGH(CpuPowerMode.LITE_POWER_HIGH),
+        LOW(CpuPowerMode.LITE_POWER_LOW);
+
+        public final CpuPowerMode powerMode;
+
+        Level(CpuPowerMode powerMode) {
+            this.powerMode = powerMode;
+        }
+
+        //这一档总共使用的推理线程数
+        public int threadBudget() {
+            int cores = Runtime.getRuntime().availableProcessors();
+            switch (this) {
+                case FULL:
+                    return cores;
+                case HIGH:
+                    return Math.max(2, cores / 2);
+                default:
+                    return 2;
+            }
+        }
+    }
+
+    //电量低于这个值且没有充电时降到LOW，回到RECOVER以上才允许升档
+    private static final int BATTERY_LOW_PERCENT = 15;
+    private static final int BATTERY_LOW_RECOVER_PERCENT = 20;
+
+    //电量低于这个值且没有充电时最高只用HIGH
+    private static final int BATTERY_SAVE_PERCENT = 30;
+    private static final int BATTERY_SAVE_RECOVER_PERCENT = 35;
+
+    //每页耗时的指数平均系数 耗时都是每百万像素的毫秒数，页面尺寸不同也可以比较
+    private static final double LATENCY_ALPHA = 0.25;
+
+    //至少识别这么多页之后才用耗时做判断
+    private static final int MIN_LATENCY_SAMPLES = 5;
+
+    //平均耗时超过这一档最好成绩的倍数时认为已经降频
+    private static final double THROTTLE_RATIO = 1.5;
+
+    //降档需要条件连续成立的页数，升档需要的页数
+    private static final int DOWN_CONFIRMATIONS = 2;
+    private static final int UP_CONFIRMATIONS = 5;
+
+    //两次切换之间的最短间隔 降档、升档
+    private static final long MIN_DOWN_INTERVAL_MS = 10_000;
+    private static final long MIN_UP_INTERVAL_MS = 60_000;
+
+    //因为降频降档后 升档前至少等待的时间，给设备散热
+    private static final long MIN_THROTTLED_UP_INTERVAL_MS = 180_000;
+
+    //保留的决策记录条数
+    private static final int HISTORY_SIZE = 20;
+
+    private static volatile PowerModeScheduler instance;
+
+    /**
+     * 调度器读取的设备状态和时钟 单元测试里可以替换
+     */
+    interface DeviceState {
+
+        //温控状态 PowerManager.THERMAL_STATUS_*
+        int thermalStatus();
+
+        //电量百分比 读不到时为-1
+        int batteryPercent();
+
+        boolean isCharging();
+
+        //开机以来的毫秒数
+        long elapsedRealtime();
+    }
+
+    private final DeviceState deviceState;
+
+    private Level level = Level.FULL;
+
+    //当前档位下的平均耗时（每百万像素毫秒）和样本数
+    private double latencyMillis;
+    private int latencySamples;
+
+    //每一档见过的最好平均耗时 用来判断是否降频
+    private final double[] bestLatencyMillis = new double[Level.values().length];
+
+    //目标档位和连续成立的页数
+    private Level pendingLevel;
+    private int pendingCount;
+
+    private long lastChangeMillis;
+
+    //因为降频而降档 这种情况升档前要等更久，并且重新测量
+    private boolean throttled;
+
+    //电量档位的滞回状态
+    private boolean batteryLow;
+    private boolean batterySave;
+
+    private final ArrayDeque<String> history = new ArrayDeque<>();
+
+    PowerModeScheduler(DeviceState deviceState) {
+        this.deviceState = deviceState;
+        this.lastChangeMillis = deviceState.elapsedRealtime();
+    }
+
+    /**
+     * 获取调度器
+     * @param context 上下文
+     * @return 调度器
+     */
+    public static PowerModeScheduler get(Context context) {
+        if (instance == null) {
+            synchronized (PowerModeScheduler.class) {
+                if (instance == null) {
+                    instance = new PowerModeScheduler(new SystemDeviceState(context.getApplicationContext()));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 当前档位
+     * @return 档位
+     */
+    public synchronized Level getLevel() {
+        return level;
+    }
+
+    /**
+     * 整页识别完后调用 更新耗时并决定是否切换档位
+     * @param engineNanos 这一页引擎的耗时 分条识别时是各条耗时的和
+     * @param pixels 引擎识别的像素数
+     * @return 需要切换时返回新档位，否则为null
+     */
+    public synchronized Level onPageRecognized(long engineNanos, long pixels) {
+        if (pixels <= 0) {
+            return null;
+        }
+        double millis = engineNanos / 1_000_000.0 / (pixels / 1_000_000.0);
+        latencyMillis = latencySamples == 0 ? millis : latencyMillis + LATENCY_ALPHA * (millis - latencyMillis);
+        latencySamples++;
+        int index = level.ordinal();
+        if (latencySamples >= MIN_LATENCY_SAMPLES
+                && (bestLatencyMillis[index] == 0 || latencyMillis < bestLatencyMillis[index])) {
+            bestLatencyMillis[index] = latencyMillis;
+        }
+
+        int thermal = deviceState.thermalStatus();
+        int battery = deviceState.batteryPercent();
+        boolean charging = deviceState.isCharging();
+        // 当前档位明显比这一档的最好成绩慢，说明已经降频
+        double best = bestLatencyMillis[index];
+        boolean slow = latencySamples >= MIN_LATENCY_SAMPLES && best > 0 && latencyMillis > best * THROTTLE_RATIO
+                && level != Level.LOW;
+        Level target = targetLevel(thermal, battery, charging, slow);
+        return decide(target, thermal, battery, charging, slow);
+    }
+
+    //各项输入允许的最高档位
+    private Level targetLevel(int thermal, int battery, boolean charging, boolean slow) {
+        Level target = Level.FULL;
+        // 温控
+        if (thermal >= PowerManager.THERMAL_STATUS_SEVERE) {
+            target = Level.LOW;
+        } else if (thermal >= PowerManager.THERMAL_STATUS_MODERATE) {
+            target = lower(target, Level.HIGH);
+        }
+        // 电量 进入和退出用不同的阈值
+        batteryLow = !charging && battery >= 0
+                && battery <= (batteryLow ? BATTERY_LOW_RECOVER_PERCENT : BATTERY_LOW_PERCENT);
+        batterySave = !charging && battery >= 0
+                && battery <= (batterySave ? BATTERY_SAVE_RECOVER_PERCENT : BATTERY_SAVE_PERCENT);
+        if (batteryLow) {
+            target = Level.LOW;
+        } else if (batterySave) {
+            target = lower(target, Level.HIGH);
+        }
+        // 耗时 已经降频时再降一档
+        if (slow) {
+            target = lower(target, Level.values()[level.ordinal() + 1]);
+        } else if (throttled && target.ordinal() < level.ordinal()) {
+            // 因为降频降的档 温控恢复正常之前不升档
+            if (thermal > PowerManager.THERMAL_STATUS_LIGHT) {
+                target = level;
+            }
+        }
+        // 一次只升一档
+        if (target.ordinal() < level.ordinal() - 1) {
+            target = Level.values()[level.ordinal() - 1];
+        }
+        return target;
+    }
+
+    //应用滞回 条件连续成立足够多页并且距离上次切换足够久才切换
+    //slow表示这一页的耗时说明已经降频 只有真的因此降档时才记为throttled，没切换时不影响之后的升档等待
+    private Level decide(Level target, int thermal, int battery, boolean charging, boolean slow) {
+        if (target == level) {
+            pendingLevel = null;
+            pendingCount = 0;
+            return null;
+        }
+        if (target != pendingLevel) {
+            pendingLevel = target;
+            pendingCount = 0;
+        }
+        pendingCount++;
+        boolean down = target.ordinal() > level.ordinal();
+        long sinceChange = deviceState.elapsedRealtime() - lastChangeMillis;
+        // 严重过热立即降档
+        boolean urgent = down && thermal >= PowerManager.THERMAL_STATUS_SEVERE;
+        long minInterval = down ? MIN_DOWN_INTERVAL_MS : (throttled ? MIN_THROTTLED_UP_INTERVAL_MS : MIN_UP_INTERVAL_MS);
+        boolean confirmed = pendingCount >= (down ? DOWN_CONFIRMATIONS : UP_CONFIRMATIONS)
+                && sinceChange >= minInterval;
+        if (!urgent && !confirmed) {
+            return null;
+        }
+        String decision = String.format(Locale.US,
+                "%s -> %s (thermal=%d, battery=%d%%%s, latency=%.0fms/MP, best=%.0fms/MP, samples=%d, after %ds)",
+                level, target, thermal, battery, charging ? " charging" : "",
+                latencyMillis, bestLatencyMillis[level.ordinal()], latencySamples, sinceChange / 1000);
+        Log.i(TAG, decision);
+        history.addLast(decision);
+        if (history.size() > HISTORY_SIZE) {
+            history.removeFirst();
+        }
+        if (down) {
+            throttled = throttled || slow;
+        } else {
+            throttled = false;
+        }
+        level = target;
+        lastChangeMillis = deviceState.elapsedRealtime();
+        pendingLevel = null;
+        pendingCount = 0;
+        // 新档位重新统计耗时
+        latencyMillis = 0;
+        latencySamples = 0;
+        return target;
+    }
+
+    private static Level lower(Level a, Level b) {
+        return a.ordinal() >= b.ordinal() ? a : b;
+    }
+
+    //从系统服务读取的设备状态
+    private static final class SystemDeviceState implements DeviceState {
+
+        private final PowerManager powerManager;
+        private final BatteryManager batteryManager;
+
+        SystemDeviceState(Context context) {
+            this.powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            this.batteryManager = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
+        }
+
+        //Android 10以下没有温控接口，按正常处理
+        @Override
+        public int thermalStatus() {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && powerManager != null) {
+                try {
+                    return powerManager.getCurrentThermalStatus();
+                } catch (Exception e) {
+                    Log.w(TAG, "读取温控状态失败: " + e.getMessage());
+                }
+            }
+            return PowerManager.THERMAL_STATUS_NONE;
+        }
+
+        @Override
+        public int batteryPercent() {
+            if (batteryManager == null) {
+                return -1;
+            }
+            int percent = batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+            return percent > 0 ? percent : -1;
+        }
+
+        @Override
+        public boolean isCharging() {
+            return batteryManager != null && batteryManager.isCharging();
+        }
+
+        @Override
+        public long elapsedRealtime() {
+            return SystemClock.elapsedRealtime();
+        }
+    }
+
+    /**
+     * 最近的切换记录
+     * @return 从旧到新
+     */
+    public synchronized List<String> history() {
+        return new ArrayList<>(history);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "PowerModeScheduler{level=%s, threads=%d, latency=%.0fms/MP, samples=%d, throttled=%b}",
+                level, level.threadBudget(), latencyMillis, latencySamples, throttled);
+    }
+}
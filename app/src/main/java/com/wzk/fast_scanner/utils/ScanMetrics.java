@@ -0,0 +1,271 @@
+package com.wzk.fast_scanner.utils;
+
+import android.os.Build;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 22:56
+ */
+
+//扫描流程各阶段耗时统计
+//记录时不分配对象：begin()返回纳秒时间戳，end()把耗时累加到固定大小的直方图里，只有查看统计时才生成快照
+public class ScanMetrics {
+
+    private static final String TAG = "ScanMetrics";
+
+    //扫描流程的各个阶段
+    public enum Stage {
+        //解码和方向修正
+        DECODE,
+        //文档边界检测
+        QUAD_DETECT,
+        //图像质量评估
+        QUALITY,
+        //透视变换
+        WARP,
+        //图像增强（并行模式下包含透视变换）
+        ENHANCE,
+        //文档矫正合计
+        CORRECTION,
+        //计算缓存key（像素哈希）
+        CACHE_LOOKUP,
+        //整页文字方向估计
+        ORIENTATION,
+        //等待本地模型就绪和空闲引擎
+        MODEL_WAIT,
+        //识别引擎从提交到返回
+        OCR_ENGINE,
+        //本地模型自己统计的推理耗时
+        OCR_INFERENCE,
+        //版面还原
+        LAYOUT,
+        //流式识别从开始到第一批文字
+        OCR_FIRST_TEXT,
+        //识别合计
+        OCR_TOTAL,
+        //JPEG压缩保存
+        JPEG_COMPRESS,
+        //数据库写入
+        DB_INSERT,
+        //单次扫描合计
+        SCAN_TOTAL
+    }
+
+    //小于16微秒的按1微秒一格，之后每个2的幂区间再分成16格，相对误差不超过1/16
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    //最大记录到2^31微秒（约35分钟），更长的算在最后一格
+    private static final int MAX_EXPONENT = 31;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private static final int STAGES = Stage.values().length;
+
+    //每个阶段一段连续的桶
+    private static final AtomicLongArray buckets = new AtomicLongArray(STAGES * BUCKETS);
+
+    //每个阶段的次数、总耗时、最大耗时（纳秒）
+    private static final AtomicLongArray counts = new AtomicLongArray(STAGES);
+    private static final AtomicLongArray totalNanos = new AtomicLongArray(STAGES);
+    private static final AtomicLongArray maxNanos = new AtomicLongArray(STAGES);
+
+    /**
+     * 开始计时
+     * @return 当前纳秒时间戳
+     */
+    public static long begin() {
+        return System.nanoTime();
+    }
+
+    /**
+     * 结束计时并记录
+     * @param stage 阶段
+     * @param beginNanos begin()返回的时间戳
+     * @return 当前纳秒时间戳，可以直接作为下一个阶段的开始
+     */
+    public static long end(Stage stage, long beginNanos) {
+        long now = System.nanoTime();
+        record(stage, now - beginNanos);
+        return now;
+    }
+
+    /**
+     * 记录一次耗时
+     * @param stage 阶段
+     * @param nanos 耗时（纳秒）
+     */
+    public static void record(Stage stage, long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        int index = stage.ordinal();
+        buckets.incrementAndGet(index * BUCKETS + bucketOf(nanos / 1000));
+        counts.incrementAndGet(index);
+        totalNanos.addAndGet(index, nanos);
+        long max;
+        while (nanos > (max = maxNanos.get(index))) {
+            if (maxNanos.compareAndSet(index, max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 清空所有统计
+     */
+    public static void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        for (int i = 0; i < STAGES; i++) {
+            counts.set(i, 0);
+            totalNanos.set(i, 0);
+            maxNanos.set(i, 0);
+        }
+    }
+
+    /**
+     * 获取一个阶段当前的统计
+     * @param stage 阶段
+     * @return 统计快照
+     */
+    public static StageSnapshot snapshot(Stage stage) {
+        int index = stage.ordinal();
+        long[] histogram = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = buckets.get(index * BUCKETS + i);
+            count += histogram[i];
+        }
+        return new StageSnapshot(
+                stage,
+                count,
+                count > 0 ? totalNanos.get(index) / 1_000_000.0 / counts.get(index) : 0,
+                percentileMillis(histogram, count, 0.50),
+                percentileMillis(histogram, count, 0.95),
+                percentileMillis(histogram, count, 0.99),
+                maxNanos.get(index) / 1_000_000.0
+        );
+    }
+
+    /**
+     * 获取所有有数据的阶段的统计
+     * @return 按阶段顺序排列的快照
+     */
+    public static List<StageSnapshot> snapshots() {
+        List<StageSnapshot> result = new ArrayList<>();
+        for (Stage stage : Stage.values()) {
+            if (counts.get(stage.ordinal()) > 0) {
+                result.add(snapshot(stage));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 导出统计文本 包含设备信息和各阶段的耗时分布，用于分享或者附在问题反馈里
+     * @return 文本
+     */
+    public static String dump() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Speed Scanner timing dump\n");
+        builder.append("device: ").append(Build.MANUFACTURER).append(' ').append(Build.MODEL)
+                .append(", android ").append(Build.VERSION.RELEASE)
+                .append(", cores ").append(Runtime.getRuntime().availableProcessors()).append('\n');
+        builder.append("time: ").append(System.currentTimeMillis()).append('\n');
+        builder.append(String.format(Locale.US, "%-14s %7s %9s %9s %9s %9s %9s%n",
+                "stage", "count", "mean", "p50", "p95", "p99", "max"));
+        for (StageSnapshot snapshot : snapshots()) {
+            builder.append(String.format(Locale.US, "%-14s %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    snapshot.stage.name(), snapshot.count, snapshot.meanMillis,
+                    snapshot.p50Millis, snapshot.p95Millis, snapshot.p99Millis, snapshot.maxMillis));
+        }
+        builder.append("(ms)\n");
+        builder.append(MatPool.shared().toString()).append('\n');
+        builder.append(OCRUtil.describeEnginePool()).append('\n');
+        builder.append("OcrResultCache{hits=").append(OcrResultCache.hits())
+                .append(", misses=").append(OcrResultCache.misses()).append("}\n");
+        return builder.toString();
+    }
+
+    /**
+     * 把统计输出到日志
+     */
+    public static void logDump() {
+        Log.i(TAG, dump());
+    }
+
+    //微秒数对应的桶
+    private static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (micros >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + sub;
+    }
+
+    //桶的中间值（毫秒）
+    private static double bucketMidMillis(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return (bucket + 0.5) / 1000.0;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lower = (long) (SUB_BUCKETS + sub) * width;
+        return (lower + width / 2.0) / 1000.0;
+    }
+
+    private static double percentileMillis(long[] histogram, long count, double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(percentile * count);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= target) {
+                return bucketMidMillis(i);
+            }
+        }
+        return bucketMidMillis(histogram.length - 1);
+    }
+
+    //一个阶段的统计快照
+    public static class StageSnapshot {
+
+        public final Stage stage;
+
+        public final long count;
+
+        public final double meanMillis;
+
+        public final double p50Millis;
+
+        public final double p95Millis;
+
+        public final double p99Millis;
+
+        public final double maxMillis;
+
+        public StageSnapshot(Stage stage, long count, double meanMillis,
+                             double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+            this.stage = stage;
+            this.count = count;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p95Millis = p95Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+    }
+}
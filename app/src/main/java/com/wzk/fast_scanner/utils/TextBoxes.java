@@ -0,0 +1,61 @@
+package com.wzk.fast_scanner.utils;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 23:07
+ */
+
+//一页识别结果的文本框几何信息
+//每个框是四个角点（左上 右上 右下 左下），所有坐标连续存放在一个int数组里，不为每个框创建对象
+//坐标是识别时那张图的像素坐标，显示时按imageWidth/imageHeight换算
+public class TextBoxes {
+
+    //每个框占用的int个数
+    private static final int INTS_PER_BOX = 8;
+
+    public final int imageWidth;
+
+    public final int imageHeight;
+
+    private final int[] points;
+
+    private final int count;
+
+    /**
+     * @param imageWidth 识别时的图像宽度
+     * @param imageHeight 识别时的图像高度
+     * @param points 角点坐标 x0,y0,x1,y1,x2,y2,x3,y3依次排列
+     * @param count 框的数量（数组可以比它长）
+     */
+    public TextBoxes(int imageWidth, int imageHeight, int[] points, int count) {
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.points = points;
+        this.count = count;
+    }
+
+    /**
+     * 框的数量
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 角点的x坐标
+     * @param box 第几个框
+     * @param corner 第几个角点（0-3）
+     */
+    public int x(int box, int corner) {
+        return points[box * INTS_PER_BOX + corner * 2];
+    }
+
+    /**
+     * 角点的y坐标
+     * @param box 第几个框
+     * @param corner 第几个角点（0-3）
+     */
+    public int y(int box, int corner) {
+        return points[box * INTS_PER_BOX + corner * 2 + 1];
+    }
+}
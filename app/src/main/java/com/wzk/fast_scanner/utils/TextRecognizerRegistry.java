@@ -0,0 +1,187 @@
+package com.wzk.fast_scanner.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.Log;
+
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.text.TextRecognition;
+import com.google.mlkit.vision.text.TextRecognizer;
+import com.google.mlkit.vision.text.chinese.ChineseTextRecognizerOptions;
+import com.google.mlkit.vision.text.japanese.JapaneseTextRecognizerOptions;
+import com.google.mlkit.vision.text.korean.KoreanTextRecognizerOptions;
+import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author wangzikang
+ * @date 2026/10/17 22:50
+ */
+
+//ML KIT识别器缓存 每种文字脚本保留一个已经加载好模型的识别器，超出数量时淘汰最久没用的
+//识别器按使用计数借出，被淘汰或者closeAll时还有任务在用的，等最后一个任务归还后再关闭
+public class TextRecognizerRegistry {
+
+    private static final String TAG = "TextRecognizerRegistry";
+
+    //同时保留的识别器数量 每个识别器都持有一份模型，不宜太多
+    private static final int MAX_RECOGNIZERS = 2;
+
+    //key是脚本类型（latin/zh/ja/ko），按访问顺序排列
+    private final LinkedHashMap<String, Entry> recognizers =
+            new LinkedHashMap<String, Entry>(4, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    if (size() > MAX_RECOGNIZERS) {
+                        Log.d(TAG, "淘汰最久未使用的识别器: " + eldest.getKey());
+                        retire(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    /**
+     * 借出语言对应的识别器，没有则创建 用完必须调用Lease.release()归还
+     * @param languageCode 语言代码
+     * @return 借出的识别器，创建失败返回null
+     */
+    public synchronized Lease acquire(String languageCode) {
+        String script = scriptOf(languageCode);
+        Entry entry = recognizers.get(script);
+        if (entry == null) {
+            try {
+                entry = new Entry(script, create(script));
+                recognizers.put(script, entry);
+                Log.d(TAG, "创建识别器: " + script);
+            } catch (Exception e) {
+                Log.e(TAG, "创建" + languageCode + "TextRecognizer时出现异常: " + e.getMessage(), e);
+                return null;
+            }
+        }
+        entry.users++;
+        return new Lease(entry);
+    }
+
+    /**
+     * 预热识别器 用一张很小的空白图触发模型加载，异步执行不阻塞调用线程
+     * @param languageCode 语言代码
+     * @return 识别器是否创建成功
+     */
+    public boolean warmUp(String languageCode) {
+        Lease lease = acquire(languageCode);
+        if (lease == null) {
+            return false;
+        }
+        Bitmap blank = Bitmap.createBitmap(32, 32, Bitmap.Config.ARGB_8888);
+        blank.eraseColor(Color.WHITE);
+        long start = System.currentTimeMillis();
+        lease.recognizer.process(InputImage.fromBitmap(blank, 0))
+                .addOnCompleteListener(task -> {
+                    lease.release();
+                    blank.recycle();
+                    Log.d(TAG, scriptOf(languageCode) + "识别器预热完成，耗时：" + (System.currentTimeMillis() - start) + "ms");
+                });
+        return true;
+    }
+
+    /**
+     * 关闭所有识别器 正在识别的任务结束后再关闭它用的识别器
+     */
+    public synchronized void closeAll() {
+        for (Entry entry : recognizers.values()) {
+            retire(entry);
+        }
+        recognizers.clear();
+    }
+
+    //移出缓存 没有任务在用时立即关闭，否则等最后一个任务归还
+    private void retire(Entry entry) {
+        entry.retired = true;
+        if (entry.users == 0) {
+            close(entry);
+        }
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.users--;
+        if (entry.users == 0 && entry.retired) {
+            close(entry);
+        }
+    }
+
+    private static void close(Entry entry) {
+        Log.d(TAG, "关闭识别器: " + entry.script);
+        entry.recognizer.close();
+    }
+
+    //缓存的一个识别器和正在使用它的任务数 只在持有registry锁时访问
+    private static final class Entry {
+
+        final String script;
+
+        final TextRecognizer recognizer;
+
+        int users;
+
+        //已经移出缓存 最后一个任务归还时关闭
+        boolean retired;
+
+        Entry(String script, TextRecognizer recognizer) {
+            this.script = script;
+            this.recognizer = recognizer;
+        }
+    }
+
+    //一次借用 release只生效一次
+    public final class Lease {
+
+        public final TextRecognizer recognizer;
+
+        private final Entry entry;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(Entry entry) {
+            this.entry = entry;
+            this.recognizer = entry.recognizer;
+        }
+
+        /**
+         * 归还识别器 在识别任务结束（成功或失败）后调用
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                TextRecognizerRegistry.this.release(entry);
+            }
+        }
+    }
+
+    //不同语言代码可能共用同一种识别器
+    private static String scriptOf(String languageCode) {
+        switch (languageCode) {
+            case "ja":
+            case "ko":
+            case "zh":
+                return languageCode;
+            default:
+                return "latin";
+        }
+    }
+
+    private static TextRecognizer create(String script) {
+        switch (script) {
+            case "ja":
+                return TextRecognition.getClient(new JapaneseTextRecognizerOptions.Builder().build());
+            case "ko":
+                return TextRecognition.getClient(new KoreanTextRecognizerOptions.Builder().build());
+            case "zh":
+                return TextRecognition.getClient(new ChineseTextRecognizerOptions.Builder().build());
+            default:
+                return TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.wzk.fast_scanner.utils
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * 引擎测试用的字符错误率
+ */
+class CharacterErrorRateTest {
+
+    @Test
+    fun identicalTextHasNoErrors() {
+        assertEquals(0.0, BenchmarkUtil.characterErrorRate("invoice total", "invoice total"), 0.0)
+    }
+
+    @Test
+    fun whitespaceIsIgnored() {
+        assertEquals(0.0, BenchmarkUtil.characterErrorRate("invoice total\n0123", "invoicetotal 0 1 2 3"), 0.0)
+    }
+
+    @Test
+    fun editsAreCountedAgainstExpectedLength() {
+        // 一个替换、一个删除、一个插入
+        assertEquals(1.0 / 5, BenchmarkUtil.characterErrorRate("hello", "hallo"), 1e-9)
+        assertEquals(1.0 / 5, BenchmarkUtil.characterErrorRate("hello", "helo"), 1e-9)
+        assertEquals(1.0 / 5, BenchmarkUtil.characterErrorRate("hello", "helloo"), 1e-9)
+        assertEquals(3.0 / 6, BenchmarkUtil.characterErrorRate("kitten", "sitting"), 1e-9)
+    }
+
+    @Test
+    fun extraTextCanExceedOne() {
+        assertEquals(3.0, BenchmarkUtil.characterErrorRate("ab", "abcdefgh"), 1e-9)
+        assertEquals(1.0, BenchmarkUtil.characterErrorRate("abc", ""), 1e-9)
+    }
+
+    @Test
+    fun emptyExpectedText() {
+        assertEquals(0.0, BenchmarkUtil.characterErrorRate(" \n", ""), 0.0)
+        assertEquals(1.0, BenchmarkUtil.characterErrorRate("", "noise"), 0.0)
+    }
+}
@@ -0,0 +1,45 @@
+package com.wzk.fast_scanner.utils
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * 按目标长边计算inSampleSize 解码后的长边不能小于目标长边
+ */
+class ImageDecodeUtilTest {
+
+    @Test
+    fun smallImagesAreNotSubsampled() {
+        assertEquals(1, ImageDecodeUtil.calculateInSampleSize(1280, 960, ImageDecodeUtil.OCR_MAX_SIDE))
+        assertEquals(1, ImageDecodeUtil.calculateInSampleSize(3000, 2000, ImageDecodeUtil.OCR_MAX_SIDE))
+        assertEquals(1, ImageDecodeUtil.calculateInSampleSize(5999, 4000, ImageDecodeUtil.OCR_MAX_SIDE))
+    }
+
+    @Test
+    fun largestPowerOfTwoKeepingTheTargetSide() {
+        assertEquals(2, ImageDecodeUtil.calculateInSampleSize(6000, 4000, ImageDecodeUtil.OCR_MAX_SIDE))
+        assertEquals(2, ImageDecodeUtil.calculateInSampleSize(4000, 11999, ImageDecodeUtil.OCR_MAX_SIDE))
+        assertEquals(4, ImageDecodeUtil.calculateInSampleSize(4000, 12000, ImageDecodeUtil.OCR_MAX_SIDE))
+        // 一亿像素的照片按预览尺寸解码
+        assertEquals(8, ImageDecodeUtil.calculateInSampleSize(12000, 9000, ImageDecodeUtil.PREVIEW_MAX_SIDE))
+    }
+
+    @Test
+    fun decodedLongSideNeverDropsBelowTarget() {
+        for (longSide in intArrayOf(1000, 3001, 4500, 6144, 9000, 12032, 16384)) {
+            for (maxSide in intArrayOf(ImageDecodeUtil.PREVIEW_MAX_SIDE, ImageDecodeUtil.OCR_MAX_SIDE)) {
+                val sample = ImageDecodeUtil.calculateInSampleSize(longSide, longSide / 2, maxSide)
+                assertEquals(0, sample and (sample - 1))
+                assertTrue("$longSide / $sample", sample == 1 || longSide / sample >= maxSide)
+                assertTrue("$longSide / $sample", longSide / (sample * 2) < maxSide)
+            }
+        }
+    }
+
+    @Test
+    fun noTargetMeansFullSize() {
+        assertEquals(1, ImageDecodeUtil.calculateInSampleSize(8000, 6000, 0))
+        assertEquals(1, ImageDecodeUtil.calculateInSampleSize(8000, 6000, -1))
+    }
+}
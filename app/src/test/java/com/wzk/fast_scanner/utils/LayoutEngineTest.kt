@@ -0,0 +1,86 @@
+package com.wzk.fast_scanner.utils
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * 版面还原的阅读顺序和空格规则
+ */
+class LayoutEngineTest {
+
+    @Test
+    fun emptyInputHasNoLines() {
+        assertTrue(LayoutEngine.layout(IntArray(0), IntArray(0), IntArray(0), IntArray(0), arrayOf(), 0).isEmpty())
+    }
+
+    @Test
+    fun wordsOnOneLineAreJoinedLeftToRight() {
+        // 文字高30 一个空格宽10，间距10补一个空格，间距30补三个
+        val lines = LayoutEngine.layout(
+            intArrayOf(110, 0, 230), intArrayOf(2, 0, 0), intArrayOf(200, 100, 300), intArrayOf(32, 30, 30),
+            arrayOf("world", "hello", "again"), 3
+        )
+        assertEquals(listOf("hello world   again"), lines)
+    }
+
+    @Test
+    fun slightlySkewedBlocksStayOnTheirLines() {
+        val lines = LayoutEngine.layout(
+            intArrayOf(110, 0, 110, 0), intArrayOf(8, 0, 48, 40), intArrayOf(210, 100, 210, 100), intArrayOf(38, 30, 78, 70),
+            arrayOf("b", "a", "d", "c"), 4
+        )
+        assertEquals(listOf("a b", "c d"), lines)
+    }
+
+    @Test
+    fun twoColumnsAreReadColumnByColumn() {
+        // 每行左右各一块 第i块在第i / 2行
+        val lines = LayoutEngine.layout(
+            IntArray(10) { if (it % 2 == 0) 0 else 600 },
+            IntArray(10) { it / 2 * 40 },
+            IntArray(10) { if (it % 2 == 0) 400 else 1000 },
+            IntArray(10) { it / 2 * 40 + 30 },
+            Array(10) { (if (it % 2 == 0) "L" else "R") + it / 2 }, 10
+        )
+        assertEquals(listOf("L0", "L1", "L2", "L3", "L4", "R0", "R1", "R2", "R3", "R4"), lines)
+    }
+
+    @Test
+    fun tableRowsAreNotSplitIntoColumns() {
+        // 右边一栏很窄，而且每一行都横跨两边，是表格不是分栏
+        val lines = LayoutEngine.layout(
+            IntArray(8) { if (it % 2 == 0) 0 else 400 },
+            IntArray(8) { it / 2 * 40 },
+            IntArray(8) { if (it % 2 == 0) 300 else 480 },
+            IntArray(8) { it / 2 * 40 + 30 },
+            Array(8) { if (it % 2 == 0) "item${it / 2}" else "${it / 2}.00" }, 8
+        )
+        assertEquals(4, lines.size)
+        for (line in 0 until 4) {
+            assertTrue(lines[line], lines[line].startsWith("item$line ") && lines[line].endsWith("$line.00"))
+        }
+    }
+
+    @Test
+    fun paragraphsAreSeparatedBeforeColumns() {
+        // 标题横跨两栏，下面是两栏正文
+        val lines = LayoutEngine.layout(
+            intArrayOf(0, 0, 600, 0, 600, 0, 600),
+            intArrayOf(0, 80, 80, 120, 120, 160, 160),
+            intArrayOf(1000, 400, 1000, 400, 1000, 400, 1000),
+            intArrayOf(30, 110, 110, 150, 150, 190, 190),
+            arrayOf("title", "L0", "R0", "L1", "R1", "L2", "R2"), 7
+        )
+        assertEquals(listOf("title", "L0", "L1", "L2", "R0", "R1", "R2"), lines)
+    }
+
+    @Test
+    fun countLimitsTheBlocksRead() {
+        val lines = LayoutEngine.layout(
+            intArrayOf(0, 200), intArrayOf(0, 0), intArrayOf(100, 300), intArrayOf(30, 30),
+            arrayOf("kept", "ignored"), 1
+        )
+        assertEquals(listOf("kept"), lines)
+    }
+}
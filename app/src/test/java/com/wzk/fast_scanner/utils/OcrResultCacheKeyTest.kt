@@ -0,0 +1,79 @@
+package com.wzk.fast_scanner.utils
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * OCR结果缓存的key 像素、尺寸、语言、引擎版本和识别选项任何一项不同都要换key
+ */
+class OcrResultCacheKeyTest {
+
+    private val pixels = IntArray(WIDTH * HEIGHT) { 0xFF000000.toInt() or (it * 0x010203) }
+
+    //按4像素一行读出pixels
+    private val rows = OcrResultCache.RowReader { row, y -> System.arraycopy(pixels, y * WIDTH, row, 0, WIDTH) }
+
+    private val key = OcrResultCache.keyOf(WIDTH, HEIGHT, rows, "ch", "paddle-v1", true)
+
+    @Test
+    fun sameImageHasSameKey() {
+        val copy = pixels.clone()
+        val copyKey = OcrResultCache.keyOf(WIDTH, HEIGHT, { row, y -> System.arraycopy(copy, y * WIDTH, row, 0, WIDTH) },
+            "ch", "paddle-v1", true)
+        assertEquals(key, copyKey)
+    }
+
+    @Test
+    fun keyDescribesImageAndOptions() {
+        assertTrue(key, key.matches(Regex("[0-9a-f]{16}_4x3_ch_paddle-v1_upright")))
+        assertTrue(OcrResultCache.keyOf(WIDTH, HEIGHT, rows, "ch", "paddle-v1", false).endsWith("_cls"))
+    }
+
+    @Test
+    fun anyPixelChangesTheKey() {
+        for (i in pixels.indices) {
+            val changed = pixels.clone()
+            changed[i] = changed[i] xor 1
+            val changedKey = OcrResultCache.keyOf(WIDTH, HEIGHT,
+                { row, y -> System.arraycopy(changed, y * WIDTH, row, 0, WIDTH) }, "ch", "paddle-v1", true)
+            assertNotEquals("像素$i", key, changedKey)
+        }
+    }
+
+    @Test
+    fun sameRowsAreHashedInOrder() {
+        // 交换两行 每行的内容没变
+        val swapped = pixels.clone()
+        System.arraycopy(pixels, 0, swapped, WIDTH, WIDTH)
+        System.arraycopy(pixels, WIDTH, swapped, 0, WIDTH)
+        val swappedKey = OcrResultCache.keyOf(WIDTH, HEIGHT,
+            { row, y -> System.arraycopy(swapped, y * WIDTH, row, 0, WIDTH) }, "ch", "paddle-v1", true)
+        assertNotEquals(key, swappedKey)
+    }
+
+    @Test
+    fun shapeIsPartOfTheKey() {
+        // 同样的像素排成3x4
+        val transposedKey = OcrResultCache.keyOf(HEIGHT, WIDTH,
+            { row, y -> System.arraycopy(pixels, y * HEIGHT, row, 0, HEIGHT) }, "ch", "paddle-v1", true)
+        assertNotEquals(key, transposedKey)
+    }
+
+    @Test
+    fun languageEngineAndOptionsArePartOfTheKey() {
+        val keys = setOf(
+            key,
+            OcrResultCache.keyOf(WIDTH, HEIGHT, rows, "en", "paddle-v1", true),
+            OcrResultCache.keyOf(WIDTH, HEIGHT, rows, "ch", "paddle-v2", true),
+            OcrResultCache.keyOf(WIDTH, HEIGHT, rows, "ch", "paddle-v1", false)
+        )
+        assertEquals(4, keys.size)
+    }
+
+    companion object {
+        private const val WIDTH = 4
+        private const val HEIGHT = 3
+    }
+}
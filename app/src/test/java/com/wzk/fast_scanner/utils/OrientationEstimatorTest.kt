@@ -0,0 +1,90 @@
+package com.wzk.fast_scanner.utils
+
+import com.wzk.fast_scanner.utils.OrientationEstimator.Orientation
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * 根据行、列投影判断整页方向
+ */
+class OrientationEstimatorTest {
+
+    //拉丁字母的一行 上伸部分比下伸部分多，墨迹重心偏上
+    private val latinLine = intArrayOf(6, 6, 6, 6, 6, 6, 3, 3, 3, 1, 1, 1)
+
+    //倒置的拉丁字母行
+    private val flippedLine = latinLine.reversedArray()
+
+    //方块字的一行 重心居中
+    private val squareLine = IntArray(12) { 5 }
+
+    //行与行之间隔着空白拼成投影
+    private fun profile(vararg lines: IntArray): IntArray {
+        val gap = IntArray(8)
+        var result = gap
+        for (line in lines) {
+            result += line + gap
+        }
+        return result
+    }
+
+    //横排文字的列投影比较平
+    private val flatCols = IntArray(200) { 40 + it % 3 }
+
+    @Test
+    fun uprightLatinText() {
+        val rows = profile(*Array(6) { latinLine })
+        assertEquals(Orientation.UPRIGHT, OrientationEstimator.classify(rows, flatCols))
+    }
+
+    @Test
+    fun upsideDownLatinText() {
+        val rows = profile(*Array(6) { flippedLine })
+        assertEquals(Orientation.UPSIDE_DOWN, OrientationEstimator.classify(rows, flatCols))
+    }
+
+    @Test
+    fun squareScriptHasNoPolarity() {
+        val rows = profile(*Array(6) { squareLine })
+        assertEquals(Orientation.HORIZONTAL, OrientationEstimator.classify(rows, flatCols))
+    }
+
+    @Test
+    fun tooFewLinesToDecide() {
+        val rows = profile(latinLine, latinLine, latinLine)
+        assertEquals(Orientation.HORIZONTAL, OrientationEstimator.classify(rows, flatCols))
+    }
+
+    @Test
+    fun mixedPolarityIsNotDecided() {
+        val rows = profile(latinLine, latinLine, latinLine, flippedLine, flippedLine)
+        assertEquals(Orientation.HORIZONTAL, OrientationEstimator.classify(rows, flatCols))
+    }
+
+    @Test
+    fun thinLinesAreIgnored() {
+        // 低于最小行高的行（表格线、噪声）不参与判断
+        val rule = intArrayOf(6, 3, 1)
+        val rows = profile(*Array(6) { rule })
+        assertEquals(Orientation.HORIZONTAL, OrientationEstimator.classify(rows, flatCols))
+    }
+
+    @Test
+    fun verticalText() {
+        val cols = profile(*Array(6) { squareLine })
+        val flatRows = IntArray(200) { 40 }
+        assertEquals(Orientation.VERTICAL, OrientationEstimator.classify(flatRows, cols))
+    }
+
+    @Test
+    fun gridWithoutDominantAxis() {
+        val both = profile(*Array(6) { squareLine })
+        assertEquals(Orientation.UNKNOWN, OrientationEstimator.classify(both, both.clone()))
+    }
+
+    @Test
+    fun blankPage() {
+        assertEquals(Orientation.UNKNOWN, OrientationEstimator.classify(IntArray(100), IntArray(80)))
+        assertEquals(Orientation.UNKNOWN, OrientationEstimator.classify(IntArray(100) { 7 }, IntArray(80) { 7 }))
+    }
+}
@@ -0,0 +1,132 @@
+package com.wzk.fast_scanner.utils
+
+import android.os.PowerManager
+import com.wzk.fast_scanner.utils.PowerModeScheduler.Level
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * 功率档位切换的滞回 设备状态和时钟都是模拟的
+ */
+class PowerModeSchedulerTest {
+
+    private class FakeDeviceState : PowerModeScheduler.DeviceState {
+        var thermal = PowerManager.THERMAL_STATUS_NONE
+        var battery = 80
+        var charging = false
+        var now = 0L
+
+        override fun thermalStatus() = thermal
+        override fun batteryPercent() = battery
+        override fun isCharging() = charging
+        override fun elapsedRealtime() = now
+    }
+
+    private val device = FakeDeviceState()
+    private val scheduler = PowerModeScheduler(device)
+
+    //识别一页100万像素的页面
+    private fun page(millis: Long = 100): Level? = scheduler.onPageRecognized(millis * 1_000_000, 1_000_000)
+
+    //连续识别多页 返回每页的决定
+    private fun pages(count: Int, millis: Long = 100): List<Level?> = List(count) { page(millis) }
+
+    @Test
+    fun downNeedsTwoPagesAndMinimumInterval() {
+        device.thermal = PowerManager.THERMAL_STATUS_MODERATE
+        // 距离上次切换不到10秒
+        assertEquals(listOf(null, null, null), pages(3))
+        device.now = 10_000
+        assertEquals(Level.HIGH, page())
+        assertEquals(Level.HIGH, scheduler.level)
+    }
+
+    @Test
+    fun singleHotPageDoesNotSwitch() {
+        device.now = 10_000
+        device.thermal = PowerManager.THERMAL_STATUS_MODERATE
+        assertNull(page())
+        device.thermal = PowerManager.THERMAL_STATUS_NONE
+        assertEquals(listOf(null, null, null), pages(3))
+        assertEquals(Level.FULL, scheduler.level)
+    }
+
+    @Test
+    fun severeThermalSwitchesImmediately() {
+        device.thermal = PowerManager.THERMAL_STATUS_SEVERE
+        assertEquals(Level.LOW, page())
+    }
+
+    @Test
+    fun upNeedsFivePagesAndOneMinute() {
+        device.thermal = PowerManager.THERMAL_STATUS_MODERATE
+        device.now = 10_000
+        assertEquals(listOf(null, Level.HIGH), pages(2))
+
+        device.thermal = PowerManager.THERMAL_STATUS_NONE
+        device.now = 30_000
+        assertEquals(List(8) { null }, pages(8))
+        // 已经连续成立足够多页，间隔到了就升档
+        device.now = 70_000
+        assertEquals(Level.FULL, page())
+    }
+
+    @Test
+    fun upIsConfirmedPageByPage() {
+        device.thermal = PowerManager.THERMAL_STATUS_MODERATE
+        device.now = 10_000
+        assertEquals(listOf(null, Level.HIGH), pages(2))
+
+        device.thermal = PowerManager.THERMAL_STATUS_NONE
+        device.now = 100_000
+        assertEquals(listOf(null, null, null, null, Level.FULL), pages(5))
+    }
+
+    @Test
+    fun upMovesOneLevelAtATime() {
+        device.battery = 10
+        device.now = 10_000
+        assertEquals(listOf(null, Level.LOW), pages(2))
+
+        device.charging = true
+        device.now = 100_000
+        assertEquals(listOf(null, null, null, null, Level.HIGH), pages(5))
+        device.now = 200_000
+        assertEquals(listOf(null, null, null, null, Level.FULL), pages(5))
+    }
+
+    @Test
+    fun batterySaveHasHysteresis() {
+        device.battery = 30
+        device.now = 10_000
+        assertEquals(listOf(null, Level.HIGH), pages(2))
+
+        // 回到35%以上才允许升档
+        device.battery = 33
+        device.now = 1_000_000
+        assertEquals(List(10) { null }, pages(10))
+        assertEquals(Level.HIGH, scheduler.level)
+
+        device.battery = 36
+        assertEquals(listOf(null, null, null, null, Level.FULL), pages(5))
+    }
+
+    @Test
+    fun throttledLatencyStepsDownAndWaitsLongerToRecover() {
+        // 前5页建立这一档的最好成绩
+        assertEquals(List(5) { null }, pages(5))
+        device.now = 20_000
+        // 平均耗时超过最好成绩的1.5倍之后，再连续两页才降档
+        assertEquals(listOf(null, null, null, Level.HIGH), pages(4, 200))
+        assertTrue(scheduler.toString(), scheduler.toString().contains("throttled=true"))
+
+        // 因为降频降的档 一分钟后还不能升档
+        device.now = 140_000
+        assertEquals(List(10) { null }, pages(10))
+        device.now = 200_000
+        assertEquals(Level.FULL, page())
+        assertTrue(scheduler.toString(), scheduler.toString().contains("throttled=false"))
+    }
+}
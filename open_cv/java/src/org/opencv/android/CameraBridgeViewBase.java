@@ -135,6 +135,8 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
         /**
          * This method is invoked when delivery of the frame needs to be done.
          * The returned values - is a modified frame which needs to be displayed on the screen.
+         * Returning null skips drawing of this frame: analysis-only listeners that use just
+         * inputFrame.gray() then never pay for the RGBA conversion.
          * TODO: pass the parameters specifying the format of the frame (BPP, YUV or RGB and etc)
          */
         public Mat onCameraFrame(CvCameraViewFrame inputFrame);
@@ -197,10 +199,14 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
     };
 
     public class RotatedCameraFrame implements CvCameraViewFrame {
+        // Rotated copies are made once per frame, repeated calls return the same Mat
         @Override
         public Mat gray() {
             if (mRotation != 0) {
-                Core.rotate(mFrame.gray(), mGrayRotated, getCvRotationCode(mRotation));
+                if (!mGrayReady) {
+                    Core.rotate(mFrame.gray(), mGrayRotated, getCvRotationCode(mRotation));
+                    mGrayReady = true;
+                }
                 return mGrayRotated;
             } else {
                 return mFrame.gray();
@@ -210,7 +216,10 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
         @Override
         public Mat rgba() {
             if (mRotation != 0) {
-                Core.rotate(mFrame.rgba(), mRgbaRotated, getCvRotationCode(mRotation));
+                if (!mRgbaReady) {
+                    Core.rotate(mFrame.rgba(), mRgbaRotated, getCvRotationCode(mRotation));
+                    mRgbaReady = true;
+                }
                 return mRgbaRotated;
             } else {
                 return mFrame.rgba();
@@ -244,6 +253,8 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
         public CvCameraViewFrame mFrame;
         private Mat mRgbaRotated;
         private Mat mGrayRotated;
+        private boolean mRgbaReady;
+        private boolean mGrayReady;
         private int mRotation;
     };
 
@@ -359,6 +370,13 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
             mFpsMeter = null;
     }
 
+    /**
+     * @return the fps meter enabled with enableFpsMeter(), or null
+     */
+    public FpsMeter getFpsMeter() {
+        return mFpsMeter;
+    }
+
     /**
      *
      * @param listener
@@ -494,8 +512,11 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
 
         if (mListener != null) {
             modified = mListener.onCameraFrame(frame);
+            // analysis-only listener: nothing to show for this frame, skip conversion and drawing
+            if (modified == null)
+                return;
         } else {
-            modified = frame.rgba();
+            modified = mPreviewFormat == GRAY ? frame.gray() : frame.rgba();
         }
 
         boolean bmpValid = true;
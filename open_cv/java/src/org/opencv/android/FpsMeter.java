@@ -18,6 +18,11 @@ public class FpsMeter {
     private double              mFrequency;
     private long                mprevFrameTime;
     private String              mStrfps;
+    private String              mStrProcessing = "";
+    private static final double LATENCY_ALPHA   = 0.2;
+    private long                mFramesOffered;
+    private long                mFramesDropped;
+    private double              mLatencyMs = -1;
     Paint                       mPaint;
     boolean                     mIsInitialized = false;
     int                         mWidth = 0;
@@ -53,6 +58,40 @@ public class FpsMeter {
         }
     }
 
+    /**
+     * Counts a frame offered to an asynchronous consumer (e.g. a recognition worker).
+     * @param dropped true if the consumer was busy and the frame was skipped instead of being queued
+     */
+    public synchronized void recordFrame(boolean dropped) {
+        mFramesOffered++;
+        if (dropped)
+            mFramesDropped++;
+    }
+
+    /**
+     * Records the time from frame capture until its processing result became available.
+     * Kept as an exponential moving average, safe to call from any thread.
+     */
+    public synchronized void recordLatency(double millis) {
+        mLatencyMs = mLatencyMs < 0 ? millis : mLatencyMs + LATENCY_ALPHA * (millis - mLatencyMs);
+        mStrProcessing = "latency " + FPS_FORMAT.format(mLatencyMs) + " ms, dropped "
+                + FPS_FORMAT.format(getDroppedRatio() * 100) + "%";
+    }
+
+    /**
+     * @return average frame-to-result latency in milliseconds, -1 if nothing was recorded
+     */
+    public synchronized double getLatencyMillis() {
+        return mLatencyMs;
+    }
+
+    /**
+     * @return share of offered frames that were dropped, 0 if nothing was offered
+     */
+    public synchronized double getDroppedRatio() {
+        return mFramesOffered == 0 ? 0 : (double) mFramesDropped / mFramesOffered;
+    }
+
     public void setResolution(int width, int height) {
         Log.d(TAG, "FpsMeter.setResolution " + Integer.valueOf(mWidth) + "x" + Integer.valueOf(mHeight));
         mWidth = width;
@@ -62,6 +101,12 @@ public class FpsMeter {
     public void draw(Canvas canvas, float offsetx, float offsety) {
         Log.d(TAG, mStrfps);
         canvas.drawText(mStrfps, offsetx, offsety, mPaint);
+        String processing;
+        synchronized (this) {
+            processing = mStrProcessing;
+        }
+        if (!processing.isEmpty())
+            canvas.drawText(processing, offsetx, offsety + mPaint.getTextSize() * 1.2f, mPaint);
     }
 
 }
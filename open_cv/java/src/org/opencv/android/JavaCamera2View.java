@@ -3,6 +3,7 @@ package org.opencv.android;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import android.annotation.TargetApi;
 import android.content.Context;
@@ -57,6 +58,12 @@ public class JavaCamera2View extends CameraBridgeViewBase {
     private HandlerThread mBackgroundThread;
     protected Handler mBackgroundHandler;
 
+    // Optional frame processing thread, see setDecoupledProcessing()
+    private boolean mDecoupledProcessing = false;
+    private HandlerThread mProcessingThread;
+    private Handler mProcessingHandler;
+    private final AtomicBoolean mProcessingBusy = new AtomicBoolean(false);
+
     public JavaCamera2View(Context context, int cameraId) {
         super(context, cameraId);
     }
@@ -87,6 +94,44 @@ public class JavaCamera2View extends CameraBridgeViewBase {
         }
     }
 
+    private void startProcessingThread() {
+        stopProcessingThread();
+        if (!mDecoupledProcessing)
+            return;
+        Log.i(LOGTAG, "startProcessingThread");
+        mProcessingThread = new HandlerThread("OpenCVCameraProcessing");
+        mProcessingThread.start();
+        mProcessingHandler = new Handler(mProcessingThread.getLooper());
+    }
+
+    private void stopProcessingThread() {
+        if (mProcessingThread == null)
+            return;
+        Log.i(LOGTAG, "stopProcessingThread");
+        // frames already posted are still delivered and their images closed
+        mProcessingThread.quitSafely();
+        try {
+            mProcessingThread.join();
+            mProcessingThread = null;
+            mProcessingHandler = null;
+        } catch (InterruptedException e) {
+            Log.e(LOGTAG, "stopProcessingThread", e);
+        }
+        mProcessingBusy.set(false);
+    }
+
+    /**
+     * Runs onCameraFrame() and drawing on a dedicated thread instead of the camera handler thread.
+     * The camera thread then only acquires images: while a frame is being processed, newer frames are
+     * closed right away (latest frame wins) instead of queueing up behind it, so a slow listener no
+     * longer delays image acquisition and never works on stale frames.
+     * Takes effect the next time the camera is connected.
+     * @param decoupled true to process frames on their own thread
+     */
+    public void setDecoupledProcessing(boolean decoupled) {
+        mDecoupledProcessing = decoupled;
+    }
+
     protected boolean selectCamera() {
         Log.i(LOGTAG, "selectCamera");
         CameraManager manager = (CameraManager) getContext().getSystemService(Context.CAMERA_SERVICE);
@@ -214,11 +259,31 @@ public class JavaCamera2View extends CameraBridgeViewBase {
                     assert (planes.length == 3);
                     assert (image.getFormat() == mPreviewFormat);
 
-                    RotatedCameraFrame tempFrame = new RotatedCameraFrame(new JavaCamera2Frame(image), mFrameRotation);
-                    deliverAndDrawFrame(tempFrame);
-                    tempFrame.mFrame.release();
-                    tempFrame.release();
-                    image.close();
+                    final Handler processingHandler = mProcessingHandler;
+                    if (processingHandler == null) {
+                        deliverImage(image);
+                        return;
+                    }
+                    // the processing thread holds at most one image, so the reader always has a free buffer
+                    if (!mProcessingBusy.compareAndSet(false, true)) {
+                        image.close();
+                        return;
+                    }
+                    final Image pending = image;
+                    boolean posted = processingHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                deliverImage(pending);
+                            } finally {
+                                mProcessingBusy.set(false);
+                            }
+                        }
+                    });
+                    if (!posted) {
+                        image.close();
+                        mProcessingBusy.set(false);
+                    }
                 }
             }, mBackgroundHandler);
             Surface surface = mImageReader.getSurface();
@@ -233,6 +298,17 @@ public class JavaCamera2View extends CameraBridgeViewBase {
         }
     }
 
+    private void deliverImage(Image image) {
+        RotatedCameraFrame tempFrame = new RotatedCameraFrame(new JavaCamera2Frame(image), mFrameRotation);
+        try {
+            deliverAndDrawFrame(tempFrame);
+        } finally {
+            tempFrame.mFrame.release();
+            tempFrame.release();
+            image.close();
+        }
+    }
+
     @Override
     protected void disconnectCamera() {
         Log.i(LOGTAG, "close camera");
@@ -248,6 +324,7 @@ public class JavaCamera2View extends CameraBridgeViewBase {
             }
         } finally {
             stopBackgroundThread();
+            stopProcessingThread();
             if (null != mImageReader) {
                 mImageReader.close();
                 mImageReader = null;
@@ -305,6 +382,7 @@ public class JavaCamera2View extends CameraBridgeViewBase {
     protected boolean connectCamera(int width, int height) {
         Log.i(LOGTAG, "setCameraPreviewSize(" + width + "x" + height + ")");
         startBackgroundThread();
+        startProcessingThread();
         selectCamera();
         try {
             CameraManager manager = (CameraManager) getContext().getSystemService(Context.CAMERA_SERVICE);
@@ -352,8 +430,13 @@ public class JavaCamera2View extends CameraBridgeViewBase {
     }
 
     private class JavaCamera2Frame implements CvCameraViewFrame {
+        /**
+         * Wraps the Y plane of the image without copying. Valid until the frame is released.
+         */
         @Override
         public Mat gray() {
+            if (mGray != null)
+                return mGray;
             Image.Plane[] planes = mImage.getPlanes();
             int w = mImage.getWidth();
             int h = mImage.getHeight();
@@ -364,8 +447,14 @@ public class JavaCamera2View extends CameraBridgeViewBase {
             return mGray;
         }
 
+        /**
+         * Converts the image to RGBA on first use only, frames that are only analysed in gray never pay for it.
+         */
         @Override
         public Mat rgba() {
+            if (mRgbaReady)
+                return mRgba;
+            mRgbaReady = true;
             Image.Plane[] planes = mImage.getPlanes();
             int w = mImage.getWidth();
             int h = mImage.getHeight();
@@ -392,6 +481,9 @@ public class JavaCamera2View extends CameraBridgeViewBase {
                     assert(addr_diff == -1);
                     Imgproc.cvtColorTwoPlane(y_mat, uv_mat2, mRgba, Imgproc.COLOR_YUV2RGBA_NV21);
                 }
+                y_mat.release();
+                uv_mat1.release();
+                uv_mat2.release();
                 return mRgba;
             } else { // Chroma channels are not interleaved
                 byte[] yuv_bytes = new byte[w*(h+h/2)];
@@ -447,6 +539,7 @@ public class JavaCamera2View extends CameraBridgeViewBase {
                 Mat yuv_mat = new Mat(h+h/2, w, CvType.CV_8UC1);
                 yuv_mat.put(0, 0, yuv_bytes);
                 Imgproc.cvtColor(yuv_mat, mRgba, Imgproc.COLOR_YUV2RGBA_I420, 4);
+                yuv_mat.release();
                 return mRgba;
             }
         }
@@ -456,17 +549,18 @@ public class JavaCamera2View extends CameraBridgeViewBase {
             super();
             mImage = image;
             mRgba = new Mat();
-            mGray = new Mat();
         }
 
         @Override
         public void release() {
             mRgba.release();
-            mGray.release();
+            if (mGray != null)
+                mGray.release();
         }
 
         private Image mImage;
         private Mat mRgba;
+        private boolean mRgbaReady;
         private Mat mGray;
     };
 }